@@ -0,0 +1,419 @@
+/******************************************************************************
+ * Copyright © 2019, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration. All 
+ * rights reserved.
+ * 
+ * The Astrobee Control Station platform is licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0. 
+ *   
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations 
+ * under the License.
+ *****************************************************************************/
+package gov.nasa.arc.irg.freeflyer.rapid;
+
+import gov.nasa.arc.irg.plan.freeflyer.config.ZonesConfig;
+import gov.nasa.arc.irg.plan.model.PlanBuilder;
+import gov.nasa.arc.irg.plan.modulebay.ModuleBayPlan;
+import gov.nasa.arc.irg.plan.ui.io.ZonesConfigLoaderAndWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.log4j.Logger;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import rapid.ext.astrobee.CompressedFile;
+import rapid.ext.astrobee.FileCompressionType;
+
+import com.rti.dds.infrastructure.ByteSeq;
+
+/**
+ * Encodes and decodes the payload of a CompressedFile in memory. Outgoing
+ * files and configs are deflated straight into a byte array, and received
+ * payloads are inflated straight into the Jackson parser, so nothing goes
+ * through a temp file. Inflaters, Deflaters and scratch buffers are pooled.
+ * <p>
+ * The parsed json trees are cached by a hash of the compressed bytes, so a
+ * payload that is received again (the robot republishes its current plan,
+ * and several listeners decode the same sample) is not inflated and parsed
+ * a second time. Every call still binds a new plan or ZonesConfig from the
+ * cached tree, so callers own what they get back and may modify it; the
+ * trees themselves are never handed out.
+ */
+public class CompressedFileCodec {
+	private static final Logger logger = Logger.getLogger(CompressedFileCodec.class);
+
+	/** size of the pooled scratch buffers */
+	protected static final int BUFFER_SIZE = 16 * 1024;
+	/** max number of idle Inflaters, Deflaters and buffers kept for reuse */
+	protected static final int MAX_POOLED = 4;
+	/** number of parsed payloads remembered */
+	protected static final int CACHE_SIZE = 8;
+
+	/** only used to parse trees; binding uses the mapper of each type */
+	private static final ObjectMapper treeMapper = new ObjectMapper();
+
+	private static final ConcurrentLinkedQueue<Inflater> inflaters = new ConcurrentLinkedQueue<Inflater>();
+	private static final ConcurrentLinkedQueue<Deflater> deflaters = new ConcurrentLinkedQueue<Deflater>();
+	private static final ConcurrentLinkedQueue<byte[]> buffers = new ConcurrentLinkedQueue<byte[]>();
+
+	private static final Map<CacheKey,JsonNode> parsed = new LinkedHashMap<CacheKey,JsonNode>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<CacheKey,JsonNode> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	/** writes the uncompressed payload */
+	public interface PayloadWriter {
+		void writeTo(OutputStream out) throws Exception;
+	}
+
+	/** builds a new object from the parsed payload, without modifying the tree */
+	public interface PayloadReader<T> {
+		T readFrom(JsonNode tree) throws Exception;
+	}
+
+	private static final PayloadReader<ModuleBayPlan> planReader = new PayloadReader<ModuleBayPlan>() {
+		@Override
+		public ModuleBayPlan readFrom(JsonNode tree) throws Exception {
+			return PlanBuilder.createPlanBuilder(ModuleBayPlan.class).loadPlan(tree);
+		}
+	};
+
+	private static final PayloadReader<ZonesConfig> zonesReader = new PayloadReader<ZonesConfig>() {
+		@Override
+		public ZonesConfig readFrom(JsonNode tree) throws Exception {
+			return ZonesConfigLoaderAndWriter.load(tree);
+		}
+	};
+
+	private CompressedFileCodec() {
+	}
+
+	/**
+	 * Put deflated bytes into a CompressedFile
+	 */
+	public static void setPayload(CompressedFile cf, byte[] deflated) {
+		cf.compressionType = FileCompressionType.COMPRESSION_TYPE_DEFLATE;
+		cf.compressedFile.userData.clear();
+		cf.compressedFile.userData.addAllByte(deflated);
+	}
+
+	/**
+	 * @return the contents of the file, deflated
+	 */
+	public static byte[] deflate(final File file) throws Exception {
+		return deflate(new PayloadWriter() {
+			@Override
+			public void writeTo(OutputStream out) throws Exception {
+				copy(file, out);
+			}
+		}, (int)Math.min(file.length(), Integer.MAX_VALUE));
+	}
+
+	/**
+	 * @return the ZonesConfig as json, deflated
+	 */
+	public static byte[] deflate(final ZonesConfig zonesConfig) throws Exception {
+		return deflate(new PayloadWriter() {
+			@Override
+			public void writeTo(OutputStream out) throws Exception {
+				ZonesConfigLoaderAndWriter.write(out, zonesConfig);
+			}
+		}, BUFFER_SIZE);
+	}
+
+	/**
+	 * @param writer     writes the uncompressed payload to the stream it is given
+	 * @param sizeHint   expected uncompressed size, used to size the result
+	 * @return everything the writer wrote, deflated
+	 */
+	public static byte[] deflate(PayloadWriter writer, int sizeHint) throws Exception {
+		final ByteArrayOutputStream result = new ByteArrayOutputStream(Math.max(256, sizeHint / 4));
+		final Deflater deflater = borrowDeflater();
+		final byte[] buffer = borrowBuffer();
+		try {
+			final DeflatingOutputStream out = new DeflatingOutputStream(deflater, buffer, result);
+			writer.writeTo(out);
+			out.close();
+		} finally {
+			returnDeflater(deflater);
+			returnBuffer(buffer);
+		}
+		return result.toByteArray();
+	}
+
+	/**
+	 * @return the files as a zip archive, with one entry per file
+	 */
+	public static byte[] zip(File[] files) throws IOException {
+		final ByteArrayOutputStream result = new ByteArrayOutputStream();
+		try (ZipOutputStream zos = new ZipOutputStream(result)) {
+			for(File f : files) {
+				zos.putNextEntry(new ZipEntry(f.getName()));
+				copy(f, zos);
+				zos.closeEntry();
+			}
+		}
+		return result.toByteArray();
+	}
+
+	/**
+	 * @return the plan in the CompressedFile; a new instance on every call
+	 */
+	public static ModuleBayPlan decodePlan(CompressedFile cf) throws Exception {
+		return decode(cf, ModuleBayPlan.class, planReader);
+	}
+
+	/**
+	 * @return the zones in the CompressedFile; a new instance on every call
+	 */
+	public static ZonesConfig decodeZones(CompressedFile cf) throws Exception {
+		return decode(cf, ZonesConfig.class, zonesReader);
+	}
+
+	/**
+	 * Inflate and parse the payload of a CompressedFile, or reuse the tree
+	 * parsed earlier from an identical payload, and bind a new T from it.
+	 */
+	public static <T> T decode(CompressedFile cf, Class<T> type, PayloadReader<T> reader) throws Exception {
+		if(cf.compressionType != null && cf.compressionType.value() != FileCompressionType._COMPRESSION_TYPE_DEFLATE) {
+			throw new IOException("Unsupported compression type " + cf.compressionType);
+		}
+		final ByteSeq seq = cf.compressedFile.userData;
+		final byte[] bytes = seq.toArrayByte(new byte[seq.size()]);
+
+		final CacheKey key = new CacheKey(type, digest(bytes));
+		JsonNode tree;
+		synchronized(parsed) {
+			tree = parsed.get(key);
+		}
+
+		if(tree == null) {
+			final Inflater inflater = borrowInflater();
+			try {
+				tree = treeMapper.readTree(new InflatingInputStream(inflater, bytes));
+			} finally {
+				returnInflater(inflater);
+			}
+			if(tree == null) {
+				return null;
+			}
+			synchronized(parsed) {
+				parsed.put(key, tree);
+			}
+		}
+		return reader.readFrom(tree);
+	}
+
+	/** forget all parsed payloads */
+	public static void clearCache() {
+		synchronized(parsed) {
+			parsed.clear();
+		}
+	}
+
+	protected static void copy(File file, OutputStream out) throws IOException {
+		final byte[] buffer = borrowBuffer();
+		try (InputStream in = new FileInputStream(file)) {
+			int n;
+			while((n = in.read(buffer)) > 0) {
+				out.write(buffer, 0, n);
+			}
+		} finally {
+			returnBuffer(buffer);
+		}
+	}
+
+	protected static byte[] digest(byte[] bytes) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(bytes);
+		} catch (NoSuchAlgorithmException e) {
+			// every JRE has SHA-256; fall back to the bytes themselves
+			logger.error(e);
+			return bytes.clone();
+		}
+	}
+
+	protected static Inflater borrowInflater() {
+		final Inflater inflater = inflaters.poll();
+		return inflater != null ? inflater : new Inflater();
+	}
+
+	protected static void returnInflater(Inflater inflater) {
+		if(inflaters.size() < MAX_POOLED) {
+			inflater.reset();
+			inflaters.add(inflater);
+		} else {
+			inflater.end();
+		}
+	}
+
+	protected static Deflater borrowDeflater() {
+		final Deflater deflater = deflaters.poll();
+		return deflater != null ? deflater : new Deflater();
+	}
+
+	protected static void returnDeflater(Deflater deflater) {
+		if(deflaters.size() < MAX_POOLED) {
+			deflater.reset();
+			deflaters.add(deflater);
+		} else {
+			deflater.end();
+		}
+	}
+
+	protected static byte[] borrowBuffer() {
+		final byte[] buffer = buffers.poll();
+		return buffer != null ? buffer : new byte[BUFFER_SIZE];
+	}
+
+	protected static void returnBuffer(byte[] buffer) {
+		if(buffers.size() < MAX_POOLED) {
+			buffers.add(buffer);
+		}
+	}
+
+	/**
+	 * Type to decode plus hash of the compressed bytes
+	 */
+	protected static class CacheKey {
+		final Class<?> type;
+		final byte[] hash;
+
+		CacheKey(Class<?> type, byte[] hash) {
+			this.type = type;
+			this.hash = hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * type.hashCode() + Arrays.hashCode(hash);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof CacheKey)) {
+				return false;
+			}
+			final CacheKey other = (CacheKey)obj;
+			return type.equals(other.type) && Arrays.equals(hash, other.hash);
+		}
+	}
+
+	/**
+	 * Inflates directly into the caller's buffer, so the parser reads the
+	 * uncompressed bytes without another copy.
+	 */
+	protected static class InflatingInputStream extends InputStream {
+		private final Inflater inflater;
+		private final byte[] single = new byte[1];
+
+		InflatingInputStream(Inflater inflater, byte[] compressed) {
+			this.inflater = inflater;
+			inflater.setInput(compressed);
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if(len == 0) {
+				return 0;
+			}
+			try {
+				while(!inflater.finished()) {
+					final int n = inflater.inflate(b, off, len);
+					if(n > 0) {
+						return n;
+					}
+					if(!inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+						throw new EOFException("Compressed file is truncated");
+					}
+				}
+				return -1;
+			} catch (DataFormatException e) {
+				throw new IOException("Compressed file is corrupt", e);
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+			return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+		}
+	}
+
+	/**
+	 * Deflates everything written to it into the target stream. Closing it
+	 * finishes the deflate stream but leaves the target open.
+	 */
+	protected static class DeflatingOutputStream extends OutputStream {
+		private final Deflater deflater;
+		private final byte[] buffer;
+		private final OutputStream target;
+		private boolean closed = false;
+
+		DeflatingOutputStream(Deflater deflater, byte[] buffer, OutputStream target) {
+			this.deflater = deflater;
+			this.buffer = buffer;
+			this.target = target;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if(closed) {
+				throw new IOException("Stream closed");
+			}
+			deflater.setInput(b, off, len);
+			while(!deflater.needsInput()) {
+				drain();
+			}
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte)b }, 0, 1);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if(closed) {
+				return;
+			}
+			closed = true;
+			deflater.finish();
+			while(!deflater.finished()) {
+				drain();
+			}
+		}
+
+		private void drain() throws IOException {
+			final int n = deflater.deflate(buffer);
+			if(n > 0) {
+				target.write(buffer, 0, n);
+			}
+		}
+	}
+}
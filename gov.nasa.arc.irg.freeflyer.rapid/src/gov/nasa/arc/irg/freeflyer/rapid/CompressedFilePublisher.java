@@ -19,7 +19,6 @@ package gov.nasa.arc.irg.freeflyer.rapid;
 
 import gov.nasa.arc.irg.plan.freeflyer.config.KeepoutConfig;
 import gov.nasa.arc.irg.plan.freeflyer.config.ZonesConfig;
-import gov.nasa.arc.irg.plan.model.PlanBuilder;
 import gov.nasa.arc.irg.plan.modulebay.ModuleBayPlan;
 import gov.nasa.arc.irg.plan.ui.io.ConfigFileWrangler;
 import gov.nasa.arc.irg.plan.ui.io.KeepoutConfigLoaderAndWriter;
@@ -27,35 +26,47 @@ import gov.nasa.arc.irg.plan.ui.io.ZonesConfigLoaderAndWriter;
 import gov.nasa.rapid.idl.ext.astrobee.message.MessageTypeExtAstro;
 import gov.nasa.rapid.v2.e4.Rapid;
 import gov.nasa.rapid.v2.e4.agent.Agent;
+import gov.nasa.rapid.v2.e4.message.IDdsWriterStatusListener;
 import gov.nasa.rapid.v2.e4.message.MessageType;
 import gov.nasa.rapid.v2.e4.message.WriterStatus;
 import gov.nasa.rapid.v2.e4.message.publisher.RapidMessagePublisher;
 import gov.nasa.rapid.v2.e4.util.RapidUtil;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
-import java.util.zip.Deflater;
-import java.util.zip.Inflater;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 
 import rapid.ext.astrobee.CompressedFile;
-import rapid.ext.astrobee.FileCompressionType;
 
-import com.rti.dds.infrastructure.ByteSeq;
 import com.rti.dds.publication.PublicationMatchedStatus;
 
 /**
  * To publish keepouts, dataToDisk, and plans.
  * Supersedes CompressPublisher and children
+ * <p>
+ * Uploads are asynchronous: the upload* methods return right away with a
+ * future that completes with the CompressedFile id once the file has been
+ * written. A file is written as soon as a reader on the robot matches our
+ * writer, which we learn from the PublicationMatched writer status rather
+ * than by polling. Progress, failures and latency are posted to LogPoster.
  * @author ddwheele
  *
  */
@@ -73,7 +84,15 @@ public class CompressedFilePublisher {
 
 	private final String SEND_ZONES_LOG_STRING = "Upload Keepout Zone Files";
 
-	public static CompressedFilePublisher getInstance(Agent agent) {
+	/** how long an upload waits for a reader to match before giving up */
+	public static final long DEFAULT_MATCH_TIMEOUT_SECONDS = 60;
+
+	/** compresses and writes uploads, and runs their timeouts */
+	protected static final ScheduledThreadPoolExecutor s_uploadExec = createUploadExecutor();
+
+	protected final Map<MessageType,MatchTracker> matchTrackers = new HashMap<MessageType,MatchTracker>();
+
+	public static synchronized CompressedFilePublisher getInstance(Agent agent) {
 		if(instances.get(agent) == null) {
 			instances.put(agent, new CompressedFilePublisher(agent));
 		}
@@ -124,7 +143,11 @@ public class CompressedFilePublisher {
 	}
 
 
-	public void sendKeepoutZones() throws IOException {	
+	/**
+	 * Write ComputedZonesConfig.json and upload the zones in it
+	 * @return future that completes with the CompressedFile id
+	 */
+	public CompletableFuture<Integer> sendKeepoutZones() {	
 		makeTheZonesConfig();
 
 		// write the file
@@ -135,50 +158,217 @@ public class CompressedFilePublisher {
 			System.out.println("ERROR WRITING ZONES CONFIG FILE");
 		}
 
-		// send the file
-		compressAndSendFile(SEND_ZONES_LOG_STRING, MessageTypeExtAstro.ZONES_COMPRESSED_TYPE, new File(zonesFilename));
-
+		// send the zones straight from memory rather than reading the file back
+		final ZonesConfig toSend = zonesConfig;
+		return upload(SEND_ZONES_LOG_STRING, MessageTypeExtAstro.ZONES_COMPRESSED_TYPE, new Callable<byte[]>() {
+			@Override
+			public byte[] call() throws Exception {
+				return CompressedFileCodec.deflate(toSend);
+			}
+		}, DEFAULT_MATCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
 	}
 
+	/**
+	 * Blocking upload, kept for callers that need the id right away. Gives up
+	 * after DEFAULT_MATCH_TIMEOUT_SECONDS if no reader matches.
+	 * @return the CompressedFile id, or -1 if the upload failed
+	 */
 	public int compressAndSendFile(String logMsg, MessageType msgType, File uncompressedFile) {
+		try {
+			return uploadFile(logMsg, msgType, uncompressedFile, DEFAULT_MATCH_TIMEOUT_SECONDS, TimeUnit.SECONDS).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			// already logged by the upload
+		} catch (CancellationException e) {
+			// already logged by the upload
+		}
+		return -1;
+	}
+
+	/**
+	 * Compress a file and upload it once a reader matches.
+	 * @param timeout  how long to wait for a reader; 0 to wait indefinitely
+	 * @return future that completes with the CompressedFile id. It fails with a
+	 * TimeoutException if no reader matched in time. Cancelling it abandons the
+	 * upload unless the file is already being written.
+	 */
+	public CompletableFuture<Integer> uploadFile(String logMsg, MessageType msgType, File file, long timeout, TimeUnit unit) {
+		return upload(logMsg, msgType, deflateOnce(file), timeout, unit);
+	}
+
+	/**
+	 * Upload the same file to several agents at once. The file is compressed
+	 * only once, and a robot that is offline does not hold up the others.
+	 * @return one future per agent, in the order given
+	 */
+	public static Map<Agent,CompletableFuture<Integer>> uploadFile(Agent[] agents, String logMsg, MessageType msgType, 
+			File file, long timeout, TimeUnit unit) {
+		final Callable<byte[]> payload = deflateOnce(file);
+		final Map<Agent,CompletableFuture<Integer>> futures = new LinkedHashMap<Agent,CompletableFuture<Integer>>();
+		for(Agent agent : agents) {
+			futures.put(agent, getInstance(agent).upload(logMsg, msgType, payload, timeout, unit));
+		}
+		return futures;
+	}
+
+	/**
+	 * @param payload  produces the deflated bytes; called on an upload thread once a reader matches
+	 */
+	protected CompletableFuture<Integer> upload(final String logMsg, final MessageType msgType, final Callable<byte[]> payload,
+			final long timeout, final TimeUnit unit) {
+		final CompletableFuture<Integer> future = new CompletableFuture<Integer>();
+		final long startNanos = System.nanoTime();
+
 		if(!rapidMessagePublisher.createWriter(participant, msgType)) {
 			logger.info("Failed to create writer");
-			return -1;
+			postFailure(logMsg, "could not create writer for " + msgType);
+			future.completeExceptionally(new IOException("Failed to create writer for " + msgType));
+			return future;
+		}
+
+		final Runnable send = new Runnable() {
+			@Override
+			public void run() {
+				if(future.isDone()) {
+					return; // cancelled or timed out while waiting
+				}
+				final long matchedNanos = System.nanoTime();
+				try {
+					final byte[] deflated = payload.call();
+					final int id = write(msgType, deflated);
+					final long doneNanos = System.nanoTime();
+					if(future.complete(id)) {
+						LogPoster.postToLog(LogEntry.FILE, logMsg + " " + id + " (" + deflated.length + " bytes, matched after "
+								+ millis(matchedNanos - startNanos) + " ms, sent in " + millis(doneNanos - matchedNanos) + " ms)", 
+								freeFlyerAgent.name());
+					}
+				} catch (Exception e) {
+					logger.error("Unable to compress or send CompressedFile", e);
+					if(future.completeExceptionally(e)) {
+						postFailure(logMsg, e.getMessage());
+					}
+				}
+			}
+		};
+
+		final MatchTracker tracker = getMatchTracker(msgType);
+		final ScheduledFuture<?> timer;
+		if(timeout > 0) {
+			timer = s_uploadExec.schedule(new Runnable() {
+				@Override
+				public void run() {
+					if(future.completeExceptionally(new TimeoutException("No reader for " + msgType + " on " + freeFlyerAgent.name()
+							+ " after " + unit.toSeconds(timeout) + " s"))) {
+						postFailure(logMsg, "no reader matched after " + unit.toSeconds(timeout) + " s");
+					}
+				}
+			}, timeout, unit);
+		} else {
+			timer = null;
+		}
+
+		future.whenComplete(new BiConsumer<Integer,Throwable>() {
+			@Override
+			public void accept(Integer id, Throwable t) {
+				tracker.forget(send);
+				if(timer != null) {
+					timer.cancel(false);
+				}
+				if(t instanceof CancellationException) {
+					LogPoster.postToLog(LogEntry.FILE, logMsg + " to " + freeFlyerAgent.name() + " cancelled", freeFlyerAgent.name());
+				}
+			}
+		});
+
+		if(!tracker.whenMatched(send)) {
+			LogPoster.postToLog(LogEntry.FILE, logMsg + ": waiting for " + freeFlyerAgent.name() + " to connect", freeFlyerAgent.name());
 		}
-		
-		waitForMatch(participant, msgType);
-		
-		final File compressedFile = compressOneFile(uncompressedFile);
+		return future;
+	}
+
+	/**
+	 * @return the id of the CompressedFile written
+	 */
+	protected int write(MessageType msgType, byte[] deflated) throws IOException {
 		final CompressedFile cf = new CompressedFile();
 
 		RapidUtil.setHeader(cf.hdr, freeFlyerAgent, srcName, 0);
-		cf.compressionType = FileCompressionType.COMPRESSION_TYPE_DEFLATE;
-		cf.id = -1;
+		CompressedFileCodec.setPayload(cf, deflated);
+		cf.id = (int) System.currentTimeMillis();
+		if(!rapidMessagePublisher.writeMessage(participant, msgType, cf)) {
+			throw new IOException("Failed to write " + msgType + " to " + freeFlyerAgent.name());
+		}
+		return cf.id;
+	}
 
-		try {
-			cf.compressedFile.userData.addAllByte(IOUtils.toByteArray(new FileInputStream(compressedFile)));
-			cf.id = (int) System.currentTimeMillis();
-			if(!rapidMessagePublisher.writeMessage(participant, msgType, cf)) {
-				logger.info("writeMessage returned false");
+	protected void postFailure(String logMsg, String reason) {
+		LogPoster.postToLog(LogEntry.ERROR, logMsg + " to " + freeFlyerAgent.name() + " failed: " + reason, freeFlyerAgent.name());
+	}
+
+	protected MatchTracker getMatchTracker(MessageType msgType) {
+		synchronized(matchTrackers) {
+			MatchTracker tracker = matchTrackers.get(msgType);
+			if(tracker == null) {
+				tracker = new MatchTracker();
+				matchTrackers.put(msgType, tracker);
+				rapidMessagePublisher.addDdsWriterStatusListener(participant, msgType, tracker);
+				// readers that matched before we started listening
+				final PublicationMatchedStatus status = (PublicationMatchedStatus) rapidMessagePublisher.getWriterStatus(
+						WriterStatus.PublicationMatched, participant, msgType, new PublicationMatchedStatus());
+				if(status != null) {
+					tracker.setMatchedCount(status.current_count);
+				}
 			}
-			LogPoster.postToLog(LogEntry.FILE, logMsg + " " + cf.id, freeFlyerAgent.name());
-		} catch (Exception e) {
-			logger.error("Unable to compress or send CompressedFile", e);
+			return tracker;
 		}
+	}
 
-		return cf.id;
+	/**
+	 * @return a Callable that deflates the file the first time it is called
+	 * and returns the same bytes after that
+	 */
+	protected static Callable<byte[]> deflateOnce(final File file) {
+		return new Callable<byte[]>() {
+			private byte[] deflated = null;
+
+			@Override
+			public synchronized byte[] call() throws Exception {
+				if(deflated == null) {
+					deflated = CompressedFileCodec.deflate(file);
+				}
+				return deflated;
+			}
+		};
+	}
+
+	protected static long millis(long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+	private static ScheduledThreadPoolExecutor createUploadExecutor() {
+		final ScheduledThreadPoolExecutor exec = new ScheduledThreadPoolExecutor(4, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger(0);
+
+			@Override
+			public Thread newThread(Runnable r) {
+				final Thread thread = new Thread(r, "CompressedFileUpload-" + count.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		exec.setRemoveOnCancelPolicy(true);
+		return exec;
 	}
 
 	public void compressAndSendFile(String logMsg, MessageType msgType, File[] uncompressedFiles) {
-		final File compressedFile = compress(uncompressedFiles);
 		final CompressedFile cf = new CompressedFile();
 
 		RapidUtil.setHeader(cf.hdr, freeFlyerAgent, srcName, 0);
-		cf.compressionType = FileCompressionType.COMPRESSION_TYPE_DEFLATE;
 
 		try {
 			cf.id = (int) System.currentTimeMillis();
-			cf.compressedFile.userData.addAllByte(IOUtils.toByteArray(new FileInputStream(compressedFile)));
+			CompressedFileCodec.setPayload(cf, CompressedFileCodec.zip(uncompressedFiles));
 			rapidMessagePublisher.writeMessage(participant, msgType, cf);
 		} catch (Exception e) {
 			logger.error("Unable to compress or send CompressedFile", e);
@@ -187,132 +377,86 @@ public class CompressedFilePublisher {
 		LogPoster.postToLog(LogEntry.FILE, logMsg, freeFlyerAgent.name());
 	}
 
-	private File compressOneFile(File file) {
-		// old way before we switched to zipping. 
-		final ByteArrayOutputStream baos;
-		File deflateFile = null;
+	/**
+	 * @return the plan in the CompressedFile, or null if it could not be decoded.
+	 * Each call returns its own plan, even for a file decoded before, so the
+	 * caller may modify it.
+	 */
+	public static ModuleBayPlan uncompressCurrentPlanCompressedFile(CompressedFile compressedFile) {
 		try {
-			final byte[] byteArray = IOUtils.toByteArray(new FileInputStream(file));
-
-			final Deflater deflater = new Deflater();
-			deflater.setInput(byteArray);
-			deflater.finish();
-
-			baos = new ByteArrayOutputStream(byteArray.length);
-			final byte[] buffer = new byte[1024];
-			while(!deflater.finished()){
-				baos.write(buffer,0,deflater.deflate(buffer));
-			}
-			deflater.end();
-
-			deflateFile = File.createTempFile("plan", ".dfz");
-
-			FileUtils.writeByteArrayToFile(deflateFile, baos.toByteArray());
-			baos.close();
-		} catch (IOException e) {
-			System.err.println(e);
+			return CompressedFileCodec.decodePlan(compressedFile);
+		} catch(Exception e) {
+			logger.error("Unable to decode current plan", e);
 		}
-
-		return deflateFile;
+		return null;
 	}
-
-	private File compress(File[] files){
-		try{
-			final File zipFile = File.createTempFile("plan", ".zip");
-
-			final ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zipFile));
-			for(File f : files){
-				zos.putNextEntry(new ZipEntry(f.getName()));
-				zos.write(IOUtils.toByteArray(new FileInputStream(f)));
-				zos.closeEntry();
-			}
-			zos.close();
-			return zipFile;
-
-		}catch(Exception e){
-			System.err.println(e);
+	
+	/**
+	 * @return the zones in the CompressedFile, or null if they could not be decoded.
+	 * Each call returns its own ZonesConfig, so the caller may modify it.
+	 */
+	public static ZonesConfig uncompressCurrentZonesCompressedFile(CompressedFile compressedFile) {
+		try {
+			return CompressedFileCodec.decodeZones(compressedFile);
+		} catch(Exception e) {
+			logger.error("Unable to decode current zones", e);
 		}
 		return null;
 	}
-	
-	public static ModuleBayPlan uncompressCurrentPlanCompressedFile(CompressedFile compressedFile) {
-		ModuleBayPlan plan = null;
-
-		try{
-			final ByteSeq seq = compressedFile.compressedFile.userData;
-
-			final Inflater inflater = new Inflater();
-			inflater.setInput(seq.toArrayByte(new byte[seq.size()]));
 
-			final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			final byte[] buf = new byte[1024];
-			while(!inflater.finished()){
-				baos.write(buf,0,inflater.inflate(buf));
+	/**
+	 * Follows the PublicationMatched status of our writer for one MessageType,
+	 * and hands uploads waiting for a reader to the upload executor as soon
+	 * as one matches.
+	 */
+	protected class MatchTracker implements IDdsWriterStatusListener {
+		protected int matchedCount = 0;
+		protected final List<Runnable> waiting = new ArrayList<Runnable>();
+
+		@Override
+		public void onWriterStatusReceived(String partition, MessageType msgType, WriterStatus statusType, Object statusObj) {
+			if(statusType == WriterStatus.PublicationMatched && statusObj instanceof PublicationMatchedStatus) {
+				setMatchedCount(((PublicationMatchedStatus)statusObj).current_count);
 			}
-			inflater.end();
-			final File recievedFile = File.createTempFile("tmpPlan-"+System.currentTimeMillis(), ".fplan");
-			FileUtils.writeByteArrayToFile(recievedFile, baos.toByteArray());
-
-			final PlanBuilder<ModuleBayPlan> m_planBuilder = PlanBuilder.getPlanBuilder(recievedFile, ModuleBayPlan.class,true);
-			plan = m_planBuilder.getPlan();
-			recievedFile.delete();
-			
-		}catch(Exception e){
-			System.err.println(e);
 		}
-		return plan;
-	}
-	
-	public static ModuleBayPlan uncompressCurrentZonesCompressedFile(CompressedFile compressedFile) {
-		ModuleBayPlan plan = null;
-
-		try{
-			final ByteSeq seq = compressedFile.compressedFile.userData;
 
-			final Inflater inflater = new Inflater();
-			inflater.setInput(seq.toArrayByte(new byte[seq.size()]));
+		@Override
+		public EnumSet<WriterStatus> writerStatusSet() {
+			return EnumSet.of(WriterStatus.PublicationMatched);
+		}
 
-			final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			final byte[] buf = new byte[1024];
-			while(!inflater.finished()){
-				baos.write(buf,0,inflater.inflate(buf));
+		protected void setMatchedCount(int count) {
+			final List<Runnable> ready;
+			synchronized(this) {
+				matchedCount = count;
+				if(count <= 0 || waiting.isEmpty()) {
+					return;
+				}
+				ready = new ArrayList<Runnable>(waiting);
+				waiting.clear();
+			}
+			for(Runnable send : ready) {
+				s_uploadExec.execute(send);
 			}
-			inflater.end();
-			final File recievedFile = File.createTempFile("tmpPlan-"+System.currentTimeMillis(), ".fplan");
-			FileUtils.writeByteArrayToFile(recievedFile, baos.toByteArray());
-
-			final PlanBuilder<ModuleBayPlan> m_planBuilder = PlanBuilder.getPlanBuilder(recievedFile,ModuleBayPlan.class,true);
-			plan = m_planBuilder.getPlan();
-			recievedFile.delete();
-			
-		}catch(Exception e){
-			System.err.println(e);
 		}
-		return plan;
-	}
 
-	protected void waitForMatch(String participant, MessageType mt) {
-		boolean waitingForMatch = true;
-		while(waitingForMatch) {
-			PublicationMatchedStatus matchedStatus = 
-					(PublicationMatchedStatus) rapidMessagePublisher.getWriterStatus(
-							WriterStatus.PublicationMatched, 
-							participant, 
-							mt,  
-							new PublicationMatchedStatus());
-
-			if(matchedStatus != null && matchedStatus.current_count > 0) {
-				waitingForMatch = false;
-//				logger.info("\tGot matched readers for " + mt.toString() + " on " + rapidMessagePublisher.getAgent());
-			} else {
-				logger.info("\tNo matched readers for " + mt.toString() + " on " + rapidMessagePublisher.getAgent());
-				try {
-					Thread.sleep(100);
-				} catch (InterruptedException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
+		/**
+		 * run the upload as soon as a reader is matched
+		 * @return true if a reader is matched already
+		 */
+		protected boolean whenMatched(Runnable send) {
+			synchronized(this) {
+				if(matchedCount <= 0) {
+					waiting.add(send);
+					return false;
 				}
 			}
+			s_uploadExec.execute(send);
+			return true;
+		}
+
+		protected synchronized void forget(Runnable send) {
+			waiting.remove(send);
 		}
 	}
 }
@@ -83,7 +83,7 @@ public class LogPoster {
 		System.out.println("===========================");
 	}
 	
-	public static void updateLog(String cmdId, Command cmd) {
+	public static synchronized void updateLog(String cmdId, Command cmd) {
 		UnaryOperator<LogEntry> replaceUnknownCommandWithCommandName = (entry) -> {
 			if(entry.getCmdId().equals(cmdId)) {
 				String newMsg = entry.getEntry().replaceAll(UNKNOWN_COMMAND_STRING, toTitleCase(cmd.cmdName));
@@ -103,7 +103,7 @@ public class LogPoster {
 		postToLog(category, entry, freeflyer, WorkbenchConstants.UNINITIALIZED_STRING);
 	}
 	
-	public static void postToLog(String category, String entry, String freeflyer, String id) {
+	public static synchronized void postToLog(String category, String entry, String freeflyer, String id) {
 		String post = s_dateFormatUTC.format(new Date()) + "\t" + entry;
 
 		String previous = s_oldPosts;
@@ -24,9 +24,9 @@ import gov.nasa.arc.irg.util.ui.ColorProvider;
 import gov.nasa.rapid.v2.e4.agent.Agent;
 import gov.nasa.rapid.v2.e4.message.MessageType;
 import gov.nasa.rapid.v2.ui.e4.parts.IImageReshower;
+import gov.nasa.rapid.v2.ui.e4.parts.ImageDecodePipeline;
 import gov.nasa.rapid.v2.ui.e4.parts.ImageSensorViewSize;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URL;
 
@@ -50,16 +50,15 @@ import org.eclipse.swt.widgets.Label;
 
 import rapid.ImageSensorSample;
 
-public class ImageTelemetryPart extends AbstractTelemetryPart implements IImageReshower {
+public class ImageTelemetryPart extends AbstractTelemetryPart implements IImageReshower, ImageDecodePipeline.IImageDecodeListener {
 	private static final Logger logger = Logger.getLogger(ImageTelemetryPart.class);
 	protected Composite 	m_container;
 	protected Label         m_imageLabel    = null;
 	protected Label         m_infoLabel     = null;
 	protected int           m_imageCount    = 0;
 	protected Image			m_image;
-	protected Object        m_imageLock     = new Object();
-	protected ImageData     m_imageData     = null;
 	protected ImageSensorViewSize m_viewAreaSize = new ImageSensorViewSize();
+	protected ImageDecodePipeline.Channel m_decodeChannel;
 
 	@Inject
 	public ImageTelemetryPart(Composite parent) {
@@ -75,6 +74,18 @@ public class ImageTelemetryPart extends AbstractTelemetryPart implements IImageR
 	@PreDestroy
 	public void preDestroy() {
 		unsubscribe();
+		if(m_decodeChannel != null) {
+			m_decodeChannel.dispose();
+		}
+	}
+
+	@Override
+	public void subscribe() {
+		if(m_decodeChannel != null && getAgent() != null && getSampleType() != null) {
+			// new stats for this camera; frames of the previous one are not shown
+			m_decodeChannel.setStream(getAgent(), getSampleType());
+		}
+		super.subscribe();
 	}
 	
 	protected void loadDefaultImage() {
@@ -82,17 +93,9 @@ public class ImageTelemetryPart extends AbstractTelemetryPart implements IImageR
 		try {
 			default_url = new URL("platform:/plugin/gov.nasa.arc.irg.freeflyer.rapid/resources/CameraIconGrey256.png");
 
-			synchronized(m_imageLock) {
-				URL fileURL = FileLocator.toFileURL(default_url);
-				String fileString = fileURL.getPath();
-				m_imageData = new ImageData(fileString);
-
-				if (m_imageData == null) {
-					logger.error("m_imageData = null");
-				}
-				m_image = new Image(null, m_imageData);
-			}
-			directShowImage();
+			URL fileURL = FileLocator.toFileURL(default_url);
+			String fileString = fileURL.getPath();
+			m_decodeChannel.submit(new ImageData(fileString));
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -114,14 +117,10 @@ public class ImageTelemetryPart extends AbstractTelemetryPart implements IImageR
 				}
 
 				//------- this used to be in call method
-				ImageSensorSample imageSample = (ImageSensorSample) eventObj;
-				int size = imageSample.data.userData.size();
-
-				byte[] data = imageSample.data.userData.toArrayByte(new byte[size]);
-				m_imageData = new ImageData(new ByteArrayInputStream(data));
+				// decoded and scaled on the pipeline's threads; shown in imageDecoded
+				m_decodeChannel.submit((ImageSensorSample) eventObj);
 				m_imageCount++;
 				setInfoLabel(null);
-				reshowImage();
 				//-------
 			}
 		}
@@ -187,6 +186,7 @@ public class ImageTelemetryPart extends AbstractTelemetryPart implements IImageR
 		gdImageLabel.grabExcessHorizontalSpace = true;
 		gdImageLabel.horizontalSpan = 4;
 		m_imageLabel.setLayoutData(gdImageLabel);
+		m_decodeChannel = ImageDecodePipeline.getDefault().createChannel(getClass().getSimpleName(), m_viewAreaSize, this);
 		loadDefaultImage();
 
 
@@ -247,14 +247,9 @@ public class ImageTelemetryPart extends AbstractTelemetryPart implements IImageR
 		// There is no config to match so jump straight in
 		if(latestEvent != null && latestEvent.eventObj instanceof ImageSensorSample) {
 
-			ImageSensorSample imageSample = (ImageSensorSample) latestEvent.eventObj;
-			int size = imageSample.data.userData.size();
-
-			byte[] data = imageSample.data.userData.toArrayByte(new byte[size]);
-			m_imageData = new ImageData(new ByteArrayInputStream(data));
+			m_decodeChannel.submit((ImageSensorSample) latestEvent.eventObj);
 			m_imageCount++;
 			setInfoLabel(null);
-			reshowImage();
 			return true;
 		}
 
@@ -263,52 +258,27 @@ public class ImageTelemetryPart extends AbstractTelemetryPart implements IImageR
 	}
 	
 	public void reshowImage() {
-		Display.getDefault().asyncExec(new ReshowRunnable());
-	}
-	
-	protected class ReshowRunnable implements Runnable {
-		public void run() {
-			if(!m_imageLabel.isDisposed()) {
-				directShowImage();
-			}
+		if(m_decodeChannel != null) {
+			m_decodeChannel.rescale();
 		}
 	}
 
-	// must call this from display thread
-	protected void directShowImage() {
-		synchronized(m_imageLock) {
-			if(m_imageData != null) {
-				ImageData imageData = scaleIfNecessary(m_imageData);
-
-				Image oldImage = m_image;
-				m_image = new Image(null,imageData);
-				Rectangle rect = m_image.getBounds();
-				if(!m_imageLabel.isDisposed()) {
-					m_imageLabel.setImage(m_image);
-					m_imageLabel.setSize(rect.width, rect.height);
-				}
-				oldImage.dispose();
-			}
-		}
-	}
-
-	private ImageData scaleIfNecessary(ImageData imageData) {
-		int viewW,viewH;
-		synchronized(m_viewAreaSize) {
-			viewW = m_viewAreaSize.width;
-			viewH = m_viewAreaSize.height;
+	// called from display thread
+	@Override
+	public void imageDecoded(Image image, ImageData source) {
+		if(m_imageLabel == null || m_imageLabel.isDisposed()) {
+			image.dispose();
+			return;
 		}
-		int imageW = imageData.width;
-		int imageH = imageData.height;
-		double scaleW = (double)(viewW-1) / (double)imageW;
-		double scaleH = (double)(viewH-1) / (double)imageH;
-		double scale = (scaleW < scaleH) ? scaleW : scaleH;
-		if( scale < 1 ) {
-			int sW = (int)(imageW * scale);
-			int sH = (int)(imageH * scale);
-			imageData = imageData.scaledTo(sW, sH);
+		Image oldImage = m_image;
+		m_image = image;
+		Rectangle rect = m_image.getBounds();
+		m_imageLabel.setImage(m_image);
+		m_imageLabel.setSize(rect.width, rect.height);
+		m_imageLabel.setToolTipText(m_decodeChannel.getStats().toString());
+		if(oldImage != null) {
+			oldImage.dispose();
 		}
-		return imageData;
 	}
 
 	/**
@@ -28,6 +28,7 @@ import gov.nasa.rapid.v2.e4.message.collector.RapidMessageCollector;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 import org.apache.log4j.Logger;
 
@@ -36,7 +37,7 @@ import rapid.ext.astrobee.SETTINGS_METHOD_SET_ZONES;
 
 public class SendZonesManager implements IRapidMessageListener {
 	private static final Logger logger = Logger.getLogger(SendZonesManager.class);
-	protected boolean waitingToSendSetZonesCommand = false;
+	protected volatile boolean waitingToSendSetZonesCommand = false;
 	protected Agent agent;
 	protected MessageType[] sampleType;
 	protected String participantId = Rapid.PrimaryParticipant;
@@ -77,15 +78,16 @@ public class SendZonesManager implements IRapidMessageListener {
 	}
 	
 	public void sendCompressedZones() {
-		// send keepouts
-		try {
-			CompressedFilePublisher.getInstance(agent).sendKeepoutZones();
-
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-
+		// send keepouts; the upload finishes in the background once the robot is connected
 		waitingToSendSetZonesCommand = true;
+		CompressedFilePublisher.getInstance(agent).sendKeepoutZones().whenComplete(new BiConsumer<Integer,Throwable>() {
+			@Override
+			public void accept(Integer id, Throwable t) {
+				if(t != null) {
+					waitingToSendSetZonesCommand = false;
+				}
+			}
+		});
 	}
 
 	protected void sendSetZonesCommand() {
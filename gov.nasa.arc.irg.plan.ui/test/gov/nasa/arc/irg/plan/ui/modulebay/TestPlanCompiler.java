@@ -0,0 +1,289 @@
+/******************************************************************************
+ * Copyright © 2019, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration. All 
+ * rights reserved.
+ * 
+ * The Astrobee Control Station platform is licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0. 
+ *   
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations 
+ * under the License.
+ *****************************************************************************/
+package gov.nasa.arc.irg.plan.ui.modulebay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import gov.nasa.arc.irg.plan.freeflyer.config.InertiaConfigList.InertiaConfig;
+import gov.nasa.arc.irg.plan.freeflyer.config.OperatingLimitsConfigList.OperatingLimitsConfig;
+import gov.nasa.arc.irg.plan.model.Position;
+import gov.nasa.arc.irg.plan.model.Segment;
+import gov.nasa.arc.irg.plan.model.Sequenceable;
+import gov.nasa.arc.irg.plan.model.modulebay.BayNumber;
+import gov.nasa.arc.irg.plan.model.modulebay.Module.ModuleName;
+import gov.nasa.arc.irg.plan.modulebay.ModuleBayPlan;
+import gov.nasa.arc.irg.plan.modulebay.ModuleBayPoint;
+import gov.nasa.arc.irg.plan.modulebay.ModuleBayStation;
+import gov.nasa.arc.irg.plan.ui.plancompiler.IncrementalPlanValidator;
+import gov.nasa.arc.irg.plan.ui.plancompiler.PlanCompiler;
+import gov.nasa.arc.irg.plan.ui.plancompiler.PlanCompilerResult;
+import gov.nasa.arc.irg.plan.ui.plancompiler.PlanValidationResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class TestPlanCompiler {
+	private final BayNumber[] bays = new BayNumber[] {
+			BayNumber.ONE, BayNumber.TWO, BayNumber.THREE, BayNumber.FOUR, BayNumber.FIVE, BayNumber.SIX
+	};
+
+	/**
+	 * what the static PlanCompiler produced for makeLongPlan(24) before it 
+	 * compiled Segments in parallel. One row per Segment: number of 
+	 * waypoints, time of the last waypoint, x of the middle waypoint, z and 
+	 * w of the last orientation, and the yaw the Segment starts with.
+	 */
+	private static final double[][] BASELINE_LONG_PLAN = {
+			{ 8, 173.91297043031375, 5.309999942779541, 1.0, 6.123233995736766E-17, 0.0 },
+			{ 7, 161.07963619049312, 3.0662719347784195, -6.123233995736766E-17, 1.0, 180.0 },
+			{ 12, 332.5926058161442, 2.0966666229069233, -6.123233995736766E-17, 1.0, 0.0 },
+			{ 4, 17.866666199763632, 1.1433333531022076, 0.0, 1.0, 0.0 },
+			{ 12, 335.69260579379244, -0.4433333389461038, -6.123233995736766E-17, 1.0, 0.0 },
+			{ 4, 20.866666870315875, 0.47666665166616395, 0.0, 1.0, 0.0 },
+			{ 5, 14.533332742253954, 0.9766666777431967, 0.0, 1.0, 0.0 },
+			{ 4, 17.766666892667615, 2.7066666111350055, 0.0, 1.0, 0.0 },
+			{ 6, 14.533332146207513, 3.9933331720530987, 0.0, 1.0, 0.0 },
+			{ 4, 18.16666769733031, 4.97666659206152, 0.0, 1.0, 0.0 },
+			{ 12, 332.9926066208069, 4.32666652277112, -6.123233995736766E-17, 1.0, 0.0 },
+			{ 4, 17.866665603717195, 3.373333312571049, 0.0, 1.0, 0.0 },
+			{ 8, 173.51296962565107, 3.0399999618530273, 1.0, 6.123233995736766E-17, 0.0 },
+			{ 7, 161.07963619049312, 0.8362719766252631, -6.123233995736766E-17, 1.0, 180.0 },
+			{ 12, 335.69260579379244, -0.4433333389461038, -6.123233995736766E-17, 1.0, 0.0 },
+			{ 4, 20.866666870315875, 0.47666665166616395, 0.0, 1.0, 0.0 },
+			{ 6, 14.533332742253954, 1.7633332721889017, 0.0, 1.0, 0.0 },
+			{ 4, 17.766666892667615, 2.7066666111350055, 0.0, 1.0, 0.0 },
+			{ 5, 14.533332146207513, 3.2066666372120385, 0.0, 1.0, 0.0 },
+			{ 4, 18.16666769733031, 4.97666659206152, 0.0, 1.0, 0.0 },
+			{ 12, 332.9926066208069, 4.32666652277112, -6.123233995736766E-17, 1.0, 0.0 },
+			{ 4, 17.866665603717195, 3.373333312571049, 0.0, 1.0, 0.0 },
+			{ 12, 332.5926058161442, 2.0966666229069233, -6.123233995736766E-17, 1.0, 0.0 },
+	};
+	/** y and z of every waypoint in makeLongPlan */
+	private static final double BASELINE_Y = 0.009999999776482582;
+	private static final double BASELINE_Z = 4.849999904632568;
+	private static final double TOLERANCE = 1e-9;
+
+	protected OperatingLimitsConfig getOpLimits() {
+		OperatingLimitsConfig opLimits = new OperatingLimitsConfig();
+		opLimits.setProfileName("Conservative");
+		opLimits.setFlightMode("Flight Mode One");
+		opLimits.setTargetLinearVelocity(0.1f);
+		opLimits.setTargetLinearAccel(0.03f);
+		opLimits.setTargetAngularVelocity(0.02f);
+		opLimits.setTargetAngularAccel(0.01f);
+		opLimits.setCollisionDistance(0.1f);
+		return opLimits;
+	}
+
+	protected InertiaConfig getInertiaOpt() {
+		InertiaConfig inertia = new InertiaConfig();
+		inertia.setName("UnloadedAstrobee");
+		inertia.setMass(5.0f);
+		inertia.setMatrix(new float[]{1.0f, 0.0f, 0.0f, 0.0f, 1.0f, 0.0f, 0.0f, 0.0f, 1.0f});
+		return inertia;
+	}
+
+	/**
+	 * back and forth along the US Lab. Every third Station ignores 
+	 * orientation and every other Segment faces forward, so some Segments 
+	 * depend on the rotation the Segment before them gives a Station.
+	 */
+	protected ModuleBayPlan makeLongPlan(String planName, int numStations) {
+		ModuleBayPlan mbp = UtilsFortesting.createNewPlan(planName, ModuleBayPlan.class);
+		for(int i = 0; i < numStations; i++) {
+			ModuleBayStation station = mbp.appendNewStation();
+			ModuleBayPoint pt = new ModuleBayPoint();
+			pt.setModule(ModuleName.US_LAB);
+			int bay = i % (2 * bays.length - 2);
+			pt.setBayNumber(bays[bay < bays.length ? bay : 2 * bays.length - 2 - bay]);
+			pt.setCenterOne(true);
+			pt.setCenterTwo(true);
+			pt.setIgnoreOrientation(i % 3 == 1);
+			station.setCoordinate(pt);
+		}
+		int index = 0;
+		for(Segment seg : getSegments(mbp)) {
+			seg.setFaceForward(index++ % 2 == 0);
+		}
+		mbp.setInertiaConfiguration(getInertiaOpt());
+		mbp.setOperatingLimits(getOpLimits());
+		return mbp;
+	}
+
+	protected List<Segment> getSegments(ModuleBayPlan mbp) {
+		List<Segment> segments = new ArrayList<Segment>();
+		for(Sequenceable seq : mbp.getSequence()) {
+			if(seq instanceof Segment) {
+				segments.add((Segment)seq);
+			}
+		}
+		return segments;
+	}
+
+	protected void assertSameWaypoints(ModuleBayPlan expected, ModuleBayPlan actual) {
+		List<Segment> expectedSegments = getSegments(expected);
+		List<Segment> actualSegments = getSegments(actual);
+		assertEquals(expectedSegments.size(), actualSegments.size());
+		for(int i = 0; i < expectedSegments.size(); i++) {
+			assertEquals("waypoints of Segment " + i, 
+					expectedSegments.get(i).getWaypoints(), actualSegments.get(i).getWaypoints());
+			assertEquals("start of Segment " + i, 
+					expectedSegments.get(i).getStartPosition().getOrientation(), 
+					actualSegments.get(i).getStartPosition().getOrientation());
+		}
+	}
+
+	protected void assertMatchesBaseline(ModuleBayPlan plan) {
+		List<Segment> segments = getSegments(plan);
+		assertEquals(BASELINE_LONG_PLAN.length, segments.size());
+		for(int i = 0; i < segments.size(); i++) {
+			double[] expected = BASELINE_LONG_PLAN[i];
+			Segment seg = segments.get(i);
+			List<List<Number>> waypoints = seg.getWaypoints();
+			List<Number> middle = waypoints.get(waypoints.size() / 2);
+			List<Number> last = waypoints.get(waypoints.size() - 1);
+			assertEquals("waypoints of Segment " + i, (int)expected[0], waypoints.size());
+			assertEquals("duration of Segment " + i, expected[1], last.get(0).doubleValue(), TOLERANCE);
+			assertEquals("x of Segment " + i, expected[2], middle.get(1).doubleValue(), TOLERANCE);
+			assertEquals("y of Segment " + i, BASELINE_Y, middle.get(2).doubleValue(), TOLERANCE);
+			assertEquals("z of Segment " + i, BASELINE_Z, middle.get(3).doubleValue(), TOLERANCE);
+			assertEquals("end qz of Segment " + i, expected[3], last.get(12).doubleValue(), TOLERANCE);
+			assertEquals("end qw of Segment " + i, expected[4], last.get(13).doubleValue(), TOLERANCE);
+			assertEquals("start yaw of Segment " + i, expected[5], 
+					seg.getStartPosition().getOrientation().get(2).doubleValue(), TOLERANCE);
+		}
+	}
+
+	@Test
+	public void testMatchesBaseline() {
+		ModuleBayPlan staticPlan = makeLongPlan("Static.fake", 24);
+		assertTrue(PlanCompiler.compilePlanNoBoundsCheck(staticPlan, staticPlan.getOperatingLimits()));
+		assertMatchesBaseline(staticPlan);
+
+		ModuleBayPlan parallelPlan = makeLongPlan("Parallel.fake", 24);
+		PlanCompiler parallel = new PlanCompiler(null);
+		parallel.setParallelThreshold(1);
+		assertTrue(parallel.compile(parallelPlan, parallelPlan.getOperatingLimits(), false).isValid());
+		assertMatchesBaseline(parallelPlan);
+	}
+
+	@Test
+	public void testParallelSegmentsMatchSerial() {
+		ModuleBayPlan serialPlan = makeLongPlan("Serial.fake", 24);
+		ModuleBayPlan parallelPlan = makeLongPlan("Parallel.fake", 24);
+
+		PlanCompiler serial = new PlanCompiler(null);
+		serial.setParallelThreshold(Integer.MAX_VALUE);
+		PlanCompiler parallel = new PlanCompiler(null);
+		parallel.setParallelThreshold(1);
+
+		PlanCompilerResult serialResult = serial.compile(serialPlan, serialPlan.getOperatingLimits(), false);
+		PlanCompilerResult parallelResult = parallel.compile(parallelPlan, parallelPlan.getOperatingLimits(), false);
+
+		assertTrue(serialResult.getErrorMessage(), serialResult.isValid());
+		assertTrue(parallelResult.getErrorMessage(), parallelResult.isValid());
+		assertTrue(parallelPlan.isValid());
+		assertSameWaypoints(serialPlan, parallelPlan);
+	}
+
+	@Test
+	public void testCompileAll() {
+		List<ModuleBayPlan> batch = new ArrayList<ModuleBayPlan>();
+		List<ModuleBayPlan> oneByOne = new ArrayList<ModuleBayPlan>();
+		for(int i = 0; i < 3; i++) {
+			batch.add(makeLongPlan("Batch" + i + ".fake", 8 + 4 * i));
+			oneByOne.add(makeLongPlan("OneByOne" + i + ".fake", 8 + 4 * i));
+		}
+		// one plan is missing its operating limits and must fail on its own
+		batch.get(1).setOperatingLimits(null);
+		oneByOne.get(1).setOperatingLimits(null);
+
+		PlanCompiler compiler = new PlanCompiler(null);
+		List<PlanCompilerResult> results = compiler.compileAll(batch, false);
+		assertEquals(batch.size(), results.size());
+
+		for(int i = 0; i < batch.size(); i++) {
+			PlanCompilerResult expected = compiler.compile(oneByOne.get(i), oneByOne.get(i).getOperatingLimits(), false);
+			PlanCompilerResult actual = results.get(i);
+			assertTrue(actual.getPlan() == batch.get(i));
+			assertEquals(expected.isValid(), actual.isValid());
+			assertEquals(expected.getErrorMessage(), actual.getErrorMessage());
+			if(actual.isValid()) {
+				assertSameWaypoints(oneByOne.get(i), batch.get(i));
+			}
+		}
+		assertTrue(!results.get(1).isValid());
+	}
+
+	@Test
+	public void testIncrementalValidation() throws Exception {
+		ModuleBayPlan plan = makeLongPlan("Incremental.fake", 24);
+		IncrementalPlanValidator validator = new IncrementalPlanValidator(null, null);
+		try {
+			PlanValidationResult first = validator.validate(plan).get();
+			assertTrue(first.getErrorMessage(), first.isValid());
+			assertEquals(23, first.getNumSegments());
+			assertEquals(23, first.getNumCompiled());
+
+			// nothing changed, everything comes from the cache
+			PlanValidationResult again = validator.validate(plan).get();
+			assertEquals(0, again.getNumCompiled());
+
+			// dragging a Station only recompiles the Segments next to it, 
+			// plus the one after if the Segment into it sets its rotation
+			ModuleBayStation moved = (ModuleBayStation) plan.getSequenceable(20);
+			Position dragged = moved.getEndPosition();
+			dragged.getCoordinates().set(0, dragged.getCoordinates().get(0) + 0.5f);
+			PlanValidationResult drag = validator.validate(plan, moved, dragged).get();
+			assertTrue(drag.getErrorMessage(), drag.isValid());
+			assertTrue("recompiled " + drag.getNumCompiled(), drag.getNumCompiled() >= 2 && drag.getNumCompiled() <= 3);
+
+			// the plan itself was not changed, so going back is free
+			assertEquals(0, validator.validate(plan).get().getNumCompiled());
+
+			// a burst of requests: only the last one has to produce a result
+			List<Future<PlanValidationResult>> burst = new ArrayList<Future<PlanValidationResult>>();
+			for(int i = 0; i < 20; i++) {
+				Position p = moved.getEndPosition();
+				p.getCoordinates().set(1, p.getCoordinates().get(1) + 0.01f * i);
+				burst.add(validator.validate(plan, moved, p));
+			}
+			PlanValidationResult last = burst.get(burst.size() - 1).get();
+			assertNotNull(last);
+			assertEquals(23, last.getNumSegments());
+			assertTrue(validator.isLatest(last));
+
+			// dropping the Station makes earlier results stale
+			validator.stationChanged(moved);
+			assertTrue(!validator.isLatest(last));
+			PlanValidationResult dropped = validator.validate(plan).get();
+			assertTrue(validator.isLatest(dropped));
+			assertEquals(2, dropped.getNumCompiled());
+
+			// changing the operating limits invalidates everything
+			plan.getOperatingLimits().setTargetLinearVelocity(0.05f);
+			assertEquals(23, validator.validate(plan).get().getNumCompiled());
+		} finally {
+			validator.dispose();
+		}
+	}
+}
@@ -21,11 +21,13 @@ import gov.nasa.arc.irg.plan.model.Point;
 import gov.nasa.arc.irg.plan.model.Point6Dof;
 import gov.nasa.arc.irg.plan.model.Position;
 import gov.nasa.arc.irg.plan.ui.plancompiler.BoxMath;
+import gov.nasa.arc.irg.plan.ui.plancompiler.BoxMath.Contains;
 import gov.nasa.arc.irg.plan.ui.plancompiler.FullState;
 import gov.nasa.arc.irg.plan.ui.plancompiler.TrajectoryBoundsCheck;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import java.util.Vector;
 
 import junit.framework.TestCase;
@@ -237,4 +239,177 @@ public class TestTrajectoryBoundsCheck extends TestCase {
 		assertFalse(checker.isTrajectorySafe(fstates));
 	}
 
+	@Test
+	public void testIndexedChecksMatchLinearScan() {
+		Random random = new Random(42);
+		// a corridor of modules with some side modules and random clutter
+		List<BoxMath> station = new ArrayList<BoxMath>();
+		for(int i = 0; i < 40; i++) {
+			station.add(new BoxMath(new double[]{4*i, 0, 0}, new double[]{4*i+4, 4, 4}));
+			if(i % 3 == 0) {
+				station.add(new BoxMath(new double[]{4*i+1, 4, 1}, new double[]{4*i+3, 8, 3}));
+			}
+		}
+		for(int i = 0; i < 40; i++) {
+			station.add(randomBox(random, 0.5, 3));
+		}
+		List<BoxMath> nogo = new ArrayList<BoxMath>();
+		for(int i = 0; i < 60; i++) {
+			nogo.add(randomBox(random, 0.1, 1));
+		}
+
+		TrajectoryBoundsCheck checker = new TrajectoryBoundsCheck(station, nogo);
+		int safe = 0;
+		for(int i = 0; i < 5000; i++) {
+			double[] start = randomPoint(random);
+			double[] end;
+			if(i % 2 == 0) {
+				// short moves, like most plan segments
+				end = new double[]{start[0] + 8*(random.nextDouble()-0.5),
+						start[1] + 4*(random.nextDouble()-0.5),
+						start[2] + 4*(random.nextDouble()-0.5)};
+			} else {
+				end = randomPoint(random);
+			}
+			boolean expected = linearIsSegmentSafe(station, nogo, start, end);
+			assertEquals(expected, checker.isSegmentSafe(start, end, false));
+			if(expected) {
+				safe++;
+			}
+
+			Vector<double[]> points = new Vector<double[]>();
+			points.add(start);
+			points.add(end);
+			assertEquals(linearRemoveInteriorPoints(station, points).size(),
+					checker.removeInteriorPoints(points).size());
+			assertEquals(linearIsPointSafe(station, nogo, start),
+					checker.isPointSafe(start[0], start[1], start[2]));
+		}
+		// make sure both verdicts were exercised
+		assertTrue(safe > 0 && safe < 5000);
+	}
+
+	@Test
+	public void testRemoveDuplicatesLargeList() {
+		Random random = new Random(7);
+		TrajectoryBoundsCheck checker = new TrajectoryBoundsCheck(keepins, keepouts);
+		for(int trial = 0; trial < 50; trial++) {
+			Vector<double[]> points = new Vector<double[]>();
+			for(int i = 0; i < 200; i++) {
+				double[] pt = new double[]{random.nextDouble()*3 - 1, random.nextDouble()*3 - 1, random.nextDouble()*3 - 1};
+				points.add(pt);
+				if(random.nextInt(4) == 0) {
+					points.add(new double[]{pt[0] + 0.15*(random.nextDouble()-0.5), pt[1], pt[2] - 0.05});
+				}
+			}
+			Vector<double[]> expected = new Vector<double[]>();
+			for(double[] pt : points) {
+				if(!checker.hasPartnerInList(pt, points)) {
+					expected.add(pt);
+				}
+			}
+			Vector<double[]> actual = checker.removeDuplicates(points);
+			assertEquals(expected.size(), actual.size());
+			for(int i = 0; i < expected.size(); i++) {
+				assertSame(expected.get(i), actual.get(i));
+			}
+		}
+	}
+
+	private BoxMath randomBox(Random random, double minSize, double maxSize) {
+		double[] min = randomPoint(random);
+		double[] max = new double[3];
+		for(int i = 0; i < 3; i++) {
+			max[i] = min[i] + minSize + random.nextDouble()*(maxSize - minSize);
+		}
+		return new BoxMath(min, max);
+	}
+
+	private double[] randomPoint(Random random) {
+		return new double[]{random.nextDouble()*164 - 2, random.nextDouble()*10 - 1, random.nextDouble()*6 - 1};
+	}
+
+	/** isSegmentSafe as it was before the boxes were indexed */
+	private boolean linearIsSegmentSafe(List<BoxMath> station, List<BoxMath> nogo, double[] start, double[] end) {
+		Vector<double[]> allIntersections = new Vector<double[]>();
+		for(BoxMath keepin : station) {
+			Vector<double[]> oneBoxWorth = keepin.findSegmentKeepinWallIntersection(start, end);
+			if(oneBoxWorth != null) {
+				allIntersections.addAll(oneBoxWorth);
+			}
+		}
+		Vector<double[]> noDuplicates = new Vector<double[]>();
+		for(double[] point : allIntersections) {
+			int count = 0;
+			for(double[] check : allIntersections) {
+				if(keepins.get(0).vectorsAreEqual(point, check)) {
+					count++;
+				}
+			}
+			if(count < 2) {
+				noDuplicates.add(point);
+			}
+		}
+		allIntersections = linearRemoveInteriorPoints(station, noDuplicates);
+		for(BoxMath keepout : nogo) {
+			if(keepout.segmentIntersectsKeepoutZone(start, end)) {
+				Vector<double[]> oneBoxWorth = keepout.findSegmentKeepinWallIntersection(start, end);
+				if(oneBoxWorth != null) {
+					allIntersections.addAll(oneBoxWorth);
+				}
+			}
+		}
+		if(allIntersections.size() > 0) {
+			return false;
+		}
+		boolean startContained = false;
+		boolean endContained = false;
+		for(BoxMath keepin : station) {
+			Contains answer = keepin.containsEnds(start, end);
+			if(answer == Contains.BOTH) {
+				return true;
+			} else if(answer == Contains.START_ONLY) {
+				startContained = true;
+			} else if(answer == Contains.END_ONLY) {
+				endContained = true;
+			}
+		}
+		return startContained && endContained;
+	}
+
+	private Vector<double[]> linearRemoveInteriorPoints(List<BoxMath> station, Vector<double[]> points) {
+		Vector<double[]> noInteriorPoints = new Vector<double[]>();
+		for(double[] point : points) {
+			boolean isInteriorPoint = false;
+			for(BoxMath keepin : station) {
+				if(keepin.containsWithMargin(point, 0.02)) {
+					isInteriorPoint = true;
+					break;
+				}
+			}
+			if(!isInteriorPoint) {
+				noInteriorPoints.add(point);
+			}
+		}
+		return noInteriorPoints;
+	}
+
+	private boolean linearIsPointSafe(List<BoxMath> station, List<BoxMath> nogo, double[] pt) {
+		boolean inside = false;
+		for(BoxMath positive : station) {
+			if(positive.contains(pt)) {
+				inside = true;
+			}
+		}
+		if(!inside) {
+			return false;
+		}
+		for(BoxMath negative : nogo) {
+			if(negative.contains(pt)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 }
@@ -30,6 +30,7 @@ import java.util.HashMap;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.log4j.Logger;
+import org.codehaus.jackson.JsonNode;
 
 /**
  * 
@@ -169,6 +170,16 @@ public class PlanBuilder<T extends Plan> {
 		return found; 
 	}
 	
+	/**
+	 * Make a PlanBuilder for a plan that does not come from a file, e.g. one
+	 * received from a robot. It is not registered with getPlanBuilder(File).
+	 * @param planClass
+	 * @return
+	 */
+	public static <P extends Plan> PlanBuilder<P> createPlanBuilder(Class<P> planClass) {
+		return new PlanBuilder<P>(planClass);
+	}
+	
 	private PlanBuilder(T plan, Class<T> planClass){
 		m_plan = plan;
 		initialize(planClass);
@@ -300,7 +311,21 @@ public class PlanBuilder<T extends Plan> {
 		if (s == null || s.isEmpty()) {
 			return null;
 		}
-		T plan = m_configuration.getMapper().readValue(s, m_planClass);
+		return setLoadedPlan(m_configuration.getMapper().readValue(s, m_planClass));
+	}
+	
+	/**
+	 * Bind the plan from an already parsed json tree. The tree is only read,
+	 * so one tree can be bound into any number of independent plans.
+	 */
+	public T loadPlan(JsonNode tree) throws Exception {
+		if (tree == null) {
+			return null;
+		}
+		return setLoadedPlan(m_configuration.getMapper().readValue(tree, m_planClass));
+	}
+	
+	protected T setLoadedPlan(T plan) {
 		m_lastLoaded = new Date();
 		
 		if (plan != null) {
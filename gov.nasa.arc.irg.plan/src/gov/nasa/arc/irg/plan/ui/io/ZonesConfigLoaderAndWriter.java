@@ -21,9 +21,11 @@ import gov.nasa.arc.irg.plan.freeflyer.config.ZonesConfig;
 
 import java.io.BufferedWriter;
 import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 
+import org.codehaus.jackson.JsonNode;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.map.SerializationConfig;
 
@@ -37,9 +39,22 @@ public class ZonesConfigLoaderAndWriter extends GenericJsonConfigLoader {
 		return (ZonesConfig) loadFromFileGeneric(filename);
 	}
 	
+	/** bind a ZonesConfig from an already parsed json tree; the tree is only read */
+	public static ZonesConfig load(JsonNode tree) throws Exception {
+		return new ObjectMapper().readValue(tree, ZonesConfig.class);
+	}
+	
+	/** serialize a ZonesConfig straight to a stream, e.g. a deflating one */
+	public static void write(OutputStream out, ZonesConfig zonesConfig) throws Exception {
+		if(zonesConfig == null) {
+			System.err.println("BookmarkListBuilder has no list to write");
+			return;
+		}
+		makeMapper().writeValue(out, zonesConfig);
+	}
+	
 	public static void write(String filename, ZonesConfig zonesConfig) throws Exception {
-		ObjectMapper mapper = new ObjectMapper();
-		mapper.configure(SerializationConfig.Feature.INDENT_OUTPUT, true);
+		ObjectMapper mapper = makeMapper();
 
 		if(zonesConfig == null) {
 			System.err.println("BookmarkListBuilder has no list to write");
@@ -54,4 +69,10 @@ public class ZonesConfigLoaderAndWriter extends GenericJsonConfigLoader {
 		}
 	}
 	
+	protected static ObjectMapper makeMapper() {
+		ObjectMapper mapper = new ObjectMapper();
+		mapper.configure(SerializationConfig.Feature.INDENT_OUTPUT, true);
+		return mapper;
+	}
+	
 }
@@ -22,8 +22,8 @@ import java.util.Vector;
 public class BoxMath {
 	public enum BoxWall {MIN, MAX}
 	public enum Contains { NEITHER, START_ONLY, END_ONLY, BOTH }
-	final double EPSILON = 1e-3;
-	final double SLOPPY_EPSILON = 0.1;
+	static final double EPSILON = 1e-3;
+	static final double SLOPPY_EPSILON = 0.1;
 	int numWalls = 3;
 
 	public double[] min, max;
@@ -122,6 +122,11 @@ public class BoxMath {
 	
 	// Unit-tested
 	public boolean vectorsAreEqual(double[] a, double[] b) {
+		return areNearlyEqual(a, b);
+	}
+
+	/** true if a and b are within SLOPPY_EPSILON of each other in every coordinate */
+	static boolean areNearlyEqual(double[] a, double[] b) {
 		if (a.length != 3 || b.length != 3)
 			throw new IllegalArgumentException("Input start and end need to be size 3");
 		
@@ -0,0 +1,211 @@
+/******************************************************************************
+ * Copyright © 2019, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration. All 
+ * rights reserved.
+ * 
+ * The Astrobee Control Station platform is licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0. 
+ *   
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations 
+ * under the License.
+ *****************************************************************************/
+package gov.nasa.arc.irg.plan.ui.plancompiler;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Bounding volume hierarchy over a list of BoxMath, so TrajectoryBoundsCheck 
+ * only runs the exact box tests on boxes whose extent overlaps the segment 
+ * or point being checked. Boxes are split at the median of their centers 
+ * along the widest axis until a node holds LEAF_SIZE boxes or fewer.
+ * <p>
+ * The tree is immutable once built and can be shared between threads. It 
+ * refers to the list it was built from, but does not see boxes added to 
+ * that list or changes to their min and max afterwards; build a new tree 
+ * in that case.
+ */
+public class BoxTree {
+	static final int LEAF_SIZE = 4;
+
+	private final List<BoxMath> source;
+	private final int size;
+	private final BoxMath[] boxes;
+	/** indices into boxes, grouped so the boxes of each leaf are contiguous */
+	private final int[] order;
+
+	// per node: min x,y,z then max x,y,z
+	private final double[] bounds;
+	// leaf: first index into order and count > 0; inner node: count == 0, 
+	// the left child is the next node and right holds the right child
+	private final int[] first;
+	private final int[] count;
+	private final int[] right;
+	private int numNodes = 0;
+	private int depth = 0;
+
+	/** @param boxes may be null, which gives an empty tree */
+	public BoxTree(List<BoxMath> boxes) {
+		this.source = boxes;
+		this.size = boxes == null ? 0 : boxes.size();
+		this.boxes = size == 0 ? new BoxMath[0] : boxes.toArray(new BoxMath[size]);
+
+		Integer[] sorted = new Integer[size];
+		for(int i = 0; i < size; i++) {
+			sorted[i] = i;
+		}
+		int maxNodes = Math.max(1, 2 * size);
+		bounds = new double[6 * maxNodes];
+		first = new int[maxNodes];
+		count = new int[maxNodes];
+		right = new int[maxNodes];
+		if(size > 0) {
+			build(sorted, 0, size, 1);
+		}
+		order = new int[size];
+		for(int i = 0; i < size; i++) {
+			order[i] = sorted[i];
+		}
+	}
+
+	/** @return true if this tree was built from list and list has not grown or shrunk since */
+	public boolean isBuiltFrom(List<BoxMath> list) {
+		return list == source && (list == null || list.size() == size);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public BoxMath get(int index) {
+		return boxes[index];
+	}
+
+	int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * @return indices of the boxes whose extent overlaps the axis aligned box 
+	 * from lo to hi, boundaries included. Iterating the BitSet visits them 
+	 * in the order of the original list.
+	 */
+	public BitSet findOverlapping(double[] lo, double[] hi) {
+		BitSet retVal = new BitSet(size);
+		if(size == 0) {
+			return retVal;
+		}
+		int[] stack = new int[depth + 1];
+		int top = 0;
+		stack[top++] = 0;
+		while(top > 0) {
+			int node = stack[--top];
+			if(!overlaps(node, lo, hi)) {
+				continue;
+			}
+			if(count[node] > 0) {
+				for(int i = first[node]; i < first[node] + count[node]; i++) {
+					BoxMath box = boxes[order[i]];
+					if(boxOverlaps(box, lo, hi)) {
+						retVal.set(order[i]);
+					}
+				}
+			} else {
+				stack[top++] = right[node];
+				stack[top++] = node + 1;
+			}
+		}
+		return retVal;
+	}
+
+	/** @return indices of the boxes whose extent contains pt, boundaries included */
+	public BitSet findContaining(double[] pt) {
+		return findOverlapping(pt, pt);
+	}
+
+	/** @return indices of the boxes a segment can touch */
+	public BitSet findOverlappingSegment(double[] start, double[] end) {
+		double[] lo = new double[3];
+		double[] hi = new double[3];
+		for(int i = 0; i < 3; i++) {
+			lo[i] = Math.min(start[i], end[i]);
+			hi[i] = Math.max(start[i], end[i]);
+		}
+		return findOverlapping(lo, hi);
+	}
+
+	private boolean overlaps(int node, double[] lo, double[] hi) {
+		final int b = 6 * node;
+		for(int i = 0; i < 3; i++) {
+			if(hi[i] < bounds[b + i] || lo[i] > bounds[b + 3 + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** same condition as BoxMath.allToOneSide, negated */
+	private static boolean boxOverlaps(BoxMath box, double[] lo, double[] hi) {
+		for(int i = 0; i < 3; i++) {
+			if(hi[i] < box.min[i] || lo[i] > box.max[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int build(Integer[] sorted, int lo, int hi, int level) {
+		final int node = numNodes++;
+		depth = Math.max(depth, level);
+		final int b = 6 * node;
+		double[] centerMin = new double[] { Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE };
+		double[] centerMax = new double[] { -Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE };
+		for(int i = 0; i < 3; i++) {
+			bounds[b + i] = Double.MAX_VALUE;
+			bounds[b + 3 + i] = -Double.MAX_VALUE;
+		}
+		for(int k = lo; k < hi; k++) {
+			BoxMath box = boxes[sorted[k]];
+			for(int i = 0; i < 3; i++) {
+				bounds[b + i] = Math.min(bounds[b + i], box.min[i]);
+				bounds[b + 3 + i] = Math.max(bounds[b + 3 + i], box.max[i]);
+				double center = 0.5 * (box.min[i] + box.max[i]);
+				centerMin[i] = Math.min(centerMin[i], center);
+				centerMax[i] = Math.max(centerMax[i], center);
+			}
+		}
+		if(hi - lo <= LEAF_SIZE) {
+			first[node] = lo;
+			count[node] = hi - lo;
+			return node;
+		}
+
+		int axis = 0;
+		for(int i = 1; i < 3; i++) {
+			if(centerMax[i] - centerMin[i] > centerMax[axis] - centerMin[axis]) {
+				axis = i;
+			}
+		}
+		final int splitAxis = axis;
+		Arrays.sort(sorted, lo, hi, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(boxes[a].min[splitAxis] + boxes[a].max[splitAxis], 
+						boxes[b].min[splitAxis] + boxes[b].max[splitAxis]);
+			}
+		});
+		final int mid = (lo + hi) >>> 1;
+		count[node] = 0;
+		build(sorted, lo, mid, level + 1);
+		right[node] = build(sorted, mid, hi, level + 1);
+		return node;
+	}
+}
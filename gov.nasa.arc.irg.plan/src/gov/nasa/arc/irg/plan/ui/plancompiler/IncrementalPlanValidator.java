@@ -0,0 +1,401 @@
+/******************************************************************************
+ * Copyright © 2019, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration. All 
+ * rights reserved.
+ * 
+ * The Astrobee Control Station platform is licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0. 
+ *   
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations 
+ * under the License.
+ *****************************************************************************/
+package gov.nasa.arc.irg.plan.ui.plancompiler;
+
+import gov.nasa.arc.irg.plan.freeflyer.config.OperatingLimitsConfigList.OperatingLimitsConfig;
+import gov.nasa.arc.irg.plan.freeflyer.plan.FreeFlyerPlan;
+import gov.nasa.arc.irg.plan.model.Position;
+import gov.nasa.arc.irg.plan.model.Segment;
+import gov.nasa.arc.irg.plan.model.Sequenceable;
+import gov.nasa.arc.irg.plan.model.Station;
+import gov.nasa.arc.irg.plan.modulebay.ModuleBayStation;
+import gov.nasa.arc.irg.plan.ui.plancompiler.PlanCompiler.SegmentCompilation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Validates a plan on a background thread while the operator edits it, 
+ * e.g. while a Station is being dragged in the 3D view. 
+ * <p>
+ * The compilation and bounds check of each Segment is cached, keyed on 
+ * the start and end Positions it was compiled with, its own speed and 
+ * acceleration settings and the plan's OperatingLimitsConfig. Moving a 
+ * Station therefore only recompiles the Segments next to it (and the one 
+ * after that, if the Segment into the Station sets its rotation). Segments 
+ * compiled for a Station that is not where the plan has it are cached apart 
+ * from the plan's own, so letting go of a dragged Station without moving it 
+ * costs nothing. Only the 
+ * latest request matters: a request that is still queued when a newer 
+ * one arrives is cancelled, and one that is running stops at the next 
+ * Segment. Results are not written to the plan; use PlanCompiler for that.
+ */
+public class IncrementalPlanValidator {
+	private static Logger logger = Logger.getLogger(IncrementalPlanValidator.class);
+
+	public interface Listener {
+		/** called on the validator thread, only for the latest request */
+		void planValidated(PlanValidationResult result);
+	}
+
+	private final TrajectoryBoundsCheck checker;
+	private final Listener listener;
+	private final ExecutorService executor;
+	private final AtomicLong requestCounter = new AtomicLong();
+	private final Map<Segment, CacheEntry> cache = 
+			Collections.synchronizedMap(new IdentityHashMap<Segment, CacheEntry>());
+	/** Segments compiled for a moved Station, kept apart so they do not replace the plan's */
+	private final Map<Segment, CacheEntry> whatIfCache = 
+			Collections.synchronizedMap(new IdentityHashMap<Segment, CacheEntry>());
+	private Future<PlanValidationResult> pending;
+
+	/**
+	 * @param checker bounds to check Segments against, or null to only 
+	 *        check the operating limits
+	 * @param listener may be null if callers only use the returned Futures
+	 */
+	public IncrementalPlanValidator(TrajectoryBoundsCheck checker, Listener listener) {
+		this.checker = checker;
+		this.listener = listener;
+		this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "PlanValidator");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/** validate the plan as it is */
+	public Future<PlanValidationResult> validate(FreeFlyerPlan plan) {
+		return validate(plan, null, null);
+	}
+
+	/**
+	 * Validate the plan as if moved was at movedTo. Must be called on the 
+	 * thread that owns the plan; the Positions are copied before this 
+	 * returns, and the rest of the work is done on the validator thread.
+	 * @return the result, or null from get() if a newer request replaced this one
+	 */
+	public synchronized Future<PlanValidationResult> validate(FreeFlyerPlan plan, Station moved, Position movedTo) {
+		final Request request = makeRequest(plan, moved, movedTo);
+		if(pending != null) {
+			pending.cancel(false);
+		}
+		pending = executor.submit(new Callable<PlanValidationResult>() {
+			@Override
+			public PlanValidationResult call() {
+				return run(request);
+			}
+		});
+		return pending;
+	}
+
+	/**
+	 * forget the cached results of the Segments next to station, e.g. after 
+	 * a command changed it. Segments whose Positions changed would be 
+	 * recompiled anyway; this also catches changes the key does not cover.
+	 * Requests made before the change are stale, so their results are not 
+	 * delivered.
+	 */
+	public void stationChanged(Station station) {
+		cancelPending();
+		if(station.getPrevious() instanceof Segment) {
+			cache.remove(station.getPrevious());
+			whatIfCache.remove(station.getPrevious());
+		}
+		if(station.getNext() instanceof Segment) {
+			cache.remove(station.getNext());
+			whatIfCache.remove(station.getNext());
+		}
+	}
+
+	/** forget all cached results, e.g. when another plan is opened */
+	public void clear() {
+		cancelPending();
+		cache.clear();
+		whatIfCache.clear();
+	}
+
+	/**
+	 * @return false if a newer request, stationChanged() or clear() came 
+	 *         after the request that produced result
+	 */
+	public boolean isLatest(PlanValidationResult result) {
+		return result.getRequestNumber() == requestCounter.get();
+	}
+
+	/** make every request so far stale */
+	private synchronized void cancelPending() {
+		requestCounter.incrementAndGet();
+		if(pending != null) {
+			pending.cancel(false);
+			pending = null;
+		}
+	}
+
+	public void dispose() {
+		clear();
+		executor.shutdownNow();
+	}
+
+	int getCacheSize() {
+		return cache.size();
+	}
+
+	private boolean isStale(Request request) {
+		return request.number != requestCounter.get();
+	}
+
+	private Request makeRequest(FreeFlyerPlan plan, Station moved, Position movedTo) {
+		final long number = requestCounter.incrementAndGet();
+		if(plan.getOperatingLimits() == null || plan.getInertiaConfiguration() == null) {
+			return new Request(number, plan, null, Collections.<SegmentRequest>emptyList(), 
+					"Selection for Inertia File or Operating Limits missing", true, false);
+		}
+		List<SegmentRequest> segments = new ArrayList<SegmentRequest>();
+		for(Sequenceable seq : plan.getSequence()) {
+			if(seq instanceof Segment) {
+				Segment seg = (Segment) seq;
+				Position start;
+				if(moved != null && seg.getPrevious() == moved) {
+					start = copy(movedTo);
+				} else if(seg.isFaceForward() && seg.getPrevious() instanceof Station) {
+					// like SegmentCompilation, start from the Station in case 
+					// an ignoreOrientation change was not propagated
+					start = ((Station) seg.getPrevious()).getEndPosition();
+				} else {
+					start = copy(seg.getStartPosition());
+				}
+				Position end = moved != null && seg.getNext() == moved ? copy(movedTo) : copy(seg.getEndPosition());
+				segments.add(new SegmentRequest(seg, start, end));
+			}
+		}
+		boolean movedStationSafe = true;
+		if(moved != null && checker != null) {
+			List<Float> xyz = movedTo.getCoordinates();
+			List<Float> rpy = movedTo.getOrientation();
+			movedStationSafe = checker.isAstrobeeSafeDegrees(xyz.get(0), xyz.get(1), xyz.get(2), 
+					rpy.get(0), rpy.get(1), rpy.get(2));
+		}
+		return new Request(number, plan, plan.getOperatingLimits(), segments, null, 
+				movedStationSafe, moved != null);
+	}
+
+	private PlanValidationResult run(Request request) {
+		final long startTime = System.nanoTime();
+		if(isStale(request)) {
+			return null;
+		}
+		String errorMessage = request.errorMessage;
+		List<Segment> invalidSegments = new ArrayList<Segment>();
+		Vector<double[]> collisions = new Vector<double[]>();
+		int numCompiled = 0;
+		Position chainStart = null;
+		for(SegmentRequest segment : request.segments) {
+			if(isStale(request)) {
+				return null;
+			}
+			Position start = chainStart != null ? chainStart : segment.start;
+			float[] key = segment.makeKey(start, request.opLimits);
+			CacheEntry entry = lookup(segment.seg, key, request.opLimits);
+			if(entry == null) {
+				SegmentCompilation compiled = new SegmentCompilation(segment.seg, start, segment.end);
+				try {
+					compiled.compile(request.opLimits, checker);
+				} catch(RuntimeException e) {
+					// e.g. a half edited Segment; report it rather than killing the thread
+					logger.warn("Could not validate Segment " + segment.seg.getName(), e);
+					compiled.errorMessage = "Could not validate Segment " + segment.seg.getName();
+				}
+				entry = new CacheEntry(key, request.opLimits, compiled);
+				(request.whatIf ? whatIfCache : cache).put(segment.seg, entry);
+				numCompiled++;
+			}
+			SegmentCompilation compiled = entry.compiled;
+			if(compiled.errorMessage != null) {
+				if(errorMessage == null) {
+					errorMessage = compiled.errorMessage;
+				}
+				invalidSegments.add(segment.seg);
+				if(compiled.collisions != null) {
+					collisions.addAll(compiled.collisions);
+				}
+				chainStart = null;
+			} else {
+				chainStart = compiled.nextStationPosition;
+			}
+		}
+		retainOnly(request.segments);
+
+		PlanValidationResult result = new PlanValidationResult(request.plan, request.number, errorMessage, 
+				invalidSegments, collisions, request.movedStationSafe, 
+				request.segments.size(), numCompiled, System.nanoTime() - startTime);
+		if(logger.isDebugEnabled()) {
+			logger.debug(result + " in " + result.getValidateNanos()/1000 + " us");
+		}
+		if(listener != null && !isStale(request)) {
+			listener.planValidated(result);
+		}
+		return result;
+	}
+
+	/** @return the cached compilation of seg for key, or null */
+	private CacheEntry lookup(Segment seg, float[] key, OperatingLimitsConfig opLimits) {
+		CacheEntry entry = cache.get(seg);
+		if(entry != null && entry.matches(key, opLimits)) {
+			return entry;
+		}
+		entry = whatIfCache.get(seg);
+		if(entry != null && entry.matches(key, opLimits)) {
+			return entry;
+		}
+		return null;
+	}
+
+	/** drop Segments that have been removed from the plan */
+	private void retainOnly(List<SegmentRequest> segments) {
+		if(cache.size() <= segments.size() && whatIfCache.size() <= segments.size()) {
+			return;
+		}
+		Map<Segment, Boolean> current = new IdentityHashMap<Segment, Boolean>();
+		for(SegmentRequest segment : segments) {
+			current.put(segment.seg, Boolean.TRUE);
+		}
+		synchronized(cache) {
+			cache.keySet().retainAll(current.keySet());
+		}
+		synchronized(whatIfCache) {
+			whatIfCache.keySet().retainAll(current.keySet());
+		}
+	}
+
+	private static Position copy(Position position) {
+		Position retVal = new Position();
+		retVal.setCoordinates(new ArrayList<Float>(position.getCoordinates()));
+		retVal.setOrientation(new ArrayList<Float>(position.getOrientation()));
+		return retVal;
+	}
+
+	/** what the validator thread needs from the plan, copied on the calling thread */
+	private static class Request {
+		final long number;
+		final FreeFlyerPlan plan;
+		final OperatingLimitsConfig opLimits;
+		final List<SegmentRequest> segments;
+		/** error that kept any Segment from being validated, or null */
+		final String errorMessage;
+		final boolean movedStationSafe;
+		/** true if a Station is not where the plan has it */
+		final boolean whatIf;
+
+		Request(long number, FreeFlyerPlan plan, OperatingLimitsConfig opLimits, 
+				List<SegmentRequest> segments, String errorMessage, boolean movedStationSafe, 
+				boolean whatIf) {
+			this.number = number;
+			this.plan = plan;
+			this.opLimits = opLimits;
+			this.segments = segments;
+			this.errorMessage = errorMessage;
+			this.movedStationSafe = movedStationSafe;
+			this.whatIf = whatIf;
+		}
+	}
+
+	private static class SegmentRequest {
+		final Segment seg;
+		final Position start;
+		final Position end;
+		/** everything but the start Position that SegmentCompilation depends on */
+		final float[] settings;
+
+		SegmentRequest(Segment seg, Position start, Position end) {
+			this.seg = seg;
+			this.start = start;
+			this.end = end;
+			boolean nextIgnoresOrientation = seg.getNext() instanceof ModuleBayStation 
+					&& ((ModuleBayStation) seg.getNext()).getCoordinate().isIgnoreOrientation();
+			settings = new float[] {
+					seg.isFaceForward() ? 1 : 0,
+					nextIgnoresOrientation ? 1 : 0,
+					seg.isUseCustomSpeed() ? 1 : 0,
+					seg.getSpeed(),
+					seg.getMaxAVel(),
+					seg.getMaxAccel(),
+					seg.getMaxAAccel()
+			};
+		}
+
+		float[] makeKey(Position startPosition, OperatingLimitsConfig opLimits) {
+			float[] key = new float[12 + settings.length + 4];
+			int i = 0;
+			i = put(key, i, startPosition);
+			i = put(key, i, end);
+			for(float f : settings) {
+				key[i++] = f;
+			}
+			if(opLimits != null) {
+				key[i++] = opLimits.getTargetLinearVelocity();
+				key[i++] = opLimits.getTargetLinearAccel();
+				key[i++] = opLimits.getTargetAngularVelocity();
+				key[i++] = opLimits.getTargetAngularAccel();
+			}
+			return key;
+		}
+
+		private static int put(float[] key, int i, Position position) {
+			for(int j = 0; j < 3; j++) {
+				key[i++] = position.getCoordinates().get(j);
+			}
+			for(int j = 0; j < 3; j++) {
+				key[i++] = position.getOrientation().get(j);
+			}
+			return i;
+		}
+	}
+
+	private static class CacheEntry {
+		final float[] key;
+		final OperatingLimitsConfig opLimits;
+		final SegmentCompilation compiled;
+
+		CacheEntry(float[] key, OperatingLimitsConfig opLimits, SegmentCompilation compiled) {
+			this.key = key;
+			this.opLimits = opLimits;
+			this.compiled = compiled;
+		}
+
+		boolean matches(float[] otherKey, OperatingLimitsConfig otherOpLimits) {
+			return opLimits == otherOpLimits && Arrays.equals(key, otherKey);
+		}
+	}
+}
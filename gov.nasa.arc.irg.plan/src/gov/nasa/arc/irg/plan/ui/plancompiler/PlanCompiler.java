@@ -42,6 +42,11 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 import javax.inject.Inject;
 
@@ -53,6 +58,24 @@ import com.ardor3d.math.Matrix3;
 import com.ardor3d.math.Quaternion;
 import com.ardor3d.math.Vector3;
 
+/**
+ * Compiles the Segments of a FreeFlyerPlan into waypoints and checks them
+ * against the keepin and keepout zones.
+ * <p>
+ * A PlanCompiler keeps no state between compilations, so one instance can
+ * compile several plans at the same time. The trajectories of the Segments
+ * are computed on a fork-join pool without touching the plan; the waypoints,
+ * speeds and automatic Station rotations are then written to the plan on
+ * the calling thread, in plan order, so property change listeners are
+ * notified on the thread that asked for the compilation. A Segment is
+ * compiled after the one before it only when that one faces forward into a
+ * Station that ignores orientation, because it sets the rotation of that
+ * Station.
+ * <p>
+ * The static methods compile with the shared keepin/keepout bounds and
+ * remember the last error for callers that have not moved to
+ * PlanCompilerResult.
+ */
 public class PlanCompiler {
 	private static Logger logger = Logger.getLogger(PlanCompiler.class);
 	// Defaults copied from unit tests.  Check they are reasonable.
@@ -63,25 +86,14 @@ public class PlanCompiler {
 	static final double DEFAULT_MAX_AACCEL = 0.2; // rad/s^2
 	static final double DEFAULT_MAX_VEL = 0.2; // 20 cm/s
 	static final double EPSILON = 0.001;
+	/** plans with fewer Segments than this are compiled on the calling thread */
+	static final int PARALLEL_SEGMENT_THRESHOLD = 8;
 	static boolean madeTrajectoryBoundsCheck = false;
 	static List<BoxMath> keepins;
 	static List<BoxMath> keepouts;
 	static TrajectoryBoundsCheck boundsChecker;
-	static String lastErrorMessage = "No last error message";
-	// Start and end positions in a Segment
-	static Position startPos;
-	static Vector3 startVec;
-	static Position endPos;
-	static Vector3 endVec;
-	static Quaternion startFacingEndQuat;
-	static List<List<Number>> subpoints; // will be Waypoints in a Segment
-
-	static double maxAccel;
-	static double maxAVel;
-	static double maxAAccel;
-	static double max_vel; // each Segment sets this
-
-	static Segment invalidSegment;
+	static volatile String lastErrorMessage = "No last error message";
+	static volatile Segment invalidSegment;
 
 	private static int idlePowerDraw = 1; //1 watt/sec 
 	private static float defaultSpeed = 0.2f;
@@ -89,6 +101,284 @@ public class PlanCompiler {
 	@Inject @Optional
 	static private IEclipseContext context;
 
+	private final TrajectoryBoundsCheck checker;
+	private final ForkJoinPool pool;
+	private int parallelThreshold = PARALLEL_SEGMENT_THRESHOLD;
+
+	/**
+	 * @param checker bounds to check Segments against; may be null if
+	 *        plans are only compiled without bounds checks
+	 */
+	public PlanCompiler(TrajectoryBoundsCheck checker) {
+		this(checker, ForkJoinPool.commonPool());
+	}
+
+	public PlanCompiler(TrajectoryBoundsCheck checker, ForkJoinPool pool) {
+		this.checker = checker;
+		this.pool = pool;
+	}
+
+	public TrajectoryBoundsCheck getChecker() {
+		return checker;
+	}
+
+	/** set the number of Segments a plan needs before its Segments are compiled in parallel */
+	public void setParallelThreshold(int numSegments) {
+		parallelThreshold = numSegments;
+	}
+
+	/**
+	 * Compile one plan and write the waypoints into it. Must be called on
+	 * the thread that owns the plan (the UI thread for an open plan).
+	 */
+	public PlanCompilerResult compile(FreeFlyerPlan plan, OperatingLimitsConfig opLimits, boolean checkBounds) {
+		PreparedPlan prepared = prepare(plan, opLimits, checkBounds);
+		PlanCompilerResult result = apply(prepared);
+		if(checkBounds) {
+			showCollisions(prepared, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Compile several independent plans at the same time, each with its 
+	 * own operating limits, and write the waypoints into them. The plans 
+	 * must not share Stations or Segments. Collisions are not published 
+	 * to the context.
+	 * @return one result per plan, in the same order
+	 */
+	public List<PlanCompilerResult> compileAll(List<? extends FreeFlyerPlan> plans, final boolean checkBounds) {
+		final List<PrepareTask> tasks = new ArrayList<PrepareTask>(plans.size());
+		for(FreeFlyerPlan plan : plans) {
+			tasks.add(new PrepareTask(plan, plan.getOperatingLimits(), checkBounds));
+		}
+		invokeAll(tasks);
+
+		List<PlanCompilerResult> retVal = new ArrayList<PlanCompilerResult>(plans.size());
+		for(PrepareTask task : tasks) {
+			retVal.add(apply(task.join()));
+		}
+		return retVal;
+	}
+
+	public static boolean compilePlan(FreeFlyerPlan plan, OperatingLimitsConfig opLimits, boolean checkBounds) {
+		PlanCompiler compiler = new PlanCompiler(checkBounds ? getTrajectoryBoundsCheck() : null);
+		PlanCompilerResult result = compiler.compile(plan, opLimits, checkBounds);
+		rememberResult(result);
+		return result.isValid();
+	}
+
+	public static boolean compilePlanNoBoundsCheck(FreeFlyerPlan plan, OperatingLimitsConfig opLimits) {
+		return compilePlan(plan, opLimits, false);
+	}
+
+	public static boolean compilePlan(FreeFlyerPlan plan, OperatingLimitsConfig opLimits) {
+		return compilePlan(plan, opLimits, true);
+	}
+
+	/**
+	 * Compile and bounds check several plans at the same time, each with 
+	 * its own operating limits.
+	 * @see #compileAll(List, boolean)
+	 */
+	public static List<PlanCompilerResult> compilePlans(List<? extends FreeFlyerPlan> plans) {
+		PlanCompiler compiler = new PlanCompiler(getTrajectoryBoundsCheck());
+		List<PlanCompilerResult> retVal = compiler.compileAll(plans, true);
+		for(PlanCompilerResult result : retVal) {
+			rememberResult(result);
+		}
+		return retVal;
+	}
+
+	private static void rememberResult(PlanCompilerResult result) {
+		if(result.isValid()) {
+			invalidSegment = null;
+		} else {
+			lastErrorMessage = result.getErrorMessage();
+			if(result.getInvalidSegment() != null) {
+				invalidSegment = result.getInvalidSegment();
+			}
+		}
+	}
+
+	/**
+	 * compute the trajectories of all Segments of a plan without changing it
+	 */
+	PreparedPlan prepare(FreeFlyerPlan plan, OperatingLimitsConfig opLimits, boolean checkBounds) {
+		final long start = System.nanoTime();
+		if(plan.getOperatingLimits() == null || plan.getInertiaConfiguration() == null) {
+			return new PreparedPlan(plan, "Selection for Inertia File or Operating Limits missing", 
+					null, System.nanoTime() - start);
+		}
+		if(checkBounds && checker == null) {
+			throw new IllegalStateException("PlanCompiler has no TrajectoryBoundsCheck");
+		}
+		final TrajectoryBoundsCheck segmentChecker = checkBounds ? checker : null;
+
+		List<List<Segment>> chains = makeChains(plan);
+		int numSegments = 0;
+		for(List<Segment> chain : chains) {
+			numSegments += chain.size();
+		}
+
+		List<SegmentCompilation> compiled = new ArrayList<SegmentCompilation>(numSegments);
+		if(chains.size() > 1 && numSegments >= parallelThreshold) {
+			List<ChainTask> tasks = new ArrayList<ChainTask>(chains.size());
+			for(List<Segment> chain : chains) {
+				tasks.add(new ChainTask(chain, opLimits, segmentChecker));
+			}
+			invokeAll(tasks);
+			for(ChainTask task : tasks) {
+				compiled.addAll(task.join());
+			}
+		} else {
+			for(List<Segment> chain : chains) {
+				compiled.addAll(compileChain(chain, opLimits, segmentChecker));
+			}
+		}
+		return new PreparedPlan(plan, null, compiled, System.nanoTime() - start);
+	}
+
+	/**
+	 * write the results of prepare() into the plan, in plan order, stopping
+	 * at the first Segment that failed
+	 */
+	PlanCompilerResult apply(PreparedPlan prepared) {
+		final long start = System.nanoTime();
+		final FreeFlyerPlan plan = prepared.plan;
+		if(prepared.errorMessage != null) {
+			return new PlanCompilerResult(plan, false, prepared.errorMessage, null, prepared.nanos);
+		}
+
+		for(SegmentCompilation compiled : prepared.segments) {
+			if(!Float.isNaN(compiled.speed)) {
+				compiled.seg.setSpeed(compiled.speed);
+			}
+			if(compiled.errorMessage != null) {
+				if(!compiled.limitsError) {
+					plan.setValid(false);
+				}
+				return new PlanCompilerResult(plan, false, compiled.errorMessage, 
+						compiled.boundsError ? compiled.seg : null, 
+						prepared.nanos + System.nanoTime() - start);
+			}
+			compiled.seg.setWaypoints(compiled.subpoints);
+			if(compiled.nextStationRotation != null) {
+				setNextStationStartRotationAutomatically((ModuleBayStation)compiled.seg.getNext(), 
+						compiled.nextStationRotation);
+			}
+		}
+		plan.updateTimes(0); // update all the start times
+		plan.setValid(true);
+		return new PlanCompilerResult(plan, true, null, null, prepared.nanos + System.nanoTime() - start);
+	}
+
+	/**
+	 * publish the collisions of the Segment that failed the bounds check, 
+	 * or none if the plan passed, like checking the Segments one by one does
+	 */
+	private void showCollisions(PreparedPlan prepared, PlanCompilerResult result) {
+		Segment invalid = result.getInvalidSegment();
+		if(invalid != null) {
+			checker.isSegmentSafe(invalid.getStartPosition(), invalid.getEndPosition(), true);
+		} else if(result.isValid() && !prepared.segments.isEmpty()) {
+			checker.showCollisions(new Vector<double[]>());
+		}
+	}
+
+	/**
+	 * Split the Segments of a plan into runs that can be compiled 
+	 * independently of each other. A face-forward Segment into a Station 
+	 * that ignores orientation sets the rotation of that Station, which 
+	 * is the start of the next Segment, so the two stay in one run.
+	 */
+	static List<List<Segment>> makeChains(FreeFlyerPlan plan) {
+		List<List<Segment>> retVal = new ArrayList<List<Segment>>();
+		List<Segment> chain = new ArrayList<Segment>();
+		for(Sequenceable seq : plan.getSequence()) {
+			if(seq instanceof Segment) {
+				Segment seg = (Segment)seq;
+				chain.add(seg);
+				if(!setsNextStationRotation(seg)) {
+					retVal.add(chain);
+					chain = new ArrayList<Segment>();
+				}
+			}
+		}
+		if(!chain.isEmpty()) {
+			retVal.add(chain);
+		}
+		return retVal;
+	}
+
+	private static boolean setsNextStationRotation(Segment seg) {
+		return seg.isFaceForward() && seg.getNext() instanceof ModuleBayStation 
+				&& ((ModuleBayStation)seg.getNext()).getCoordinate().isIgnoreOrientation();
+	}
+
+	private static List<SegmentCompilation> compileChain(List<Segment> chain, OperatingLimitsConfig opLimits, 
+			TrajectoryBoundsCheck segmentChecker) {
+		List<SegmentCompilation> retVal = new ArrayList<SegmentCompilation>(chain.size());
+		Position startOverride = null;
+		for(Segment seg : chain) {
+			SegmentCompilation compiled = new SegmentCompilation(seg, startOverride);
+			retVal.add(compiled);
+			compiled.compile(opLimits, segmentChecker);
+			if(compiled.errorMessage != null) {
+				// nothing after the first failure is applied
+				break;
+			}
+			startOverride = compiled.nextStationPosition;
+		}
+		return retVal;
+	}
+
+	private void invokeAll(final List<? extends ForkJoinTask<?>> tasks) {
+		if(ForkJoinTask.inForkJoinPool()) {
+			ForkJoinTask.invokeAll(tasks);
+		} else {
+			pool.invoke(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+				@Override
+				protected void compute() {
+					invokeAll(tasks);
+				}
+			});
+		}
+	}
+
+	private static void setNextStationStartRotationAutomatically(ModuleBayStation nextStation, EulerAngles ea) {
+		nextStation.getCoordinate().uncheckedSetRollRadians(ea.getAngle1());
+		nextStation.getCoordinate().uncheckedSetPitchRadians(ea.getAngle2());
+		nextStation.getCoordinate().uncheckedSetYawRadians(ea.getAngle3());
+		
+		logger.debug("Station " + nextStation.getName() + " points to " +
+		  nextStation.getCoordinate().getRoll() + " " + nextStation.getCoordinate().getPitch() +
+		  " " + nextStation.getCoordinate().getYaw());
+		logger.debug("===================================");
+	}
+
+	/**
+	 * @return the end position of station after it has been rotated by
+	 * setNextStationStartRotationAutomatically, without rotating it
+	 */
+	static Position positionWithRotation(ModuleBayStation station, EulerAngles ea) {
+		return positionWithRotation(station.getEndPosition(), ea);
+	}
+
+	/** @return a copy of position with its orientation replaced by ea */
+	static Position positionWithRotation(Position position, EulerAngles ea) {
+		Position retVal = new Position();
+		retVal.setCoordinates(new ArrayList<Float>(position.getCoordinates()));
+		List<Float> orientation = new ArrayList<Float>(3);
+		// ModuleBayPoint keeps automatic rotations in whole degrees
+		orientation.add((float)Math.round(ea.getAngle1() * RAD2DEG));
+		orientation.add((float)Math.round(ea.getAngle2() * RAD2DEG));
+		orientation.add((float)Math.round(ea.getAngle3() * RAD2DEG));
+		retVal.setOrientation(orientation);
+		return retVal;
+	}
+
 	public static double generatePower(FreeFlyerPlan plan){
 		double totalPower = 0;
 		Map<String,Double> constantPower = new HashMap<String,Double>();
@@ -208,127 +498,311 @@ public class PlanCompiler {
 	}
 
 
-	public static boolean compilePlan(FreeFlyerPlan plan, OperatingLimitsConfig opLimits, boolean checkBounds) {
-		if(checkBounds) {
-			if(!madeTrajectoryBoundsCheck) {
-				makeTrajectoryBoundsCheck();
-			}
+	/** results of prepare() for one plan */
+	static class PreparedPlan {
+		final FreeFlyerPlan plan;
+		/** error that kept any Segment from being compiled, or null */
+		final String errorMessage;
+		final List<SegmentCompilation> segments;
+		final long nanos;
+
+		PreparedPlan(FreeFlyerPlan plan, String errorMessage, List<SegmentCompilation> segments, long nanos) {
+			this.plan = plan;
+			this.errorMessage = errorMessage;
+			this.segments = segments;
+			this.nanos = nanos;
 		}
+	}
 
-		if(plan.getOperatingLimits() == null || plan.getInertiaConfiguration() == null) {
-			lastErrorMessage = "Selection for Inertia File or Operating Limits missing";
-			return false;
+	private class PrepareTask extends RecursiveTask<PreparedPlan> {
+		private static final long serialVersionUID = 1L;
+		final FreeFlyerPlan plan;
+		final OperatingLimitsConfig opLimits;
+		final boolean checkBounds;
+
+		PrepareTask(FreeFlyerPlan plan, OperatingLimitsConfig opLimits, boolean checkBounds) {
+			this.plan = plan;
+			this.opLimits = opLimits;
+			this.checkBounds = checkBounds;
+		}
+
+		@Override
+		protected PreparedPlan compute() {
+			return prepare(plan, opLimits, checkBounds);
 		}
+	}
 
-		try {
-			// loop through all the segments
-			for(Sequenceable seq : plan.getSequence()) {
-				if(seq instanceof Segment) {
-					Segment seg = (Segment)seq;
+	private static class ChainTask extends RecursiveTask<List<SegmentCompilation>> {
+		private static final long serialVersionUID = 1L;
+		final List<Segment> chain;
+		final OperatingLimitsConfig opLimits;
+		final TrajectoryBoundsCheck segmentChecker;
 
-					setOperatingLimits(opLimits, seg);
+		ChainTask(List<Segment> chain, OperatingLimitsConfig opLimits, TrajectoryBoundsCheck segmentChecker) {
+			this.chain = chain;
+			this.opLimits = opLimits;
+			this.segmentChecker = segmentChecker;
+		}
 
-					try {
-						if(checkBounds) {
-							assertSegmentSafe(plan, seg);
-						}
-						if(seg.isFaceForward()) {
-							compileFaceForwardSegmentToSubpoints(plan, seg);
-							seg.setWaypoints(subpoints);
-						} else {
-							compileNotFaceForwardSegmentToSubpoints(plan, seg);
-							seg.setWaypoints(subpoints);
-						}
-					} catch (PlanCompilerException e) {
-						plan.setValid(false);
-						lastErrorMessage = e.getMessage();
-						return false;
-					}
+		@Override
+		protected List<SegmentCompilation> compute() {
+			return compileChain(chain, opLimits, segmentChecker);
+		}
+	}
+
+	/**
+	 * Working state for compiling one Segment. It is only used by the 
+	 * thread that compiles the Segment, and the plan is not changed; the 
+	 * results are written to the plan by apply().
+	 */
+	static class SegmentCompilation {
+		final Segment seg;
+		/** start of seg if the previous Segment rotates the Station in between, else null */
+		final Position startOverride;
+		/** end of seg if its next Station is being moved, else null */
+		final Position endOverride;
+
+		double max_vel;
+		double maxAccel;
+		double maxAVel;
+		double maxAAccel;
+		/** speed to set on seg, or NaN */
+		float speed = Float.NaN;
+
+		// Start and end positions in a Segment
+		Position startPos;
+		Vector3 startVec;
+		Position endPos;
+		Vector3 endVec;
+		Quaternion startFacingEndQuat;
+		List<List<Number>> subpoints; // will be Waypoints in a Segment
+
+		/** rotation to give the next Station, which ignores orientation, or null */
+		EulerAngles nextStationRotation;
+		Position nextStationPosition;
+
+		String errorMessage;
+		boolean limitsError = false;
+		boolean boundsError = false;
+		/** intersections that made the bounds check fail */
+		Vector<double[]> collisions;
+
+		SegmentCompilation(Segment seg, Position startOverride) {
+			this(seg, startOverride, null);
+		}
+
+		SegmentCompilation(Segment seg, Position startOverride, Position endOverride) {
+			this.seg = seg;
+			this.startOverride = startOverride;
+			this.endOverride = endOverride;
+		}
+
+		void compile(OperatingLimitsConfig opLimits, TrajectoryBoundsCheck segmentChecker) {
+			try {
+				setOperatingLimits(opLimits);
+			} catch (PlanCompilerException e) {
+				errorMessage = e.getMessage();
+				limitsError = true;
+				return;
+			}
+			try {
+				if(segmentChecker != null) {
+					assertSegmentSafe(segmentChecker);
+				}
+				if(seg.isFaceForward()) {
+					compileFaceForwardSegmentToSubpoints();
+				} else {
+					compileNotFaceForwardSegmentToSubpoints();
 				}
+			} catch (PlanCompilerException e) {
+				errorMessage = e.getMessage();
 			}
-			invalidSegment = null;
-			plan.updateTimes(0); // update all the start times
-			plan.setValid(true);
-		} catch (PlanCompilerException e1) {
-			lastErrorMessage = e1.getMessage();
-			return false;
 		}
-		return true;
-	}
 
-	public static boolean compilePlanNoBoundsCheck(FreeFlyerPlan plan, OperatingLimitsConfig opLimits) {
-		return compilePlan(plan, opLimits, false);
-	}
+		private Position getSegmentStartPosition() {
+			return startOverride != null ? startOverride : seg.getStartPosition();
+		}
 
-	public static boolean compilePlan(FreeFlyerPlan plan, OperatingLimitsConfig opLimits) {
-		return compilePlan(plan, opLimits, true);
-	}
+		private Position getSegmentEndPosition() {
+			return endOverride != null ? endOverride : seg.getEndPosition();
+		}
 
-	private static void compileNotFaceForwardSegmentToSubpoints(FreeFlyerPlan plan, Segment seg) throws PlanCompilerException {
-		Position startPos = seg.getStartPosition();
-		Position endPos = seg.getEndPosition();
+		private void compileNotFaceForwardSegmentToSubpoints() throws PlanCompilerException {
+			Position startPos = getSegmentStartPosition();
+			Position endPos = getSegmentEndPosition();
 
-		// get the FullState and put it in the Segment
-		FullState[] fullstates = 
-				FullState.createTrajectoryTrapezoid(startPos, endPos, max_vel, maxAccel, maxAVel, maxAAccel);
+			// get the FullState and put it in the Segment
+			FullState[] fullstates = 
+					FullState.createTrajectoryTrapezoid(startPos, endPos, max_vel, maxAccel, maxAVel, maxAAccel);
 
-		subpoints = new ArrayList<List<Number>>();
+			subpoints = new ArrayList<List<Number>>();
 
-		addFullStateArrayToSubpoints(fullstates);
-	}
+			addFullStateArrayToSubpoints(fullstates);
+		}
 
-	private static void compileFaceForwardSegmentToSubpoints(FreeFlyerPlan plan, Segment seg) throws PlanCompilerException {
-		// reinitialize the list of waypoints for this segment
-		subpoints = new ArrayList<List<Number>>();
+		private void compileFaceForwardSegmentToSubpoints() throws PlanCompilerException {
+			// reinitialize the list of waypoints for this segment
+			subpoints = new ArrayList<List<Number>>();
 
-		setStartAndEndPositionsFromSegment(seg);
+			setStartAndEndPositionsFromSegment();
 
-		// check if start and end are same point
-		if(endVec.subtract(startVec, null).length() < EPSILON) {
-			// if they are, just turn from one to the end and you're done
-			computeSubpointsForStartToEndRotationNoTranslation();
-			return;
-		} else {
-			// if they aren't, turn to end, move, turn back
-			computeSubpointsForStartTurningToFaceEnd();
-			computeSubpointsForStartFacingEndToEndFacingEnd();
+			// check if start and end are same point
+			if(endVec.subtract(startVec, null).length() < EPSILON) {
+				// if they are, just turn from one to the end and you're done
+				computeSubpointsForStartToEndRotationNoTranslation();
+				return;
+			} else {
+				// if they aren't, turn to end, move, turn back
+				computeSubpointsForStartTurningToFaceEnd();
+				computeSubpointsForStartFacingEndToEndFacingEnd();
+			}
+
+			boolean ignoreOrientation = ((ModuleBayStation)seg.getNext()).getCoordinate().isIgnoreOrientation();
+
+			if(ignoreOrientation) {
+				computeNextStationStartRotation((ModuleBayStation)seg.getNext());
+			} else {
+				computeSubpointsForEndFacingEndToEndWithRequiredRotation();
+			}
 		}
 
-		boolean ignoreOrientation = ((ModuleBayStation)seg.getNext()).getCoordinate().isIgnoreOrientation();
+		private void computeNextStationStartRotation(ModuleBayStation nextStation) {
+			// set the start rotation of the next station to be "end-facing rotation"
+			// don't use this because they use different EulerAngles convention
+//			double[] facingEndPoint = startFacingEndQuat.toEulerAngles(null);
+			
+			Matrix3 m33 = new Matrix3();
+			startFacingEndQuat.toRotationMatrix(m33);
+			if(logger.isDebugEnabled()) {
+				logger.debug(String.format("startFacingEndQuat = %.2f, %.2f, %.2f %.2f", 
+						startFacingEndQuat.getX(), startFacingEndQuat.getY(), startFacingEndQuat.getZ(), startFacingEndQuat.getW()));
+				logger.debug(String.format("matrix =\n\t\t\t\t\t\t\t\t\t\t\t[%.2f, %.2f, %.2f\n\t\t\t\t\t\t\t\t\t\t\t"
+						+ "%.2f, %.2f, %.2f\n\t\t\t\t\t\t\t\t\t\t\t%.2f, %.2f, %.2f]", 
+						m33.getValuef(0, 0), m33.getValuef(0, 1), m33.getValuef(0, 2),
+						m33.getValuef(1, 0), m33.getValuef(1, 1), m33.getValuef(1, 2),
+						m33.getValuef(2, 0), m33.getValuef(2, 1), m33.getValuef(2, 2)));
+			}
+			EulerAngles ea = ConvertUtils.toEulerAnglesXYZr(m33, null);
+			if(logger.isDebugEnabled()) {
+				logger.debug(String.format("euler deg = %.2f, %.2f, %.2f", ea.getAngle1()*RAD2DEG, ea.getAngle2()*RAD2DEG, ea.getAngle3()*RAD2DEG));
+			}
 
-		if(ignoreOrientation) {
-			setNextStationStartRotationAutomatically((ModuleBayStation)seg.getNext());
-		} else {
-			computeSubpointsForEndFacingEndToEndWithRequiredRotation();
+			nextStationRotation = ea;
+			nextStationPosition = endOverride != null ? positionWithRotation(endOverride, ea)
+					: positionWithRotation(nextStation, ea);
 		}
-	}
-	
-	private static void setNextStationStartRotationAutomatically(ModuleBayStation nextStation) {
-		// set the start rotation of the next station to be "end-facing rotation"
-		// don't use this because they use different EulerAngles convention
-//		double[] facingEndPoint = startFacingEndQuat.toEulerAngles(null);
-		
-		Matrix3 m33 = new Matrix3();
-		startFacingEndQuat.toRotationMatrix(m33);
-		logger.debug(String.format("startFacingEndQuat = %.2f, %.2f, %.2f %.2f", 
-				startFacingEndQuat.getX(), startFacingEndQuat.getY(), startFacingEndQuat.getZ(), startFacingEndQuat.getW()));
-		logger.debug(String.format("matrix =\n\t\t\t\t\t\t\t\t\t\t\t[%.2f, %.2f, %.2f\n\t\t\t\t\t\t\t\t\t\t\t"
-				+ "%.2f, %.2f, %.2f\n\t\t\t\t\t\t\t\t\t\t\t%.2f, %.2f, %.2f]", 
-				m33.getValuef(0, 0), m33.getValuef(0, 1), m33.getValuef(0, 2),
-				m33.getValuef(1, 0), m33.getValuef(1, 1), m33.getValuef(1, 2),
-				m33.getValuef(2, 0), m33.getValuef(2, 1), m33.getValuef(2, 2)));
-		EulerAngles ea = ConvertUtils.toEulerAnglesXYZr(m33, null);
-		logger.debug(String.format("euler deg = %.2f, %.2f, %.2f", ea.getAngle1()*RAD2DEG, ea.getAngle2()*RAD2DEG, ea.getAngle3()*RAD2DEG));
-		
 
-		nextStation.getCoordinate().uncheckedSetRollRadians(ea.getAngle1());
-		nextStation.getCoordinate().uncheckedSetPitchRadians(ea.getAngle2());
-		nextStation.getCoordinate().uncheckedSetYawRadians(ea.getAngle3());
-		
-		logger.debug("Station " + nextStation.getName() + " points to " +
-		  nextStation.getCoordinate().getRoll() + " " + nextStation.getCoordinate().getPitch() +
-		  " " + nextStation.getCoordinate().getYaw());
-		logger.debug("===================================");
+		private void computeSubpointsForStartTurningToFaceEnd() {
+			FullState[] fullstates1 = FullState.createTrajectoryTrapezoid(
+					startPos,
+					startVec, startFacingEndQuat, 
+					max_vel, maxAccel, maxAVel, maxAAccel);
+			addFullStateArrayToSubpoints(fullstates1);
+		}
+
+		private void computeSubpointsForStartFacingEndToEndFacingEnd() {
+			FullState[] fullstates2 = FullState.createTrajectoryTrapezoid(
+					startVec, startFacingEndQuat,
+					endVec, startFacingEndQuat,
+					max_vel, maxAccel, maxAVel, maxAAccel);
+			addFullStateArrayToSubpoints(fullstates2);
+		}
+
+		private void computeSubpointsForEndFacingEndToEndWithRequiredRotation() {
+			FullState[] fullstates3 = FullState.createTrajectoryTrapezoid(
+					endVec, startFacingEndQuat,
+					endPos,
+					max_vel, maxAccel, maxAVel, maxAAccel);
+			addFullStateArrayToSubpoints(fullstates3);
+		}
+
+		private void computeSubpointsForStartToEndRotationNoTranslation() {
+			FullState[] fullstates3 = FullState.createTrajectoryTrapezoid(
+					startPos,
+					endPos,
+					max_vel, maxAccel, maxAVel, maxAAccel);
+			addFullStateArrayToSubpoints(fullstates3);
+		}
+
+		private void addFullStateArrayToSubpoints(FullState[] fullstates) {
+			double timeoffset = 0;
+			if(!subpoints.isEmpty()) {
+				List<Number> lastpoint = subpoints.get(subpoints.size()-1);
+				timeoffset = (double) lastpoint.get(0);
+				// Andrew's fudge factor so we don't have identical timestamps would go here
+			}
+
+			for(int i=0; i<fullstates.length; i++) {
+				List<Number> pt = translateFullStateToNumberList(fullstates[i], timeoffset);
+				subpoints.add(pt);
+			}
+		}
+
+		private void setStartAndEndPositionsFromSegment() {
+			// actually need to get it from prior Station, because an ignoreOrientation
+			// change might not have been propagated to the Segment
+			if(startOverride != null) {
+				startPos = startOverride;
+			} else {
+				ModuleBayStation prevStation = (ModuleBayStation) seg.getPrevious();
+				startPos = prevStation.getEndPosition();
+			}
+			startVec = positionToVector3Translation(startPos);
+
+			endPos = getSegmentEndPosition();
+			endVec = positionToVector3Translation(endPos);
+
+			// find the rotation that faces from start point to end point
+			startFacingEndQuat = getStartFacingEndQuaternion(startVec, endVec);
+		}
+
+		private void assertSegmentSafe(TrajectoryBoundsCheck segmentChecker) throws PlanCompilerException {
+			Position startPos = getSegmentStartPosition();
+			Position endPos = getSegmentEndPosition();
+
+			Vector<double[]> found = new Vector<double[]>();
+			if(!segmentChecker.isSegmentSafe(startPos, endPos, found)) {
+				boundsError = true;
+				collisions = found;
+				String msg = "Potential collision in Segment " + seg.getName() +
+						". Please move Station "+seg.getPrevious().getName() + " or Station " + seg.getNext().getName() + ".";
+				throw new PlanCompilerException(msg);
+			}
+		}
+
+		/** set the limits from either plan or segment operating limits */
+		private void setOperatingLimits(OperatingLimitsConfig opLimits) throws PlanCompilerException {
+
+			if(opLimits == null) {
+				throw new PlanCompilerException("No operating limits set on Plan");
+			}
+
+			max_vel = opLimits.getTargetLinearVelocity();
+			maxAccel = opLimits.getTargetLinearAccel();
+			maxAVel = opLimits.getTargetAngularVelocity();
+			maxAAccel = opLimits.getTargetAngularAccel();
+
+			// use segment limits if set
+			if(seg.isUseCustomSpeed()) {
+				max_vel = seg.getSpeed();
+			} else {
+				speed = (float) max_vel;
+			}
+			if(seg.getMaxAVel() > 0) {
+				maxAVel = seg.getMaxAVel();
+			}
+			if(seg.getMaxAccel() > 0) {
+				maxAccel = seg.getMaxAccel();
+			}
+			if(seg.getMaxAAccel() > 0) {
+				maxAAccel = seg.getMaxAAccel();
+			}
+
+			if(!seg.isFaceForward()) {
+				maxAccel /= 2.0;
+				maxAAccel /= 2.0;
+			}
+		}
 	}
 
 	private static Quaternion getStartFacingEndQuaternion(Vector3 startVec, Vector3 endVec) {
@@ -375,66 +849,6 @@ public class PlanCompiler {
 		return startFacingEndQuat;
 	}
 
-	private static void computeSubpointsForStartTurningToFaceEnd() {
-		FullState[] fullstates1 = FullState.createTrajectoryTrapezoid(
-				startPos,
-				startVec, startFacingEndQuat, 
-				max_vel, maxAccel, maxAVel, maxAAccel);
-		addFullStateArrayToSubpoints(fullstates1);
-	}
-
-	private static void computeSubpointsForStartFacingEndToEndFacingEnd() {
-		FullState[] fullstates2 = FullState.createTrajectoryTrapezoid(
-				startVec, startFacingEndQuat,
-				endVec, startFacingEndQuat,
-				max_vel, maxAccel, maxAVel, maxAAccel);
-		addFullStateArrayToSubpoints(fullstates2);
-	}
-
-	private static void computeSubpointsForEndFacingEndToEndWithRequiredRotation() {
-		FullState[] fullstates3 = FullState.createTrajectoryTrapezoid(
-				endVec, startFacingEndQuat,
-				endPos,
-				max_vel, maxAccel, maxAVel, maxAAccel);
-		addFullStateArrayToSubpoints(fullstates3);
-	}
-
-	private static void computeSubpointsForStartToEndRotationNoTranslation() {
-		FullState[] fullstates3 = FullState.createTrajectoryTrapezoid(
-				startPos,
-				endPos,
-				max_vel, maxAccel, maxAVel, maxAAccel);
-		addFullStateArrayToSubpoints(fullstates3);
-	}
-
-	private static void addFullStateArrayToSubpoints(FullState[] fullstates) {
-		double timeoffset = 0;
-		if(!subpoints.isEmpty()) {
-			List<Number> lastpoint = subpoints.get(subpoints.size()-1);
-			timeoffset = (double) lastpoint.get(0);
-			// Andrew's fudge factor so we don't have identical timestamps would go here
-		}
-
-		for(int i=0; i<fullstates.length; i++) {
-			List<Number> pt = translateFullStateToNumberList(fullstates[i], timeoffset);
-			subpoints.add(pt);
-		}
-	}
-
-	private static void setStartAndEndPositionsFromSegment(Segment seg) {
-		// actually need to get it from prior Station, because an ignoreOrientation
-		// change might not have been propagated to the Segment
-		ModuleBayStation prevStation = (ModuleBayStation) seg.getPrevious();
-		startPos = prevStation.getEndPosition();
-		startVec = positionToVector3Translation(startPos);
-
-		endPos = seg.getEndPosition();
-		endVec = positionToVector3Translation(endPos);
-
-		// find the rotation that faces from start point to end point
-		startFacingEndQuat = getStartFacingEndQuaternion(startVec, endVec);
-	}
-
 	/** take translation out of Position and put it into Vector3 */
 	public static Vector3 positionToVector3Translation(Position pos) {
 		Vector3 startVec = new Vector3();
@@ -444,60 +858,14 @@ public class PlanCompiler {
 		return startVec;
 	}
 
-	private static void assertSegmentSafe(FreeFlyerPlan plan, Segment seg) throws PlanCompilerException {
-		Position startPos = seg.getStartPosition();
-		Position endPos = seg.getEndPosition();
-
-		if(!boundsChecker.isSegmentSafe(startPos, endPos)) {
-			invalidSegment = seg;
-			String msg = "Potential collision in Segment " + seg.getName() +
-					". Please move Station "+seg.getPrevious().getName() + " or Station " + seg.getNext().getName() + ".";
-			throw new PlanCompilerException(msg);
-		}
-	}
-
-	/** set class variables for either plan or segment operating limits */
-	private static void setOperatingLimits(OperatingLimitsConfig opLimits, Segment seg) throws PlanCompilerException {
-
-		if(opLimits == null) {
-			throw new PlanCompilerException("No operating limits set on Plan");
-		}
-
-		max_vel = opLimits.getTargetLinearVelocity();
-		maxAccel = opLimits.getTargetLinearAccel();
-		maxAVel = opLimits.getTargetAngularVelocity();
-		maxAAccel = opLimits.getTargetAngularAccel();
-
-		// use segment limits if set
-		if(seg.isUseCustomSpeed()) {
-			max_vel = seg.getSpeed();
-		} else {
-			seg.setSpeed((float) max_vel);
-		}
-		if(seg.getMaxAVel() > 0) {
-			maxAVel = seg.getMaxAVel();
-		}
-		if(seg.getMaxAccel() > 0) {
-			maxAccel = seg.getMaxAccel();
-		}
-		if(seg.getMaxAAccel() > 0) {
-			maxAAccel = seg.getMaxAAccel();
-		}
-
-		if(!seg.isFaceForward()) {
-			maxAccel /= 2.0;
-			maxAAccel /= 2.0;
-		}
-	}
-
-	public static TrajectoryBoundsCheck getTrajectoryBoundsCheck() {
+	public static synchronized TrajectoryBoundsCheck getTrajectoryBoundsCheck() {
 		if(!madeTrajectoryBoundsCheck) {
 			makeTrajectoryBoundsCheck();
 		}
 		return boundsChecker;
 	}
 
-	public static void makeTrajectoryBoundsCheck() {
+	public static synchronized void makeTrajectoryBoundsCheck() {
 		makeKeepins();
 		makeKeepouts();
 
@@ -0,0 +1,71 @@
+/******************************************************************************
+ * Copyright © 2019, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration. All 
+ * rights reserved.
+ * 
+ * The Astrobee Control Station platform is licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0. 
+ *   
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations 
+ * under the License.
+ *****************************************************************************/
+package gov.nasa.arc.irg.plan.ui.plancompiler;
+
+import gov.nasa.arc.irg.plan.freeflyer.plan.FreeFlyerPlan;
+import gov.nasa.arc.irg.plan.model.Segment;
+
+/**
+ * Outcome of compiling one FreeFlyerPlan with a PlanCompiler. Immutable, so 
+ * results of plans compiled at the same time do not interfere.
+ */
+public final class PlanCompilerResult {
+	private final FreeFlyerPlan plan;
+	private final boolean valid;
+	private final String errorMessage;
+	private final Segment invalidSegment;
+	private final long compileNanos;
+
+	PlanCompilerResult(FreeFlyerPlan plan, boolean valid, String errorMessage, 
+			Segment invalidSegment, long compileNanos) {
+		this.plan = plan;
+		this.valid = valid;
+		this.errorMessage = errorMessage;
+		this.invalidSegment = invalidSegment;
+		this.compileNanos = compileNanos;
+	}
+
+	public FreeFlyerPlan getPlan() {
+		return plan;
+	}
+
+	public boolean isValid() {
+		return valid;
+	}
+
+	/** @return why the plan did not compile, or null if it is valid */
+	public String getErrorMessage() {
+		return errorMessage;
+	}
+
+	/** @return the Segment that failed the bounds check, or null */
+	public Segment getInvalidSegment() {
+		return invalidSegment;
+	}
+
+	/** @return time spent compiling the plan, in nanoseconds */
+	public long getCompileNanos() {
+		return compileNanos;
+	}
+
+	@Override
+	public String toString() {
+		String name = plan == null ? "null" : plan.getName();
+		return "PlanCompilerResult[" + name + (valid ? ", valid" : ", invalid: " + errorMessage) + "]";
+	}
+}
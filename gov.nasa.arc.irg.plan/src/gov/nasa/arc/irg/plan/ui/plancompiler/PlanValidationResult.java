@@ -0,0 +1,109 @@
+/******************************************************************************
+ * Copyright © 2019, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration. All 
+ * rights reserved.
+ * 
+ * The Astrobee Control Station platform is licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0. 
+ *   
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations 
+ * under the License.
+ *****************************************************************************/
+package gov.nasa.arc.irg.plan.ui.plancompiler;
+
+import gov.nasa.arc.irg.plan.freeflyer.plan.FreeFlyerPlan;
+import gov.nasa.arc.irg.plan.model.Segment;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * Outcome of one request to an IncrementalPlanValidator. Unlike a 
+ * PlanCompilerResult it covers every Segment of the plan, not just the 
+ * first one that failed, so all collisions can be shown at once.
+ */
+public final class PlanValidationResult {
+	private final FreeFlyerPlan plan;
+	private final long requestNumber;
+	private final String errorMessage;
+	private final List<Segment> invalidSegments;
+	private final Vector<double[]> collisions;
+	private final boolean movedStationSafe;
+	private final int numSegments;
+	private final int numCompiled;
+	private final long validateNanos;
+
+	PlanValidationResult(FreeFlyerPlan plan, long requestNumber, String errorMessage, 
+			List<Segment> invalidSegments, Vector<double[]> collisions, boolean movedStationSafe,
+			int numSegments, int numCompiled, long validateNanos) {
+		this.plan = plan;
+		this.requestNumber = requestNumber;
+		this.errorMessage = errorMessage;
+		this.invalidSegments = Collections.unmodifiableList(invalidSegments);
+		this.collisions = collisions;
+		this.movedStationSafe = movedStationSafe;
+		this.numSegments = numSegments;
+		this.numCompiled = numCompiled;
+		this.validateNanos = validateNanos;
+	}
+
+	public FreeFlyerPlan getPlan() {
+		return plan;
+	}
+
+	/** @return the number IncrementalPlanValidator.validate gave the request */
+	public long getRequestNumber() {
+		return requestNumber;
+	}
+
+	public boolean isValid() {
+		return errorMessage == null && movedStationSafe;
+	}
+
+	/** @return why the first invalid Segment did not compile, or null */
+	public String getErrorMessage() {
+		return errorMessage;
+	}
+
+	/** @return Segments that failed, in plan order */
+	public List<Segment> getInvalidSegments() {
+		return invalidSegments;
+	}
+
+	/** @return intersections of all Segments that failed the bounds check */
+	public Vector<double[]> getCollisions() {
+		return collisions;
+	}
+
+	/** @return false if the Station being moved is outside the keepins or in a keepout */
+	public boolean isMovedStationSafe() {
+		return movedStationSafe;
+	}
+
+	public int getNumSegments() {
+		return numSegments;
+	}
+
+	/** @return number of Segments that were not in the cache and had to be compiled */
+	public int getNumCompiled() {
+		return numCompiled;
+	}
+
+	public long getValidateNanos() {
+		return validateNanos;
+	}
+
+	@Override
+	public String toString() {
+		String name = plan == null ? "null" : plan.getName();
+		return "PlanValidationResult[" + name + ", " + numCompiled + "/" + numSegments + " compiled" 
+				+ (isValid() ? ", valid" : ", invalid: " + invalidSegments.size() + " Segments") + "]";
+	}
+}
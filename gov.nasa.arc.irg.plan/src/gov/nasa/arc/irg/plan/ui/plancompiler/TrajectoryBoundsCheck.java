@@ -18,12 +18,15 @@
 package gov.nasa.arc.irg.plan.ui.plancompiler;
 
 import gov.nasa.arc.irg.plan.model.Position;
-import gov.nasa.arc.irg.plan.ui.plancompiler.BoxMath.Contains;
 import gov.nasa.rapid.v2.framestore.ConvertUtils;
 import gov.nasa.rapid.v2.framestore.EulerAngles;
 import gov.nasa.rapid.v2.framestore.ReadOnlyEulerAngles;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 
 import org.eclipse.e4.core.contexts.IEclipseContext;
@@ -39,6 +42,10 @@ public class TrajectoryBoundsCheck {
 	private double margin = .05;
 	private IEclipseContext context;
 	private final double DEG2RAD = Math.PI / 180.0;
+	/** lists with more points than this are deduplicated with a spatial hash */
+	static final int HASHED_DEDUPE_MIN_POINTS = 16;
+	/** trees over the zone lists, rebuilt when either list is replaced or changes size */
+	private volatile Zones zones;
 
 	public TrajectoryBoundsCheck(java.util.List<BoxMath> ISS_bounding_boxes,
 			java.util.List<BoxMath> keepout_zones) {
@@ -52,9 +59,33 @@ public class TrajectoryBoundsCheck {
 
 	// returns true if segment does not intersect boxes except where boxes are touching
 	public boolean isSegmentSafe(Position start, Position end) {
+		return isSegmentSafe(start, end, true);
+	}
+
+	/**
+	 * @param showCollisions publish the intersections to the context. Pass false 
+	 *        when checking off the UI thread, e.g. from the PlanCompiler pool.
+	 */
+	public boolean isSegmentSafe(Position start, Position end, boolean showCollisions) {
+		Vector<double[]> collisions = new Vector<double[]>();
+		boolean safe = isSegmentSafe(start, end, collisions);
+		if(showCollisions) {
+			showCollisions(collisions);
+		}
+		return safe;
+	}
+
+	/**
+	 * Check the path of the center and corners of the bee without publishing 
+	 * anything, so it can be called from any thread.
+	 * @param collisions gets the intersections of the first path that is not 
+	 *        safe. It can stay empty for an unsafe Segment that starts or ends 
+	 *        outside all keepins.
+	 */
+	public boolean isSegmentSafe(Position start, Position end, Vector<double[]> collisions) {
 		double[] sCenter = convertFloatList(start.getCoordinates());
 		double[] eCenter = convertFloatList(end.getCoordinates());
-		if(!isSegmentSafe(sCenter, eCenter, true)) {
+		if(!findCollisions(sCenter, eCenter, collisions)) {
 			return false;
 		}
 
@@ -62,7 +93,7 @@ public class TrajectoryBoundsCheck {
 		double[][] eCorners = getCorners(end.getCoordinates(), end.getOrientation());
 
 		for(int i = 0; i < sCorners.length; i++) {
-			if(!isSegmentSafe(sCorners[i], eCorners[i])) {
+			if(!findCollisions(sCorners[i], eCorners[i], collisions)) {
 				return false;
 			}
 		}
@@ -89,23 +120,38 @@ public class TrajectoryBoundsCheck {
 	}
 
 	public boolean isSegmentSafe(double[] start, double[] end, boolean showCollisions) {
+		Vector<double[]> collisions = new Vector<double[]>();
+		boolean safe = findCollisions(start, end, collisions);
+		if(showCollisions) {
+			showCollisions(collisions);
+		}
+		return safe;
+	}
+
+	/** @return true if safe; if not, the intersections are added to collisions */
+	private boolean findCollisions(double[] start, double[] end, Vector<double[]> collisions) {
 		if (start.length != 3 || end.length != 3)
 			throw new IllegalArgumentException("Input start and end need to be size 3");
 
+		final Zones z = getZones();
 		Vector<double[]> allIntersections = new Vector<double[]>();
 
+		// Only boxes that overlap the extent of the segment can intersect it
 		//If the segment intersects the box, store the point at which it exits.
-		for (BoxMath keepin : ISS_bounding_boxes) {
-			Vector<double[]> oneBoxWorth =  keepin.findSegmentKeepinWallIntersection(start, end);
+		BitSet candidates = z.keepins.findOverlappingSegment(start, end);
+		for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+			Vector<double[]> oneBoxWorth =  z.keepins.get(i).findSegmentKeepinWallIntersection(start, end);
 			if(oneBoxWorth != null) {
 				allIntersections.addAll(oneBoxWorth);
 			}
 		}
 		allIntersections = removeDuplicates(allIntersections);
-		allIntersections = removeInteriorPoints(allIntersections);
+		allIntersections = removeInteriorPoints(allIntersections, z);
 
 		// If it intersects keepout zone, fail
-		for (BoxMath keepout : keepout_zones) {
+		candidates = z.keepouts.findOverlappingSegment(start, end);
+		for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+			BoxMath keepout = z.keepouts.get(i);
 			if (keepout.segmentIntersectsKeepoutZone(start, end)) {
 				Vector<double[]> oneBoxWorth = keepout.findSegmentKeepinWallIntersection(start, end);
 				if(oneBoxWorth != null) {
@@ -114,47 +160,45 @@ public class TrajectoryBoundsCheck {
 			} 
 		}
 
-		if(context != null && showCollisions) {
-			context.set(Vector.class, allIntersections);
-		}
-
 		if(allIntersections.size() > 0) {
+			collisions.addAll(allIntersections);
 			return false;
 		}
 
-		boolean startContained = false;
-		boolean endContained = false;
-		for (BoxMath keepin : ISS_bounding_boxes) {
-			Contains answer =  keepin.containsEnds(start, end);
-			switch(answer) {
-			case BOTH:
+		// safe if both ends are in keepins, whether the same one or not
+		return isInKeepin(start, z) && isInKeepin(end, z);
+	}
+
+	private boolean isInKeepin(double[] pt, Zones z) {
+		BitSet candidates = z.keepins.findContaining(pt);
+		for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+			if (z.keepins.get(i).contains(pt)) {
 				return true;
-			case START_ONLY:
-				startContained = true;
-				break;
-			case END_ONLY:
-				endContained = true;
-				break;
-			default:
-				break;
 			}
 		}
+		return false;
+	}
 
-		if(startContained && endContained) {
-			return true;
+	/** publish intersections to the context, for CreatePlanTrace to draw */
+	public void showCollisions(Vector<double[]> intersections) {
+		if(context != null) {
+			context.set(Vector.class, intersections);
 		}
-
-		return false;
 	}
 
 	public Vector<double[]> removeInteriorPoints(Vector<double[]> points) {
+		return removeInteriorPoints(points, getZones());
+	}
+
+	private Vector<double[]> removeInteriorPoints(Vector<double[]> points, Zones z) {
 		Vector<double[]> noInteriorPoints = new Vector<double[]>();
 		double interiorPointsMargin = 0.02;
 		// see if the interesection point is well within another keepin
 		for(double[] point : points) {
 			boolean isInteriorPoint = false;
-			for (BoxMath keepin : ISS_bounding_boxes) {
-				if(keepin.containsWithMargin(point, interiorPointsMargin)) {
+			BitSet candidates = z.keepins.findContaining(point);
+			for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+				if(z.keepins.get(i).containsWithMargin(point, interiorPointsMargin)) {
 					isInteriorPoint = true;
 					break;
 				}
@@ -167,7 +211,11 @@ public class TrajectoryBoundsCheck {
 	}
 
 
-	private Vector<double[]> removeDuplicates(Vector<double[]> points) {
+	/** keep only the points that have no partner (see hasPartnerInList) in points */
+	public Vector<double[]> removeDuplicates(Vector<double[]> points) {
+		if(points.size() > HASHED_DEDUPE_MIN_POINTS) {
+			return removeDuplicatesHashed(points);
+		}
 		Vector<double[]> noDuplicates = new Vector<double[]>();
 		for(double[] point : points) {
 			if(!hasPartnerInList(point, points)) {
@@ -177,6 +225,62 @@ public class TrajectoryBoundsCheck {
 		return noDuplicates;
 	}
 
+	/**
+	 * Same result as removeDuplicates, but only compares points in 
+	 * neighboring cells of a grid. Cells are twice the equality tolerance, 
+	 * so partners are never more than one cell apart.
+	 */
+	private Vector<double[]> removeDuplicatesHashed(Vector<double[]> points) {
+		final double cellSize = 2 * BoxMath.SLOPPY_EPSILON;
+		Map<Long, List<double[]>> cells = new HashMap<Long, List<double[]>>();
+		for(double[] point : points) {
+			Long key = cellKey(cell(point[0], cellSize), cell(point[1], cellSize), cell(point[2], cellSize));
+			List<double[]> inCell = cells.get(key);
+			if(inCell == null) {
+				inCell = new ArrayList<double[]>(2);
+				cells.put(key, inCell);
+			}
+			inCell.add(point);
+		}
+
+		Vector<double[]> noDuplicates = new Vector<double[]>();
+		for(double[] point : points) {
+			long cx = cell(point[0], cellSize);
+			long cy = cell(point[1], cellSize);
+			long cz = cell(point[2], cellSize);
+			int count = 0;
+			for(long dx = -1; dx <= 1 && count < 2; dx++) {
+				for(long dy = -1; dy <= 1 && count < 2; dy++) {
+					for(long dz = -1; dz <= 1 && count < 2; dz++) {
+						List<double[]> inCell = cells.get(cellKey(cx + dx, cy + dy, cz + dz));
+						if(inCell == null) {
+							continue;
+						}
+						for(double[] check : inCell) {
+							if(BoxMath.areNearlyEqual(point, check)) {
+								count++;
+							}
+						}
+					}
+				}
+			}
+			// the point itself is always counted once
+			if(count < 2) {
+				noDuplicates.add(point);
+			}
+		}
+		return noDuplicates;
+	}
+
+	private static long cell(double coordinate, double cellSize) {
+		return (long)Math.floor(coordinate / cellSize);
+	}
+
+	/** distinct cells may share a key, which only costs extra comparisons */
+	private static Long cellKey(long cx, long cy, long cz) {
+		return ((cx & 0x1FFFFF) << 42) | ((cy & 0x1FFFFF) << 21) | (cz & 0x1FFFFF);
+	}
+
 	public boolean allPointsHavePartners(Vector<double[]> list) {
 		for(double[] check : list) {
 			if(!hasPartnerInList(check, list)) {
@@ -187,12 +291,9 @@ public class TrajectoryBoundsCheck {
 	}
 
 	public boolean hasPartnerInList(double[] pt, Vector<double[]> list) {
-		BoxMath box = new BoxMath(new double[]{0, 0, 0},
-				new double[]{2, 2, 2});
-
 		int count = 0;
 		for(double[] check : list) {
-			if(box.vectorsAreEqual(pt, check)) {
+			if(BoxMath.areNearlyEqual(pt, check)) {
 				count++;
 			}
 		}
@@ -284,20 +385,16 @@ public class TrajectoryBoundsCheck {
 	public boolean isPointSafe(double x, double y, double z) {
 
 		double[] pt = {x, y, z};
+		final Zones current = getZones();
 		// See that we are inside of an ISS bound
-		boolean inside = false;
-		for (BoxMath positive : ISS_bounding_boxes) {
-			if (positive.contains(pt)) {
-				inside = true;
-			}
-		}
-		if(!inside) {
+		if(!isInKeepin(pt, current)) {
 			return false;
 		}
 
 		// See that we are outside all of keepout_zones
-		for (BoxMath negative : keepout_zones) {
-			if (negative.contains(pt)) {
+		BitSet candidates = current.keepouts.findContaining(pt);
+		for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+			if (current.keepouts.get(i).contains(pt)) {
 				return false;
 			}
 		}
@@ -351,4 +448,33 @@ public class TrajectoryBoundsCheck {
 		return margin;
 	}
 
+	/**
+	 * @return the trees over the current keepin and keepout lists. Callers 
+	 * that change the min or max of a box in place must call 
+	 * zonesChanged() afterwards.
+	 */
+	private Zones getZones() {
+		Zones z = zones;
+		if(z == null || !z.keepins.isBuiltFrom(ISS_bounding_boxes) || !z.keepouts.isBuiltFrom(keepout_zones)) {
+			z = new Zones(new BoxTree(ISS_bounding_boxes), new BoxTree(keepout_zones));
+			zones = z;
+		}
+		return z;
+	}
+
+	/** rebuild the spatial index on the next check, e.g. after boxes were edited in place */
+	public void zonesChanged() {
+		zones = null;
+	}
+
+	private static class Zones {
+		final BoxTree keepins;
+		final BoxTree keepouts;
+
+		Zones(BoxTree keepins, BoxTree keepouts) {
+			this.keepins = keepins;
+			this.keepouts = keepouts;
+		}
+	}
+
 }
@@ -135,9 +135,6 @@ public class FreeFlyer {
 	 * General setup required at initialization
 	 */
 	public void setupDds() {
-		//-- Load the native RTI DDS libraries
-		RtiDdsTarget.loadNativeLibraries();
-
 		//-- Set the implementation
 		Dds.setDdsImpl(new RtiDds());
 
@@ -158,15 +155,26 @@ public class FreeFlyer {
 		TypeSupportUtil.addImpl(new RapidTypeSupportUtil());
 		TypeSupportUtil.addImpl(new RapidExtArcTypeSupportUtil());
 
-		//-- Create the default factory configuration
-		final DomainParticipantFactoryConfig dpfConfig = new DomainParticipantFactoryConfig();
-
+		final String[] qosUrlGroups;
 		if(os.startsWith("Windows")) {
-			dpfConfig.qosUrlGroups = new String[]{"RAPID_QOS_PROFILES.xml"};
+			qosUrlGroups = new String[]{"RAPID_QOS_PROFILES.xml"};
 		} else {
 			String rapidQosPath = new File("").getAbsolutePath() + File.separator + "RAPID_QOS_PROFILES.xml";
-			dpfConfig.qosUrlGroups = new String[]{rapidQosPath};
+			qosUrlGroups = new String[]{rapidQosPath};
+		}
+
+		if(freeflyerPreferences.isLoopbackTransport()) {
+			//-- Run on the in-process bus; no native libraries needed
+			DdsEntityFactory.enableLoopbackBus(qosUrlGroups);
+			return;
 		}
+
+		//-- Load the native RTI DDS libraries
+		RtiDdsTarget.loadNativeLibraries();
+
+		//-- Create the default factory configuration
+		final DomainParticipantFactoryConfig dpfConfig = new DomainParticipantFactoryConfig();
+		dpfConfig.qosUrlGroups = qosUrlGroups;
 		
 		DdsEntityFactory.initDomainParticipantFactory(dpfConfig);
 	}
@@ -49,6 +49,8 @@ public class FreeFlyerPreferences implements IDdsPreferences {
     public String   qosLibrary = "RapidQosLibrary";
     public String   qosProfile = "RapidDefaultQos";
     public String[] urlGroups  = new String[0];
+    /** run on the in-process loopback bus, set with -Ddds.loopback=true */
+    public boolean  loopbackTransport = Boolean.getBoolean("dds.loopback");
     // carrot, carrot wifi, dandelion, pow
     //public String[] peersList  = new String[] { "127.0.0.1", "128.102.109.81", "128.102.242.154", "128.102.106.15", "128.102.106.20","128.102.109.81"};
 
@@ -151,4 +153,9 @@ public class FreeFlyerPreferences implements IDdsPreferences {
         return false;
     }
 
+    @Override
+    public boolean isLoopbackTransport() {
+        return loopbackTransport;
+    }
+
 }
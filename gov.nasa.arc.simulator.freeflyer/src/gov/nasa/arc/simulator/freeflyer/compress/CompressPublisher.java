@@ -40,9 +40,9 @@ import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 
 import rapid.ext.astrobee.CompressedFile;
-import rapid.ext.astrobee.CompressedFileDataWriter;
 import rapid.ext.astrobee.FileCompressionType;
 
+import com.rti.dds.publication.DataWriter;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 
 /**
@@ -59,7 +59,7 @@ public class CompressPublisher {
 	public String PLUGIN_PATH;
 
 	protected CompressedFile           sample;
-	protected CompressedFileDataWriter sampleWriter;
+	protected DataWriter sampleWriter;
 	protected InstanceHandle_t         sampleInstance;
 
 	public static CompressPublisher getInstance(String agent) {
@@ -84,8 +84,7 @@ public class CompressPublisher {
 	}
 
 	public void createWriters(String participantID, MessageType messageType, String partition) throws DdsEntityCreationException {
-		sampleWriter = (CompressedFileDataWriter)
-				RapidEntityFactory.createDataWriter(participantID,
+		sampleWriter = RapidEntityFactory.createDataWriter(participantID,
 						messageType,
 						partition);  
 	}
@@ -102,7 +101,7 @@ public class CompressPublisher {
 		//-- register the data instances *after* we have set
 		//   assetName and participantName in headers (i.e. the keyed fields)
 		if(sampleWriter != null)
-			sampleInstance = sampleWriter.register_instance(sample);
+			sampleInstance = sampleWriter.register_instance_untyped(sample);
 	}
 
 	public File compress(File file){
@@ -143,7 +142,7 @@ public class CompressPublisher {
 		sample.compressedFile.userData.add(compressedFile);
 
 		if (sampleWriter != null && sample != null) {
-			sampleWriter.write(sample, sampleInstance);
+			sampleWriter.write_untyped(sample, sampleInstance);
 		} else {
 			logger.info("sampleWriter is null");
 		}
@@ -161,7 +160,7 @@ public class CompressPublisher {
 		}
 
 		if (sampleWriter != null && sample != null) {
-			sampleWriter.write(sample, sampleInstance);
+			sampleWriter.write_untyped(sample, sampleInstance);
 		} else {
 			logger.info("sampleWriter is null");
 		}
@@ -35,9 +35,9 @@ import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 
 import rapid.ext.astrobee.CompressedFile;
-import rapid.ext.astrobee.CompressedFileDataWriter;
 import rapid.ext.astrobee.FileCompressionType;
 
+import com.rti.dds.publication.DataWriter;
 import com.rti.dds.infrastructure.ByteSeq;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 
@@ -54,7 +54,7 @@ public class CompressZonesPublisher {
 	protected final String srcName    = CompressZonesPublisher.class.getSimpleName();
 
 	protected CompressedFile           sample;
-	protected CompressedFileDataWriter sampleWriter;
+	protected DataWriter sampleWriter;
 	protected InstanceHandle_t         sampleInstance;
 
 	public static CompressZonesPublisher getInstance(String agent) {
@@ -78,8 +78,7 @@ public class CompressZonesPublisher {
 	}
 
 	public void createWriters(String participantID, MessageType messageType, String partition) throws DdsEntityCreationException {
-		sampleWriter = (CompressedFileDataWriter)
-				RapidEntityFactory.createDataWriter(participantID,
+		sampleWriter = RapidEntityFactory.createDataWriter(participantID,
 						messageType,
 						partition);  
 	}
@@ -96,7 +95,7 @@ public class CompressZonesPublisher {
 		//-- register the data instances *after* we have set
 		//   assetName and participantName in headers (i.e. the keyed fields)
 		if(sampleWriter != null)
-			sampleInstance = sampleWriter.register_instance(sample);
+			sampleInstance = sampleWriter.register_instance_untyped(sample);
 	}
 	
 	public void publishCompressedFile(CompressedFile compressedFile) {
@@ -107,7 +106,7 @@ public class CompressZonesPublisher {
 		sample.compressedFile.userData = seq;
 
 		if (sampleWriter != null && sample != null) {
-			sampleWriter.write(sample, sampleInstance);
+			sampleWriter.write_untyped(sample, sampleInstance);
 		} else {
 			logger.info("sampleWriter is null");
 		}
@@ -125,7 +124,7 @@ public class CompressZonesPublisher {
 		}
 
 		if (sampleWriter != null && sample != null) {
-			sampleWriter.write(sample, sampleInstance);
+			sampleWriter.write_untyped(sample, sampleInstance);
 		} else {
 			logger.info("sampleWriter is null");
 		}
@@ -29,11 +29,10 @@ import org.apache.log4j.Logger;
 import rapid.ext.astrobee.DATA_TOPICS_LIST_TOPIC;
 import rapid.ext.astrobee.DATA_TO_DISK_STATE_TOPIC;
 import rapid.ext.astrobee.DataToDiskState;
-import rapid.ext.astrobee.DataToDiskStateDataWriter;
 import rapid.ext.astrobee.DataTopicsList;
-import rapid.ext.astrobee.DataTopicsListDataWriter;
 import rapid.ext.astrobee.SaveSettingSequence64;
 
+import com.rti.dds.publication.DataWriter;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 
 /**
@@ -46,11 +45,11 @@ public class DataTopicsListPublisher {
 	private static DataTopicsListPublisher INSTANCE;
 
 	private DataTopicsList           config;
-	private DataTopicsListDataWriter configWriter;
+	private DataWriter configWriter;
 	private InstanceHandle_t     	   configInstance;
 
 	private DataToDiskState           sample;
-	private DataToDiskStateDataWriter sampleWriter;
+	private DataWriter sampleWriter;
 	private InstanceHandle_t    	  sampleInstance;
 
 	protected final String srcName    = DataTopicsListPublisher.class.getSimpleName();
@@ -84,12 +83,10 @@ public class DataTopicsListPublisher {
 	 public void createWriters(final String positionConfigTopicName,String positionSampleTopicName) throws DdsEntityCreationException {
 
 		 //-- Create the data writers. The Publisher is created automatically
-		 configWriter = (DataTopicsListDataWriter)
-				 RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID,
+		 configWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID,
 						 MessageTypeExtAstro.DATA_TOPICS_LIST_TYPE,
 						 FreeFlyer.getPartition());
-		 sampleWriter = (DataToDiskStateDataWriter)
-				 RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
+		 sampleWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
 						 MessageTypeExtAstro.DATA_TO_DISK_STATE_TYPE, 
 						 FreeFlyer.getPartition());
 	 }
@@ -122,9 +119,9 @@ public class DataTopicsListPublisher {
 		 //-- register the data instances *after* we have set
 		 //   assetName and participantName in headers (i.e. the keyed fields)
 		 if(configWriter != null)
-			 configInstance = configWriter.register_instance(config);
+			 configInstance = configWriter.register_instance_untyped(config);
 		 if(sampleWriter != null)
-			 sampleInstance = sampleWriter.register_instance(sample);
+			 sampleInstance = sampleWriter.register_instance_untyped(sample);
 	 }
 
 	 public void publishSample(SaveSettingSequence64 settings) {
@@ -134,7 +131,7 @@ public class DataTopicsListPublisher {
 
 	 private void publishSample() {
 		 if(sampleWriter != null) {
-			 sampleWriter.write(sample, sampleInstance);
+			 sampleWriter.write_untyped(sample, sampleInstance);
 		 }
 		 else {
 			 logger.info("sampleWriter is null");
@@ -144,6 +141,6 @@ public class DataTopicsListPublisher {
 	 public void publishConfig() {
 		 //-- publish the Config
 		 logger.info("Publishing DataToDiskConfig...");
-		 configWriter.write(config, configInstance);
+		 configWriter.write_untyped(config, configInstance);
 	 }
 }
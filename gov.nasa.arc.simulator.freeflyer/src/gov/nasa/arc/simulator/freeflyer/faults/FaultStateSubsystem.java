@@ -39,10 +39,9 @@ import rapid.KeyTypeValueTriple;
 import rapid.ParameterUnion;
 import rapid.ext.astrobee.Fault;
 import rapid.ext.astrobee.FaultConfig;
-import rapid.ext.astrobee.FaultConfigDataWriter;
 import rapid.ext.astrobee.FaultInfo;
-import rapid.ext.astrobee.FaultStateDataWriter;
 
+import com.rti.dds.publication.DataWriter;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 
 //Race conditions are mitigated by synchronized method declarations for locks
@@ -55,11 +54,11 @@ public class FaultStateSubsystem {
 	private final String BUNDLE_NAME = "gov.nasa.arc.verve.freeflyer.workbench";
 
 	private static FaultStateSubsystem INSTANCE;
-	private FaultStateDataWriter sampleWriter;
+	private DataWriter sampleWriter;
 	private InstanceHandle_t sampleInstance;
 
 	private FaultConfig           config;
-	private FaultConfigDataWriter configWriter;
+	private DataWriter configWriter;
 	private InstanceHandle_t     configInstance;
 
 	private int count = 0;
@@ -93,12 +92,11 @@ public class FaultStateSubsystem {
 	}
 
 	private void createWriters() throws DdsEntityCreationException {
-		configWriter = (FaultConfigDataWriter)
-				RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID,
+		configWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID,
 						MessageTypeExtAstro.FAULT_CONFIG_TYPE,
 						FreeFlyer.getPartition());
 
-		sampleWriter = (FaultStateDataWriter) RapidEntityFactory
+		sampleWriter = RapidEntityFactory
 				.createDataWriter(FreeFlyer.PARTICIPANT_ID,
 						MessageTypeExtAstro.FAULT_STATE_TYPE,
 						FreeFlyer.getPartition());
@@ -299,7 +297,7 @@ public class FaultStateSubsystem {
 
 		if (sampleWriter != null) {
 			//System.out.println("published");
-			sampleWriter.write(sample, sampleInstance);
+			sampleWriter.write_untyped(sample, sampleInstance);
 		} else {
 			logger.info("sampleWriter is null");
 		}
@@ -320,6 +318,6 @@ public class FaultStateSubsystem {
 	 public void publishConfig() {
 	        //-- publish the Config
 	        logger.info("Publishing FaultConfig...");
-	        configWriter.write(config, configInstance);
+	        configWriter.write_untyped(config, configInstance);
 	    }
 }
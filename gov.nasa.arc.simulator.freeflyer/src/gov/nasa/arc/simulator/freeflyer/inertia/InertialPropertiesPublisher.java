@@ -27,8 +27,8 @@ import org.apache.log4j.Logger;
 
 import rapid.Mat33f;
 import rapid.ext.astrobee.InertialProperties;
-import rapid.ext.astrobee.InertialPropertiesDataWriter;
 
+import com.rti.dds.publication.DataWriter;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 
 public class InertialPropertiesPublisher {
@@ -37,7 +37,7 @@ public class InertialPropertiesPublisher {
 	private static InertialPropertiesPublisher INSTANCE;
 
 	private InertialProperties           sample;
-	private InertialPropertiesDataWriter sampleWriter;
+	private DataWriter sampleWriter;
 	private InstanceHandle_t    	  sampleInstance;
 
 	protected final String srcName    = InertialPropertiesPublisher.class.getSimpleName();
@@ -65,8 +65,7 @@ public class InertialPropertiesPublisher {
 	 */
 	public void createWriters() throws DdsEntityCreationException {
 		
-		sampleWriter = (InertialPropertiesDataWriter)
-				RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
+		sampleWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
 						MessageTypeExtAstro.INERTIAL_PROPERTIES_TYPE, 
 						FreeFlyer.getPartition());
 	}
@@ -84,7 +83,7 @@ public class InertialPropertiesPublisher {
 		//-- register the data instances *after* we have set
 		//   assetName and participantName in headers (i.e. the keyed fields)
 		if(sampleWriter != null)
-			sampleInstance = sampleWriter.register_instance(sample);
+			sampleInstance = sampleWriter.register_instance_untyped(sample);
 	}
 
 	public void publishSample(String name, float mass, Mat33f matrix) {
@@ -96,7 +95,7 @@ public class InertialPropertiesPublisher {
 
 	private void publishSample() {
 		if(sampleWriter != null) {
-			sampleWriter.write(sample, sampleInstance);
+			sampleWriter.write_untyped(sample, sampleInstance);
 		}
 		else {
 			logger.info("sampleWriter is null");
@@ -31,9 +31,9 @@ import org.apache.log4j.Logger;
 import rapid.AckCompletedStatus;
 import rapid.AckStatus;
 import rapid.ext.astrobee.PlanStatus;
-import rapid.ext.astrobee.PlanStatusDataWriter;
 import rapid.ext.astrobee.Status;
 
+import com.rti.dds.publication.DataWriter;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 
 
@@ -46,7 +46,7 @@ public class PlanStatusPublisher {
     protected final String srcName    = PlanStatusPublisher.class.getSimpleName();
 
     protected PlanStatus           sample;
-    protected PlanStatusDataWriter sampleWriter;
+    protected DataWriter sampleWriter;
     protected InstanceHandle_t     sampleInstance;
 
     public PlanStatusPublisher() {
@@ -64,8 +64,7 @@ public class PlanStatusPublisher {
      */
     public void createWriters() throws DdsEntityCreationException {
        
-        sampleWriter = (PlanStatusDataWriter)
-                RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
+        sampleWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
                                                     MessageTypeExtAstro.PLAN_STATUS_TYPE, 
                                                     FreeFlyer.getPartition());
     }
@@ -96,7 +95,7 @@ public class PlanStatusPublisher {
         //-- register the data instances *after* we have set
         //   assetName and participantName in headers (i.e. the keyed fields)
         if(sampleWriter != null) {
-            sampleInstance = sampleWriter.register_instance(sample);
+            sampleInstance = sampleWriter.register_instance_untyped(sample);
         }
         
         publishSample();
@@ -125,7 +124,7 @@ public class PlanStatusPublisher {
         if(sampleWriter != null) {
         	printSample();
         	
-            sampleWriter.write(sample, sampleInstance);
+            sampleWriter.write_untyped(sample, sampleInstance);
         }
         else {
             logger.info("sampleWriter is null");
@@ -139,7 +138,7 @@ public class PlanStatusPublisher {
         //-- Start the Sample send loop
         for(int i = 0; i < numLoops; i++) {
             if(sampleWriter != null) {
-                sampleWriter.write(sample, sampleInstance);
+                sampleWriter.write_untyped(sample, sampleInstance);
                 logger.info("Published PlanStatus "+(i+1)+" of "+numLoops+"...");
             }
             else {
@@ -38,12 +38,12 @@ import rapid.AgentConfig;
 import rapid.Mat33f;
 import rapid.Vec3d;
 import rapid.ext.astrobee.AgentState;
-import rapid.ext.astrobee.AgentStateDataWriter;
 import rapid.ext.astrobee.ExecutionState;
 import rapid.ext.astrobee.ExecutionStateSeq;
 import rapid.ext.astrobee.MobilityState;
 import rapid.ext.astrobee.OperatingState;
 
+import com.rti.dds.publication.DataWriter;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 
 /**
@@ -60,7 +60,7 @@ public class AgentStatePublisher {
 	protected final String srcName    = AgentStatePublisher.class.getSimpleName();
 
 	protected AgentState           sample;
-	protected AgentStateDataWriter sampleWriter;
+	protected DataWriter sampleWriter;
 	protected InstanceHandle_t     sampleInstance;
 	
 	private static AgentStatePublisher INSTANCE;
@@ -86,8 +86,7 @@ public class AgentStatePublisher {
 	 */
 	public void createWriters() throws DdsEntityCreationException {   	
 
-		sampleWriter = (AgentStateDataWriter)
-				RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
+		sampleWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
 						MessageTypeExtAstro.AGENT_STATE_TYPE, 
 						FreeFlyer.getPartition());
 	}
@@ -106,7 +105,7 @@ public class AgentStatePublisher {
 		//-- register the data instances *after* we have set
 		//   assetName and participantName in headers (i.e. the keyed fields)
 		if(sampleWriter != null)
-			sampleInstance = sampleWriter.register_instance(sample);
+			sampleInstance = sampleWriter.register_instance_untyped(sample);
 	}
 
 	public void publishSimulatorAstrobeeState() {
@@ -135,7 +134,7 @@ public class AgentStatePublisher {
 		sample.hdr.timeStamp = System.currentTimeMillis();
 
 		if(sampleWriter != null) {
-			sampleWriter.write(sample, sampleInstance);
+			sampleWriter.write_untyped(sample, sampleInstance);
 		}
 		else {
 			logger.info("sampleWriter is null");
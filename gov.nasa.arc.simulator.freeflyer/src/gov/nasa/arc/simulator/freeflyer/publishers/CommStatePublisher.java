@@ -26,8 +26,8 @@ import gov.nasa.rapid.v2.e4.util.RapidUtil;
 import org.apache.log4j.Logger;
 
 import rapid.ext.astrobee.CommState;
-import rapid.ext.astrobee.CommStateDataWriter;
 
+import com.rti.dds.publication.DataWriter;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 
 public class CommStatePublisher {
@@ -36,7 +36,7 @@ public class CommStatePublisher {
 	private static CommStatePublisher INSTANCE;
 	
     private CommState           sample;
-    private CommStateDataWriter sampleWriter;
+    private DataWriter sampleWriter;
     private InstanceHandle_t    sampleInstance;
     
     protected final String srcName    = DiskStatePublisher.class.getSimpleName();
@@ -62,8 +62,7 @@ public class CommStatePublisher {
 	 */
 	public void createWriters() throws DdsEntityCreationException {   	
 
-		sampleWriter = (CommStateDataWriter)
-				RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
+		sampleWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
 						MessageTypeExtAstro.COMM_STATE_TYPE, 
 						FreeFlyer.getPartition());
 	}
@@ -89,13 +88,13 @@ public class CommStatePublisher {
         //   assetName and participantName in headers (i.e. the keyed fields)
 
         if(sampleWriter != null)
-            sampleInstance = sampleWriter.register_instance(sample);
+            sampleInstance = sampleWriter.register_instance_untyped(sample);
     }
 
     
     public void publishSample() {
         if(sampleWriter != null) {
-            sampleWriter.write(sample, sampleInstance);
+            sampleWriter.write_untyped(sample, sampleInstance);
         }
         else {
             logger.info("sampleWriter is null");
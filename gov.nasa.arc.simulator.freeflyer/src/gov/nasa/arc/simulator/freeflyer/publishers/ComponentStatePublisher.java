@@ -28,12 +28,11 @@ import java.util.Random;
 import org.apache.log4j.Logger;
 
 import rapid.ext.astrobee.ComponentConfig;
-import rapid.ext.astrobee.ComponentConfigDataWriter;
 import rapid.ext.astrobee.ComponentInfo;
 import rapid.ext.astrobee.ComponentInfoConfig;
 import rapid.ext.astrobee.ComponentState;
-import rapid.ext.astrobee.ComponentStateDataWriter;
 
+import com.rti.dds.publication.DataWriter;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 
 public class ComponentStatePublisher {
@@ -41,11 +40,11 @@ public class ComponentStatePublisher {
 	protected final String srcName    = ComponentStatePublisher.class.getSimpleName();
 
 	private ComponentConfig           config;
-	private ComponentConfigDataWriter configWriter;
+	private DataWriter configWriter;
 	private InstanceHandle_t     	  configInstance;
 
 	protected ComponentState           sample;
-	protected ComponentStateDataWriter sampleWriter;
+	protected DataWriter sampleWriter;
 	protected InstanceHandle_t     	   sampleInstance;
 
 	private String[] components = {"HLP", "MLP", "LLP", "Fan1", "Fan2", "Cam1", "Cam2", "Cam3"};
@@ -75,13 +74,11 @@ public class ComponentStatePublisher {
 	 * create the endpoints (i.e. readers and writers)
 	 */
 	public void createWriters() throws DdsEntityCreationException {   	
-		configWriter = (ComponentConfigDataWriter)
-				RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID,
+		configWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID,
 						MessageTypeExtAstro.COMPONENT_CONFIG_TYPE,
 						FreeFlyer.getPartition());
 
-		sampleWriter = (ComponentStateDataWriter)
-				RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
+		sampleWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
 						MessageTypeExtAstro.COMPONENT_STATE_TYPE, 
 						FreeFlyer.getPartition());
 	}
@@ -108,7 +105,7 @@ public class ComponentStatePublisher {
 			//-- register the data instances *after* we have set
 			//   assetName and participantName in headers (i.e. the keyed fields)
 			if(sampleWriter != null)
-				sampleInstance = sampleWriter.register_instance(sample);
+				sampleInstance = sampleWriter.register_instance_untyped(sample);
 
 		}
 	}
@@ -141,7 +138,7 @@ public class ComponentStatePublisher {
 
 	public void publishSamples() {
 		if(sampleWriter != null) {
-			sampleWriter.write(sample, sampleInstance);
+			sampleWriter.write_untyped(sample, sampleInstance);
 		}
 		else {
 			logger.info("sampleWriter is null");
@@ -196,6 +193,6 @@ public class ComponentStatePublisher {
 	public void publishConfig() {
 		//-- publish the Config
 		logger.info("Publishing ComponentConfig...");
-		configWriter.write(config, configInstance);
+		configWriter.write_untyped(config, configInstance);
 	}
 }
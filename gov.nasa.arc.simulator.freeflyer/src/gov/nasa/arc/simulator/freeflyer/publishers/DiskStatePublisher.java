@@ -30,12 +30,11 @@ import org.apache.log4j.Logger;
 import rapid.ext.astrobee.DISK_CONFIG_TOPIC;
 import rapid.ext.astrobee.DISK_STATE_TOPIC;
 import rapid.ext.astrobee.DiskConfig;
-import rapid.ext.astrobee.DiskConfigDataWriter;
 import rapid.ext.astrobee.DiskInfo;
 import rapid.ext.astrobee.DiskInfoConfig;
 import rapid.ext.astrobee.DiskState;
-import rapid.ext.astrobee.DiskStateDataWriter;
 
+import com.rti.dds.publication.DataWriter;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 
 public class DiskStatePublisher {
@@ -43,11 +42,11 @@ public class DiskStatePublisher {
 	private static DiskStatePublisher INSTANCE;
 	
     private DiskConfig           config;
-    private DiskConfigDataWriter configWriter;
+    private DataWriter configWriter;
     private InstanceHandle_t     configInstance;
 
     private DiskState           sample;
-    private DiskStateDataWriter sampleWriter;
+    private DataWriter sampleWriter;
     private InstanceHandle_t    sampleInstance;
     
     protected final String srcName    = DiskStatePublisher.class.getSimpleName();
@@ -78,12 +77,10 @@ public class DiskStatePublisher {
     public void createWriters(final String positionConfigTopicName,String positionSampleTopicName) throws DdsEntityCreationException {
     		
         //-- Create the data writers. The Publisher is created automatically
-        configWriter = (DiskConfigDataWriter)
-                RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID,
+        configWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID,
                                                     MessageTypeExtAstro.DISK_CONFIG_TYPE,
                                                     FreeFlyer.getPartition());
-        sampleWriter = (DiskStateDataWriter)
-                RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
+        sampleWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
                 									MessageTypeExtAstro.DISK_STATE_TYPE, 
                                                     FreeFlyer.getPartition());
     }
@@ -117,9 +114,9 @@ public class DiskStatePublisher {
         //-- register the data instances *after* we have set
         //   assetName and participantName in headers (i.e. the keyed fields)
         if(configWriter != null)
-            configInstance = configWriter.register_instance(config);
+            configInstance = configWriter.register_instance_untyped(config);
         if(sampleWriter != null)
-            sampleInstance = sampleWriter.register_instance(sample);
+            sampleInstance = sampleWriter.register_instance_untyped(sample);
     }
     
 	public void startDiskStateGenerator() {
@@ -149,7 +146,7 @@ public class DiskStatePublisher {
     
     public void publishSample() {
         if(sampleWriter != null) {
-            sampleWriter.write(sample, sampleInstance);
+            sampleWriter.write_untyped(sample, sampleInstance);
         }
         else {
             logger.info("sampleWriter is null");
@@ -159,6 +156,6 @@ public class DiskStatePublisher {
     public void publishConfig() {
         //-- publish the Config
         logger.info("Publishing DiskConfig...");
-        configWriter.write(config, configInstance);
+        configWriter.write_untyped(config, configInstance);
     }
 }
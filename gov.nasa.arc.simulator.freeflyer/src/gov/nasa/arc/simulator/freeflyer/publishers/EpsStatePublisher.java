@@ -33,10 +33,9 @@ import rapid.ext.astrobee.BatterySlot;
 import rapid.ext.astrobee.EPS_CONFIG_TOPIC;
 import rapid.ext.astrobee.EPS_STATE_TOPIC;
 import rapid.ext.astrobee.EpsConfig;
-import rapid.ext.astrobee.EpsConfigDataWriter;
 import rapid.ext.astrobee.EpsState;
-import rapid.ext.astrobee.EpsStateDataWriter;
 
+import com.rti.dds.publication.DataWriter;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 
 public class EpsStatePublisher {
@@ -44,11 +43,11 @@ public class EpsStatePublisher {
 		private static EpsStatePublisher INSTANCE;
 		
 	    private EpsConfig           config;
-	    private EpsConfigDataWriter configWriter;
+	    private DataWriter configWriter;
 	    private InstanceHandle_t     configInstance;
 
 	    private EpsState           sample;
-	    private EpsStateDataWriter sampleWriter;
+	    private DataWriter sampleWriter;
 	    private InstanceHandle_t    sampleInstance;
 	    
 	    protected final String srcName    = EpsStatePublisher.class.getSimpleName();
@@ -86,12 +85,10 @@ public class EpsStatePublisher {
 	    public void createWriters(final String positionConfigTopicName,String positionSampleTopicName) throws DdsEntityCreationException {
 	    		
 	        //-- Create the data writers. The Publisher is created automatically
-	        configWriter = (EpsConfigDataWriter)
-	                RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID,
+	        configWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID,
 	                                                    MessageTypeExtAstro.EPS_CONFIG_TYPE,
 	                                                    FreeFlyer.getPartition());
-	        sampleWriter = (EpsStateDataWriter)
-	                RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
+	        sampleWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
 	                									MessageTypeExtAstro.EPS_STATE_TYPE, 
 	                                                    FreeFlyer.getPartition());
 	    }
@@ -127,9 +124,9 @@ public class EpsStatePublisher {
 	        //-- register the data instances *after* we have set
 	        //   assetName and participantName in headers (i.e. the keyed fields)
 	        if(configWriter != null)
-	            configInstance = configWriter.register_instance(config);
+	            configInstance = configWriter.register_instance_untyped(config);
 	        if(sampleWriter != null)
-	            sampleInstance = sampleWriter.register_instance(sample);
+	            sampleInstance = sampleWriter.register_instance_untyped(sample);
 	    }
 	    
 		public void startEpsStateGenerator() {
@@ -181,7 +178,7 @@ public class EpsStatePublisher {
 	    
 	    public void publishSample() {
 	        if(sampleWriter != null) {
-	            sampleWriter.write(sample, sampleInstance);
+	            sampleWriter.write_untyped(sample, sampleInstance);
 	        }
 	        else {
 	            logger.info("sampleWriter is null");
@@ -191,6 +188,6 @@ public class EpsStatePublisher {
 	    public void publishConfig() {
 	        //-- publish the Config
 	        logger.info("Publishing PositionConfig...");
-	        configWriter.write(config, configInstance);
+	        configWriter.write_untyped(config, configInstance);
 	    }
 }
@@ -29,10 +29,9 @@ import rapid.Command;
 import rapid.ParameterUnion;
 import rapid.ext.astrobee.GuestScienceApk;
 import rapid.ext.astrobee.GuestScienceConfig;
-import rapid.ext.astrobee.GuestScienceConfigDataWriter;
 import rapid.ext.astrobee.GuestScienceState;
-import rapid.ext.astrobee.GuestScienceStateDataWriter;
 
+import com.rti.dds.publication.DataWriter;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 
 public class GuestScienceApkStatePublisher {
@@ -44,11 +43,11 @@ public class GuestScienceApkStatePublisher {
 	protected final String srcName    = GuestScienceApkStatePublisher.class.getSimpleName();
 
 	protected GuestScienceConfig           config;
-	protected GuestScienceConfigDataWriter configWriter;
+	protected DataWriter configWriter;
 	protected InstanceHandle_t     configInstance;
 
 	protected GuestScienceState           sample;
-	protected GuestScienceStateDataWriter sampleWriter;
+	protected DataWriter sampleWriter;
 	protected InstanceHandle_t     sampleInstance;
 
 	private static GuestScienceApkStatePublisher INSTANCE;
@@ -77,13 +76,11 @@ public class GuestScienceApkStatePublisher {
 	 */
 	public void createWriters() throws DdsEntityCreationException {   	
 
-		configWriter = (GuestScienceConfigDataWriter)
-				RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
+		configWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
 						MessageTypeExtAstro.GUEST_SCIENCE_CONFIG_TYPE, 
 						FreeFlyer.getPartition());
 
-		sampleWriter = (GuestScienceStateDataWriter)
-				RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
+		sampleWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
 						MessageTypeExtAstro.GUEST_SCIENCE_STATE_TYPE, 
 						FreeFlyer.getPartition());
 	}
@@ -108,9 +105,9 @@ public class GuestScienceApkStatePublisher {
 		//-- register the data instances *after* we have set
 		//   assetName and participantName in headers (i.e. the keyed fields)
 		if(configWriter != null)
-			configInstance = configWriter.register_instance(config);
+			configInstance = configWriter.register_instance_untyped(config);
 		if(sampleWriter != null)
-			sampleInstance = sampleWriter.register_instance(sample);
+			sampleInstance = sampleWriter.register_instance_untyped(sample);
 	}
 
 	protected void setConfigFieldsFromManager() {
@@ -175,7 +172,7 @@ public class GuestScienceApkStatePublisher {
 
 	public void publishConfig() {
 		//-- publish the Config
-		configWriter.write(config, configInstance);
+		configWriter.write_untyped(config, configInstance);
 	}
 
 	int count = 0;
@@ -191,7 +188,7 @@ public class GuestScienceApkStatePublisher {
 		sample.hdr.timeStamp = System.currentTimeMillis();
 
 		if(sampleWriter != null) {
-			sampleWriter.write(sample, sampleInstance);
+			sampleWriter.write_untyped(sample, sampleInstance);
 		}
 		else {
 			logger.info("sampleWriter is null");
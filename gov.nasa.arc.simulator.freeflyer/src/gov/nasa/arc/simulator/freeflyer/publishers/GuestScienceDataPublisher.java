@@ -28,9 +28,9 @@ import org.apache.log4j.Logger;
 import org.json.simple.JSONObject;
 
 import rapid.ext.astrobee.GuestScienceData;
-import rapid.ext.astrobee.GuestScienceDataDataWriter;
 import rapid.ext.astrobee.GuestScienceDataType;
 
+import com.rti.dds.publication.DataWriter;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 
 public class GuestScienceDataPublisher {
@@ -41,7 +41,7 @@ public class GuestScienceDataPublisher {
 	protected final String srcName    = GuestScienceDataPublisher.class.getSimpleName();
 
 	protected GuestScienceData 			 sample;
-	protected GuestScienceDataDataWriter sampleWriter;
+	protected DataWriter sampleWriter;
 	
 	protected InstanceHandle_t     sampleInstance;
 	
@@ -71,8 +71,7 @@ public class GuestScienceDataPublisher {
 	 * create the endpoints (i.e. readers and writers)
 	 */
 	public void createWriters() throws DdsEntityCreationException {   	
-		sampleWriter = (GuestScienceDataDataWriter)
-				RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
+		sampleWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
 						MessageTypeExtAstro.GUEST_SCIENCE_DATA_TYPE, 
 						FreeFlyer.getPartition());
 	}
@@ -90,7 +89,7 @@ public class GuestScienceDataPublisher {
 		manager = SimulatorGuestScienceManager.getInstance();
 
 		if(sampleWriter != null)
-			sampleInstance = sampleWriter.register_instance(sample);
+			sampleInstance = sampleWriter.register_instance_untyped(sample);
 	}
 	
 	public void publishData(String apkName) throws InterruptedException{
@@ -98,7 +97,7 @@ public class GuestScienceDataPublisher {
 		sample.hdr.timeStamp = System.currentTimeMillis();
 		sample.apkName = apkName;
         if(sampleWriter != null) {
-            sampleWriter.write(sample, sampleInstance);
+            sampleWriter.write_untyped(sample, sampleInstance);
             publishSummary = true;
             startPublisher();
         }
@@ -112,7 +111,7 @@ public class GuestScienceDataPublisher {
 		sample.hdr.timeStamp = System.currentTimeMillis();
 		sample.apkName = command.getApkName();
         if(sampleWriter != null) {
-            sampleWriter.write(sample, sampleInstance);
+            sampleWriter.write_untyped(sample, sampleInstance);
             publishSummary = true;
             startPublisher();
         }
@@ -139,7 +138,7 @@ public class GuestScienceDataPublisher {
 				sample.data.userData.addAllByte(jsonData.toJSONString().getBytes());
 				sample.apkName = apk;
 				if(sampleWriter != null) {
-					sampleWriter.write(sample, sampleInstance);
+					sampleWriter.write_untyped(sample, sampleInstance);
 				}
 				else {
 					logger.info("sampleWriter is null");
@@ -175,7 +174,7 @@ public class GuestScienceDataPublisher {
 					sample.data.userData.addAllByte(jsonData.toJSONString().getBytes());
 					i++;
 					if(sampleWriter != null) {
-						sampleWriter.write(sample, sampleInstance);
+						sampleWriter.write_untyped(sample, sampleInstance);
 					}
 					else {
 						logger.info("sampleWriter is null");
@@ -27,11 +27,10 @@ import org.apache.log4j.Logger;
 
 import rapid.JOINT_ENABLED;
 import rapid.JointConfig;
-import rapid.JointConfigDataWriter;
 import rapid.JointDef;
 import rapid.JointSample;
-import rapid.JointSampleDataWriter;
 
+import com.rti.dds.publication.DataWriter;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 
 public class JointPublisher {
@@ -44,11 +43,11 @@ public class JointPublisher {
 	protected final String srcName    = JointPublisher.class.getSimpleName();
 
 	protected JointConfig           config;
-	protected JointConfigDataWriter configWriter;
+	protected DataWriter configWriter;
 	protected InstanceHandle_t      configInstance;
 
 	protected JointSample           sample;
-	protected JointSampleDataWriter sampleWriter;
+	protected DataWriter sampleWriter;
 	protected InstanceHandle_t      sampleInstance;
 	
 	protected final float openGripperAngle = (float) (45.0 * Math.PI/180.0);
@@ -82,12 +81,10 @@ public class JointPublisher {
 	public void createWriters() throws DdsEntityCreationException {
 
 		//-- Create the data writers. The Publisher is created automatically
-		configWriter = (JointConfigDataWriter)
-				RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID,
+		configWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID,
 						MessageType.JOINT_CONFIG_TYPE,
 						FreeFlyer.getPartition());
-		sampleWriter = (JointSampleDataWriter)
-				RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
+		sampleWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
 						MessageType.JOINT_SAMPLE_TYPE, 
 						FreeFlyer.getPartition());
 	}
@@ -101,9 +98,9 @@ public class JointPublisher {
 		//-- register the data instances *after* we have set
 		//   assetName and participantName in headers (i.e. the keyed fields)
 		if(configWriter != null)
-			configInstance = configWriter.register_instance(config);
+			configInstance = configWriter.register_instance_untyped(config);
 		if(sampleWriter != null)
-			sampleInstance = sampleWriter.register_instance(sample);
+			sampleInstance = sampleWriter.register_instance_untyped(sample);
 	}
 
 	protected void initializeJointState(int serialId) {
@@ -225,14 +222,14 @@ public class JointPublisher {
 	public void publishConfig() {
 		//-- publish the Config
 		logger.info("Publishing JointConfig...");
-		configWriter.write(config, configInstance);
+		configWriter.write_untyped(config, configInstance);
 	}
 
 	public void publishSample(){
 		sample.hdr.timeStamp = System.currentTimeMillis();
 
 		if(sampleWriter != null) {
-			sampleWriter.write(sample, sampleInstance);
+			sampleWriter.write_untyped(sample, sampleInstance);
 		}
 		else {
 			logger.info("sampleWriter is null");
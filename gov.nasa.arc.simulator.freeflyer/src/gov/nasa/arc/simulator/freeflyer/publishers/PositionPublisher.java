@@ -32,11 +32,10 @@ import org.apache.log4j.Logger;
 import rapid.POSITION_CONFIG_TOPIC;
 import rapid.POSITION_SAMPLE_TOPIC;
 import rapid.PositionConfig;
-import rapid.PositionConfigDataWriter;
 import rapid.PositionSample;
-import rapid.PositionSampleDataWriter;
 import rapid.RotationEncoding;
 
+import com.rti.dds.publication.DataWriter;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 
 /**
@@ -53,11 +52,11 @@ public class PositionPublisher {
 	protected final String srcName    = PositionPublisher.class.getSimpleName();
 
 	protected PositionConfig           config;
-	protected PositionConfigDataWriter configWriter;
+	protected DataWriter configWriter;
 	protected InstanceHandle_t         configInstance;
 
 	protected PositionSample           sample;
-	protected PositionSampleDataWriter sampleWriter;
+	protected DataWriter sampleWriter;
 	protected InstanceHandle_t         sampleInstance;
 
 	public static PositionPublisher getInstance() {
@@ -87,12 +86,10 @@ public class PositionPublisher {
 		MessageType.POSITION_SAMPLE_TYPE.setTopicName(positionSampleTopicName);
 
 		//-- Create the data writers. The Publisher is created automatically
-		configWriter = (PositionConfigDataWriter)
-				RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID,
+		configWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID,
 						MessageType.POSITION_CONFIG_TYPE,
 						FreeFlyer.getPartition());
-		sampleWriter = (PositionSampleDataWriter)
-				RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
+		sampleWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
 						MessageType.POSITION_SAMPLE_TYPE, 
 						FreeFlyer.getPartition());
 	}
@@ -129,15 +126,15 @@ public class PositionPublisher {
 		//-- register the data instances *after* we have set
 		//   assetName and participantName in headers (i.e. the keyed fields)
 		if(configWriter != null)
-			configInstance = configWriter.register_instance(config);
+			configInstance = configWriter.register_instance_untyped(config);
 		if(sampleWriter != null)
-			sampleInstance = sampleWriter.register_instance(sample);
+			sampleInstance = sampleWriter.register_instance_untyped(sample);
 	}
 
 	public void publishConfig() {
 		//-- publish the Config
 		logger.info("Publishing PositionConfig...");
-		configWriter.write(config, configInstance);
+		configWriter.write_untyped(config, configInstance);
 	}
 
 	synchronized public void publishSample(final float x, final float y, final float z){
@@ -196,7 +193,7 @@ public class PositionPublisher {
 		sample.hdr.timeStamp = System.currentTimeMillis();
 
 		if(sampleWriter != null) {
-			sampleWriter.write(sample, sampleInstance);
+			sampleWriter.write_untyped(sample, sampleInstance);
 		}
 		else {
 			logger.info("sampleWriter is null");
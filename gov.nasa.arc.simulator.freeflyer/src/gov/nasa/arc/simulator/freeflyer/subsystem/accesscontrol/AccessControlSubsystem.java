@@ -28,11 +28,11 @@ import java.util.Random;
 import org.apache.log4j.Logger;
 
 import rapid.AccessControlState;
-import rapid.AccessControlStateDataWriter;
 import rapid.Command;
 import rapid.ParameterUnion;
 import rapid.ext.astrobee.ACCESSCONTROL_METHOD_GRAB_CONTROL;
 
+import com.rti.dds.publication.DataWriter;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 
 public class AccessControlSubsystem {
@@ -41,7 +41,7 @@ public class AccessControlSubsystem {
 	protected final String srcName    = AccessControlSubsystem.class.getSimpleName();
 
 	protected AccessControlState           sample;
-	protected AccessControlStateDataWriter sampleWriter;
+	protected DataWriter sampleWriter;
 	protected InstanceHandle_t    		   sampleInstance;
 	private String alphabet = "abcdefghijklmnopqrstuvwxyz";
 	
@@ -69,8 +69,7 @@ public class AccessControlSubsystem {
 	 */
 	public void createWriters() throws DdsEntityCreationException {   	
 
-		sampleWriter = (AccessControlStateDataWriter)
-				RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
+		sampleWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
 						MessageType.ACCESSCONTROL_STATE_TYPE, 
 						FreeFlyer.getPartition());
 	}
@@ -91,7 +90,7 @@ public class AccessControlSubsystem {
 		//-- register the data instances *after* we have set
 		//   assetName and participantName in headers (i.e. the keyed fields)
 		if(sampleWriter != null)
-			sampleInstance = sampleWriter.register_instance(sample);
+			sampleInstance = sampleWriter.register_instance_untyped(sample);
 	}
 
 	public boolean grabControl(Command cmd) {
@@ -132,7 +131,7 @@ public class AccessControlSubsystem {
 		RapidUtil.setHeader(sample.hdr, FreeFlyer.getPartition(), srcName, count++);
 
 		if(sampleWriter != null) {
-			sampleWriter.write(sample, sampleInstance);
+			sampleWriter.write_untyped(sample, sampleInstance);
 		}
 		else {
 			logger.info("sampleWriter is null");
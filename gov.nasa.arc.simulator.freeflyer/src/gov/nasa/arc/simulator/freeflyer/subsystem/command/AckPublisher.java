@@ -28,9 +28,9 @@ import org.apache.log4j.Logger;
 
 import rapid.Ack;
 import rapid.AckCompletedStatus;
-import rapid.AckDataWriter;
 import rapid.AckStatus;
 
+import com.rti.dds.publication.DataWriter;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 
 public class AckPublisher {
@@ -42,7 +42,7 @@ public class AckPublisher {
 							completedGoodSample, 
 							completedBadSample, 
 							completedFailedSample;
-	protected AckDataWriter sampleWriter;
+	protected DataWriter sampleWriter;
 	protected InstanceHandle_t executingSampleInstance, 
 							   completedGoodSampleInstance, 
 							   completedBadSampleInstance,
@@ -80,8 +80,7 @@ public class AckPublisher {
 	 */
 	public void createWriters() throws DdsEntityCreationException {   	
 
-		sampleWriter = (AckDataWriter)
-				RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
+		sampleWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
 						MessageType.ACK_TYPE, 
 						FreeFlyer.getPartition());
 	}
@@ -119,10 +118,10 @@ public class AckPublisher {
 		//-- register the data instances *after* we have set
 		//   assetName and participantName in headers (i.e. the keyed fields)
 		if(sampleWriter != null) {
-			executingSampleInstance = sampleWriter.register_instance(executingSample);
-			//completedGoodSampleInstance = sampleWriter.register_instance(completedGoodSample);
-			completedBadSampleInstance = sampleWriter.register_instance(completedBadSample);
-			completedFailedSampleInstance = sampleWriter.register_instance(completedFailedSample);
+			executingSampleInstance = sampleWriter.register_instance_untyped(executingSample);
+			//completedGoodSampleInstance = sampleWriter.register_instance_untyped(completedGoodSample);
+			completedBadSampleInstance = sampleWriter.register_instance_untyped(completedBadSample);
+			completedFailedSampleInstance = sampleWriter.register_instance_untyped(completedFailedSample);
 		}
 	}
 
@@ -173,7 +172,7 @@ public class AckPublisher {
 	
 	private void publishThisSample(Ack sample, InstanceHandle_t sampleInstance) {
 		if(sampleWriter != null) {
-			sampleWriter.write(sample, sampleInstance);
+			sampleWriter.write_untyped(sample, sampleInstance);
 		}
 		else {
 			logger.info("sampleWriter is null");
@@ -27,8 +27,8 @@ import org.apache.log4j.Logger;
 
 import rapid.Ack;
 import rapid.Command;
-import rapid.CommandDataWriter;
 
+import com.rti.dds.publication.DataWriter;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 
 public class CommandEchoPublisher {
@@ -37,7 +37,7 @@ public class CommandEchoPublisher {
 	protected final String srcName    = CommandEchoPublisher.class.getSimpleName();
 
 	protected Command           sample;
-	protected CommandDataWriter sampleWriter;
+	protected DataWriter sampleWriter;
 	protected InstanceHandle_t sampleInstance;
 
 	private static volatile CommandEchoPublisher INSTANCE = null;
@@ -72,8 +72,7 @@ public class CommandEchoPublisher {
 	 */
 	public void createWriters() throws DdsEntityCreationException {   	
 
-		sampleWriter = (CommandDataWriter)
-				RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
+		sampleWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
 						MessageTypeExtAstro.COMMAND_ECHO_TYPE, 
 						FreeFlyer.getPartition());
 	}
@@ -92,7 +91,7 @@ public class CommandEchoPublisher {
 		//-- register the data instances *after* we have set
 		//   assetName and participantName in headers (i.e. the keyed fields)
 		if(sampleWriter != null) {
-			sampleInstance = sampleWriter.register_instance(sample);
+			sampleInstance = sampleWriter.register_instance_untyped(sample);
 		}
 	}
 
@@ -106,7 +105,7 @@ public class CommandEchoPublisher {
 	
 	private void publishThisSample(Command sample, InstanceHandle_t sampleInstance) {
 		if(sampleWriter != null) {
-			sampleWriter.write(sample, sampleInstance);
+			sampleWriter.write_untyped(sample, sampleInstance);
 		}
 		else {
 			logger.info("sampleWriter is null");
@@ -44,12 +44,10 @@ import org.apache.log4j.Logger;
 
 import rapid.Ack;
 import rapid.AckCompletedStatus;
-import rapid.AckDataWriter;
 import rapid.Command;
 import rapid.CommandConfig;
-import rapid.CommandConfigDataWriter;
-import rapid.CommandDataWriter;
 
+import com.rti.dds.publication.DataWriter;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 
 /**
@@ -64,15 +62,15 @@ public class CommandSubsystemPublisher implements IRapidMessageListener{
     protected final String srcName    = PositionPublisher.class.getSimpleName();
     
     protected CommandConfig 		  config;
-    protected CommandConfigDataWriter configWriter;
+    protected DataWriter configWriter;
     protected InstanceHandle_t        configInstance;
     
     protected Command				  sample;
-    protected CommandDataWriter		  sampleWriter;
+    protected DataWriter		  sampleWriter;
     protected InstanceHandle_t        sampleInstance;
     
     protected Ack					  ack;
-    protected AckDataWriter			  ackWriter;
+    protected DataWriter			  ackWriter;
     protected InstanceHandle_t		  ackInstance;
     
     
@@ -91,16 +89,14 @@ public class CommandSubsystemPublisher implements IRapidMessageListener{
      */
     public void createWriters() throws DdsEntityCreationException {
         //-- Create the data writers. The Publisher is created automatically
-        configWriter = (CommandConfigDataWriter)
-                RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID,
+        configWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID,
                                                     MessageType.COMMAND_CONFIG_TYPE,
                                                     FreeFlyer.getPartition());
-        sampleWriter = (CommandDataWriter)
-                RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
+        sampleWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
                                                     MessageType.COMMAND_TYPE, 
                                                     FreeFlyer.getPartition());
         
-		ackWriter = (AckDataWriter) RapidEntityFactory.createDataWriter(
+		ackWriter = RapidEntityFactory.createDataWriter(
 													FreeFlyer.PARTICIPANT_ID, MessageType.ACK_TYPE,
 													FreeFlyer.getPartition());
     }
@@ -132,17 +128,17 @@ public class CommandSubsystemPublisher implements IRapidMessageListener{
         //-- register the data instances *after* we have set
         //   assetName and participantName in headers (i.e. the keyed fields)
         if(configWriter != null)
-            configInstance = configWriter.register_instance(config);
+            configInstance = configWriter.register_instance_untyped(config);
         if(sampleWriter != null)
-            sampleInstance = sampleWriter.register_instance(sample);
+            sampleInstance = sampleWriter.register_instance_untyped(sample);
         if(ackWriter != null)
-        	ackInstance = ackWriter.register_instance(ack);
+        	ackInstance = ackWriter.register_instance_untyped(ack);
     }
     
     public void publishConfig() {
         //-- publish the Config
         logger.info("Publishing CommandConfig...");
-        configWriter.write(config, configInstance);
+        configWriter.write_untyped(config, configInstance);
     }
     
    
@@ -167,7 +163,7 @@ public class CommandSubsystemPublisher implements IRapidMessageListener{
 //        sample = command;
 //
 //        if(sampleWriter != null) {
-//            sampleWriter.write(sample, sampleInstance);
+//            sampleWriter.write_untyped(sample, sampleInstance);
 //        }
 //        else {
 //            logger.info("sampleWriter is null");
@@ -178,7 +174,7 @@ public class CommandSubsystemPublisher implements IRapidMessageListener{
     public void publishStatus(final AckCompletedStatus status ){
     	if(ackWriter != null){
     		ack.completedStatus = status;
-    		ackWriter.write(ack, ackInstance);
+    		ackWriter.write_untyped(ack, ackInstance);
     		System.out.println(status.toString());
     	}else{
     		logger.info("ackWriter is null");
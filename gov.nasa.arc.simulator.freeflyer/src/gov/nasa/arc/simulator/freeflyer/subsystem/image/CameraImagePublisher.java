@@ -33,7 +33,6 @@ import org.eclipse.swt.graphics.ImageLoader;
 
 import rapid.Command;
 import rapid.ImageSensorSample;
-import rapid.ImageSensorSampleDataWriter;
 import rapid.MIME_IMAGE_JPEG;
 import rapid.ParameterUnion;
 import rapid.ext.astrobee.CameraInfo;
@@ -42,6 +41,7 @@ import rapid.ext.astrobee.CameraResolution;
 import rapid.ext.astrobee.SETTINGS_METHOD_SET_CAMERA;
 import rapid.ext.astrobee.SETTINGS_METHOD_SET_CAMERA_STREAMING;
 
+import com.rti.dds.publication.DataWriter;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 
 public class CameraImagePublisher {
@@ -55,7 +55,7 @@ public class CameraImagePublisher {
 
 	protected ImageSensorSample        sample;
 	protected InstanceHandle_t         sampleInstance;
-	protected ImageSensorSampleDataWriter sampleWriter;
+	protected DataWriter sampleWriter;
 
 	protected ImageSetByResolution images;
 //	protected CameraResolutionPlus currentResolution;
@@ -98,7 +98,7 @@ public class CameraImagePublisher {
 			sample = new ImageSensorSample();
 			RapidUtil.setHeader(sample.hdr, FreeFlyer.getPartition(), srcName, serialId);
 			if(sampleWriter != null)
-				sampleInstance = sampleWriter.register_instance(sample);
+				sampleInstance = sampleWriter.register_instance_untyped(sample);
 		} catch (final Exception e) {
 			e.printStackTrace();
 		}
@@ -106,8 +106,7 @@ public class CameraImagePublisher {
 
 	public void createWriters(final String topicName) throws DdsEntityCreationException {
 		MessageType.IMAGESENSOR_SAMPLE_TYPE.setTopicName(topicName);
-		sampleWriter = (ImageSensorSampleDataWriter)
-				RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
+		sampleWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
 						MessageType.IMAGESENSOR_SAMPLE_TYPE, 
 						FreeFlyer.getPartition());
 	}
@@ -210,7 +209,7 @@ public class CameraImagePublisher {
 				sample.data.userData.clear();
 				sample.data.userData.addAllByte(databytes);
 				//rapidPub.writeMessage(FreeFlyer.PARTICIPANT_ID,MessageType.IMAGESENSOR_SAMPLE_TYPE, sample);
-				sampleWriter.write(sample, sampleInstance);
+				sampleWriter.write_untyped(sample, sampleInstance);
 
 				Thread.sleep(sleepTime);
 			}
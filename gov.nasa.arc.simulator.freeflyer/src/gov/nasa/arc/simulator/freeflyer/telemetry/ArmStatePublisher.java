@@ -30,8 +30,8 @@ import org.apache.log4j.Logger;
 import rapid.ext.astrobee.ArmGripperState;
 import rapid.ext.astrobee.ArmJointState;
 import rapid.ext.astrobee.ArmState;
-import rapid.ext.astrobee.ArmStateDataWriter;
 
+import com.rti.dds.publication.DataWriter;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 
 public class ArmStatePublisher {
@@ -39,7 +39,7 @@ public class ArmStatePublisher {
 	private static ArmStatePublisher INSTANCE;
 
 	private ArmState           sample;
-	private ArmStateDataWriter sampleWriter;
+	private DataWriter sampleWriter;
 	private InstanceHandle_t   sampleInstance;
 	private final float STOWED_PAN_VALUE = 0;
 	private final float STOWED_TILT_VALUE = (float)Math.toRadians(180);
@@ -75,8 +75,7 @@ public class ArmStatePublisher {
 	 public void createWriters() throws DdsEntityCreationException {
 
 		 //-- Create the data writers. The Publisher is created automatically
-		 sampleWriter = (ArmStateDataWriter)
-				 RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
+		 sampleWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
 						 MessageTypeExtAstro.ARM_STATE_TYPE, 
 						 FreeFlyer.getPartition());
 	 }
@@ -94,7 +93,7 @@ public class ArmStatePublisher {
 		 //-- register the data instances *after* we have set
 		 //   assetName and participantName in headers (i.e. the keyed fields)
 		 if(sampleWriter != null)
-			 sampleInstance = sampleWriter.register_instance(sample);
+			 sampleInstance = sampleWriter.register_instance_untyped(sample);
 	 }
 	 
 	 public void publishStateChangeToPerching() {
@@ -160,7 +159,7 @@ public class ArmStatePublisher {
 	 
 	 private void publishSample() {
 		 if(sampleWriter != null) {
-			 sampleWriter.write(sample, sampleInstance);
+			 sampleWriter.write_untyped(sample, sampleInstance);
 		 }
 		 else {
 			 logger.info("sampleWriter is null");
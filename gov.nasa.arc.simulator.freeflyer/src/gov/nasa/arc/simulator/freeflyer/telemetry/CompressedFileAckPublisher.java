@@ -28,8 +28,8 @@ import gov.nasa.rapid.v2.e4.util.RapidUtil;
 import org.apache.log4j.Logger;
 
 import rapid.ext.astrobee.CompressedFileAck;
-import rapid.ext.astrobee.CompressedFileAckDataWriter;
 
+import com.rti.dds.publication.DataWriter;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 
 public class CompressedFileAckPublisher {
@@ -37,7 +37,7 @@ public class CompressedFileAckPublisher {
 	private static final Logger logger = Logger.getLogger(AgentStatePublisher.class);
 	private static CompressedFileAckPublisher INSTANCE;
 	private InstanceHandle_t   sampleInstance;
-	private CompressedFileAckDataWriter sampleWriter;
+	private DataWriter sampleWriter;
 	protected RapidMessagePublisher rapidMessagePublisher;
 	protected CompressedFileAck sample;
 	
@@ -63,8 +63,7 @@ public class CompressedFileAckPublisher {
 	 public void createWriters() throws DdsEntityCreationException {
 
 		 //-- Create the data writers. The Publisher is created automatically
-		 sampleWriter = (CompressedFileAckDataWriter)
-				 RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
+		 sampleWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
 						 MessageTypeExtAstro.COMPRESSED_FILE_ACK_TYPE, 
 						 FreeFlyer.getPartition());
 	 }
@@ -81,7 +80,7 @@ public class CompressedFileAckPublisher {
 		 //-- register the data instances *after* we have set
 		 //   assetName and participantName in headers (i.e. the keyed fields)
 		 if(sampleWriter != null)
-			 sampleInstance = sampleWriter.register_instance(sample);
+			 sampleInstance = sampleWriter.register_instance_untyped(sample);
 	 }
 
 
@@ -91,7 +90,7 @@ public class CompressedFileAckPublisher {
 
 				if(sampleWriter != null) {
 					sample.id = id;
-					sampleWriter.write(sample, sampleInstance);
+					sampleWriter.write_untyped(sample, sampleInstance);
 				}
 				else {
 					logger.info("sampleWriter is null");
@@ -45,10 +45,9 @@ import rapid.ext.astrobee.SETTINGS_TELEMETRY_TYPE_DISK_STATE;
 import rapid.ext.astrobee.SETTINGS_TELEMETRY_TYPE_EKF_STATE;
 import rapid.ext.astrobee.SETTINGS_TELEMETRY_TYPE_POSITION;
 import rapid.ext.astrobee.TelemetryConfig;
-import rapid.ext.astrobee.TelemetryConfigDataWriter;
 import rapid.ext.astrobee.TelemetryState;
-import rapid.ext.astrobee.TelemetryStateDataWriter;
 
+import com.rti.dds.publication.DataWriter;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 
 /**
@@ -61,11 +60,11 @@ public class TelemetryPublisher {
 	private static TelemetryPublisher INSTANCE;
 
 	private TelemetryConfig           config;
-	private TelemetryConfigDataWriter configWriter;
+	private DataWriter configWriter;
 	private InstanceHandle_t     	  configInstance;
 
 	private TelemetryState           sample;
-	private TelemetryStateDataWriter sampleWriter;
+	private DataWriter sampleWriter;
 	private InstanceHandle_t    	 sampleInstance;
 
 	protected final String srcName    = TelemetryPublisher.class.getSimpleName();
@@ -113,12 +112,10 @@ public class TelemetryPublisher {
 	public void createWriters() throws DdsEntityCreationException {
 
 		//-- Create the data writers. The Publisher is created automatically
-		configWriter = (TelemetryConfigDataWriter)
-				RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID,
+		configWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID,
 						MessageTypeExtAstro.TELEMETRY_CONFIG_TYPE,
 						FreeFlyer.getPartition());
-		sampleWriter = (TelemetryStateDataWriter)
-				RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
+		sampleWriter = RapidEntityFactory.createDataWriter(FreeFlyer.PARTICIPANT_ID, 
 						MessageTypeExtAstro.TELEMETRY_STATE_TYPE, 
 						FreeFlyer.getPartition());
 	}
@@ -156,9 +153,9 @@ public class TelemetryPublisher {
 		//-- register the data instances *after* we have set
 		//   assetName and participantName in headers (i.e. the keyed fields)
 		if(configWriter != null)
-			configInstance = configWriter.register_instance(config);
+			configInstance = configWriter.register_instance_untyped(config);
 		if(sampleWriter != null)
-			sampleInstance = sampleWriter.register_instance(sample);
+			sampleInstance = sampleWriter.register_instance_untyped(sample);
 	}
 
 	public void changeTelemetryRateAndPublishSample(Command cmd) {
@@ -222,7 +219,7 @@ public class TelemetryPublisher {
 
 	public void publishSample() {
 		if(sampleWriter != null) {
-			sampleWriter.write(sample, sampleInstance);
+			sampleWriter.write_untyped(sample, sampleInstance);
 		}
 		else {
 			logger.info("sampleWriter is null");
@@ -232,6 +229,6 @@ public class TelemetryPublisher {
 	public void publishConfig() {
 		//-- publish the Config
 		logger.info("Publishing TelemetryConfig...");
-		configWriter.write(config, configInstance);
+		configWriter.write_untyped(config, configInstance);
 	}
 }
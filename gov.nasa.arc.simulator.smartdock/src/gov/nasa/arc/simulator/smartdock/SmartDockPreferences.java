@@ -37,6 +37,8 @@ public class SmartDockPreferences implements IDdsPreferences{
 	    public String   qosLibrary = "RapidQosLibrary";
 	    public String   qosProfile = "RapidDefaultQos";
 	    public String[] urlGroups  = new String[0];
+	    /** run on the in-process loopback bus, set with -Ddds.loopback=true */
+	    public boolean  loopbackTransport = Boolean.getBoolean("dds.loopback");
 	    // carrot, carrot wifi, dandelion, pow
 	    public String[] peersList  = new String[] {"137.79.215.199"};
 
@@ -136,5 +138,9 @@ public class SmartDockPreferences implements IDdsPreferences{
 	        return false;
 	    }
 
+	    @Override
+	    public boolean isLoopbackTransport() {
+	        return loopbackTransport;
+	    }
 
 }
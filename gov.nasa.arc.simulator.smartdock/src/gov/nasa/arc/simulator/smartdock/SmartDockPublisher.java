@@ -25,15 +25,15 @@ import gov.nasa.rapid.v2.e4.util.RapidUtil;
 import org.apache.log4j.Logger;
 
 import rapid.ext.astrobee.DockState;
-import rapid.ext.astrobee.DockStateDataWriter;
 
+import com.rti.dds.publication.DataWriter;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 
 public class SmartDockPublisher {
 	private static final Logger logger = Logger.getLogger(SmartDockPublisher.class);
 
 	protected final String srcName    = SmartDockPublisher.class.getSimpleName();
-	protected DockStateDataWriter sampleWriter;
+	protected DataWriter sampleWriter;
 	protected DockState sample;
 	protected InstanceHandle_t handler;
 
@@ -62,8 +62,7 @@ public class SmartDockPublisher {
 	 */
 	public void createWriters() throws DdsEntityCreationException {   	
 
-		sampleWriter = (DockStateDataWriter)
-				RapidEntityFactory.createDataWriter(SmartDock.PARTICIPANT_ID, 
+		sampleWriter = RapidEntityFactory.createDataWriter(SmartDock.PARTICIPANT_ID, 
 						MessageTypeExtAstro.DOCK_STATE_TYPE, 
 						SmartDock.getPartition());
 	}
@@ -84,7 +83,7 @@ public class SmartDockPublisher {
 		RapidUtil.setHeader(sample.hdr, SmartDock.getPartition(), srcName, serialId);
 		
 		if(sampleWriter != null) {
-			handler = sampleWriter.register_instance(sample);
+			handler = sampleWriter.register_instance_untyped(sample);
 		}
 	}
 
@@ -96,7 +95,7 @@ public class SmartDockPublisher {
 		if(sampleWriter != null) {
 			try{
 				System.out.println("Publishing SmartDock state from the publisher");
-				sampleWriter.write(SmartDockAstrobeeController.getInstance().getBerth(), handler);
+				sampleWriter.write_untyped(SmartDockAstrobeeController.getInstance().getBerth(), handler);
 			}catch(Exception e){
 			}
 		}
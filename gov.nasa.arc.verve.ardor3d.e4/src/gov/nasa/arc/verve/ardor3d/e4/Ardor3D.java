@@ -20,6 +20,7 @@ package gov.nasa.arc.verve.ardor3d.e4;
 import gov.nasa.arc.verve.ardor3d.e4.framework.CameraControlUpdater;
 import gov.nasa.arc.verve.ardor3d.e4.framework.IFrameHandler;
 import gov.nasa.arc.verve.ardor3d.e4.framework.LogicalLayerUpdater;
+import gov.nasa.arc.verve.ardor3d.e4.framework.RenderScheduler;
 import gov.nasa.util.Colors;
 
 import org.apache.log4j.Logger;
@@ -39,6 +40,7 @@ public abstract class Ardor3D {
     protected IFrameHandler        frameHandler;
     protected LogicalLayerUpdater  logicalLayerUpdater;
     protected CameraControlUpdater cameraControlUpdater;
+    protected RenderScheduler      renderScheduler;
 
     private static Ardor3D instance;
     
@@ -77,6 +79,25 @@ public abstract class Ardor3D {
         return instance.cameraControlUpdater;
     }
 
+    /**
+     * @return the render scheduler, or null if Ardor3D has not been initialized
+     */
+    public static RenderScheduler getRenderScheduler() {
+        final Ardor3D a3d = instance;
+        return (a3d == null) ? null : a3d.renderScheduler;
+    }
+
+    /**
+     * Redraw all visible canvases in the next frame. May be called from 
+     * any thread, before or after initialization.
+     */
+    public static void requestRender() {
+        final RenderScheduler scheduler = getRenderScheduler();
+        if(scheduler != null) {
+            scheduler.requestRender();
+        }
+    }
+
     // XXX why is this function commented out? 11/14/14
 //    public static void startRenderThread() {
 //        instance.startRenderThreadImpl();
@@ -20,6 +20,7 @@ package gov.nasa.arc.verve.ardor3d.e4;
 import gov.nasa.arc.verve.ardor3d.e4.framework.CameraControlUpdater;
 import gov.nasa.arc.verve.ardor3d.e4.framework.FrameHandlerAdapter;
 import gov.nasa.arc.verve.ardor3d.e4.framework.LogicalLayerUpdater;
+import gov.nasa.arc.verve.ardor3d.e4.framework.RenderScheduler;
 import gov.nasa.arc.verve.ardor3d.e4.framework.RenderUpdateThread;
 
 import javax.inject.Inject;
@@ -50,6 +51,7 @@ public class Ardor3DEclipseNotPlugin extends Ardor3D {
         frameHandler         = new FrameHandlerAdapter(frameHandlerImpl);
         logicalLayerUpdater  = new LogicalLayerUpdater();
         cameraControlUpdater = new CameraControlUpdater();
+        renderScheduler      = new RenderScheduler();
         frameHandler.addUpdater(logicalLayerUpdater);
         frameHandler.addUpdater(cameraControlUpdater);
 
@@ -66,7 +68,7 @@ public class Ardor3DEclipseNotPlugin extends Ardor3D {
             frameHandler.addUpdater(logicalLayerUpdater);
             frameHandler.addUpdater(cameraControlUpdater);
 
-            renderUpdateThread = new RenderUpdateThread(display, frameHandlerImpl, timer);
+            renderUpdateThread = new RenderUpdateThread(display, frameHandlerImpl, timer, renderScheduler);
             renderUpdateThread.start();
         }
     }
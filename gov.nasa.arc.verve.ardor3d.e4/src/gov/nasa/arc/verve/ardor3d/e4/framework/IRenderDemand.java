@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the 
+ * Administrator of the National Aeronautics and Space Administration. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.arc.verve.ardor3d.e4.framework;
+
+/**
+ * Something that changes the scene without marking it dirty, e.g. a 
+ * telemetry source. The RenderScheduler polls each demand once per 
+ * tick and schedules a frame whenever the count has changed.
+ */
+public interface IRenderDemand {
+    /**
+     * @return a count that changes whenever a new frame may be needed
+     */
+    long getChangeCount();
+}
@@ -0,0 +1,350 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the 
+ * Administrator of the National Aeronautics and Space Administration. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.arc.verve.ardor3d.e4.framework;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ardor3d.framework.Canvas;
+import com.ardor3d.math.type.ReadOnlyVector3;
+import com.ardor3d.renderer.Camera;
+
+/**
+ * Decides when the RenderUpdateThread posts a frame to the UI thread, and 
+ * which canvases are drawn in that frame. Frames are posted continuously 
+ * for a short time after a render has been requested or an IRenderDemand 
+ * has changed, and at the idle rate otherwise. Within a frame, a canvas is 
+ * only drawn if it was asked to redraw, the scene changed since it was last 
+ * drawn, its camera moved, or its refresh interval has passed. Requests 
+ * from any number of canvases and threads are coalesced into a single pass
+ * on the UI thread.
+ */
+public class RenderScheduler {
+    /** frames keep being posted for this long after the last request */
+    protected volatile long    m_lingerMillis  = 500;
+    /** a frame is posted at least this often, so queued VerveTasks run */
+    protected volatile long    m_idleMillis    = 250;
+    /** a canvas is drawn at least this often */
+    protected volatile long    m_refreshMillis = 1000;
+    /** if true, every frame is posted and every canvas drawn */
+    protected volatile boolean m_continuous    = false;
+
+    protected final AtomicLong m_sceneChanges = new AtomicLong(0);
+    protected volatile long    m_activeUntil  = 0;
+
+    protected final CopyOnWriteArrayList<DemandState> m_demands  = new CopyOnWriteArrayList<DemandState>();
+    /** guarded by itself */
+    protected final Map<Canvas,CanvasState>           m_canvases = new WeakHashMap<Canvas,CanvasState>();
+
+    /** thread running the current pass, null between passes */
+    protected volatile Thread m_passThread      = null;
+    protected long            m_passStartNanos  = 0;
+    protected volatile long   m_lastPassEnd     = 0;
+    protected volatile int    m_lastFrameMillis = 0;
+
+    protected final AtomicLong m_passes        = new AtomicLong(0);
+    protected final AtomicLong m_idleTicks     = new AtomicLong(0);
+    protected final AtomicLong m_deferredTicks = new AtomicLong(0);
+    protected final AtomicLong m_drawnFrames   = new AtomicLong(0);
+    protected final AtomicLong m_skippedFrames = new AtomicLong(0);
+    protected volatile double  m_avgFrameMillis = 0;
+    protected volatile int     m_maxFrameMillis = 0;
+
+    /**
+     * The scene has changed; every visible canvas is drawn in the next 
+     * frame. May be called from any thread. Changes made by a frame 
+     * itself (e.g. by updateGeometricState) are drawn in that frame and 
+     * do not keep the scheduler active.
+     */
+    public void requestRender() {
+        m_sceneChanges.incrementAndGet();
+        if(Thread.currentThread() != m_passThread) {
+            activate(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Draw canvas in the next frame, e.g. after input, resize or expose events
+     */
+    public void requestRender(Canvas canvas) {
+        getState(canvas).dirty = true;
+        activate(System.currentTimeMillis());
+    }
+
+    protected void activate(long now) {
+        final long until = now + m_lingerMillis;
+        if(until > m_activeUntil) {
+            m_activeUntil = until;
+        }
+    }
+
+    public void addDemand(IRenderDemand demand) {
+        m_demands.add(new DemandState(demand));
+    }
+
+    public void removeDemand(IRenderDemand demand) {
+        for(DemandState state : m_demands) {
+            if(state.demand == demand) {
+                m_demands.remove(state);
+            }
+        }
+    }
+
+    /**
+     * @return true if any demand has changed since the last poll
+     */
+    protected boolean pollDemands() {
+        boolean changed = false;
+        for(DemandState state : m_demands) {
+            final long count = state.demand.getChangeCount();
+            if(count != state.lastCount) {
+                state.lastCount = count;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Called by the RenderUpdateThread once per tick
+     * @param passPending true if the last frame posted has not finished yet
+     * @return true if a frame should be posted to the UI thread
+     */
+    public boolean tick(boolean passPending) {
+        if(passPending) {
+            m_deferredTicks.incrementAndGet();
+            return false;
+        }
+        final long now = System.currentTimeMillis();
+        if(pollDemands()) {
+            m_sceneChanges.incrementAndGet();
+            activate(now);
+        }
+        // leave the UI thread time for events after an expensive frame
+        if(now - m_lastPassEnd < m_lastFrameMillis/2) {
+            m_deferredTicks.incrementAndGet();
+            return false;
+        }
+        if(m_continuous || now < m_activeUntil || now - m_lastPassEnd >= m_idleMillis) {
+            return true;
+        }
+        m_idleTicks.incrementAndGet();
+        return false;
+    }
+
+    /** called on the UI thread before the frame is updated */
+    public void beginPass() {
+        m_passThread     = Thread.currentThread();
+        m_passStartNanos = System.nanoTime();
+    }
+
+    /** called on the UI thread after all canvases have been drawn */
+    public void endPass() {
+        final int frameMillis = (int)TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - m_passStartNanos);
+        m_lastFrameMillis = frameMillis;
+        m_avgFrameMillis  = 0.2*frameMillis + 0.8*m_avgFrameMillis;
+        if(frameMillis > m_maxFrameMillis) {
+            m_maxFrameMillis = frameMillis;
+        }
+        m_passes.incrementAndGet();
+        m_lastPassEnd = System.currentTimeMillis();
+        m_passThread  = null;
+    }
+
+    /**
+     * Called by a canvas on the UI thread before it draws. 
+     * @param camera camera of the canvas, may be null
+     * @return true if the canvas should be drawn in this frame
+     */
+    public boolean shouldDraw(Canvas canvas, Camera camera) {
+        final CanvasState state = getState(canvas);
+        final long now     = System.currentTimeMillis();
+        final long changes = m_sceneChanges.get();
+        boolean draw = m_continuous || state.dirty || state.sceneChanges != changes 
+                || now - state.lastDraw >= m_refreshMillis;
+        if(camera != null && state.cameraMoved(camera)) {
+            // camera controls keep moving the camera for a while
+            activate(now);
+            draw = true;
+        }
+        if(draw) {
+            state.dirty        = false;
+            state.sceneChanges = changes;
+            state.lastDraw     = now;
+            m_drawnFrames.incrementAndGet();
+        }
+        else {
+            m_skippedFrames.incrementAndGet();
+        }
+        return draw;
+    }
+
+    protected CanvasState getState(Canvas canvas) {
+        synchronized(m_canvases) {
+            CanvasState retVal = m_canvases.get(canvas);
+            if(retVal == null) {
+                retVal = new CanvasState();
+                m_canvases.put(canvas, retVal);
+            }
+            return retVal;
+        }
+    }
+
+    /**
+     * Post a frame every tick and draw every canvas in every frame
+     */
+    public void setContinuous(boolean state) {
+        m_continuous = state;
+    }
+
+    public boolean isContinuous() {
+        return m_continuous;
+    }
+
+    public void setLingerMillis(long millis) {
+        m_lingerMillis = millis;
+    }
+
+    public long getLingerMillis() {
+        return m_lingerMillis;
+    }
+
+    public void setIdleMillis(long millis) {
+        m_idleMillis = millis;
+    }
+
+    public long getIdleMillis() {
+        return m_idleMillis;
+    }
+
+    public void setRefreshMillis(long millis) {
+        m_refreshMillis = millis;
+    }
+
+    public long getRefreshMillis() {
+        return m_refreshMillis;
+    }
+
+    /** frames run on the UI thread */
+    public long getPassCount() {
+        return m_passes.get();
+    }
+
+    /** ticks where nothing needed to be drawn */
+    public long getIdleTickCount() {
+        return m_idleTicks.get();
+    }
+
+    /** ticks where a frame was still queued or had just finished */
+    public long getDeferredTickCount() {
+        return m_deferredTicks.get();
+    }
+
+    /** canvas draws */
+    public long getDrawnFrameCount() {
+        return m_drawnFrames.get();
+    }
+
+    /** canvas draws that were skipped because nothing changed */
+    public long getSkippedFrameCount() {
+        return m_skippedFrames.get();
+    }
+
+    /** smoothed time of a frame (update plus all canvas draws) */
+    public double getAverageFrameMillis() {
+        return m_avgFrameMillis;
+    }
+
+    public int getLastFrameMillis() {
+        return m_lastFrameMillis;
+    }
+
+    public int getMaxFrameMillis() {
+        return m_maxFrameMillis;
+    }
+
+    public void resetMetrics() {
+        m_passes.set(0);
+        m_idleTicks.set(0);
+        m_deferredTicks.set(0);
+        m_drawnFrames.set(0);
+        m_skippedFrames.set(0);
+        m_maxFrameMillis = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RenderScheduler[passes=%d drawn=%d skipped=%d idleTicks=%d deferredTicks=%d frame avg=%.1fms max=%dms]", 
+                             getPassCount(), getDrawnFrameCount(), getSkippedFrameCount(),
+                             getIdleTickCount(), getDeferredTickCount(), 
+                             getAverageFrameMillis(), getMaxFrameMillis());
+    }
+
+    protected static class DemandState {
+        final IRenderDemand demand;
+        long lastCount;
+
+        DemandState(IRenderDemand demand) {
+            this.demand    = demand;
+            this.lastCount = demand.getChangeCount();
+        }
+    }
+
+    protected static class CanvasState {
+        volatile boolean dirty        = true;
+        long             sceneChanges = -1;
+        long             lastDraw     = 0;
+        final double[]   camera       = new double[17];
+        final double[]   scratch      = new double[17];
+        boolean          hasCamera    = false;
+
+        /**
+         * @return true if the view of cam has changed since the last call
+         */
+        boolean cameraMoved(Camera cam) {
+            put(cam.getLocation(),  0);
+            put(cam.getDirection(), 3);
+            put(cam.getUp(),        6);
+            scratch[9]  = cam.getFrustumLeft();
+            scratch[10] = cam.getFrustumRight();
+            scratch[11] = cam.getFrustumTop();
+            scratch[12] = cam.getFrustumBottom();
+            scratch[13] = cam.getFrustumNear();
+            scratch[14] = cam.getFrustumFar();
+            scratch[15] = cam.getWidth();
+            scratch[16] = cam.getHeight();
+            if(Arrays.equals(scratch, camera)) {
+                return false;
+            }
+            System.arraycopy(scratch, 0, camera, 0, scratch.length);
+            final boolean moved = hasCamera;
+            hasCamera = true;
+            return moved;
+        }
+
+        private void put(ReadOnlyVector3 vec, int offset) {
+            scratch[offset]   = vec.getX();
+            scratch[offset+1] = vec.getY();
+            scratch[offset+2] = vec.getZ();
+        }
+    }
+}
@@ -18,7 +18,6 @@
 package gov.nasa.arc.verve.ardor3d.e4.framework;
 
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
 
@@ -30,28 +29,37 @@ import com.ardor3d.framework.FrameHandler;
 import com.ardor3d.util.Timer;
 
 /**
- * Very simple render update 
+ * Posts frames to the UI thread when the RenderScheduler says one is needed.
+ * At most one frame is queued at a time; render requests that arrive while 
+ * a frame is queued are drawn by that frame.
  */
 public class RenderUpdateThread extends Thread {
     static Logger logger = Logger.getLogger(RenderUpdateThread.class);	
 
     private final FrameHandler frameHandler;
     private final Timer timer;
+    private final RenderScheduler scheduler;
     private final RenderRunnable runnable = new RenderRunnable();
     public AtomicBoolean keepGoing = new AtomicBoolean(true);
     private double fps = 30;
     //private double fps = 15;
-    private double throttle = 1;
     private int    sleepTime = (int)(1000/fps);
+    /** interval at which scheduler metrics are logged at debug level */
+    private static final long METRICS_LOG_MILLIS = 30000;
     private Display m_display;
     
-    public RenderUpdateThread(Display display, FrameHandler frameWork, Timer timer) {
+    public RenderUpdateThread(Display display, FrameHandler frameWork, Timer timer, RenderScheduler scheduler) {
         super("RenderUpdateThread");
         this.frameHandler = frameWork;
         this.timer = timer;
+        this.scheduler = scheduler;
         m_display = display;
     }
 
+    public RenderScheduler getScheduler() {
+        return scheduler;
+    }
+
     @Override
     public void run() {
     	Display display = m_display;// = m_shell.getDisplay();
@@ -65,33 +73,21 @@ public class RenderUpdateThread extends Thread {
 
         waitUntilReady(3, display);
         
-        double currentFps = fps;
-        double    lastFps = fps;
-        long lastFpsChange = System.currentTimeMillis();
-        long currentTime = lastFpsChange;
+        long lastMetricsLog = System.currentTimeMillis();
         
         while(keepGoing.get() && !display.isDisposed()) {
-        	//System.out.println("Doing good things ...");
-            currentTime = System.currentTimeMillis();
-            // add some basic frame throttling to prevent ui event starvation
-            // change fps once a second at most
-            if(lastFpsChange < currentTime-1000) {
-                int frameTime = runnable.getFrameTime();
-                if(frameTime > sleepTime) {
-                    throttle += 0.5;
-                }
-                else if(frameTime < (sleepTime-10)/1.5) {
-                    throttle = 1;
-                }
-                currentFps = fps / throttle;
-                sleepTime = (int)(1000/currentFps);
-                lastFpsChange = currentTime;
-                if(lastFps != currentFps) {
-                    //logger.debug("framerate changed, now targeting "+currentFps);
+            // the scheduler also holds frames back after an expensive frame 
+            // so that ui events are not starved
+            if(scheduler.tick(runnable.getCount() > 0)) {
+                display.asyncExec(runnable.push());
+            }
+            if(logger.isDebugEnabled()) {
+                final long currentTime = System.currentTimeMillis();
+                if(currentTime - lastMetricsLog > METRICS_LOG_MILLIS) {
+                    logger.debug(scheduler.toString());
+                    lastMetricsLog = currentTime;
                 }
-                lastFps = currentFps;
             }
-            display.asyncExec(runnable.push());
             try { Thread.sleep(sleepTime); } 
             catch (final InterruptedException e) {
                 logger.warn(this.getClass().getSimpleName()+" interrupted.");
@@ -115,10 +111,6 @@ public class RenderUpdateThread extends Thread {
     //------------------------------------------------
     public class RenderRunnable implements Runnable {
         int  count = 0;
-        long startTime;
-        long frameTime;
-        double running = 50;
-        AtomicInteger runningFameTime = new AtomicInteger();
 
         public RenderRunnable() {
         }
@@ -127,11 +119,13 @@ public class RenderUpdateThread extends Thread {
         public synchronized void run() {
             if(count == 1) {
                 try{
-                    startTime = System.currentTimeMillis();
-                    frameHandler.updateFrame();
-                    frameTime = System.currentTimeMillis()-startTime;
-                    running = 0.2*frameTime + 0.8*running;
-                    runningFameTime.set((int)running);
+                    scheduler.beginPass();
+                    try {
+                        frameHandler.updateFrame();
+                    }
+                    finally {
+                        scheduler.endPass();
+                    }
                 }
                 catch(Throwable t) {
                     keepGoing.set(false);
@@ -150,7 +144,7 @@ public class RenderUpdateThread extends Thread {
             return count;
         }
         public int getFrameTime() {
-            return runningFameTime.get();
+            return (int)scheduler.getAverageFrameMillis();
         }
     }
 
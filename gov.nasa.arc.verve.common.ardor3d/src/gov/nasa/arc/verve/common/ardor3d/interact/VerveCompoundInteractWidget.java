@@ -83,6 +83,8 @@ public class VerveCompoundInteractWidget extends AbstractInteractWidget implemen
     protected MouseState _clickCheck;
     protected MouseState _scrollCheck;
     protected boolean    _scrollDrag = false;
+    /** between beginDrag and endDrag */
+    protected boolean    _dragging = false;
 
     protected Node   _markup;
     protected BMText _text;
@@ -601,6 +603,9 @@ public class VerveCompoundInteractWidget extends AbstractInteractWidget implemen
         final Spatial spatial = manager.getSpatialTarget();
         VerveInteractable vi = VerveUserData.getInteractable(spatial);
         if(vi != null) {
+            if(_dragging) {
+                vi.interactDrag(spatial, manager.getSpatialState().getTransform());
+            }
             final String displayString = vi.getDisplayString(manager.getSpatialState().getTransform());
             if(displayString != null) {
                 _text.setText(displayString);
@@ -610,6 +615,7 @@ public class VerveCompoundInteractWidget extends AbstractInteractWidget implemen
 
     @Override
     public void beginDrag(final InteractManager manager) {
+        _dragging = true;
         //invoke VerveInteractable callback
         final Spatial spatial = manager.getSpatialTarget();
         VerveInteractable vi = VerveUserData.getInteractable(spatial);
@@ -627,6 +633,7 @@ public class VerveCompoundInteractWidget extends AbstractInteractWidget implemen
 
     @Override
     public void endDrag(final InteractManager manager) {
+        _dragging = false;
         _filters.endDrag(manager);
         _text.getSceneHints().setCullHint(CullHint.Always);
 
@@ -57,15 +57,22 @@ public class VerveInteractable {
     /**
      * 
      * @param transform SpatialState transform held by InteractManager, post widget filters
-     * XXX NOTE: This is currently the only hook for the Interactable to get information 
-     * about how it's being manipulated during dragging. Perhaps there should be 
-     * another call with a more appropriate method name. 
+     * Only format the text here; use interactDrag to react to the manipulation. 
      * @return
      */
     public String getDisplayString(ReadOnlyTransform transform) {
         return null;
     }
 
+    /**
+     * Callback on every update while interact is dragged, after the widget 
+     * filters have been applied. The spatial has not been moved yet. 
+     * @param transform SpatialState transform held by InteractManager, post widget filters
+     */
+    public void interactDrag(Spatial spatial, ReadOnlyTransform transform) {
+        //logger.debug("interactDrag");
+    }
+
     /** 
      * Callback when interact drag begin. Default behavior is to save 
      * spatial state for undo operations. 
@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the 
+ * Administrator of the National Aeronautics and Space Administration. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.arc.verve.common.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Callable;
+
+import org.apache.log4j.Logger;
+import org.eclipse.core.runtime.Platform;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.FrameworkUtil;
+
+import com.ardor3d.scenegraph.Node;
+import com.ardor3d.util.export.binary.BinaryExporter;
+import com.ardor3d.util.export.binary.BinaryImporter;
+
+/**
+ * Ardor3D binaries of imported models, kept in the workspace so that models 
+ * do not have to be imported again on the next start. Entries are keyed on
+ * a hash of the source file contents, the source location, and the version
+ * of the importer and of Ardor3D, so an entry is not used once any of them 
+ * change. Entries are written to a temporary file and then renamed, so a 
+ * cache can be used by several threads (and applications) at once. 
+ */
+public class ModelCache {
+    private static final Logger logger = Logger.getLogger(ModelCache.class);
+    private static final String EXT = ".ardor3d";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    /** change when the contents of cache entries change */
+    public static final int FORMAT_VERSION = 1;
+
+    private static ModelCache s_instance = null;
+
+    protected final File m_dir;
+
+    public ModelCache(File dir) {
+        m_dir = dir;
+    }
+
+    /**
+     * @return the cache in the workspace
+     */
+    public static synchronized ModelCache instance() {
+        if(s_instance == null) {
+            s_instance = new ModelCache(getDefaultDirectory());
+            logger.debug("model cache is "+s_instance.getDirectory().getPath());
+        }
+        return s_instance;
+    }
+
+    /**
+     * @return the modelcache directory in the state location of this bundle, 
+     * or in ~/.verve if there is no workspace
+     */
+    protected static File getDefaultDirectory() {
+        try {
+            final Bundle bundle = FrameworkUtil.getBundle(ModelCache.class);
+            if(bundle != null && Platform.getInstanceLocation() != null && Platform.getInstanceLocation().isSet()) {
+                return Platform.getStateLocation(bundle).append("modelcache").toFile();
+            }
+        }
+        catch(Throwable t) {
+            logger.debug("No workspace for the model cache", t);
+        }
+        return new File(System.getProperty("user.home"), ".verve"+File.separator+"modelcache");
+    }
+
+    public File getDirectory() {
+        return m_dir;
+    }
+
+    /**
+     * Load source from the cache, or import it and add it to the cache
+     * @param importerVersion identifies the importer and any options that change its output
+     * @param importer imports source if it is not in the cache
+     */
+    public Node load(URL source, String importerVersion, Callable<Node> importer) throws Exception {
+        String key = null;
+        try {
+            key = getKey(source, importerVersion);
+        }
+        catch(IOException e) {
+            logger.info("Not caching "+source+": "+e.getMessage());
+        }
+        Node retVal = (key == null) ? null : load(key);
+        if(retVal == null) {
+            retVal = importer.call();
+            if(key != null && retVal != null) {
+                save(key, retVal);
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * Hash the contents of source. Textures are saved by location, 
+     * so the location is part of the key as well.
+     * @param importerVersion identifies the importer and any options that change its output
+     */
+    public String getKey(URL source, String importerVersion) throws IOException {
+        final MessageDigest digest = newDigest();
+        final InputStream in = source.openStream();
+        try {
+            final byte[] buf = new byte[65536];
+            int len;
+            while((len = in.read(buf)) > 0) {
+                digest.update(buf, 0, len);
+            }
+        }
+        finally {
+            in.close();
+        }
+        digest.update(source.toExternalForm().getBytes(UTF8));
+        digest.update(importerVersion.getBytes(UTF8));
+        digest.update(versionOf(BinaryExporter.class).getBytes(UTF8));
+        digest.update(Integer.toString(FORMAT_VERSION).getBytes(UTF8));
+
+        final StringBuilder retVal = new StringBuilder();
+        for(byte b : digest.digest()) {
+            retVal.append(Character.forDigit((b >> 4) & 0xf, 16));
+            retVal.append(Character.forDigit(b & 0xf, 16));
+        }
+        return retVal.toString();
+    }
+
+    private static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        }
+        catch(NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    public File getFile(String key) {
+        return new File(m_dir, key+EXT);
+    }
+
+    /**
+     * @return the cached model, or null if there is no usable entry for key
+     */
+    public Node load(String key) {
+        final File file = getFile(key);
+        if(!file.isFile()) {
+            return null;
+        }
+        try {
+            return (Node)new BinaryImporter().load(file);
+        }
+        catch(Throwable t) {
+            logger.warn("Discarding unreadable model cache entry "+file.getName(), t);
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Add node to the cache. Failures are logged, not thrown.
+     * @return true if the entry was written
+     */
+    public boolean save(String key, Node node) {
+        File tmpFile = null;
+        try {
+            if(!m_dir.isDirectory() && !m_dir.mkdirs()) {
+                logger.warn("Could not create model cache directory "+m_dir.getPath());
+                return false;
+            }
+            tmpFile = File.createTempFile(key, ".tmp", m_dir);
+            new BinaryExporter().save(node, tmpFile);
+            try {
+                Files.move(tmpFile.toPath(), getFile(key).toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch(AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile.toPath(), getFile(key).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        }
+        catch(Throwable t) {
+            logger.warn("Could not add "+node.getName()+" to the model cache", t);
+            if(tmpFile != null) {
+                tmpFile.delete();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @return a string that changes when the jar or bundle that cls was loaded from changes
+     */
+    public static String versionOf(Class<?> cls) {
+        final Package pkg = cls.getPackage();
+        String version = (pkg == null) ? null : pkg.getImplementationVersion();
+        if(version == null) {
+            try {
+                final CodeSource codeSource = cls.getProtectionDomain().getCodeSource();
+                if(codeSource != null && codeSource.getLocation() != null) {
+                    version = codeSource.getLocation().toExternalForm();
+                }
+            }
+            catch(SecurityException e) {
+                // no version
+            }
+        }
+        return cls.getName()+"@"+version;
+    }
+}
@@ -23,12 +23,15 @@ import gov.nasa.arc.irg.freeflyer.rapid.FreeFlyerStrings;
 import gov.nasa.arc.irg.freeflyer.rapid.state.AggregateAstrobeeState;
 import gov.nasa.arc.irg.freeflyer.rapid.state.AstrobeeStateListener;
 import gov.nasa.arc.irg.freeflyer.rapid.state.GuestScienceAstrobeeStateManager;
-import gov.nasa.arc.irg.plan.model.Plan;
 import gov.nasa.arc.irg.plan.model.PlanBuilder;
 import gov.nasa.arc.irg.plan.modulebay.ModuleBayPlan;
 import gov.nasa.arc.irg.plan.ui.io.EnlargeableButton;
 import gov.nasa.arc.irg.plan.ui.io.WorkbenchConstants;
+import gov.nasa.arc.irg.plan.ui.plancompiler.PlanCompiler;
+import gov.nasa.arc.irg.plan.ui.plancompiler.PlanCompilerResult;
 import gov.nasa.arc.irg.util.ui.ColorProvider;
+import gov.nasa.arc.verve.freeflyer.workbench.utils.AwaitedFileAck;
+import gov.nasa.arc.verve.freeflyer.workbench.utils.UploadCompletion;
 import gov.nasa.arc.verve.freeflyer.workbench.widget.helpers.CommandButtonForGuestScienceTab;
 import gov.nasa.rapid.idl.ext.astrobee.message.MessageTypeExtAstro;
 import gov.nasa.rapid.v2.e4.Rapid;
@@ -38,8 +41,14 @@ import gov.nasa.rapid.v2.e4.message.MessageType;
 import gov.nasa.rapid.v2.e4.message.collector.RapidMessageCollector;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -59,6 +68,7 @@ import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.FileDialog;
 import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.MessageBox;
 import org.eclipse.swt.widgets.Shell;
 
 import rapid.ext.astrobee.CompressedFileAck;
@@ -71,6 +81,7 @@ public class LoadMultiplePlansDialog extends Dialog implements AstrobeeStateList
 	protected EnlargeableButton[] chooseFileButton;
 	protected Label[] chosenFileLabel, validLabel;
 	protected File[] selectedPlanFile;
+	protected ModuleBayPlan[] chosenPlan;
 	protected String chooseFileButtonText = "File ...";
 	protected String planSuffix = "fplan";
 	protected int numSelected = 0;
@@ -85,7 +96,9 @@ public class LoadMultiplePlansDialog extends Dialog implements AstrobeeStateList
 	protected CommandButtonForGuestScienceTab loadButton;
 	protected boolean[] validPlanChosen;
 	protected Map<Agent,Boolean> haveControlOf;
-	protected Map<Agent,Boolean> waitingToSendSetCommand;
+	protected Map<Agent,AwaitedFileAck> setPlanAck;
+	protected int uploadsInProgress = 0;
+	protected boolean uploadFailed = false;
 	protected Map<Agent,Boolean> astrobeeInStateToAcceptUpload;
 
 	@Inject
@@ -111,15 +124,16 @@ public class LoadMultiplePlansDialog extends Dialog implements AstrobeeStateList
 		chosenFileLabel = new Label[num];
 		validLabel = new Label[num];
 		selectedPlanFile = new File[num];
+		chosenPlan = new ModuleBayPlan[num];
 		manager = new GuestScienceAstrobeeStateManager[num];
 		validPlanChosen = new boolean[num];
 
 		haveControlOf = new HashMap<Agent,Boolean>();
-		waitingToSendSetCommand = new HashMap<Agent,Boolean>();
+		setPlanAck = new HashMap<Agent,AwaitedFileAck>();
 		astrobeeInStateToAcceptUpload = new HashMap<Agent,Boolean>();
 		for(int i=0; i<num; i++) {
 			haveControlOf.put(agent[i], true);
-			waitingToSendSetCommand.put(agent[i], false);
+			setPlanAck.put(agent[i], new AwaitedFileAck());
 			astrobeeInStateToAcceptUpload.put(agent[i], true); // or button to open dialog disabled.
 			validPlanChosen[i] = false;
 		}
@@ -204,11 +218,12 @@ public class LoadMultiplePlansDialog extends Dialog implements AstrobeeStateList
 	public void validateChosenPlanAndEnableUpload(String newfilename, int i) {
 		selectedPlanFile[i] = new File(newfilename);
 		PlanBuilder<ModuleBayPlan> planBuilder = PlanBuilder.getPlanBuilder(selectedPlanFile[i], ModuleBayPlan.class, true);
-		Plan plan = null;
+		ModuleBayPlan plan = null;
 
 		if(planBuilder != null) {
 			plan = planBuilder.getPlan();
 		}
+		chosenPlan[i] = plan;
 		if(plan != null && plan.isValid()) {
 			validPlanChosen[i] = true;
 			validLabel[i].setText(planValidString);
@@ -216,8 +231,48 @@ public class LoadMultiplePlansDialog extends Dialog implements AstrobeeStateList
 			updateLoadButtonEnablement();
 			return;
 		}
+		validPlanChosen[i] = false;
 		validLabel[i].setText(planInvalidString);
 		validLabel[i].setForeground(orange);
+		updateLoadButtonEnablement();
+	}
+
+	/**
+	 * Compile and bounds check the chosen plans together, against the 
+	 * keepins and keepouts in use now rather than when each plan was saved.
+	 * @return true if every plan is still valid
+	 */
+	protected boolean revalidateChosenPlans() {
+		// bees loading the same plan share one plan object, which is compiled once
+		Map<ModuleBayPlan,PlanCompilerResult> resultByPlan = new IdentityHashMap<ModuleBayPlan,PlanCompilerResult>();
+		for(int i=0; i<numSelected; i++) {
+			resultByPlan.put(chosenPlan[i], null);
+		}
+		List<ModuleBayPlan> plans = new ArrayList<ModuleBayPlan>(resultByPlan.keySet());
+		List<PlanCompilerResult> results = PlanCompiler.compilePlans(plans);
+		for(int i=0; i<plans.size(); i++) {
+			resultByPlan.put(plans.get(i), results.get(i));
+		}
+
+		StringBuilder failures = new StringBuilder();
+		for(int i=0; i<numSelected; i++) {
+			PlanCompilerResult result = resultByPlan.get(chosenPlan[i]);
+			if(!result.isValid()) {
+				validPlanChosen[i] = false;
+				validLabel[i].setText(planInvalidString);
+				validLabel[i].setForeground(orange);
+				failures.append(agent[i].name() + ": " + result.getErrorMessage() + "\n");
+			}
+		}
+		if(failures.length() == 0) {
+			return true;
+		}
+		updateLoadButtonEnablement();
+		MessageBox dialog = new MessageBox(getShell(), SWT.ICON_WARNING | SWT.OK);
+		dialog.setText("Validation Failed");
+		dialog.setMessage("No plans were loaded.\n" + failures);
+		dialog.open();
+		return false;
 	}
 
 	protected void createChosenFileLabel(Composite parent, int i) {
@@ -243,17 +298,35 @@ public class LoadMultiplePlansDialog extends Dialog implements AstrobeeStateList
 		loadButton.addSelectionListener(new SelectionListener() {
 			@Override
 			public void widgetSelected(SelectionEvent e) {
+				if(!revalidateChosenPlans()) {
+					return;
+				}
+				// bees loading the same plan share one compressed upload
+				Map<File,List<Agent>> agentsByFile = new LinkedHashMap<File,List<Agent>>();
 				for(int i=0; i<numSelected; i++) {
 					if(selectedPlanFile[i].exists()){
-						try {
-							CompressedFilePublisher.getInstance(agent[i]).compressAndSendFile(
-									WorkbenchConstants.SENDING_PLAN_STRING,
-									MessageTypeExtAstro.COMPRESSED_FILE_TYPE, 
-									selectedPlanFile[i]);
-							waitingToSendSetCommand.put(agent[i], true);
-						} catch (Exception ex) {
-							ex.printStackTrace();
+						File file = selectedPlanFile[i].getAbsoluteFile();
+						if(!agentsByFile.containsKey(file)) {
+							agentsByFile.put(file, new ArrayList<Agent>());
+						}
+						agentsByFile.get(file).add(agent[i]);
+					}
+				}
+				uploadFailed = false;
+				for(Map.Entry<File,List<Agent>> entry : agentsByFile.entrySet()) {
+					List<Agent> agents = entry.getValue();
+					try {
+						Map<Agent,CompletableFuture<Integer>> futures = CompressedFilePublisher.uploadFile(
+								agents.toArray(new Agent[agents.size()]),
+								WorkbenchConstants.SENDING_PLAN_STRING,
+								MessageTypeExtAstro.COMPRESSED_FILE_TYPE, 
+								entry.getKey(),
+								CompressedFilePublisher.DEFAULT_MATCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+						for(Map.Entry<Agent,CompletableFuture<Integer>> future : futures.entrySet()) {
+							watchUpload(future.getKey(), entry.getKey(), future.getValue());
 						}
+					} catch (Exception ex) {
+						ex.printStackTrace();
 					}
 				}
 			}
@@ -269,6 +342,34 @@ public class LoadMultiplePlansDialog extends Dialog implements AstrobeeStateList
 		loadButton.setLayoutData(gd);
 	}
 
+	protected void watchUpload(final Agent bee, File file, CompletableFuture<Integer> future) {
+		uploadsInProgress++;
+		future.whenComplete(new UploadCompletion(getShell(), "Loading " + file.getName() + " on " + bee.name()) {
+			@Override
+			protected void onUploaded(int id) {
+				uploadsInProgress--;
+				if(setPlanAck.get(bee).expect(id)) {
+					sendSetPlanCMD(bee);
+				}
+				closeIfAllPlansSet();
+			}
+
+			@Override
+			protected void onFailed(Throwable t) {
+				uploadsInProgress--;
+				uploadFailed = true;
+				setPlanAck.get(bee).cancel();
+			}
+		});
+	}
+
+	/** close once every upload has been written and its SET_PLAN sent, unless one failed */
+	protected void closeIfAllPlansSet() {
+		if(!uploadFailed && uploadsInProgress == 0 && !someAstrobeeWaitingForSetCommand()) {
+			cancelPressed();
+		}
+	}
+
 	void sendSetPlanCMD(Agent agent){
 		CommandPublisher cp = CommandPublisher.getInstance(agent);
 		cp.sendGenericNoParamsCommand(
@@ -364,13 +465,9 @@ public class LoadMultiplePlansDialog extends Dialog implements AstrobeeStateList
 		Display.getDefault().asyncExec(new Runnable() {
 			public void run() {
 				if(msgObj instanceof CompressedFileAck){
-					// assume it is the right one - can put in checks later
-					if(waitingToSendSetCommand.get(agent)) {
+					if(setPlanAck.get(agent).ackReceived(((CompressedFileAck)msgObj).id)) {
 						sendSetPlanCMD(agent);
-						waitingToSendSetCommand.put(agent, false);
-						if(!someAstrobeeWaitingForSetCommand()) {
-							cancelPressed();
-						}
+						closeIfAllPlansSet();
 					}
 				}
 			}
@@ -408,8 +505,8 @@ public class LoadMultiplePlansDialog extends Dialog implements AstrobeeStateList
 
 	protected boolean someAstrobeeWaitingForSetCommand() {
 		boolean ret = false;
-		for(Boolean b: waitingToSendSetCommand.values()) {
-			ret |= b;
+		for(AwaitedFileAck ack : setPlanAck.values()) {
+			ret |= ack.isWaiting();
 		}
 		return ret;
 	}
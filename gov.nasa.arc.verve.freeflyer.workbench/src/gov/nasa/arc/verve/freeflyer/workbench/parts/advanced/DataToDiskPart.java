@@ -28,7 +28,9 @@ import gov.nasa.arc.irg.freeflyer.rapid.state.RosTopicsList;
 import gov.nasa.arc.irg.freeflyer.rapid.state.RosTopicsList.ARosTopic;
 import gov.nasa.arc.irg.plan.ui.io.ConfigFileWrangler;
 import gov.nasa.arc.irg.util.ui.ColorProvider;
+import gov.nasa.arc.verve.freeflyer.workbench.utils.AwaitedFileAck;
 import gov.nasa.arc.verve.freeflyer.workbench.utils.GuiUtils;
+import gov.nasa.arc.verve.freeflyer.workbench.utils.UploadCompletion;
 import gov.nasa.arc.verve.freeflyer.workbench.widget.helpers.CommandButton;
 import gov.nasa.dds.system.DdsTask;
 import gov.nasa.rapid.idl.ext.astrobee.message.MessageTypeExtAstro;
@@ -47,6 +49,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
@@ -104,7 +107,7 @@ public class DataToDiskPart implements AstrobeeStateListener, IRapidMessageListe
 	private String[] configureFilesNames;
 	private File[] configureFiles;
 	protected String participantId = Rapid.PrimaryParticipant;
-	protected boolean waitingToSendSetCommand = false;
+	protected final AwaitedFileAck setConfigurationAck = new AwaitedFileAck();
 	@Inject
 	IEclipseContext context;
 	protected Text startRecordDescriptionText;
@@ -263,10 +266,8 @@ public class DataToDiskPart implements AstrobeeStateListener, IRapidMessageListe
 	public void onRapidMessageReceived(Agent agent, MessageType msgType,
 			Object msgObj, Object cfgObj) {
 		if(msgObj instanceof CompressedFileAck){
-			// assume it is the right one - can put in checks later
-			if(waitingToSendSetCommand) {
+			if(setConfigurationAck.ackReceived(((CompressedFileAck)msgObj).id)) {
 				sendSetDataToDiskConfigurationCmd();
-				waitingToSendSetCommand = false;
 			}
 		}
 	}
@@ -526,15 +527,28 @@ public class DataToDiskPart implements AstrobeeStateListener, IRapidMessageListe
 				System.out.println(selected.getAbsolutePath());
 				if(selected.exists()){
 					try {
-						CompressedFilePublisher.getInstance(agent).compressAndSendFile(
+						CompressedFilePublisher.getInstance(agent).uploadFile(
 								DATA_TO_DISK_LOG_STRING, 
 								MessageTypeExtAstro.DATA_TO_DISK_COMPRESSED_TYPE, 
-								selected);
+								selected,
+								CompressedFilePublisher.DEFAULT_MATCH_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+						.whenComplete(new UploadCompletion(configureButton[num].getShell(), DATA_TO_DISK_LOG_STRING) {
+							@Override
+							protected void onUploaded(int id) {
+								if(setConfigurationAck.expect(id)) {
+									sendSetDataToDiskConfigurationCmd();
+								}
+							}
+
+							@Override
+							protected void onFailed(Throwable t) {
+								setConfigurationAck.cancel();
+							}
+						});
 					} catch (Exception ex) {
 						ex.printStackTrace();
 					}
 				}
-				waitingToSendSetCommand = true;
 			}
 
 			@Override
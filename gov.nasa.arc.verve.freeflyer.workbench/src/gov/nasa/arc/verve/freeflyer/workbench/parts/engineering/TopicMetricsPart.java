@@ -0,0 +1,246 @@
+/******************************************************************************
+ * Copyright © 2019, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration. All 
+ * rights reserved.
+ * 
+ * The Astrobee Control Station platform is licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0. 
+ *   
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations 
+ * under the License.
+ *****************************************************************************/
+package gov.nasa.arc.verve.freeflyer.workbench.parts.engineering;
+
+import gov.nasa.rapid.v2.e4.message.collector.FlightRecorder;
+import gov.nasa.rapid.v2.e4.message.collector.RapidMessageCollector;
+import gov.nasa.rapid.v2.e4.message.collector.TopicMetricsMonitor;
+import gov.nasa.rapid.v2.e4.message.collector.TopicMetricsSnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.eclipse.jface.viewers.ArrayContentProvider;
+import org.eclipse.jface.viewers.ITableLabelProvider;
+import org.eclipse.jface.viewers.LabelProvider;
+import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.events.SelectionListener;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.DirectoryDialog;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.MessageBox;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+
+/**
+ * Receive rate of every topic on every partition, busiest first, so we can
+ * see which bee is saturating the link. Refreshed once a second from
+ * RapidMessageCollector.getTopicMetrics.
+ * <p>
+ * The "Record all samples" toggle attaches a FlightRecorder to the
+ * RapidMessageCollector, so every sample received from every bee is
+ * written to rolling segment files in the chosen directory.
+ */
+public class TopicMetricsPart {
+	private static final Logger logger = Logger.getLogger(TopicMetricsPart.class);
+	protected static final int REFRESH_MILLIS = 1000;
+
+	private final String[] titles = {"Agent", "Topic", "msg/s", "KB/s", "Jitter ms", "Lost", "Rejected"};
+	private final int[] widths = {100, 220, 70, 70, 70, 60, 70};
+
+	private TableViewer m_tableViewer;
+	private Label m_totalsLabel;
+	private Button m_recordButton;
+	private Label m_recordLabel;
+	/** the recorder started by this part, if any */
+	private FlightRecorder m_recorder = null;
+	private boolean m_disposed = false;
+
+	private final Runnable m_refresher = new Runnable() {
+		@Override
+		public void run() {
+			if(m_disposed || m_tableViewer.getTable().isDisposed()) {
+				return;
+			}
+			refresh();
+			Display.getCurrent().timerExec(REFRESH_MILLIS, this);
+		}
+	};
+
+	@Inject 
+	public TopicMetricsPart(Composite parent) {
+		parent.setLayout(new GridLayout(1, false));
+
+		m_totalsLabel = new Label(parent, SWT.NONE);
+		m_totalsLabel.setLayoutData(new GridData(SWT.FILL, SWT.TOP, true, false));
+
+		Composite recordRow = new Composite(parent, SWT.NONE);
+		recordRow.setLayout(new GridLayout(2, false));
+		recordRow.setLayoutData(new GridData(SWT.FILL, SWT.TOP, true, false));
+		m_recordButton = new Button(recordRow, SWT.CHECK);
+		m_recordButton.setText("Record all samples");
+		m_recordButton.setSelection(RapidMessageCollector.instance().getFlightRecorder() != null);
+		m_recordButton.addSelectionListener(new SelectionListener() {
+			@Override
+			public void widgetSelected(SelectionEvent e) {
+				if(m_recordButton.getSelection()) {
+					startRecording();
+				} else {
+					stopRecording();
+				}
+			}
+
+			@Override
+			public void widgetDefaultSelected(SelectionEvent e) {
+				// nothing
+			}
+		});
+		m_recordLabel = new Label(recordRow, SWT.NONE);
+		m_recordLabel.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+
+		Table table = new Table(parent, SWT.SINGLE | SWT.FULL_SELECTION | SWT.V_SCROLL);
+		table.setLinesVisible(true);
+		table.setHeaderVisible(true);
+		table.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
+		for(int colNumber = 0; colNumber < titles.length; colNumber++) {
+			TableColumn column = new TableColumn(table, colNumber < 2 ? SWT.LEFT : SWT.RIGHT);
+			column.setText(titles[colNumber]);
+			column.setWidth(widths[colNumber]);
+		}
+
+		m_tableViewer = new TableViewer(table);
+		m_tableViewer.setContentProvider(ArrayContentProvider.getInstance());
+		m_tableViewer.setLabelProvider(new TopicMetricsLabelProvider());
+
+		refresh();
+		parent.getDisplay().timerExec(REFRESH_MILLIS, m_refresher);
+	}
+
+	public void refresh() {
+		List<TopicMetricsSnapshot> snapshots = new ArrayList<TopicMetricsSnapshot>(RapidMessageCollector.instance().getTopicMetrics());
+		Collections.sort(snapshots, TopicMetricsMonitor.BUSIEST_FIRST);
+		m_tableViewer.setInput(snapshots);
+
+		// total bandwidth of each agent
+		Map<String,Double> byAgent = new TreeMap<String,Double>();
+		for(TopicMetricsSnapshot snapshot : snapshots) {
+			Double sum = byAgent.get(snapshot.partition);
+			byAgent.put(snapshot.partition, (sum == null ? 0 : sum) + snapshot.bytesPerSecond);
+		}
+		StringBuilder builder = new StringBuilder();
+		for(Map.Entry<String,Double> entry : byAgent.entrySet()) {
+			if(builder.length() > 0) {
+				builder.append("    ");
+			}
+			builder.append(String.format("%s: %.1f KB/s", entry.getKey(), entry.getValue() / 1024));
+		}
+		m_totalsLabel.setText(builder.toString());
+
+		FlightRecorder recorder = RapidMessageCollector.instance().getFlightRecorder();
+		if(recorder != null) {
+			m_recordLabel.setText(String.format("%s: %d samples, %.1f MB",
+					recorder.getDirectory().getAbsolutePath(), recorder.getRecordedCount(),
+					recorder.getRecordedBytes() / (1024.0 * 1024.0)));
+		} else {
+			m_recordLabel.setText("");
+		}
+	}
+
+	protected void startRecording() {
+		DirectoryDialog dialog = new DirectoryDialog(m_recordButton.getShell());
+		dialog.setText("Flight Recorder Directory");
+		dialog.setMessage("Choose where to write the recorded samples");
+		String directory = dialog.open();
+		if(directory == null) {
+			m_recordButton.setSelection(false);
+			return;
+		}
+		try {
+			m_recorder = new FlightRecorder(new File(directory));
+			RapidMessageCollector.instance().setFlightRecorder(m_recorder);
+		} catch (IOException e) {
+			logger.error("Could not start flight recorder", e);
+			m_recordButton.setSelection(false);
+			MessageBox box = new MessageBox(m_recordButton.getShell(), SWT.ICON_WARNING | SWT.OK);
+			box.setText("Recording Failed");
+			box.setMessage("Could not record to " + directory + ": " + e.getMessage());
+			box.open();
+		}
+		refresh();
+	}
+
+	/** detach the recorder from the collector and close it */
+	protected void stopRecording() {
+		RapidMessageCollector collector = RapidMessageCollector.instance();
+		FlightRecorder recorder = collector.getFlightRecorder();
+		collector.setFlightRecorder(null);
+		if(recorder != null) {
+			recorder.close();
+		}
+		m_recorder = null;
+		refresh();
+	}
+
+	@PreDestroy
+	public void dispose() {
+		m_disposed = true;
+		// do not leave a recorder running that nothing can stop
+		if(m_recorder != null && RapidMessageCollector.instance().getFlightRecorder() == m_recorder) {
+			RapidMessageCollector.instance().setFlightRecorder(null);
+			m_recorder.close();
+		}
+		m_recorder = null;
+	}
+
+	protected class TopicMetricsLabelProvider extends LabelProvider implements ITableLabelProvider {
+		@Override
+		public Image getColumnImage(Object element, int columnIndex) {
+			return null;
+		}
+
+		@Override
+		public String getColumnText(Object element, int columnIndex) {
+			if(element instanceof TopicMetricsSnapshot) {
+				TopicMetricsSnapshot snapshot = (TopicMetricsSnapshot)element;
+				switch(columnIndex) {
+				case 0:
+					return snapshot.partition;
+				case 1:
+					return snapshot.messageType;
+				case 2:
+					return String.format("%.1f", snapshot.messagesPerSecond);
+				case 3:
+					return String.format("%.1f", snapshot.bytesPerSecond / 1024);
+				case 4:
+					return String.format("%.2f", snapshot.jitterMillis);
+				case 5:
+					return Long.toString(snapshot.lost);
+				case 6:
+					return Long.toString(snapshot.rejected);
+				}
+			}
+			return null;
+		}
+	}
+}
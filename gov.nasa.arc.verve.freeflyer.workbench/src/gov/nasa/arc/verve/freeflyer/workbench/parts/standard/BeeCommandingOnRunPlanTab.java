@@ -32,7 +32,9 @@ import gov.nasa.arc.irg.plan.modulebay.ModuleBayPlan;
 import gov.nasa.arc.irg.plan.ui.io.EnlargeableButton;
 import gov.nasa.arc.irg.plan.ui.io.WorkbenchConstants;
 import gov.nasa.arc.irg.util.ui.ColorProvider;
+import gov.nasa.arc.verve.freeflyer.workbench.utils.AwaitedFileAck;
 import gov.nasa.arc.verve.freeflyer.workbench.utils.Berth;
+import gov.nasa.arc.verve.freeflyer.workbench.utils.UploadCompletion;
 import gov.nasa.arc.verve.freeflyer.workbench.widget.helpers.CommandButton;
 import gov.nasa.dds.system.DdsTask;
 import gov.nasa.rapid.idl.ext.astrobee.message.MessageTypeExtAstro;
@@ -45,6 +47,7 @@ import gov.nasa.rapid.v2.e4.message.collector.RapidMessageCollector;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
@@ -128,7 +131,7 @@ public class BeeCommandingOnRunPlanTab implements AstrobeeStateListener, IRapidM
 	protected String myId = Agent.getEgoAgent().name();
 	protected Text descriptionText;
 	
-	protected boolean waitingToSendSetCommand = false;
+	protected final AwaitedFileAck setPlanAck = new AwaitedFileAck();
 	protected boolean fakeCurrentPlanMessage = false;
 	
 	protected Berth selectedBerth = null;
@@ -322,17 +325,30 @@ public class BeeCommandingOnRunPlanTab implements AstrobeeStateListener, IRapidM
 			public void widgetSelected(SelectionEvent e) {
 				if(selectedPlanFile != null && selectedPlanFile.exists()){
 					try {  
-						CompressedFilePublisher.getInstance(agent).compressAndSendFile(
+						CompressedFilePublisher.getInstance(agent).uploadFile(
 								WorkbenchConstants.SENDING_PLAN_STRING,
 								MessageTypeExtAstro.COMPRESSED_FILE_TYPE,
-								selectedPlanFile);
-						
-						if(fakeCurrentPlanMessage) {
-							context.set(FreeFlyerPlan.class, null);
-							context.set(FreeFlyerPlan.class, loadedPlan);
-						}
-						waitingToSendSetCommand = true;
+								selectedPlanFile,
+								CompressedFilePublisher.DEFAULT_MATCH_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+						.whenComplete(new UploadCompletion(loadButton.getShell(), "Loading " + selectedPlanFile.getName()) {
+							@Override
+							protected void onUploaded(int id) {
+								if(fakeCurrentPlanMessage) {
+									context.set(FreeFlyerPlan.class, null);
+									context.set(FreeFlyerPlan.class, loadedPlan);
+								}
+								if(setPlanAck.expect(id)) {
+									sendSetPlanCmd();
+								}
+								updateButtonEnablements();
+							}
 
+							@Override
+							protected void onFailed(Throwable t) {
+								setPlanAck.cancel();
+								updateButtonEnablements();
+							}
+						});
 					} catch (Exception ex) {
 						ex.printStackTrace();
 					}
@@ -620,7 +636,7 @@ public class BeeCommandingOnRunPlanTab implements AstrobeeStateListener, IRapidM
 					break;
 				case PAUSED:
 					astrobeeInStateToAcceptUpload = true;
-					if(!waitingToSendSetCommand) {
+					if(!setPlanAck.isWaiting()) {
 						updateStatusOfLoadButton();
 						runButton.setCompositeEnabled(true);
 						pauseButton.setCompositeEnabled(false);
@@ -632,7 +648,7 @@ public class BeeCommandingOnRunPlanTab implements AstrobeeStateListener, IRapidM
 							}
 						}
 					}
-					else if(waitingToSendSetCommand){
+					else {
 						runButton.setCompositeEnabled(false);
 					}
 					break;
@@ -649,10 +665,8 @@ public class BeeCommandingOnRunPlanTab implements AstrobeeStateListener, IRapidM
 	public void onRapidMessageReceived(Agent agent, MessageType msgType,
 			Object msgObj, Object cfgObj) {
 		if(msgObj instanceof CompressedFileAck){
-			// assume it is the right one - can put in checks later
-			if(waitingToSendSetCommand) {
+			if(setPlanAck.ackReceived(((CompressedFileAck)msgObj).id)) {
 				sendSetPlanCmd();
-				waitingToSendSetCommand = false;
 			}
 		}
 		if(msgType.equals(MessageTypeExtAstro.PLAN_STATUS_TYPE)) {
@@ -31,9 +31,9 @@ import gov.nasa.rapid.v2.e4.message.MessageType;
 import gov.nasa.rapid.v2.e4.message.MessageTypeExt;
 import gov.nasa.rapid.v2.e4.message.collector.RapidMessageCollector;
 import gov.nasa.rapid.v2.ui.e4.parts.IImageReshower;
+import gov.nasa.rapid.v2.ui.e4.parts.ImageDecodePipeline;
 import gov.nasa.rapid.v2.ui.e4.parts.ImageSensorViewSize;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URL;
 import java.text.SimpleDateFormat;
@@ -76,7 +76,7 @@ import rapid.ext.astrobee.SETTINGS_CAMERA_NAME_NAV;
  * @author ddwheele
  *
  */
-public class LiveImagesPart implements IRapidMessageListener, IImageReshower, IActiveAgentSetListener {
+public class LiveImagesPart implements IRapidMessageListener, IImageReshower, IActiveAgentSetListener, ImageDecodePipeline.IImageDecodeListener {
 	private static final Logger logger = Logger.getLogger(LiveImagesPart.class);
 	protected Label         imageLabel    = null;
 	protected Label         infoLabel     = null;
@@ -84,9 +84,8 @@ public class LiveImagesPart implements IRapidMessageListener, IImageReshower, IA
 	protected Label			imageIcon 	  = null;
 	protected int           imageCount    = 0;
 	protected Image			image, forward, backward;
-	protected Object        imageLock     = new Object();
-	protected ImageData     imageData     = null;
 	protected ImageSensorViewSize viewAreaSize = new ImageSensorViewSize();
+	protected ImageDecodePipeline.Channel decodeChannel;
 	protected Combo topicsCombo;
 	protected List<String> topicsList = new ArrayList<String>();
 	protected MessageType baseSampleType;
@@ -166,6 +165,8 @@ public class LiveImagesPart implements IRapidMessageListener, IImageReshower, IA
 		gdImageLabel.horizontalSpan = 4;
 		imageLabel.setLayoutData(gdImageLabel);
 	
+		decodeChannel = ImageDecodePipeline.getDefault().createChannel(getClass().getSimpleName(), viewAreaSize, this);
+		decodeChannel.setWidthMargin(leftSideWidth);
 		loadDefaultImage();
 
 		rightSide.pack();
@@ -226,6 +227,9 @@ public class LiveImagesPart implements IRapidMessageListener, IImageReshower, IA
 	@PreDestroy
 	public void preDestroy() {
 		unsubscribe();
+		if(decodeChannel != null) {
+			decodeChannel.dispose();
+		}
 	}
 
 	
@@ -264,15 +268,10 @@ public class LiveImagesPart implements IRapidMessageListener, IImageReshower, IA
 			Object eventObj, Object configObj) {
 		if(msgType.equals(getSampleType())) {
 
-			ImageSensorSample imageSample = (ImageSensorSample) eventObj;
-			int size = imageSample.data.userData.size();
-
-			byte[] data = imageSample.data.userData.toArrayByte(new byte[size]);
-			imageData = new ImageData(new ByteArrayInputStream(data));
+			// decoded and scaled on the pipeline's threads; shown in imageDecoded
+			decodeChannel.submit((ImageSensorSample) eventObj);
 			imageCount++;
 			setInfoLabel(null);
-			setResolutionLabel(imageData.width + " x " + imageData.height);
-			reshowImage();
 		}
 	}
 
@@ -342,70 +341,39 @@ public class LiveImagesPart implements IRapidMessageListener, IImageReshower, IA
 		try {
 			default_url = new URL("platform:/plugin/gov.nasa.arc.verve.freeflyer.workbench/resources/CameraIconGrey256.png");
 
-			synchronized(imageLock) {
-				URL fileURL = FileLocator.toFileURL(default_url);
-				String fileString = fileURL.getPath();
-				imageData = new ImageData(fileString);
-
-				if (imageData == null) {
-					logger.error("imageData = null");
-				}
-				image = new Image(null, imageData);
-			}
-			directShowImage();
+			URL fileURL = FileLocator.toFileURL(default_url);
+			String fileString = fileURL.getPath();
+			decodeChannel.submit(new ImageData(fileString));
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 
 	public void reshowImage() {
-		Display.getDefault().asyncExec(new ReshowRunnable());
-	}
-
-	protected class ReshowRunnable implements Runnable {
-		public void run() {
-			if(!imageLabel.isDisposed()) {
-				directShowImage();
-			}
+		if(decodeChannel != null) {
+			decodeChannel.rescale();
 		}
 	}
 
-	// must call this from display thread
-	protected void directShowImage() {
-		synchronized(imageLock) {
-			if(imageData != null) {
-				ImageData localImageData = scaleIfNecessary(imageData);
-
-				Image oldImage = image;
-				image = new Image(null,localImageData);
-				Rectangle rect = image.getBounds();
-				if(!imageLabel.isDisposed()) {
-					imageLabel.setImage(image);
-					imageLabel.setSize(rect.width, rect.height);
-				}
-				oldImage.dispose();
-			}
+	// called from display thread
+	@Override
+	public void imageDecoded(Image newImage, ImageData source) {
+		if(imageLabel == null || imageLabel.isDisposed()) {
+			newImage.dispose();
+			return;
 		}
-	}
-
-	private ImageData scaleIfNecessary(ImageData localImageData) {
-		int viewW,viewH;
-		synchronized(viewAreaSize) {
-			viewW = viewAreaSize.width-leftSideWidth;
-			viewH = viewAreaSize.height;
+		Image oldImage = image;
+		image = newImage;
+		Rectangle rect = image.getBounds();
+		imageLabel.setImage(image);
+		imageLabel.setSize(rect.width, rect.height);
+		if(oldImage != null) {
+			oldImage.dispose();
 		}
-		int imageW = localImageData.width;
-		int imageH = localImageData.height;
-		double scaleW = (double)(viewW-1) / (double)imageW;
-		double scaleH = (double)(viewH-1) / (double)imageH;
-		double scale = (scaleW < scaleH) ? scaleW : scaleH;
-		
-		if( scale < 1 ) {
-			int sW = (int)(imageW * scale);
-			int sH = (int)(imageH * scale);
-			localImageData = localImageData.scaledTo(sW, sH);
+		if(imageCount > 0 && resolutionLabel != null && !resolutionLabel.isDisposed()) {
+			resolutionLabel.setText(source.width + " x " + source.height);
+			resolutionLabel.setToolTipText(decodeChannel.getStats().toString());
 		}
-		return localImageData;
 	}
 
 	public void unsubscribe() {
@@ -424,11 +392,16 @@ public class LiveImagesPart implements IRapidMessageListener, IImageReshower, IA
 			return;
 		}
 		//			logger.debug("subscribe on "+getAgent().name() + " for view " + getTitle());
+		if(getSampleType() != null) {
+			// new stats for this camera; frames of the previous one are not shown
+			decodeChannel.setStream(getAgent(), getSampleType());
+		}
 		RapidMessageCollector.instance().addRapidMessageListener(getParticipantId(), 
 				getAgent(), 
 				getSampleType(), 
 				this);
 		leftSideWidth = infoLabel.getBounds().width + 30;
+		decodeChannel.setWidthMargin(leftSideWidth);
 	}
 
 	/**
@@ -18,9 +18,11 @@
 package gov.nasa.arc.verve.freeflyer.workbench.plantrace;
 
 import gov.nasa.arc.irg.freeflyer.rapid.state.AggregateAstrobeeState;
+import gov.nasa.arc.irg.plan.freeflyer.plan.FreeFlyerPlan;
 import gov.nasa.arc.irg.plan.model.Plan;
 import gov.nasa.arc.irg.plan.model.PlanBuilder;
 import gov.nasa.arc.irg.plan.model.Point6Dof;
+import gov.nasa.arc.irg.plan.model.Position;
 import gov.nasa.arc.irg.plan.model.Segment;
 import gov.nasa.arc.irg.plan.model.SequenceHolder;
 import gov.nasa.arc.irg.plan.model.Sequenceable;
@@ -31,7 +33,9 @@ import gov.nasa.arc.irg.plan.modulebay.ModuleBayPlan;
 import gov.nasa.arc.irg.plan.modulebay.ModuleBayPoint;
 import gov.nasa.arc.irg.plan.modulebay.ModuleBayStation;
 import gov.nasa.arc.irg.plan.ui.io.WorkbenchConstants;
+import gov.nasa.arc.irg.plan.ui.plancompiler.IncrementalPlanValidator;
 import gov.nasa.arc.irg.plan.ui.plancompiler.PlanCompiler;
+import gov.nasa.arc.irg.plan.ui.plancompiler.PlanValidationResult;
 import gov.nasa.arc.irg.plan.ui.plancompiler.TrajectoryBoundsCheck;
 import gov.nasa.arc.verve.ardor3d.e4.util.DeselectListenerRegistry;
 import gov.nasa.arc.verve.ardor3d.e4.util.IDeselectListener;
@@ -55,6 +59,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Vector;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Named;
 
@@ -62,6 +67,7 @@ import org.apache.log4j.Logger;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.core.di.annotations.Optional;
 import org.eclipse.e4.ui.model.application.MApplication;
+import org.eclipse.swt.widgets.Display;
 
 import com.ardor3d.math.Matrix3;
 import com.ardor3d.math.Quaternion;
@@ -97,6 +103,9 @@ public class CreatePlanTrace extends AbstractPlanTrace implements PropertyChange
 	protected List<CollisionMarker> collisions = new ArrayList<CollisionMarker>();
 	protected Node collisionsNode = new Node("CollisionsNode");
 	protected TrajectoryBoundsCheck checker = PlanCompiler.getTrajectoryBoundsCheck();
+	// checks the Segments next to a Station while it is dragged
+	protected IncrementalPlanValidator dragValidator;
+	protected Position lastDragPosition;
 	
 	protected float EPSILON = 0.001f;
 
@@ -111,6 +120,53 @@ public class CreatePlanTrace extends AbstractPlanTrace implements PropertyChange
 
 		createVerveInteractables();
 		setupDraggablePreviewModel();
+		createDragValidator();
+	}
+
+	private void createDragValidator() {
+		dragValidator = new IncrementalPlanValidator(checker, new IncrementalPlanValidator.Listener() {
+			@Override
+			public void planValidated(final PlanValidationResult result) {
+				Display.getDefault().asyncExec(new Runnable() {
+					public void run() {
+						showDragValidation(result);
+					}
+				});
+			}
+		});
+	}
+
+	/** validate the plan as if the selected Station were at p6d, without changing it */
+	protected void validateDrag(Point6Dof p6d) {
+		if(!(selected instanceof Station) || !(plan instanceof FreeFlyerPlan)) {
+			return;
+		}
+		Position dragged = new Position(p6d);
+		if(dragged.equals(lastDragPosition)) {
+			return;
+		}
+		lastDragPosition = dragged;
+		dragValidator.validate((FreeFlyerPlan) plan, (Station) selected, dragged);
+	}
+
+	protected void showDragValidation(PlanValidationResult result) {
+		// the Station may have been dropped since the result was posted
+		if(result.getPlan() != plan || !dragValidator.isLatest(result)) {
+			return;
+		}
+		updateCollisions(result.getCollisions());
+		if(selected instanceof Station) {
+			for(Node node : spatials) {
+				if(node instanceof StationModel 
+						&& ((StationModel) node).getNumberAsString().equals(selected.getName())) {
+					if(result.isMovedStationSafe()) {
+						((StationModel) node).hideAlarmColor();
+					} else {
+						((StationModel) node).showAlarmColor();
+					}
+				}
+			}
+		}
 	}
 
 	private void createVerveInteractables() {
@@ -156,63 +212,68 @@ public class CreatePlanTrace extends AbstractPlanTrace implements PropertyChange
 
 	protected void updateStationPositionFromRotation(ReadOnlyTransform xfm) {
 		if(selected instanceof ModuleBayStation) {
-			Point6Dof original = ((Station) selected).getCoordinate();
-
-			Matrix3 originalRot = new Matrix3();
-			originalRot.fromAngles(original.getRoll() * DEG2RAD,
-					original.getPitch()	* DEG2RAD, 
-					original.getYaw()	* DEG2RAD);
+			// DelegateCommandStack should catch and make UpdateValueCommand
+			applicationContext.set(ContextNames.NEW_STATION_LOCATION, getRotatedStationPoint(xfm));
+		}
+	}
 
-			ReadOnlyMatrix3 localRotationMat = xfm.getMatrix();
-			ReadOnlyMatrix3 totalRotationMat = originalRot.multiply(localRotationMat, null);
+	/** @return the coordinate of the selected ModuleBayStation after rotating it by xfm */
+	protected Point6Dof getRotatedStationPoint(ReadOnlyTransform xfm) {
+		Point6Dof original = ((Station) selected).getCoordinate();
 
-			double[] totalRotationAngles = null;
-			totalRotationAngles =  totalRotationMat.toAngles(totalRotationAngles);		
+		Matrix3 originalRot = new Matrix3();
+		originalRot.fromAngles(original.getRoll() * DEG2RAD,
+				original.getPitch()	* DEG2RAD, 
+				original.getYaw()	* DEG2RAD);
 
-			// round to whole numbers
-			float roll = (int) (totalRotationAngles[0] * RAD2DEG);
-			float pitch = (int) (totalRotationAngles[1] * RAD2DEG);
-			float yaw = (int) (totalRotationAngles[2] * RAD2DEG);
+		ReadOnlyMatrix3 localRotationMat = xfm.getMatrix();
+		ReadOnlyMatrix3 totalRotationMat = originalRot.multiply(localRotationMat, null);
 
-			// if we are rotating by hand, the Station should remember our rotations. no ignoreOrientation.
-			Point6Dof p6d = new Point6Dof(original.getX(), original.getY(), original.getZ(), roll, pitch, yaw);
+		double[] totalRotationAngles = null;
+		totalRotationAngles =  totalRotationMat.toAngles(totalRotationAngles);		
 
-			// DelegateCommandStack should catch and make UpdateValueCommand
-			applicationContext.set(ContextNames.NEW_STATION_LOCATION, p6d);
+		// round to whole numbers
+		float roll = (int) (totalRotationAngles[0] * RAD2DEG);
+		float pitch = (int) (totalRotationAngles[1] * RAD2DEG);
+		float yaw = (int) (totalRotationAngles[2] * RAD2DEG);
 
-		}
+		// if we are rotating by hand, the Station should remember our rotations. no ignoreOrientation.
+		return new Point6Dof(original.getX(), original.getY(), original.getZ(), roll, pitch, yaw);
 	}
 
 	protected void updateStationPositionFromTranslation(ReadOnlyTransform xfm) {
 		if(selected instanceof ModuleBayStation) {
-			Point6Dof original = ((Station) selected).getCoordinate();
+			// DelegateCommandStack should catch and make UpdateValueCommand
+			applicationContext.set(ContextNames.NEW_STATION_LOCATION, getTranslatedStationPoint(xfm));
+		}
+	}
 
-			Matrix3 originalRot = new Matrix3();
-			originalRot.fromAngles(original.getRoll() * DEG2RAD,
-					original.getPitch()	* DEG2RAD, 
-					original.getYaw()	* DEG2RAD);
-			ReadOnlyVector3 localTranslation = xfm.getTranslation();
+	/** @return the coordinate of the selected ModuleBayStation after moving it by xfm */
+	protected Point6Dof getTranslatedStationPoint(ReadOnlyTransform xfm) {
+		Point6Dof original = ((Station) selected).getCoordinate();
 
-			Vector3 worldTranslation = originalRot.applyPost(localTranslation, null);
+		Matrix3 originalRot = new Matrix3();
+		originalRot.fromAngles(original.getRoll() * DEG2RAD,
+				original.getPitch()	* DEG2RAD, 
+				original.getYaw()	* DEG2RAD);
+		ReadOnlyVector3 localTranslation = xfm.getTranslation();
 
-			float x = addAndRoundIfNecessary(original.getX(),worldTranslation.getXf());
-			float y = addAndRoundIfNecessary(original.getY(),worldTranslation.getYf());
-			float z = addAndRoundIfNecessary(original.getZ(),worldTranslation.getZf());
+		Vector3 worldTranslation = originalRot.applyPost(localTranslation, null);
 
-			Point6Dof p6d = new Point6Dof(x, y, z, original.getRoll(), original.getPitch(), original.getYaw());
+		float x = addAndRoundIfNecessary(original.getX(),worldTranslation.getXf());
+		float y = addAndRoundIfNecessary(original.getY(),worldTranslation.getYf());
+		float z = addAndRoundIfNecessary(original.getZ(),worldTranslation.getZf());
 
-			if(original instanceof ModuleBayPoint) {
-				if(((ModuleBayPoint) original).isIgnoreOrientation()) {
-					ModuleBayPoint newXYZonly = new ModuleBayPoint(p6d);
-					newXYZonly.setIgnoreOrientation(true);
-					applicationContext.set(ContextNames.NEW_STATION_LOCATION, newXYZonly);
-					return;
-				}
-			}
+		Point6Dof p6d = new Point6Dof(x, y, z, original.getRoll(), original.getPitch(), original.getYaw());
 
-			// DelegateCommandStack should catch and make UpdateValueCommand
-			applicationContext.set(ContextNames.NEW_STATION_LOCATION, p6d);
+		if(original instanceof ModuleBayPoint) {
+			if(((ModuleBayPoint) original).isIgnoreOrientation()) {
+				ModuleBayPoint newXYZonly = new ModuleBayPoint(p6d);
+				newXYZonly.setIgnoreOrientation(true);
+				return newXYZonly;
+			}
 		}
+		return p6d;
 	}
 
 	public static CreatePlanTrace getStaticInstance() {
@@ -309,8 +370,30 @@ public class CreatePlanTrace extends AbstractPlanTrace implements PropertyChange
 		}
 	}
 
+	/** 
+	 * the dropped Station has been updated by a command; its Segments must be 
+	 * checked again, and the markers of the dragged pose no longer apply 
+	 */
+	protected void endDragValidation() {
+		lastDragPosition = null;
+		if(selected instanceof Station) {
+			dragValidator.stationChanged((Station) selected);
+		} else {
+			dragValidator.clear();
+		}
+		updateCollisions(null);
+		verifyStations();
+	}
+
+	@PreDestroy
+	public void dispose() {
+		dragValidator.dispose();
+	}
+
 	// this is called by PreviewPlanViewer and RunPlanViewer (and setPlanBuilder)
 	public void planChanged(Plan p) {
+		dragValidator.clear();
+		lastDragPosition = null;
 		eraseTheTrace();
 		if(p == null) {
 			plan = p;
@@ -436,10 +519,18 @@ public class CreatePlanTrace extends AbstractPlanTrace implements PropertyChange
 				draggablePreviewNode.getSceneHints().setCullHint(CullHint.Inherit);
 			}
 
+			@Override
+			public void interactDrag(Spatial spatial, ReadOnlyTransform transform) {
+				if(selected instanceof ModuleBayStation) {
+					validateDrag(getTranslatedStationPoint(transform));
+				}
+			}
+
 			@Override
 			public void endInteractDrag(Spatial spatial) {
 				// set the position of the Station to the dragged position
 				updateStationPositionFromTranslation(spatial.getTransform());
+				endDragValidation();
 				resetDraggable();
 			}
 		};
@@ -466,10 +557,18 @@ public class CreatePlanTrace extends AbstractPlanTrace implements PropertyChange
 				draggablePreviewNode.getSceneHints().setCullHint(CullHint.Inherit);
 			}
 
+			@Override
+			public void interactDrag(Spatial spatial, ReadOnlyTransform transform) {
+				if(selected instanceof ModuleBayStation) {
+					validateDrag(getRotatedStationPoint(transform));
+				}
+			}
+
 			@Override
 			public void endInteractDrag(Spatial spatial) {
 				// set the position of the Station to the dragged position
 				updateStationPositionFromRotation(spatial.getTransform());
+				endDragValidation();
 				resetDraggable();
 			}
 		};
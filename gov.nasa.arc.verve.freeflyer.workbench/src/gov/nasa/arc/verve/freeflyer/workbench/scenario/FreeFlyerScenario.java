@@ -27,7 +27,9 @@ import gov.nasa.arc.irg.plan.ui.io.WorkbenchConstants;
 import gov.nasa.arc.irg.util.ui.IrgUI;
 import gov.nasa.arc.verve.ardor3d.e4.Ardor3D;
 import gov.nasa.arc.verve.ardor3d.e4.Ardor3DEclipseNotPlugin;
+import gov.nasa.arc.verve.ardor3d.e4.framework.IRenderDemand;
 import gov.nasa.arc.verve.ardor3d.e4.framework.IVerveScenario;
+import gov.nasa.arc.verve.ardor3d.e4.framework.RenderScheduler;
 import gov.nasa.arc.verve.ardor3d.e4.framework.VerveScenarioStarted;
 import gov.nasa.arc.verve.freeflyer.workbench.helpers.ScenarioToggleListener;
 import gov.nasa.arc.verve.freeflyer.workbench.parts.handraileditor.HandrailModelingNode;
@@ -58,6 +60,7 @@ import gov.nasa.rapid.idl.ext.astrobee.message.MessageTypeExtAstro;
 import gov.nasa.rapid.v2.e4.agent.ActiveAgentSet;
 import gov.nasa.rapid.v2.e4.agent.Agent;
 import gov.nasa.rapid.v2.e4.agent.IActiveAgentSetListener;
+import gov.nasa.rapid.v2.e4.message.collector.RapidMessageCollector;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -230,6 +233,7 @@ public class FreeFlyerScenario implements IVerveScenario, IActiveAgentSetListene
 
 				//initializePreferenceListeners();
 				initializeDirtyEventListeners();
+				initializeRenderDemand();
 				initializeToggleNodes();
 			}
 		}
@@ -314,6 +318,7 @@ public class FreeFlyerScenario implements IVerveScenario, IActiveAgentSetListene
 		DirtyEventListener foo = new DirtyEventListener () {
 			long m_lastTime = System.currentTimeMillis();
 			public boolean spatialDirty(Spatial spatial, DirtyType dirtyType) {
+				Ardor3D.requestRender();
 				switch(dirtyType) {
 				case Transform:
 					break;
@@ -340,6 +345,19 @@ public class FreeFlyerScenario implements IVerveScenario, IActiveAgentSetListene
 		root.setListener(foo);
 	}
 
+	private void initializeRenderDemand() {
+		//-- Keep rendering while telemetry is arriving; robot parts 
+		//-- apply it during the next frame update
+		RenderScheduler scheduler = Ardor3D.getRenderScheduler();
+		if(scheduler != null) {
+			scheduler.addDemand(new IRenderDemand() {
+				public long getChangeCount() {
+					return RapidMessageCollector.instance().getDispatchedMessageCount();
+				}
+			});
+		}
+	}
+
 	private void logAnError(String msg, Throwable t) {
 		logger.error(msg, t);
 		IrgUI.errorDialog(msg, msg, t);
@@ -17,25 +17,16 @@
  *****************************************************************************/
 package gov.nasa.arc.verve.freeflyer.workbench.scenario;
 
+import gov.nasa.arc.irg.freeflyer.rapid.CompressedFilePublisher;
 import gov.nasa.arc.irg.plan.freeflyer.config.KeepoutConfig;
 import gov.nasa.arc.irg.plan.freeflyer.config.ZonesConfig;
 import gov.nasa.arc.irg.plan.ui.io.ConfigFileWrangler;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
-import org.codehaus.jackson.JsonNode;
-import org.codehaus.jackson.JsonParseException;
-import org.codehaus.jackson.map.JsonMappingException;
-import org.codehaus.jackson.map.ObjectMapper;
-import org.codehaus.jackson.map.ObjectReader;
-
 import rapid.ext.astrobee.CompressedFile;
 
-import com.rti.dds.infrastructure.ByteSeq;
-
 public class ZonesNodesHelper {
 	private final String agentName;
 	private BoxesNode keepins;
@@ -76,37 +67,14 @@ public class ZonesNodesHelper {
 	}
 
 	public void ingestZonesFile(CompressedFile newZones) {
-		// turn compressedfile into String
-		final ByteSeq seq = newZones.compressedFile.userData;
-		byte[] bytes = seq.toArrayByte(new byte[seq.size()]);
-
-		// Reading...
-		// Create an immutable reader
-		ObjectMapper jsonObjectMapper = new ObjectMapper();
-		final ObjectReader reader = jsonObjectMapper.reader();
-
-		
-		try {
-			// Use the reader for thread safe access
-			final JsonNode newNode = reader.readTree(new ByteArrayInputStream(bytes));
-
-			// parse the String as a Keepout/in thing
-			
-			ZonesConfig newJsonNode = jsonObjectMapper.treeToValue(newNode, ZonesConfig.class);
-			
-			// put that thing into the appropriate array
-			KeepoutConfig kc = newJsonNode.getZones().get(0);
-			
-		} catch (JsonParseException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (JsonMappingException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+		// the payload is deflated json; inflate and parse it in one pass
+		ZonesConfig newZonesConfig = CompressedFilePublisher.uncompressCurrentZonesCompressedFile(newZones);
+		if(newZonesConfig == null || newZonesConfig.getZones() == null || newZonesConfig.getZones().isEmpty()) {
+			return;
 		}
+
+		// put that thing into the appropriate array
+		KeepoutConfig kc = newZonesConfig.getZones().get(0);
 	}
 }
 
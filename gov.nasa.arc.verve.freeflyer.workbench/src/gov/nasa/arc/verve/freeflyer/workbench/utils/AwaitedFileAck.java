@@ -0,0 +1,61 @@
+/******************************************************************************
+ * Copyright © 2019, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration. All 
+ * rights reserved.
+ * 
+ * The Astrobee Control Station platform is licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0. 
+ *   
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations 
+ * under the License.
+ *****************************************************************************/
+package gov.nasa.arc.verve.freeflyer.workbench.utils;
+
+/**
+ * Tracks the CompressedFileAck that a follow-up SET command is waiting on.
+ * The ack can arrive on the DDS thread before the upload future has told us
+ * which id was written, so the last acked id is remembered as well.
+ */
+public class AwaitedFileAck {
+	private boolean waiting = false;
+	private int expectedId;
+	private int lastAckedId;
+
+	/**
+	 * Start waiting for the ack of the file that was written with this id.
+	 * @return true if that ack has already arrived and the SET command
+	 *         should be sent now
+	 */
+	public synchronized boolean expect(int id) {
+		expectedId = id;
+		waiting = lastAckedId != id;
+		return !waiting;
+	}
+
+	/**
+	 * @return true if this is the ack we were waiting on, in which case the
+	 *         caller sends the SET command
+	 */
+	public synchronized boolean ackReceived(int id) {
+		lastAckedId = id;
+		if(waiting && expectedId == id) {
+			waiting = false;
+			return true;
+		}
+		return false;
+	}
+
+	public synchronized boolean isWaiting() {
+		return waiting;
+	}
+
+	public synchronized void cancel() {
+		waiting = false;
+	}
+}
@@ -0,0 +1,88 @@
+/******************************************************************************
+ * Copyright © 2019, United States Government, as represented by the 
+ * Administrator of the National Aeronautics and Space Administration. All 
+ * rights reserved.
+ * 
+ * The Astrobee Control Station platform is licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0. 
+ *   
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations 
+ * under the License.
+ *****************************************************************************/
+package gov.nasa.arc.verve.freeflyer.workbench.utils;
+
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+
+import org.apache.log4j.Logger;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.MessageBox;
+import org.eclipse.swt.widgets.Shell;
+
+/**
+ * Completion handler for the futures returned by CompressedFilePublisher
+ * uploads. Both outcomes are handed to the UI thread: onUploaded() gets the
+ * id of the CompressedFile that was written, and a failed upload calls
+ * onFailed() and then warns the user.
+ */
+public abstract class UploadCompletion implements BiConsumer<Integer,Throwable> {
+	private static final Logger logger = Logger.getLogger(UploadCompletion.class);
+	protected final Shell shell;
+	protected final String what;
+
+	/**
+	 * @param shell parent of the warning dialog
+	 * @param what  what was being uploaded, for the warning message
+	 */
+	public UploadCompletion(Shell shell, String what) {
+		this.shell = shell;
+		this.what = what;
+	}
+
+	/** called on the UI thread once the file has been written */
+	protected abstract void onUploaded(int id);
+
+	/** called on the UI thread before the user is warned */
+	protected void onFailed(Throwable t) {
+		// nothing by default
+	}
+
+	@Override
+	public void accept(final Integer id, final Throwable t) {
+		final Display display = Display.getDefault();
+		if(display.isDisposed()) {
+			return;
+		}
+		display.asyncExec(new Runnable() {
+			public void run() {
+				if(t == null) {
+					onUploaded(id);
+					return;
+				}
+				logger.warn(what + " failed", t);
+				onFailed(t);
+				if(shell == null || shell.isDisposed()) {
+					return;
+				}
+				MessageBox dialog = new MessageBox(shell, SWT.ICON_WARNING | SWT.OK);
+				dialog.setText("Upload Failed");
+				dialog.setMessage(what + " failed because: " + getReason(t));
+				dialog.open();
+			}
+		});
+	}
+
+	protected static String getReason(Throwable t) {
+		if(t instanceof CompletionException && t.getCause() != null) {
+			t = t.getCause();
+		}
+		return t.getMessage() != null ? t.getMessage() : t.getClass().getSimpleName();
+	}
+}
@@ -17,6 +17,8 @@
  ******************************************************************************/
 package gov.nasa.arc.verve.rcp.e4.canvas;
 
+import gov.nasa.arc.verve.ardor3d.e4.Ardor3D;
+import gov.nasa.arc.verve.ardor3d.e4.framework.RenderScheduler;
 import gov.nasa.arc.verve.common.SceneHack;
 import gov.nasa.arc.verve.common.VervePreferences;
 import gov.nasa.arc.verve.common.ardor3d.framework.VerveBucketType;
@@ -28,12 +30,15 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
+import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.DisposeEvent;
 import org.eclipse.swt.events.DisposeListener;
 import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.opengl.GLCanvas;
 import org.eclipse.swt.opengl.GLData;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Listener;
 
 import com.ardor3d.framework.CanvasRenderer;
 import com.ardor3d.framework.DisplaySettings;
@@ -81,6 +86,12 @@ public class Ardor3dCanvas extends GLCanvas  implements com.ardor3d.framework.Ca
     private Runnable             m_onInitRunnable;
 
     private static LinkedList<WeakReference<Ardor3dCanvas>> s_instances = new LinkedList<WeakReference<Ardor3dCanvas>>();
+
+    /** events after which the canvas is redrawn even if the scene has not changed */
+    private static final int[] s_renderEvents = new int[] {
+        SWT.MouseDown, SWT.MouseUp, SWT.MouseMove, SWT.MouseWheel,
+        SWT.KeyDown, SWT.KeyUp, SWT.Resize, SWT.Paint, SWT.Show
+    };
     
     /**
      * 
@@ -106,6 +117,19 @@ public class Ardor3dCanvas extends GLCanvas  implements com.ardor3d.framework.Ca
                 new SwtMouseWrapper(this), 
                 new SwtFocusWrapper(this));
         m_logicalLayer.registerInput(this, m_physicalLayer);
+
+        final Listener renderRequest = new Listener() {
+            @Override
+            public void handleEvent(Event event) {
+                final RenderScheduler scheduler = Ardor3D.getRenderScheduler();
+                if(scheduler != null) {
+                    scheduler.requestRender(Ardor3dCanvas.this);
+                }
+            }
+        };
+        for(int eventType : s_renderEvents) {
+            addListener(eventType, renderRequest);
+        }
     }
 
     /**
@@ -130,7 +154,7 @@ public class Ardor3dCanvas extends GLCanvas  implements com.ardor3d.framework.Ca
         if(!m_initialized.get()) {
             init();
         }
-        if (!isDisposed() && isVisible()) {
+        if (!isDisposed() && isVisible() && isDrawNeeded()) {
             setCurrent();
             if(m_canvasRenderer.draw()) {
                 swapBuffers();
@@ -139,6 +163,14 @@ public class Ardor3dCanvas extends GLCanvas  implements com.ardor3d.framework.Ca
         latch.countDown();
     }
 
+    /**
+     * @return false if the RenderScheduler has found nothing new to draw
+     */
+    protected boolean isDrawNeeded() {
+        final RenderScheduler scheduler = Ardor3D.getRenderScheduler();
+        return scheduler == null || scheduler.shouldDraw(this, m_canvasRenderer.getCamera());
+    }
+
     /**
      * @return
      */
@@ -3,6 +3,7 @@ package gov.nasa.arc.verve.robot.freeflyer.parts;
 import gov.nasa.arc.verve.robot.AbstractRobot;
 import gov.nasa.arc.verve.robot.scenegraph.shape.concepts.DirectionalPathController;
 import gov.nasa.arc.verve.robot.scenegraph.shape.concepts.DirectionalPath.Texture;
+import gov.nasa.arc.verve.robot.scenegraph.shape.concepts.PathRing;
 
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
@@ -27,6 +28,7 @@ import com.ardor3d.renderer.state.MaterialState;
 import com.ardor3d.renderer.state.TextureState;
 import com.ardor3d.scenegraph.FloatBufferData;
 import com.ardor3d.scenegraph.Line;
+import com.ardor3d.scenegraph.event.DirtyType;
 import com.ardor3d.scenegraph.hint.LightCombineMode;
 import com.ardor3d.util.TextureManager;
 import com.ardor3d.util.geom.BufferUtils;
@@ -61,6 +63,7 @@ public class LinePath extends Line {
     final LinkedList<ReadOnlyVector3>   m_queuedVerts  = new LinkedList<ReadOnlyVector3>();
     final LinkedList<ReadOnlyColorRGBA> m_queuedColors = new LinkedList<ReadOnlyColorRGBA>();
     boolean				  m_dirty		 = false;
+    PathRing              m_ring         = null;
 
     LinePathController m_controller = new LinePathController();
 
@@ -146,6 +149,24 @@ public class LinePath extends Line {
         m_dirty = state;
     }
 
+    public PathRing getRing() {
+        return m_ring;
+    }
+
+    /**
+     * Draw the vertices of ring instead of the queued data. Vertices 
+     * appended to the ring are copied in handleUpdate. 
+     * @param ring null to go back to queueUpdateData
+     */
+    public void setRing(PathRing ring) {
+        synchronized(m_queueLock) {
+            m_ring = ring;
+            // buffers are reassigned by whichever source is used next
+            m_idxBuffer = null;
+            m_dirty = true;
+        }
+    }
+
     public boolean isUseColors() {
         return m_useColors;
     }
@@ -262,7 +283,19 @@ public class LinePath extends Line {
         if(m_tex != null) {
             m_tex.setTextureMatrix(m_texMatrix);
         }
-        if(m_dirty) {
+        final PathRing ring = m_ring;
+        if(ring != null) {
+            if(ring.updateMeshData(getMeshData())) {
+                m_numVerts = ring.getVisibleCount();
+                getMeshData().updateVertexCount();
+                if(getModelBound() instanceof BoundingBox) {
+                    ring.getBounds((BoundingBox)getModelBound());
+                    markDirty(DirtyType.Bounding);
+                }
+            }
+            m_dirty = false;
+        }
+        else if(m_dirty) {
             synchronized(m_queueLock) {
                 updateData(m_queuedVerts, m_queuedColors);
                 m_queuedVerts.clear();
@@ -4,8 +4,8 @@ import gov.nasa.arc.verve.ardor3d.scenegraph.shape.TexQuad;
 import gov.nasa.arc.verve.ardor3d.scenegraph.util.SpatialPath;
 import gov.nasa.arc.verve.robot.AbstractRobot;
 import gov.nasa.arc.verve.robot.parts.AbstractRobotPart;
+import gov.nasa.arc.verve.robot.scenegraph.shape.concepts.PathRing;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -56,8 +56,7 @@ public class RobotPartBreadCrumb extends AbstractRobotPart{
     boolean       m_addPositionMarker = false;
     boolean       m_doClear = false;
 
-    protected ArrayList<Vector3> m_pathHistory     = new ArrayList<Vector3>();
-    protected int                     m_pathHistoryMax  = 20000;
+    protected PathRing                m_pathHistory     = new PathRing(20000);
     protected boolean                 m_showPathHistory = true;
     protected LinePath         		m_pathHistoryPath = null;
     protected boolean                 m_doUpdatePathHistory = false;
@@ -117,10 +116,19 @@ public class RobotPartBreadCrumb extends AbstractRobotPart{
     }
 
     public int getPathHistorySize() {
-        return m_pathHistoryMax;
+        return m_pathHistory.getCapacity();
     }
+    /**
+     * Changing the size discards the current path history
+     */
     public void setPathHistorySize(int historySize) {
-        m_pathHistoryMax = historySize;
+        if(historySize != m_pathHistory.getCapacity()) {
+            m_pathHistory = new PathRing(historySize);
+            if(m_pathHistoryPath != null) {
+                m_pathHistoryPath.setRing(m_pathHistory);
+            }
+            m_doUpdatePathHistory = true;
+        }
     }
 
 
@@ -148,6 +156,7 @@ public class RobotPartBreadCrumb extends AbstractRobotPart{
         m_pathHistoryPath.setLineWidth(2);
         m_pathHistoryPath.setAntialiased(true);
         m_pathHistoryPath.setTranslation(0, 0, 0);
+        m_pathHistoryPath.setRing(m_pathHistory);
         BlendState bs = new BlendState();
         bs.setBlendEnabled(true);
         bs.setTestEnabled(true);
@@ -197,20 +206,12 @@ public class RobotPartBreadCrumb extends AbstractRobotPart{
     }
 
     /**
-     * @param pos will be copied and added to history
+     * @param pos will be copied and added to history. Once the history
+     * is full, the oldest sample is dropped. 
      */
     protected void addPathHistorySample(ReadOnlyVector3 pos) {
         if(pos != null) {
-            if(m_pathHistory.size() >= m_pathHistoryMax) {
-                ArrayList<Vector3> old = new ArrayList<Vector3>();
-                old.ensureCapacity(m_pathHistoryMax);
-                old.addAll(m_pathHistory.subList(m_pathHistoryMax/2, m_pathHistory.size()-1));
-                m_pathHistory = old;
-            }
-            m_pathHistory.add(new Vector3(pos.getX(), pos.getY(), pos.getZ()+0.02));
-        }
-        if(m_showPathHistory) {
-            m_pathHistoryPath.queueUpdateData(m_pathHistory);
+            m_pathHistory.append(pos.getXf(), pos.getYf(), pos.getZf()+0.02f);
         }
         m_doUpdatePathHistory = true;
     }
@@ -314,9 +315,7 @@ public class RobotPartBreadCrumb extends AbstractRobotPart{
     public void reset() {
         m_doReset.set(true);
         m_pathHistory.clear();
-        if(m_pathHistoryPath != null) {
-            m_pathHistoryPath.queueUpdateData(m_pathHistory);
-        }
+        m_doUpdatePathHistory = true;
     }
 
     @Override
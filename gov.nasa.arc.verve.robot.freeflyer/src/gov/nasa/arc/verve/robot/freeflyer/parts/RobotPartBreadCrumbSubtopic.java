@@ -62,6 +62,7 @@ public class RobotPartBreadCrumbSubtopic extends RobotPartBreadCrumb {
         m_pathHistoryPath.setLineWidth(2);
         m_pathHistoryPath.setAntialiased(true);
         m_pathHistoryPath.setTranslation(0, 0, 0);
+        m_pathHistoryPath.setRing(m_pathHistory);
         BlendState bs = new BlendState();
         bs.setBlendEnabled(true);
         bs.setTestEnabled(true);
@@ -1,69 +1,191 @@
 package gov.nasa.arc.verve.robot.freeflyer.scenery;
 
 import gov.nasa.arc.irg.plan.ui.io.ConfigFileWrangler;
+import gov.nasa.arc.verve.common.util.ModelCache;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.log4j.Logger;
+
+import com.ardor3d.extension.model.collada.jdom.ColladaImporter;
 import com.ardor3d.extension.model.collada.jdom.data.AssetData;
 import com.ardor3d.extension.model.collada.jdom.data.ColladaStorage;
 import com.ardor3d.math.Matrix3;
 import com.ardor3d.scenegraph.Node;
+import com.ardor3d.util.resource.RelativeResourceLocator;
 import com.ardor3d.util.resource.ResourceLocator;
+import com.ardor3d.util.resource.ResourceLocatorTool;
 import com.ardor3d.util.resource.ResourceSource;
 import com.ardor3d.util.resource.URLResourceSource;
 
 /**
  * Loads .dae files from the list input into the constructor (comes from LocationGenerator)
- * and attaches them to model (a Node).
- * 
+ * and attaches them to model (a Node). The files are loaded in parallel, and are taken
+ * from the ModelCache if they have been loaded before.
+ *
  * @author ddwheele
  *
  */
 public class CompositeIssModel extends Node {
+	private static final Logger logger = Logger.getLogger(CompositeIssModel.class);
+	/** identifies the importer and the options that change its output in the ModelCache */
+	protected static final String IMPORTER_VERSION = ModelCache.versionOf(ColladaImporter.class) + ";optimizeMeshes=true";
+
 	protected Node model = null;
 	protected String basePath = ConfigFileWrangler.getInstance().getIssModelsPath();
+	/** milliseconds taken to load each module */
+	protected final Map<String, Long> loadTimes = new ConcurrentHashMap<String, Long>();
+	protected final AtomicInteger cacheHits = new AtomicInteger();
+	protected long totalLoadTime = 0;
 
 	public Node getModel() {
 		return model;
 	}
 
 	public CompositeIssModel(HashMap<String, double[]> modelsToLoad) {
+		final long start = System.currentTimeMillis();
+		model = new Node("ISS_Model");
+
+		final int numThreads = Math.max(1, Math.min(modelsToLoad.size(), Runtime.getRuntime().availableProcessors()));
+		final ExecutorService pool = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+			final AtomicInteger count = new AtomicInteger();
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "IssModelLoader-" + count.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
 		try {
-			model = new Node("ISS_Model");
-
-			com.ardor3d.extension.model.collada.jdom.ColladaImporter colladaImporter;
-			colladaImporter             = getImporter(null);
-			
-			for(String filename : modelsToLoad.keySet()) {
-				URL modelUrl = new File(basePath+ "/" + filename).toURI().toURL();
-				
-				ResourceSource fileResource = new URLResourceSource(modelUrl);
-				ColladaStorage storage = colladaImporter.load(fileResource);
-				
-				Node thisNode = processStorage(storage);
-				double[] offset = modelsToLoad.get(filename);
-				thisNode.setTranslation(offset[0], offset[1], offset[2]);
-				Matrix3 rot = new Matrix3();
-				rot.fromAngles(offset[3] * Math.PI/180.0, offset[4] * Math.PI/180.0, offset[5] * Math.PI/180.0);
-				thisNode.setRotation(rot);
-				
-				model.attachChild(thisNode);
+			Map<String, Future<Node>> loads = new LinkedHashMap<String, Future<Node>>();
+			for(final String filename : modelsToLoad.keySet()) {
+				loads.put(filename, pool.submit(new Callable<Node>() {
+					public Node call() throws Exception {
+						return loadModule(filename);
+					}
+				}));
+			}
+
+			// attach on this thread, in the order the modules were requested
+			for(Map.Entry<String, Future<Node>> load : loads.entrySet()) {
+				String filename = load.getKey();
+				try {
+					Node thisNode = load.getValue().get();
+					double[] offset = modelsToLoad.get(filename);
+					thisNode.setTranslation(offset[0], offset[1], offset[2]);
+					Matrix3 rot = new Matrix3();
+					rot.fromAngles(offset[3] * Math.PI/180.0, offset[4] * Math.PI/180.0, offset[5] * Math.PI/180.0);
+					thisNode.setRotation(rot);
+
+					model.attachChild(thisNode);
+				} catch (ExecutionException e) {
+					logger.error("Failed to load COLLADA file " + filename, e.getCause());
+				}
 			}
-		} catch (Throwable t) {
-			IOException e =  new IOException("Failed to load COLLADA file");
-			e.initCause(t);
-			e.printStackTrace();
-		}		
+		} catch (InterruptedException e) {
+			logger.warn("Interrupted while loading the ISS model");
+			Thread.currentThread().interrupt();
+		} finally {
+			pool.shutdownNow();
+		}
+		totalLoadTime = System.currentTimeMillis() - start;
+		logger.info(String.format("Loaded %d ISS modules in %d ms on %d threads, %d from the model cache",
+				model.getNumberOfChildren(), totalLoadTime, numThreads, cacheHits.get()));
+	}
+
+	/**
+	 * Load one module from the ModelCache, or import it and add it to the cache.
+	 * Called from the loader threads.
+	 */
+	protected Node loadModule(String filename) throws IOException {
+		final long start = System.currentTimeMillis();
+		URL modelUrl = new File(basePath+ "/" + filename).toURI().toURL();
+		ModelCache cache = ModelCache.instance();
+
+		String key = null;
+		try {
+			key = cache.getKey(modelUrl, IMPORTER_VERSION);
+		} catch (IOException e) {
+			logger.warn("Could not hash " + filename + ": " + e.getMessage());
+		}
+		Node thisNode = (key == null) ? null : cache.load(key);
+		final boolean cached = thisNode != null;
+		if(thisNode == null) {
+			ResourceSource fileResource = new URLResourceSource(modelUrl);
+			ColladaImporter colladaImporter = getImporter(null);
+			// the importer would otherwise register a relative locator with the
+			// ResourceLocatorTool, where the loader threads would see each other's
+			colladaImporter.setTextureLocator(getTextureLocator(fileResource));
+			thisNode = processStorage(colladaImporter.load(fileResource));
+			if(key != null) {
+				cache.save(key, thisNode);
+			}
+		}
+
+		final long elapsed = System.currentTimeMillis() - start;
+		loadTimes.put(filename, elapsed);
+		if(cached) {
+			cacheHits.incrementAndGet();
+		}
+		logger.debug(filename + " " + (cached ? "loaded from cache" : "imported") + " in " + elapsed + " ms");
+		return thisNode;
+	}
+
+	/**
+	 * look for textures next to the model first, then wherever the
+	 * ResourceLocatorTool would look
+	 */
+	private ResourceLocator getTextureLocator(ResourceSource modelResource) {
+		final RelativeResourceLocator relative = new RelativeResourceLocator(modelResource);
+		return new ResourceLocator() {
+			public ResourceSource locateResource(String resourceName) {
+				ResourceSource source = relative.locateResource(resourceName);
+				if(source == null) {
+					source = ResourceLocatorTool.locateResource(ResourceLocatorTool.TYPE_TEXTURE, resourceName);
+				}
+				return source;
+			}
+		};
+	}
+
+	/**
+	 * @return milliseconds taken to load each module, by file name
+	 */
+	public Map<String, Long> getLoadTimes() {
+		return Collections.unmodifiableMap(loadTimes);
+	}
+
+	/**
+	 * @return number of modules that were loaded from the ModelCache
+	 */
+	public int getCacheHits() {
+		return cacheHits.get();
+	}
+
+	/**
+	 * @return milliseconds taken to load all modules
+	 */
+	public long getTotalLoadTime() {
+		return totalLoadTime;
 	}
 
 	// copied from FreeFlyerAvatarBuilder
-	private com.ardor3d.extension.model.collada.jdom.ColladaImporter getImporter(Map<String,Object> params) {
-		com.ardor3d.extension.model.collada.jdom.ColladaImporter colladaImporter;
-		colladaImporter = new com.ardor3d.extension.model.collada.jdom.ColladaImporter();
+	private ColladaImporter getImporter(Map<String,Object> params) {
+		ColladaImporter colladaImporter;
+		colladaImporter = new ColladaImporter();
 		ResourceLocator textureLocator = null;
 		ResourceLocator modelLocator = null;
 		if(params != null) {
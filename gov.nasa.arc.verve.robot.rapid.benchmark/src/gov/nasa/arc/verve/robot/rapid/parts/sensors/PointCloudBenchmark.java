@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.arc.verve.robot.rapid.parts.sensors;
+
+import gov.nasa.arc.verve.robot.scenegraph.shape.sensors.PointCloud;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import rapid.PointCloudSample;
+import rapid.PointSample;
+
+import com.ardor3d.bounding.BoundingBox;
+import com.ardor3d.math.ColorRGBA;
+import com.ardor3d.scenegraph.event.DirtyType;
+
+/**
+ * Render thread time per received point cloud versus points per cloud.
+ * renderThreadInline is the conversion RapidRobotPartPointCloud used to do
+ * in handleFrameUpdate (boxing the sequence with toArray, filling the
+ * vertex and color buffers and computing the bounds); renderThreadSwap is
+ * what handleFrameUpdate does now. workerConvert is the conversion that
+ * has moved to the VerveTask background pool.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PointCloudBenchmark {
+    /** POINTCLOUD_SAMPLE_MAX_POINTS is 16384 */
+    @Param({"1000", "4000", "8000", "16384"})
+    public int points;
+
+    @Param({"false", "true"})
+    public boolean intensity;
+
+    protected PointCloudSample m_sample;
+    protected PointCloudFrame  m_frame;
+    protected PointCloud       m_cloud;
+    protected final float[]    m_scale  = new float[] { 0.01f, 0.01f, 0.01f };
+    protected final float[]    m_origin = new float[] { 1, 2, 3 };
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        m_sample = new PointCloudSample();
+        for(int i = 0; i < 3; i++) {
+            m_sample.xyzScale.userData[i] = m_scale[i];
+            m_sample.origin.userData[i]   = m_origin[i];
+        }
+        for(int i = 0; i < points; i++) {
+            PointSample ps = new PointSample();
+            for(int j = 0; j < 3; j++) {
+                ps.xyz[j] = (short)random.nextInt();
+            }
+            random.nextBytes(ps.attributes);
+            m_sample.points.userData.add(ps);
+        }
+        m_frame = new PointCloudFrame();
+        System.arraycopy(m_scale,  0, m_frame.scale,  0, 3);
+        System.arraycopy(m_origin, 0, m_frame.origin, 0, 3);
+        m_frame.fill(m_sample, false, intensity ? 0 : -1, ColorRGBA.WHITE);
+
+        m_cloud = new PointCloud("benchmark");
+        m_cloud.setUseVertexColors(intensity);
+        m_cloud.ensureSize(points);
+    }
+
+    @Benchmark
+    public PointCloud renderThreadSwap() {
+        m_cloud.swapBuffers(m_frame);
+        m_frame.getBounds(m_cloud.getBoundingBox());
+        m_cloud.markDirty(DirtyType.Bounding);
+        // hand the same buffers back for the next invocation
+        m_frame.size = points;
+        return m_cloud;
+    }
+
+    @Benchmark
+    public PointCloudFrame workerConvert() {
+        m_frame.fill(m_sample, false, intensity ? 0 : -1, ColorRGBA.WHITE);
+        return m_frame;
+    }
+
+    /**
+     * the handleFrameUpdate conversion before it was moved off the render thread
+     */
+    @Benchmark
+    public PointCloud renderThreadInline() {
+        final PointCloud pointCloud = m_cloud;
+        final Object[] samples = m_sample.points.userData.toArray();
+        final float[] scale  = new float[] { (float)m_sample.xyzScale.userData[0], (float)m_sample.xyzScale.userData[1], (float)m_sample.xyzScale.userData[2] };
+        final float[] origin = new float[] { (float)m_sample.origin.userData[0], (float)m_sample.origin.userData[1], (float)m_sample.origin.userData[2] };
+        float[] min = new float[] {  Float.MAX_VALUE,  Float.MAX_VALUE,  Float.MAX_VALUE };
+        float[] max = new float[] { -Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE };
+        final int bbStep = 1 + samples.length / PointCloudFrame.BBSS;
+        int bbSamples = 0;
+        pointCloud.setUseVertexColors(intensity);
+        pointCloud.ensureSize(samples.length);
+        FloatBuffer verts = pointCloud.getMeshData().getVertexBuffer();
+        verts.rewind();
+        float val;
+        float[] xyz = new float[3];
+        PointSample ps;
+        for(int i = 0; i < samples.length; i++) {
+            ps = (PointSample)samples[i];
+            xyz[0] = ps.xyz[0]*scale[0] + origin[0];
+            xyz[1] = ps.xyz[1]*scale[1] + origin[1];
+            xyz[2] = ps.xyz[2]*scale[2] + origin[2];
+            verts.put(xyz[0]).put(xyz[1]).put(xyz[2]);
+            if(i%bbStep == 0) {
+                boolean valid = true;
+                for(int j = 0; j < 3; j++) {
+                    val = xyz[j];
+                    if(val == val) {
+                        if(val < min[j]) min[j] = val;
+                        if(val > max[j]) max[j] = val;
+                    }
+                    else {
+                        valid = false;
+                    }
+                }
+                if(valid) {
+                    bbSamples++;
+                }
+            }
+        }
+        if(intensity) {
+            FloatBuffer colors = pointCloud.getMeshData().getColorBuffer();
+            colors.rewind();
+            final float div = 1f/255f;
+            for(int i = 0; i < samples.length; i++) {
+                ps = (PointSample)samples[i];
+                float pi = (ps.attributes[0]&0xFF)*div;
+                colors.put(pi).put(pi).put(pi).put(1);
+            }
+        }
+        BoundingBox bb = pointCloud.getBoundingBox();
+        if(bbSamples > 2) {
+            float bbe[] = new float[] {(max[0]-min[0])/2f, (max[1]-min[1])/2f, (max[2]-min[2])/2f };
+            bb.setCenter(min[0]+bbe[0], min[1]+bbe[1], min[2]+bbe[2]);
+            bb.setXExtent(bbe[0]);
+            bb.setYExtent(bbe[1]);
+            bb.setZExtent(bbe[2]);
+        }
+        pointCloud.markDirty(DirtyType.Bounding);
+        return pointCloud;
+    }
+}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.arc.verve.robot.rapid.parts.sensors;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the Verve robot part benchmarks with the GC profiler enabled and 
+ * writes the results to robot-benchmarks.json for comparison between 
+ * builds. JMH comes from the org.openjdk.jmh plug-in (see docs/SETUP.md) 
+ * and the project's factory path runs jmh-generator-annprocess; run it as 
+ * a Java Application so the forked JVM gets the classpath. An optional 
+ * first argument is a regular expression selecting benchmarks.
+ */
+public class RobotBenchmarks {
+    public static void main(String[] args) throws RunnerException {
+        final String include = args.length > 0 ? args[0] : "gov.nasa.arc.verve.robot.rapid.*Benchmark";
+        Options opts = new OptionsBuilder()
+        .include(include)
+        .addProfiler(GCProfiler.class)
+        .forks(1)
+        .warmupIterations(5)
+        .measurementIterations(5)
+        .resultFormat(ResultFormatType.JSON)
+        .result("robot-benchmarks.json")
+        .build();
+        new Runner(opts).run();
+    }
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the 
+ * Administrator of the National Aeronautics and Space Administration. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.arc.verve.robot.rapid.scenegraph.maps;
+
+import gov.nasa.rapid.v2.e4.message.holders.NavMapHolder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import rapid.ext.NAVMAP_CERTAINTY;
+import rapid.ext.NAVMAP_HEIGHT;
+import rapid.ext.NAVMAP_NORMALS;
+import rapid.ext.NavMapConfig;
+import rapid.ext.NavMapSample;
+import rapid.ext.OctetMapLayer;
+import rapid.ext.ShortMapLayer;
+
+/**
+ * Render thread time per received nav map tile versus tile size, with and
+ * without a normals layer. renderThreadInline is what handleFrameUpdate 
+ * and the next draw used to do for every tile (heights, edge cleanup, 
+ * normals and vertex buffers); renderThreadSwap is what they do now. 
+ * workerBuild is the work that has moved to the VerveTask background pool,
+ * and workerBuildUnpooled is the same without the HeightMapDataPool, for 
+ * comparing allocation rates with the GC profiler. Run it with 
+ * RobotBenchmarks and the argument ".*NavMapTileBenchmark". 
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NavMapTileBenchmark {
+    /** cells per side */
+    @Param({"64", "128", "256"})
+    public int cells;
+
+    @Param({"false", "true"})
+    public boolean normals;
+
+    protected final float           m_zSign = -1;
+    protected NavMapHolder          m_holder;
+    protected RapidNavMapTileBuilder m_builder;
+    protected HeightMapDataPool     m_pool;
+    protected HeightMapData         m_spare;
+    protected TestMesh              m_inlineMesh;
+    protected TestMesh              m_swapMesh;
+
+    /** exposes updateMeshData, which is otherwise called from draw */
+    static class TestMesh extends RapidNavMapGeometryMesh {
+        public void update() {
+            updateMeshData();
+        }
+    }
+
+    @Setup
+    public void setup() {
+        m_holder  = new NavMapHolder(createSample(), createConfig());
+        m_builder = new RapidNavMapTileBuilder();
+        m_pool    = new HeightMapDataPool(4);
+
+        m_inlineMesh = new TestMesh();
+        m_inlineMesh.updateFromTelemetry(m_holder, null, null, 0, m_zSign);
+        m_inlineMesh.update();
+
+        // two filled tiles that are swapped in turn
+        m_swapMesh = new TestMesh();
+        m_swapMesh.swapHeightMapData(build(new HeightMapData()));
+        m_swapMesh.update();
+        m_spare = build(new HeightMapData());
+    }
+
+    /** what the converter does with each sample */
+    protected HeightMapData build(HeightMapData data) {
+        m_builder.fill(m_holder, data, m_zSign, false);
+        data.fillBuffers();
+        return data;
+    }
+
+    protected NavMapConfig createConfig() {
+        NavMapConfig config = new NavMapConfig();
+        config.numCells[0] = (short)cells;
+        config.numCells[1] = (short)cells;
+        config.cellSize[0] = 0.05f;
+        config.cellSize[1] = 0.05f;
+        config.offset[0]   = -0.5f*cells*config.cellSize[0];
+        config.offset[1]   = -0.5f*cells*config.cellSize[1];
+        config.shortLayerNames.userData.add(NAVMAP_HEIGHT.VALUE);
+        config.octetLayerNames.userData.add(NAVMAP_CERTAINTY.VALUE);
+        if(normals) {
+            config.octetLayerNames.userData.add(NAVMAP_NORMALS.VALUE);
+        }
+        return config;
+    }
+
+    /**
+     * rolling terrain with about one in ten cells uncertain, so that
+     * cleanupHeightEdges has work to do
+     */
+    protected NavMapSample createSample() {
+        final Random random = new Random(42);
+        final int total = cells*cells;
+        final short[] heights   = new short[total];
+        final byte[]  certainty = new byte[total];
+        final byte[]  normal    = new byte[2*total];
+        for(int y = 0; y < cells; y++) {
+            for(int x = 0; x < cells; x++) {
+                final int i = y*cells + x;
+                heights[i]   = (short)(1000*Math.sin(x*0.1)*Math.cos(y*0.07));
+                certainty[i] = (byte)(random.nextInt(10) == 0 ? 0 : 100);
+                normal[2*i]   = (byte)(random.nextInt(64)-32);
+                normal[2*i+1] = (byte)(random.nextInt(64)-32);
+            }
+        }
+        NavMapSample sample = new NavMapSample();
+        ShortMapLayer height = new ShortMapLayer();
+        height.density = 1;
+        height.scale   = 0.001f;
+        height.data.userData.addAllShort(heights);
+        sample.shortLayers.userData.add(height);
+
+        OctetMapLayer certain = new OctetMapLayer();
+        certain.density = 1;
+        certain.scale   = 0.01f;
+        certain.data.userData.addAllByte(certainty);
+        sample.octetLayers.userData.add(certain);
+        if(normals) {
+            OctetMapLayer norm = new OctetMapLayer();
+            norm.density = 1;
+            norm.scale   = 1/128f;
+            norm.data.userData.addAllByte(normal);
+            sample.octetLayers.userData.add(norm);
+        }
+        return sample;
+    }
+
+    /**
+     * the tile update before it was moved off the render thread
+     */
+    @Benchmark
+    public TestMesh renderThreadInline() {
+        m_inlineMesh.updateFromTelemetry(m_holder, null, null, 0, m_zSign);
+        m_inlineMesh.update();
+        return m_inlineMesh;
+    }
+
+    @Benchmark
+    public TestMesh renderThreadSwap() {
+        m_spare = m_swapMesh.swapHeightMapData(m_spare);
+        m_swapMesh.update();
+        // m_spare now holds buffers of the right size; pretend they have 
+        // been filled again for the next invocation
+        m_spare.buffersValid = true;
+        return m_swapMesh;
+    }
+
+    @Benchmark
+    public HeightMapData workerBuild() {
+        final NavMapConfig config = m_holder.config;
+        HeightMapData data = build(m_pool.obtain(config.numCells[0], config.numCells[1]));
+        // the render thread hands the data of the replaced tile back
+        m_pool.release(data);
+        return data;
+    }
+
+    @Benchmark
+    public HeightMapData workerBuildUnpooled() {
+        return build(new HeightMapData());
+    }
+}
@@ -23,6 +23,7 @@ import gov.nasa.arc.verve.robot.rapid.PositionSampleSourceRot;
 import gov.nasa.arc.verve.robot.rapid.RapidRobot;
 import gov.nasa.arc.verve.robot.rapid.parts.RapidRobotPart;
 import gov.nasa.arc.verve.robot.scenegraph.shape.concepts.DirectionalPath;
+import gov.nasa.arc.verve.robot.scenegraph.shape.concepts.PathRing;
 import gov.nasa.ensemble.ui.databinding.widgets.customization.annotations.Trigger;
 import gov.nasa.rapid.v2.e4.agent.Agent;
 import gov.nasa.rapid.v2.e4.message.MessageType;
@@ -66,6 +67,8 @@ public class RapidRobotPartMultiPoseHistory extends RapidRobotPart {
     protected boolean m_constantSync = false;
     protected float  m_zSeparation   =     0;
     protected float  m_zOff          =     0;
+    /** set when the path vertices must be recalculated from the histories */
+    protected volatile boolean m_recalculatePaths = false;
 
     protected static boolean debug = false;
     
@@ -98,6 +101,7 @@ public class RapidRobotPartMultiPoseHistory extends RapidRobotPart {
         public final Transform               invertXfm = new Transform();
         public       Transform               masterXfm = new Transform();
         public final DirectionalPath         path;
+        public final PathRing                ring;
         public final LinkedList<Transform>   history = new LinkedList<Transform>();
        
         public PositionSource(MessageType msgType, Agent agent) {
@@ -118,6 +122,8 @@ public class RapidRobotPartMultiPoseHistory extends RapidRobotPart {
                 }
             };
             path = new DirectionalPath(msgType.name());
+            ring = new PathRing(m_histSize);
+            path.setRing(ring);
         }
     }
 
@@ -200,6 +206,7 @@ public class RapidRobotPartMultiPoseHistory extends RapidRobotPart {
 
     public void setZOffset(float val) {
         m_zOff = val;
+        m_recalculatePaths = true;
     }
 
     public float getZSeparation() {
@@ -208,6 +215,7 @@ public class RapidRobotPartMultiPoseHistory extends RapidRobotPart {
 
     public void setZSeparation(float val) {
         m_zSeparation = val;
+        m_recalculatePaths = true;
     }
 
     @Override
@@ -257,10 +265,16 @@ public class RapidRobotPartMultiPoseHistory extends RapidRobotPart {
             m_lastTime = currentTime;
             Matrix3 rot   = new Matrix3();
             Vector3 xyz   = new Vector3();
+            Transform toOrigin = new Transform();
+            Transform toMaster = new Transform();
+            // the sync transforms change every time in constant sync mode,
+            // otherwise only the new vertex needs to be added to each path
+            final boolean recalculate = m_constantSync || m_recalculatePaths;
             if(m_constantSync) {
                 synchronizePoses();
             }
-            for(PositionSource ps : m_posSrcs) {
+            for(int i = 0; i < m_posSrcs.size(); i++) {
+                PositionSource ps = m_posSrcs.get(i);
                 ps.source.getXyz(xyz);
                 final double dist = xyz.distance(ps.lastXfm.getTranslation());
                 if(dist > m_spaceInterval) {
@@ -278,39 +292,50 @@ public class RapidRobotPartMultiPoseHistory extends RapidRobotPart {
                         ps.history.removeFirst();
                     }
                     ps.lastXfm.set(ps.thisXfm);
+                    if(!recalculate) {
+                        addPathVertex(i, ps, ps.history.getLast(), toOrigin, toMaster);
+                    }
                 }
             }
-            calculatePaths();
+            if(recalculate) {
+                calculatePaths();
+            }
         }
         for(PositionSource ps : m_posSrcs) {
             ps.path.handleUpdate(currentTime);
         }
     }
 
+    /**
+     * recalculate all path vertices from the histories, e.g. after the
+     * sync transforms have changed
+     */
     void calculatePaths() {
+        m_recalculatePaths = false;
         Transform toOrigin = new Transform();
         Transform toMaster = new Transform();
         for(int i = 0; i < m_posSrcs.size(); i++) {
-            final float zAdd = m_zOff + i*m_zSeparation;
             PositionSource ps = m_posSrcs.get(i);
-            final LinkedList<ReadOnlyVector3> verts = ps.path.getQueuedData();
-            verts.clear();
+            ps.ring.clear();
             for(Transform t : ps.history) {
-                ps.invertXfm.multiply(t, toOrigin);
-                ps.masterXfm.multiply(toOrigin, toMaster);
-                final ReadOnlyVector3 v = toMaster.getTranslation();
-                verts.add(new Vector3(v.getX(), v.getY(), v.getZ()+zAdd));
+                addPathVertex(i, ps, t, toOrigin, toMaster);
             }
-            ps.path.setDirty(true);
         }
     }
 
+    void addPathVertex(int index, PositionSource ps, Transform t, Transform toOrigin, Transform toMaster) {
+        final float zAdd = m_zOff + index*m_zSeparation;
+        ps.invertXfm.multiply(t, toOrigin);
+        ps.masterXfm.multiply(toOrigin, toMaster);
+        final ReadOnlyVector3 v = toMaster.getTranslation();
+        ps.ring.append(v.getXf(), v.getYf(), v.getZf()+zAdd);
+    }
+
     @Override
     public void reset() {
         for(PositionSource ps : m_posSrcs) {
             ps.history.clear();
-            ps.path.getQueuedData().clear();
-            ps.path.setDirty(true);
+            ps.ring.clear();
         }
     }
 
@@ -17,14 +17,18 @@
  ******************************************************************************/
 package gov.nasa.arc.verve.robot.rapid.parts.maps;
 
+import gov.nasa.arc.verve.common.VerveTask;
 import gov.nasa.arc.verve.common.ardor3d.text.BMFont;
 import gov.nasa.arc.verve.common.ardor3d.text.BMFontManager;
 import gov.nasa.arc.verve.common.ardor3d.text.BMText;
 import gov.nasa.arc.verve.robot.exception.TelemetryException;
 import gov.nasa.arc.verve.robot.rapid.RapidRobot;
 import gov.nasa.arc.verve.robot.rapid.parts.RapidRobotPart;
+import gov.nasa.arc.verve.robot.rapid.scenegraph.maps.HeightMapData;
+import gov.nasa.arc.verve.robot.rapid.scenegraph.maps.HeightMapDataPool;
 import gov.nasa.arc.verve.robot.rapid.scenegraph.maps.NavMapNode;
 import gov.nasa.arc.verve.robot.rapid.scenegraph.maps.RapidNavMapNode;
+import gov.nasa.arc.verve.robot.rapid.scenegraph.maps.RapidNavMapTileBuilder;
 import gov.nasa.arc.verve.robot.rapid.scenegraph.maps.shader.INavMapShaderLogic;
 import gov.nasa.arc.verve.utils.rapid.RapidVerve;
 import gov.nasa.ensemble.ui.databinding.widgets.customization.annotations.Complex;
@@ -40,6 +44,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.log4j.Logger;
 
@@ -60,7 +66,12 @@ import com.ardor3d.scenegraph.Node;
 import com.ardor3d.scenegraph.hint.PickingHint;
 
 /**
- * 
+ * Tiles are built from the received samples on the VerveTask background 
+ * pool: heights, normals and vertex buffers are filled into HeightMapData 
+ * taken from a pool keyed by tile size. The render thread only swaps the 
+ * finished data into the tile meshes and hands the replaced data back to 
+ * the pool. Tiles evicted from the LRU cache keep their mesh buffers and 
+ * are reused for the next new tile. 
  * @author mallan
  *
  */
@@ -93,6 +104,14 @@ public abstract class AbstractRapidRobotPartTiledShaderMap extends RapidRobotPar
 
     protected Object                              m_mapLock = new Object();
 
+    /** built tiles waiting for the render thread, oldest first. guarded by m_mapLock */
+    protected final ArrayDeque<TileUpdate>        m_readyTiles   = new ArrayDeque<TileUpdate>();
+    protected final HeightMapDataPool             m_tileDataPool = new HeightMapDataPool(4);
+    /** only used by the converter */
+    protected final RapidNavMapTileBuilder        m_tileBuilder  = new RapidNavMapTileBuilder();
+    /** guarded by m_mapLock */
+    protected boolean                             m_converting   = false;
+
     protected ArrayList<NavMapNode> m_tempTileList = new ArrayList<NavMapNode>();
 
     public final MessageType      SAMPLE_TYPE;
@@ -272,6 +291,8 @@ public abstract class AbstractRapidRobotPartTiledShaderMap extends RapidRobotPar
                         //logger.debug("removing tile "+key.toString()+", current cache size is "+this.size()+", maxTiles is "+maxTiles);
                         m_tileNode.detachChild(value);
                         m_tileLabels.get(key).tileRemoved();
+                        // the tile keeps its mesh buffers, which are refilled 
+                        // when getNavMapNode recycles it
                         m_tilePool.add(value);
                     }
                     return true;
@@ -350,12 +371,17 @@ public abstract class AbstractRapidRobotPartTiledShaderMap extends RapidRobotPar
                         //int tidy = navMapData.navMapSample.tileId[1];
                         //logger.debug("received tile id "+tidx+"_"+tidy);
                     }
+                    if(isWorkerConversion()) {
+                        startConverter();
+                    }
                 }
             }
             catch(Throwable t) {
                 t.printStackTrace();
             }
-            setDirty(true);
+            if(!isWorkerConversion()) {
+                setDirty(true);
+            }
         }
         else if(type == CONFIG_TYPE) {
             NavMapConfig mapConfig = (NavMapConfig)eventObj;
@@ -441,6 +467,34 @@ public abstract class AbstractRapidRobotPartTiledShaderMap extends RapidRobotPar
         return retVal;
     }
 
+    /**
+     * Get the tile for the sample and move it and its debug label to 
+     * the location of the sample. Caller must hold m_mapLock. 
+     */
+    protected NavMapNode prepareTile(NavMapSample sample) {
+        TileKey key = new TileKey(sample.tileId[0],sample.tileId[1]);
+
+        //-- tile debug labels
+        TileIdCounter counter = m_tileLabels.get(key);
+        if(counter == null) { // add before calling getNavMapHeightField
+            counter = new TileIdCounter(key, m_labelNode);
+            m_tileLabels.put(key, counter);
+        }
+        counter.updatedTile();
+
+        getTranslation(sample, m_xyz);
+        getRotation(sample, m_rot);
+
+        NavMapNode navMapNode = getNavMapNode(key);
+        counter.text.setTranslation(m_xyz);
+        counter.text.setRotation(m_rot);
+        navMapNode.setTranslation(m_xyz);
+        navMapNode.setRotation(m_rot);
+
+        navMapNode.getGeometry().setClampToTerrain(m_clampToTerrain); // FIXME
+        return navMapNode;
+    }
+
     /**
      * update visualization
      */
@@ -452,43 +506,29 @@ public abstract class AbstractRapidRobotPartTiledShaderMap extends RapidRobotPar
 
         synchronized(m_mapLock) {
             if(isDirty() && m_mapConfig != null) {
-                while(m_mapSamples.size() > 0) {
-                    final NavMapHolder holder = m_mapSamples.removeFirst();
-                    final NavMapSample sample = holder.sample;
-                    final NavMapConfig config = m_mapConfig;
-                    if(sample.hdr.serial == config.hdr.serial) {
-                        TileKey key = new TileKey(sample.tileId[0],sample.tileId[1]);
-
-                        //-- tile debug labels
-                        TileIdCounter counter = m_tileLabels.get(key);
-                        if(counter == null) { // add before calling getNavMapHeightField
-                            counter = new TileIdCounter(key, m_labelNode);
-                            m_tileLabels.put(key, counter);
-                        }
-                        counter.updatedTile();
-
-                        getTranslation(sample, m_xyz);
-                        getRotation(sample, m_rot);
-
-                        try {
-                            NavMapNode navMapNode = getNavMapNode(key);
-                            counter.text.setTranslation(m_xyz);
-                            counter.text.setRotation(m_rot);
-                            navMapNode.setTranslation(m_xyz);
-                            navMapNode.setRotation(m_rot);
-
-                            navMapNode.getGeometry().setClampToTerrain(m_clampToTerrain); // FIXME
-                            navMapNode.getGeometry().updateFromTelemetry(holder, 
-                                                                         getRapidRobot().siteToWorldTransform(),
-                                                                         navMapNode.getTransform(), 
-                                                                         m_zOff,
-                                                                         m_zSign);
-                            navMapNode.updateTextures(holder);
-                            //MapDebug.writeMapAsImages(holder, 0);
-                            setDirty(false);
-                        }
-                        catch (Throwable t) {
-                            logger.error("error receiving NavMap data", t);
+                if(isWorkerConversion()) {
+                    applyReadyTiles();
+                }
+                else {
+                    while(m_mapSamples.size() > 0) {
+                        final NavMapHolder holder = m_mapSamples.removeFirst();
+                        final NavMapSample sample = holder.sample;
+                        final NavMapConfig config = m_mapConfig;
+                        if(sample.hdr.serial == config.hdr.serial) {
+                            try {
+                                NavMapNode navMapNode = prepareTile(sample);
+                                navMapNode.getGeometry().updateFromTelemetry(holder, 
+                                                                             getRapidRobot().siteToWorldTransform(),
+                                                                             navMapNode.getTransform(), 
+                                                                             m_zOff,
+                                                                             m_zSign);
+                                navMapNode.updateTextures(holder);
+                                //MapDebug.writeMapAsImages(holder, 0);
+                                setDirty(false);
+                            }
+                            catch (Throwable t) {
+                                logger.error("error receiving NavMap data", t);
+                            }
                         }
                     }
                 }
@@ -501,6 +541,116 @@ public abstract class AbstractRapidRobotPartTiledShaderMap extends RapidRobotPar
         }
     }
 
+    /**
+     * Swap the tiles built by the converter into the tile meshes. Caller 
+     * must hold m_mapLock. 
+     */
+    protected void applyReadyTiles() {
+        TileUpdate update;
+        while((update = m_readyTiles.pollFirst()) != null) {
+            HeightMapData data = update.data;
+            if(update.holder.sample.hdr.serial == m_mapConfig.hdr.serial) {
+                try {
+                    NavMapNode navMapNode = prepareTile(update.holder.sample);
+                    if(update.needsBaseMap) {
+                        data.setZCoordsFromBaseMap(getRapidRobot().siteToWorldTransform(),
+                                                   navMapNode.getTransform(), 
+                                                   m_zOff,
+                                                   m_zSign);
+                    }
+                    data = navMapNode.getGeometry().swapHeightMapData(data);
+                    navMapNode.updateTextures(update.holder);
+                }
+                catch (Throwable t) {
+                    logger.error("error receiving NavMap data", t);
+                }
+            }
+            m_tileDataPool.release(data);
+        }
+        setDirty(false);
+    }
+
+    /**
+     * @return true if tiles are built on the VerveTask background pool. 
+     * Subclasses that build tiles in their own handleFrameUpdate must 
+     * return false. 
+     */
+    protected boolean isWorkerConversion() {
+        return true;
+    }
+
+    /**
+     * start a converter if one is not already running
+     */
+    protected void startConverter() {
+        synchronized(m_mapLock) {
+            if(m_converting || m_mapSamples.isEmpty()) {
+                return;
+            }
+            m_converting = true;
+        }
+        try {
+            VerveTask.backgroundExec(m_converter);
+        }
+        catch(RejectedExecutionException e) {
+            logger.warn("Could not start NavMap conversion for "+getPartName()+": "+e.getMessage());
+            synchronized(m_mapLock) {
+                m_converting = false;
+            }
+        }
+    }
+
+    /**
+     * builds tiles from the received samples until there are none left
+     */
+    private final Callable<Void> m_converter = new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+            while(true) {
+                final NavMapHolder holder;
+                synchronized(m_mapLock) {
+                    holder = m_mapSamples.pollFirst();
+                    if(holder == null) {
+                        m_converting = false;
+                        return null;
+                    }
+                }
+                final TileUpdate update = convert(holder);
+                if(update != null) {
+                    synchronized(m_mapLock) {
+                        m_readyTiles.addLast(update);
+                        // don't allow too many tiles to back up if the visualization is turned off
+                        while(m_readyTiles.size() > m_maxTiles) {
+                            m_tileDataPool.release(m_readyTiles.removeFirst().data);
+                        }
+                    }
+                    setDirty(true);
+                }
+            }
+        }
+    };
+
+    /**
+     * Build a tile from holder. Called on a worker thread. 
+     * @return null if the sample cannot be shown
+     */
+    protected TileUpdate convert(NavMapHolder holder) {
+        final NavMapConfig config = holder.config;
+        final HeightMapData data = m_tileDataPool.obtain(config.numCells[0], config.numCells[1]);
+        try {
+            final boolean haveHeights = m_tileBuilder.fill(holder, data, m_zSign, m_clampToTerrain);
+            if(haveHeights) {
+                data.fillBuffers();
+            }
+            return new TileUpdate(holder, data, !haveHeights);
+        }
+        catch(Throwable t) {
+            logger.error("error building NavMap tile", t);
+            m_tileDataPool.release(data);
+            return null;
+        }
+    }
+
     protected void updateTextureStates() {
         synchronized(m_mapLock) {
             if(m_tileNode != null) {
@@ -531,6 +681,31 @@ public abstract class AbstractRapidRobotPartTiledShaderMap extends RapidRobotPar
             m_labelNode.detachAllChildren();
             m_tileLabels.clear();
             m_mapTiles.clear();
+            // the next config may have a different tile size
+            m_readyTiles.clear();
+            m_tileDataPool.clear();
+        }
+    }
+
+    /** @return free HeightMapData that tiles are built into */
+    public HeightMapDataPool getTileDataPool() {
+        return m_tileDataPool;
+    }
+
+    /**
+     * a tile built by the converter
+     */
+    //==========================================================
+    protected static class TileUpdate {
+        public final NavMapHolder  holder;
+        public final HeightMapData data;
+        /** heights have to be taken from the base map on the render thread */
+        public final boolean       needsBaseMap;
+
+        public TileUpdate(NavMapHolder holder, HeightMapData data, boolean needsBaseMap) {
+            this.holder       = holder;
+            this.data         = data;
+            this.needsBaseMap = needsBaseMap;
         }
     }
 
@@ -130,6 +130,15 @@ public class RapidRobotPartTiledShaderCSpaceMap extends AbstractRapidRobotPartTi
         return m_useNavMapHeightField;
     }
 
+    /**
+     * tiles may take their heights from the local map tiles, so they are
+     * built in handleFrameUpdate
+     */
+    @Override
+    protected boolean isWorkerConversion() {
+        return false;
+    }
+
     @Override
     public void handleFrameUpdate(long currentTime) {
         if(shaderLogic().needsTextureStateUpdate()) {
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.arc.verve.robot.rapid.parts.sensors;
+
+import gov.nasa.arc.verve.robot.scenegraph.shape.sensors.PointCloudBuffers;
+
+import java.nio.FloatBuffer;
+
+import rapid.PointCloudSample;
+import rapid.PointSample;
+import rapid.PointSampleSeq;
+
+import com.ardor3d.bounding.BoundingBox;
+import com.ardor3d.math.Transform;
+import com.ardor3d.math.type.ReadOnlyColorRGBA;
+
+/**
+ * A PointCloudSample converted to vertex buffers, ready to be swapped
+ * into a PointCloud on the render thread. Frames are filled on a worker
+ * thread and reused, so the buffers are only reallocated when a larger
+ * cloud arrives. The bounding box is approximate; only every n'th point
+ * is used so that at most BBSS points are examined.
+ */
+public class PointCloudFrame extends PointCloudBuffers {
+    /** bounding box sub sample */
+    static final int BBSS = 67;
+
+    /** transform of robot at the time the sample was received */
+    public final Transform xfm = new Transform();
+
+    public final float[] origin = new float[3];
+    public final float[] scale  = new float[3];
+
+    protected final float[] m_min = new float[3];
+    protected final float[] m_max = new float[3];
+    protected boolean       m_boundsValid = false;
+
+    /**
+     * Convert the points of sample. The points are read straight from the
+     * DDS sequence.
+     * @param noZ if true (i.e. xy theta mode), all z's are zero
+     * @param intensityIndex attribute that holds the intensity, or -1 for no vertex colors
+     * @param color color that intensities are applied to
+     */
+    public void fill(PointCloudSample sample, boolean noZ, int intensityIndex, ReadOnlyColorRGBA color) {
+        final PointSampleSeq points = sample.points.userData;
+        final int numPoints = points.size();
+        final boolean doIntensity = intensityIndex >= 0;
+        ensureCapacity(numPoints, doIntensity);
+
+        final float sx = scale[0], sy = scale[1], sz = scale[2];
+        final float ox = origin[0], oy = origin[1], oz = origin[2];
+        final FloatBuffer verts = vertices;
+        final int bbStep = 1 + numPoints / BBSS;
+        int bbSamples = 0;
+        float minX =  Float.MAX_VALUE, minY =  Float.MAX_VALUE, minZ =  Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE, maxZ = -Float.MAX_VALUE;
+        for(int i = 0; i < numPoints; i++) {
+            final PointSample ps = (PointSample)points.get(i);
+            final float x = ps.xyz[0]*sx + ox;
+            final float y = ps.xyz[1]*sy + oy;
+            final float z = noZ ? 0 : ps.xyz[2]*sz + oz;
+            verts.put(x).put(y).put(z);
+
+            // x != x is true for NaN
+            if(i%bbStep == 0 && !(x != x || y != y || z != z)) {
+                if(x < minX) minX = x;
+                if(x > maxX) maxX = x;
+                if(y < minY) minY = y;
+                if(y > maxY) maxY = y;
+                if(z < minZ) minZ = z;
+                if(z > maxZ) maxZ = z;
+                bbSamples++;
+            }
+        }
+        verts.flip();
+
+        if(doIntensity) {
+            final FloatBuffer clrs = colors;
+            final float div = 1f/255f;
+            final float r = color.getRed(), g = color.getGreen(), b = color.getBlue();
+            for(int i = 0; i < numPoints; i++) {
+                final PointSample ps = (PointSample)points.get(i);
+                final float pi = (ps.attributes[intensityIndex]&0xFF)*div;
+                intensities[i] = pi;
+                clrs.put(pi*r).put(pi*g).put(pi*b).put(1);
+            }
+            clrs.flip();
+        }
+        size = numPoints;
+
+        m_min[0] = minX; m_min[1] = minY; m_min[2] = minZ;
+        m_max[0] = maxX; m_max[1] = maxY; m_max[2] = maxZ;
+        m_boundsValid = bbSamples > 2;
+        if(m_boundsValid) {
+            final double vol = (double)(maxX-minX)*(maxY-minY)*(maxZ-minZ);
+            m_boundsValid = !(Double.isInfinite(vol) || Double.isNaN(vol));
+        }
+    }
+
+    /**
+     * set bb to the bounds of the points, or to a unit box around the
+     * origin if there were not enough valid points
+     */
+    public void getBounds(BoundingBox bb) {
+        if(m_boundsValid) {
+            final float ex = (m_max[0]-m_min[0])/2f;
+            final float ey = (m_max[1]-m_min[1])/2f;
+            final float ez = (m_max[2]-m_min[2])/2f;
+            bb.setCenter(m_min[0]+ex, m_min[1]+ey, m_min[2]+ez);
+            bb.setXExtent(ex);
+            bb.setYExtent(ey);
+            bb.setZExtent(ez);
+        }
+        else {
+            bb.setCenter(origin[0], origin[1], origin[2]);
+            bb.setXExtent(1);
+            bb.setYExtent(1);
+            bb.setZExtent(1);
+        }
+    }
+}
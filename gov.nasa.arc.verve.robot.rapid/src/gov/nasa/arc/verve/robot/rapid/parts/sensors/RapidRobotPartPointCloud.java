@@ -34,9 +34,9 @@ import gov.nasa.rapid.v2.e4.message.holders.PointCloudHolder;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
-import java.nio.FloatBuffer;
 import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.log4j.Logger;
 
@@ -44,9 +44,9 @@ import rapid.PointCloudConfig;
 import rapid.PointCloudSample;
 import rapid.PointSample;
 import rapid.PointSampleAttributeMode;
+import rapid.PointSampleSeq;
 import rapid.PointSampleXyzMode;
 
-import com.ardor3d.bounding.BoundingBox;
 import com.ardor3d.math.ColorRGBA;
 import com.ardor3d.math.Transform;
 import com.ardor3d.math.type.ReadOnlyColorRGBA;
@@ -57,7 +57,11 @@ import com.rti.dds.subscription.SampleLostStatus;
 import com.rti.dds.subscription.SampleRejectedStatus;
 
 /**
- * 
+ * Point clouds are converted to vertex buffers on the VerveTask background 
+ * pool as they arrive; the render thread only swaps the finished buffers 
+ * into the history clouds. Since only the newest m_historySize clouds can be 
+ * shown, at most that many samples wait for conversion and at most that many 
+ * converted clouds wait for the render thread; older ones are dropped. 
  * @author mallan
  *
  */
@@ -72,7 +76,17 @@ public class RapidRobotPartPointCloud extends RapidRobotPart implements IDdsRead
         public PointCloudHolder holder;
         public Transform xfm = new Transform();
     }
-    protected final Deque<SampleHolder> m_data = new ArrayDeque<SampleHolder>();
+    /** samples waiting to be converted, newest last */
+    protected final ArrayDeque<SampleHolder>    m_pending    = new ArrayDeque<SampleHolder>();
+    /** converted clouds waiting for the render thread, newest last */
+    protected final ArrayDeque<PointCloudFrame> m_ready      = new ArrayDeque<PointCloudFrame>();
+    protected final ArrayDeque<PointCloudFrame> m_freeFrames = new ArrayDeque<PointCloudFrame>();
+    /** guards m_pending, m_ready, m_freeFrames and m_converting */
+    protected final Object      m_queueLock   = new Object();
+    protected boolean           m_converting  = false;
+    protected long              m_dropped     = 0;
+    /** render thread only */
+    private final ArrayDeque<PointCloudFrame> m_swapping = new ArrayDeque<PointCloudFrame>();
     protected int               m_historySize       = 20;
     protected int               m_historyIndex      = 0;
     protected PointCloud[]      m_pointClouds       = new PointCloud[m_historySize];
@@ -171,8 +185,7 @@ public class RapidRobotPartPointCloud extends RapidRobotPart implements IDdsRead
             if(isVisible()) {
                 PointCloudHolder pcHolder = new PointCloudHolder(eventObj, configObj);
                 SampleHolder holder = new SampleHolder(pcHolder, getRobot().getPoseProvider().getTransform());
-                m_data.add(holder);
-                setDirty(true);
+                queueSample(holder);
 
                 if(d_ps != null) {
                     d_ps.println(pcHolder.sample.hdr.timeStamp);
@@ -309,178 +322,217 @@ public class RapidRobotPartPointCloud extends RapidRobotPart implements IDdsRead
         // empty; here to be overridden in subclasses
     }
 
+    /**
+     * add a sample to the conversion backlog and start a converter if 
+     * one is not already running
+     */
+    protected void queueSample(SampleHolder holder) {
+        synchronized(m_queueLock) {
+            m_pending.addLast(holder);
+            while(m_pending.size() > m_historySize) {
+                m_pending.removeFirst();
+                m_dropped++;
+            }
+            if(m_converting) {
+                return;
+            }
+            m_converting = true;
+        }
+        try {
+            VerveTask.backgroundExec(m_converter);
+        }
+        catch(RejectedExecutionException e) {
+            logger.warn("Could not start point cloud conversion for "+getPartName()+": "+e.getMessage());
+            synchronized(m_queueLock) {
+                m_converting = false;
+            }
+        }
+    }
+
+    /**
+     * converts pending samples until the backlog is empty
+     */
+    private final Callable<Void> m_converter = new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+            while(true) {
+                final SampleHolder holder;
+                PointCloudFrame frame;
+                synchronized(m_queueLock) {
+                    holder = m_pending.pollFirst();
+                    if(holder == null) {
+                        m_converting = false;
+                        return null;
+                    }
+                    frame = m_freeFrames.pollFirst();
+                }
+                if(frame == null) {
+                    frame = new PointCloudFrame();
+                }
+                boolean converted = false;
+                try {
+                    converted = convert(holder, frame);
+                }
+                catch(Throwable t) {
+                    logger.error("Exception during Point Cloud conversion", t);
+                }
+                synchronized(m_queueLock) {
+                    if(converted) {
+                        m_ready.addLast(frame);
+                        while(m_ready.size() > m_historySize) {
+                            recycle(m_ready.removeFirst());
+                            m_dropped++;
+                        }
+                    }
+                    else {
+                        recycle(frame);
+                    }
+                }
+                if(converted) {
+                    setDirty(true);
+                }
+            }
+        }
+    };
+
+    /** caller must hold m_queueLock */
+    private void recycle(PointCloudFrame frame) {
+        if(m_freeFrames.size() < m_historySize) {
+            m_freeFrames.addLast(frame);
+        }
+    }
+
     int d_noConfig = 0;
     int d_write = 0;
-    static final int BBSS = 67; // bounding box sub sample
     /**
-     * Update point cloud history if we have new telemetry. The point 
-     * cloud bounding boxes are approximate (only a subset of the points are used)
+     * Convert a sample into frame. Called on a worker thread. 
+     * @return false if the sample cannot be shown
+     */
+    protected boolean convert(SampleHolder holder, PointCloudFrame frame) {
+        PointCloudHolder dataHolder = holder.holder;
+        PointCloudSample sample = dataHolder.sample;
+        PointCloudConfig config = dataHolder.config;
+        if(config == null) {
+            if(++d_noConfig%10 == 1) {
+                logger.debug("received "+d_noConfig+" "+SAMPLE_TYPE.name()+"s with no config");
+            }
+            return false;
+        }
+        final PointSampleSeq samples = sample.points.userData;
+
+        if(samples.size() < 2) { // short circuit if bad point cloud
+            logger.debug("received point cloud with only "+samples.size()+" points");
+            return false;
+        }
+        if(!(config.xyzMode == PointSampleXyzMode.PS_XYZ ||
+                config.xyzMode == PointSampleXyzMode.PS_XYt )) {
+            logger.debug( "Unsupported PointCloud XYZ mode: "+config.xyzMode.toString());
+            return false;
+        }
+        float[] scale  = frame.scale;
+        float[] origin = frame.origin;
+        for(int i = 0; i < 3; i++) {
+            scale[i]  = (float)sample.xyzScale.userData[i];
+            origin[i] = (float)sample.origin.userData[i];
+        }
+        if(s_paranoid) {
+            if(Float.isNaN(origin[0]) || Float.isNaN(origin[1]) || Float.isNaN(origin[2])) {
+                logger.error("PointCloud origin is invalid - "+SAMPLE_TYPE.getTopicName());
+                String filename = writeDebugFile(samples, scale, origin);
+                origin[0] = 0;
+                origin[1] = 0;
+                origin[2] = 0;
+                VerveTask.asyncExec(new SetPartVisibleTask(this, false));
+                IrgUI.errorDialog("Invalid Point Cloud", 
+                                  "A PointCloud with invalid origin was received.\n"
+                                          +"Visibility of the point cloud has been turned off \n"
+                                          +"and a debug file has been written here: "+filename);
+            }
+            if(Float.isNaN(scale[0]) || Float.isNaN(scale[1]) || Float.isNaN(scale[2])) {
+                logger.error("PointCloud point scale value is invalid - "+SAMPLE_TYPE.getTopicName());
+                String filename = writeDebugFile(samples, scale, origin);
+                scale[0] = 0.1f;
+                scale[1] = 0.1f;
+                scale[2] = 0.1f;
+                VerveTask.asyncExec(new SetPartVisibleTask(this, false));
+                IrgUI.errorDialog("Invalid Point Cloud", 
+                                  "A PointCloud with invalid scale was received.\n"
+                                          +"Visibility of the point cloud has been turned off \n"
+                                          +"and a debug file has been written here: "+filename);
+            }
+        }
+        frame.xfm.set(holder.xfm);
+
+        // if xy theta, z's are all zero
+        final boolean noZ = config.xyzMode == PointSampleXyzMode.PS_XYt;
+        final int intensityIndex = (m_useIntensity && m_intensityIndex >= 0) ? m_intensityIndex : -1;
+        frame.fill(sample, noZ, intensityIndex, m_newColor);
+
+        if(m_doDebug) {
+            writeDebugFile(samples, scale, origin);
+        }
+        return true;
+    }
+
+    /**
+     * Swap converted point clouds into the history. The conversion has 
+     * already been done on a worker thread, so this is cheap regardless 
+     * of the number of points. 
      */
     @Override
     public synchronized void handleFrameUpdate(long currentTime) {
         if(isDirty()) {
             try {
-                while(m_data.size() > 0) {
-                    SampleHolder holder = m_data.removeFirst();
-                    PointCloudHolder dataHolder = holder.holder;
-                    PointCloudSample sample = dataHolder.sample;
-                    PointCloudConfig config = dataHolder.config;
-                    if(config == null) {
-                        if(++d_noConfig%10 == 1) {
-                            logger.debug("received "+d_noConfig+" "+SAMPLE_TYPE.name()+"s with no config");
-                        }
-                        continue;
-                    }
-                    Object[] samples = sample.points.userData.toArray();
-
-                    if(samples.length < 2) { // short circuit if bad point cloud
-                        logger.debug("received point cloud with only "+samples.length+" points");
-                        continue;
-                    }
-                    float[] scale = new float[] {
-                                                 (float)sample.xyzScale.userData[0],
-                                                 (float)sample.xyzScale.userData[1],
-                                                 (float)sample.xyzScale.userData[2] };
-                    float[] origin = new float[] { 
-                                                  (float)sample.origin.userData[0], 
-                                                  (float)sample.origin.userData[1], 
-                                                  (float)sample.origin.userData[2] };
-                    if(s_paranoid) {
-                        if(Float.isNaN(origin[0]) || Float.isNaN(origin[1]) || Float.isNaN(origin[2])) {
-                            logger.error("PointCloud origin is invalid - "+SAMPLE_TYPE.getTopicName());
-                            String filename = writeDebugFile(samples, scale, origin);
-                            origin[0] = 0;
-                            origin[1] = 0;
-                            origin[2] = 0;
-                            VerveTask.asyncExec(new SetPartVisibleTask(this, false));
-                            IrgUI.errorDialog("Invalid Point Cloud", 
-                                              "A PointCloud with invalid origin was received.\n"
-                                                      +"Visibility of the point cloud has been turned off \n"
-                                                      +"and a debug file has been written here: "+filename);
-                        }
-                        if(Float.isNaN(scale[0]) || Float.isNaN(scale[1]) || Float.isNaN(scale[2])) {
-                            logger.error("PointCloud point scale value is invalid - "+SAMPLE_TYPE.getTopicName());
-                            String filename = writeDebugFile(samples, scale, origin);
-                            scale[0] = 0.1f;
-                            scale[1] = 0.1f;
-                            scale[2] = 0.1f;
-                            VerveTask.asyncExec(new SetPartVisibleTask(this, false));
-                            IrgUI.errorDialog("Invalid Point Cloud", 
-                                              "A PointCloud with invalid scale was received.\n"
-                                                      +"Visibility of the point cloud has been turned off \n"
-                                                      +"and a debug file has been written here: "+filename);
-                        }
-                    }
-
+                setDirty(false);
+                synchronized(m_queueLock) {
+                    m_swapping.addAll(m_ready);
+                    m_ready.clear();
+                }
+                if(m_swapping.isEmpty()) {
+                    return;
+                }
+                for(PointCloudFrame frame : m_swapping) {
                     PointCloud pointCloud = m_pointClouds[m_historyIndex];
                     m_historyIndex = (m_historyIndex+1)%m_historySize;
-                    updateTransform(pointCloud, holder.xfm);
-
-                    if(m_applyHistoryColor && !m_useIntensity) {
-                        for(int i = 0; i < m_historySize; i++) {
-                            int pc = (i+m_historyIndex)%m_historySize;
-                            m_pointClouds[pc].setPointColor(m_pointCloudColor[i]);
-                        }
-                    }
-                    float[] min = new float[] {  Float.MAX_VALUE,  Float.MAX_VALUE,  Float.MAX_VALUE };
-                    float[] max = new float[] { -Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE };
-                    final int bbStep = 1 + samples.length / BBSS;
-                    int bbSamples = 0;
-                    final boolean doIntensity = m_useIntensity && m_intensityIndex >= 0;
-                    pointCloud.setUseVertexColors(doIntensity);
-                    pointCloud.ensureSize(samples.length);
-                    FloatBuffer verts = pointCloud.getMeshData().getVertexBuffer();
-
-                    // if xy theta, z's are all zero
-                    final boolean noZ = config.xyzMode == PointSampleXyzMode.PS_XYt;
-
-                    if(config.xyzMode == PointSampleXyzMode.PS_XYZ ||
-                            config.xyzMode == PointSampleXyzMode.PS_XYt ) {
-                        if(verts != null) {
-                            verts.rewind();
-                            float val;
-                            float[] xyz = new float[3];
-                            PointSample ps;
-                            for(int i = 0; i < samples.length; i++) {
-                                ps = (PointSample)samples[i];
-                                xyz[0] = ps.xyz[0]*scale[0] + origin[0];
-                                xyz[1] = ps.xyz[1]*scale[1] + origin[1];
-                                xyz[2] = noZ ? 0 : ps.xyz[2]*scale[2] + origin[2];
-                                verts.put(xyz[0]).put(xyz[1]).put(xyz[2]);
-
-                                if(i%bbStep == 0) {
-                                    boolean valid = true;
-                                    for(int j = 0; j < 3; j++) {
-                                        val = xyz[j];
-                                        // verify that sample is not NaN
-                                        if(val == val) {
-                                            if(val < min[j]) min[j] = val;
-                                            if(val > max[j]) max[j] = val;
-                                        }
-                                        else {
-                                            valid = false;
-                                        }
-                                    }
-                                    if(valid) {
-                                        bbSamples++;
-                                    }
-                                }
-                            }
-                            if(doIntensity) {
-                                FloatBuffer colors = pointCloud.getMeshData().getColorBuffer();
-                                colors.rewind();
-                                final float div = 1f/255f;
-                                for(int i = 0; i < samples.length; i++) {
-                                    ps = (PointSample)samples[i];
-                                    float pi = (ps.attributes[m_intensityIndex]&0xFF)*div;
-                                    colors.put(pi*m_newColor.getRed()).put(pi*m_newColor.getGreen()).put(pi*m_newColor.getBlue()).put(1);
-                                }
-                            }
-                        }
-                    }
-                    else {
-                        logger.debug( "Unsupported PointCloud XYZ mode: "+config.xyzMode.toString());
-                        break;
-                    }
-
-                    if(m_doDebug) {
-                        writeDebugFile(samples, scale, origin);
+                    updateTransform(pointCloud, frame.xfm);
+                    pointCloud.swapBuffers(frame);
+                    frame.getBounds(pointCloud.getBoundingBox());
+                    pointCloud.markDirty(DirtyType.Bounding);
+                }
+                synchronized(m_queueLock) {
+                    for(PointCloudFrame frame : m_swapping) {
+                        recycle(frame);
                     }
+                }
+                m_swapping.clear();
 
-                    // update bounding box
-                    boolean isValid = (bbSamples > 2);
-                    BoundingBox bb = pointCloud.getBoundingBox();
-                    if(isValid) {
-                        float bbe[] = new float[] {(max[0]-min[0])/2f, (max[1]-min[1])/2f, (max[2]-min[2])/2f };
-                        float bbc[] = new float[] { min[0]+bbe[0],      min[1]+bbe[1],      min[2]+bbe[2] };
-                        bb.setCenter( bbc[0], bbc[1], bbc[2] );
-                        bb.setXExtent(bbe[0]);
-                        bb.setYExtent(bbe[1]);
-                        bb.setZExtent(bbe[2]);
-                        double vol = bb.getVolume();
-                        if(Double.isInfinite(vol) || Double.isNaN(vol)) {
-                            isValid = false;
-                        }
+                if(m_applyHistoryColor && !m_useIntensity) {
+                    for(int i = 0; i < m_historySize; i++) {
+                        int pc = (i+m_historyIndex)%m_historySize;
+                        m_pointClouds[pc].setPointColor(m_pointCloudColor[i]);
                     }
-                    if(!isValid) {
-                        bb.setCenter(origin[0], origin[1], origin[2]);
-                        bb.setXExtent(1);
-                        bb.setYExtent(1);
-                        bb.setZExtent(1);
-                    }
-                    pointCloud.markDirty(DirtyType.Bounding);
                 }
-                setDirty(false);
             }
             catch(Throwable t) {
                 //logger.error("Exception during Point Cloud update. Setting visibility to false.", t);
                 //setVisible(false);
                 logger.error("Exception during Point Cloud update. Resetting.", t);
+                m_swapping.clear();
                 reset();
             }
         }
     }
 
+    /**
+     * @return number of samples that were not shown because newer 
+     * samples replaced them in the backlog
+     */
+    public long getDroppedCount() {
+        synchronized(m_queueLock) {
+            return m_dropped;
+        }
+    }
+
     //    @Override
     //    public void setVisible(boolean visible) {
     //        //reset();
@@ -492,11 +544,14 @@ public class RapidRobotPartPointCloud extends RapidRobotPart implements IDdsRead
         for(int i = 0; i < m_historySize; i++) {
             m_pointClouds[i].ensureSize(0);
         }
-        m_data.clear();
+        synchronized(m_queueLock) {
+            m_pending.clear();
+            m_ready.clear();
+        }
     }
 
     @SuppressWarnings("unused")
-    private String  writeDebugFile(Object[] samples, float[] scale, float[] origin) {
+    private String  writeDebugFile(PointSampleSeq samples, float[] scale, float[] origin) {
         String filename = String.format("%s/"+getRapidRobot().getAgent().toString()+"-"+getPartName()+"-%03d.csv", System.getProperty("user.home"), debugFileIndex++);
         logger.debug("PointCloud filename="+filename);
         try {
@@ -504,8 +559,8 @@ public class RapidRobotPartPointCloud extends RapidRobotPart implements IDdsRead
             PrintStream ps = new PrintStream(fout);
             StringBuilder sb = new StringBuilder();
             ps.println("#index,xyz[0],xyz[1],xyz[2],x,y,z,scale[0],scale[1],scale[2],origin[0],origin[1],origin[2],attribute[0],attribute[1]");
-            for(int i = 0; i < samples.length; i++) {
-                PointSample sample = (PointSample)samples[i];
+            for(int i = 0; i < samples.size(); i++) {
+                PointSample sample = (PointSample)samples.get(i);
                 sb.setLength(0);
                 sb.append(i); sb.append(",");
                 sb.append(sample.xyz[0]); sb.append(",");
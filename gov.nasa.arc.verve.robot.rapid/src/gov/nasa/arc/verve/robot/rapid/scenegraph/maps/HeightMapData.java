@@ -19,12 +19,22 @@ package gov.nasa.arc.verve.robot.rapid.scenegraph.maps;
 
 import gov.nasa.arc.verve.common.VerveBaseMap;
 
+import java.nio.FloatBuffer;
+
 import org.apache.log4j.Logger;
 
+import com.ardor3d.math.MathUtils;
 import com.ardor3d.math.Transform;
 import com.ardor3d.math.Vector3;
 import com.ardor3d.math.type.ReadOnlyTransform;
+import com.ardor3d.util.geom.BufferUtils;
 
+/**
+ * Height field of a nav map tile. The coordinate arrays are at full 
+ * resolution; the vertex and normal buffers hold every vertSubsample'th 
+ * cell and are swapped into the mesh by NavMapGeometryMesh.setMeshData, 
+ * so they can be filled on any thread with fillBuffers.
+ */
 public class HeightMapData {   
     private static final Logger logger = Logger.getLogger(HeightMapData.class);
     public       int      numXCells;
@@ -43,6 +53,130 @@ public class HeightMapData {
 
     public       float[]  normals = null;
 
+    /** vertices and normals at vertSubsample, see fillBuffers */
+    public       FloatBuffer vertexBuffer = null;
+    public       FloatBuffer normalBuffer = null;
+    /** true if the buffers and bounds have been filled from the current coords */
+    public       boolean  buffersValid = false;
+    public final float[]  boundMin = new float[3];
+    public final float[]  boundMax = new float[3];
+
+    public int getTotalCells() {
+        return totalCells;
+    }
+
+    /**
+     * Set the dimensions of the map. The x and y coords are only 
+     * recomputed if the dimensions have changed. zCoords is reallocated 
+     * if the number of cells changes. 
+     * @return true if the dimensions have changed
+     */
+    public boolean setDimensions(int numXCells, int numYCells, float xCellSize, float yCellSize, double xOffset, double yOffset) {
+        final boolean changed = xCoords == null ||
+                this.numXCells != numXCells || this.numYCells != numYCells ||
+                this.xCellSize != xCellSize || this.yCellSize != yCellSize ||
+                offset.getX()  != xOffset   || offset.getY()  != yOffset;
+        if(changed) {
+            this.numXCells = numXCells;
+            this.numYCells = numYCells;
+            this.xCellSize = xCellSize;
+            this.yCellSize = yCellSize;
+            offset.set(xOffset, yOffset, 0);
+            initStaticData();
+        }
+        if(zCoords == null || zCoords.length != totalCells) {
+            zCoords = new float[totalCells];
+        }
+        buffersValid = false;
+        return changed;
+    }
+
+    /**
+     * compute the x and y coords of the cell centers from the dimensions. 
+     * The arrays are reused if they are the right size. 
+     */
+    public void initStaticData() {
+        totalCells = numXCells * numYCells;
+        numXCellsNxtPwr2 = MathUtils.nearestPowerOfTwo(numXCells);
+        numYCellsNxtPwr2 = MathUtils.nearestPowerOfTwo(numYCells);
+
+        final float xCellSize2 = xCellSize/2f;
+        final float yCellSize2 = yCellSize/2f;
+        final float xOff = offset.getXf() + xCellSize2; // add config x offset and account for 1/2 cell bound
+        final float yOff = offset.getYf() + yCellSize2; // add config y offset and account for 1/2 cell bound
+
+        if(xCoords == null || xCoords.length != totalCells) {
+            xCoords = new float[totalCells];
+            yCoords = new float[totalCells];
+        }
+        // x = out 
+        // y = right
+        int idx;
+        for(int col = 0; col < numYCells; col++) {
+            final float y = col * yCellSize;
+            for(int row = 0; row < numXCells; row++) {
+                idx = col*numXCells + row;
+                xCoords[idx] = row * xCellSize + xOff;
+                yCoords[idx] = y + yOff;
+            }
+        }
+    }
+
+    /**
+     * Fill the vertex buffer (and the normal buffer if there are normals) 
+     * from the coords and compute the bounds. Buffers are only reallocated
+     * if they are too small. 
+     */
+    public void fillBuffers() {
+        final int vss = vertSubsample;
+        final int ssTotalCells = (numXCells/vss)*(numYCells/vss);
+        final int vertSize = ssTotalCells*3;
+        if(vertexBuffer == null || vertexBuffer.capacity() < vertSize) {
+            vertexBuffer = BufferUtils.createFloatBuffer(vertSize);
+        }
+        vertexBuffer.clear();
+
+        float xMin,yMin,zMin,xMax,yMax,zMax;
+        xMin = yMin = zMin =  99999999;
+        xMax = yMax = zMax = -99999999;
+        final float zoffset = offset.getZf(); // add config z offset
+        for(int y = 0; y < numYCells; y+=vss) {
+            final int yiS = y*numXCells;
+            for(int x = 0; x < numXCells; x+=vss) {
+                final int idxS = yiS + x;
+                final float xc = xCoords[idxS];
+                final float yc = yCoords[idxS];
+                final float zc = zCoords[idxS];
+                vertexBuffer.put(xc).put(yc).put(zc + zoffset);
+                if(xc < xMin) xMin = xc;
+                if(xc > xMax) xMax = xc;
+                if(yc < yMin) yMin = yc;
+                if(yc > yMax) yMax = yc;
+                if(zc < zMin) zMin = zc;
+                if(zc > zMax) zMax = zc;
+            }
+        }
+        vertexBuffer.flip();
+        boundMin[0] = xMin; boundMin[1] = yMin; boundMin[2] = zMin;
+        boundMax[0] = xMax; boundMax[1] = yMax; boundMax[2] = zMax;
+
+        if(normals != null) {
+            if(normalBuffer == null || normalBuffer.capacity() < vertSize) {
+                normalBuffer = BufferUtils.createFloatBuffer(vertSize);
+            }
+            normalBuffer.clear();
+            for(int y = 0; y < numYCells; y+=vss) {
+                final int yiS = y*numXCells;
+                for(int x = 0; x < numXCells; x+=vss) {
+                    final int idxS = 3 * (yiS + x);
+                    normalBuffer.put(normals[idxS+0]).put(normals[idxS+1]).put(normals[idxS+2]);
+                }
+            }
+            normalBuffer.flip();
+        }
+        buffersValid = true;
+    }
+
     public HeightMapData cloneDataFields(HeightMapData other) {
         this.numXCells        = other.numXCells;
         this.numYCells        = other.numYCells;
@@ -74,6 +208,7 @@ public class HeightMapData {
      * General purpose way to populate Z values from base map
      */
     public void setZCoordsFromBaseMap(ReadOnlyTransform siteToWorld, ReadOnlyTransform mapFrame, float zOffset, float zSign) {        
+        buffersValid = false;
         if(xCoords != null) {
             if(VerveBaseMap.hasBaseMap() && siteToWorld != null) {
                 try {
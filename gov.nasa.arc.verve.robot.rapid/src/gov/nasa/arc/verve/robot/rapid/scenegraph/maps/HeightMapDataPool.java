@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the 
+ * Administrator of the National Aeronautics and Space Administration. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.arc.verve.robot.rapid.scenegraph.maps;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+/**
+ * Free HeightMapData, keyed by tile dimensions, so that the coordinate 
+ * arrays and vertex buffers of a tile that has been replaced can be 
+ * filled again for the next tile of the same size. All methods are 
+ * thread safe. 
+ */
+public class HeightMapDataPool {
+    protected final HashMap<Long,ArrayDeque<HeightMapData>> m_free = new HashMap<Long,ArrayDeque<HeightMapData>>();
+    protected int  m_maxPerSize;
+    protected long m_allocated = 0;
+    protected long m_reused    = 0;
+
+    /**
+     * @param maxPerSize maximum number of free HeightMapData kept for each tile size
+     */
+    public HeightMapDataPool(int maxPerSize) {
+        m_maxPerSize = maxPerSize;
+    }
+
+    protected static Long key(int numXCells, int numYCells) {
+        return Long.valueOf(((long)numXCells << 32) | (numYCells & 0xffffffffL));
+    }
+
+    /**
+     * @return a free HeightMapData that was last used for a tile of the
+     * given size, or a new one
+     */
+    public synchronized HeightMapData obtain(int numXCells, int numYCells) {
+        ArrayDeque<HeightMapData> free = m_free.get(key(numXCells, numYCells));
+        HeightMapData retVal = (free == null) ? null : free.pollLast();
+        if(retVal == null) {
+            m_allocated++;
+            retVal = new HeightMapData();
+        }
+        else {
+            m_reused++;
+        }
+        return retVal;
+    }
+
+    /**
+     * hand back data that is no longer used by a tile. Data that has 
+     * never been filled is dropped. 
+     */
+    public synchronized void release(HeightMapData data) {
+        if(data == null || data.xCoords == null) {
+            return;
+        }
+        final Long key = key(data.numXCells, data.numYCells);
+        ArrayDeque<HeightMapData> free = m_free.get(key);
+        if(free == null) {
+            free = new ArrayDeque<HeightMapData>(m_maxPerSize);
+            m_free.put(key, free);
+        }
+        if(free.size() < m_maxPerSize) {
+            data.buffersValid = false;
+            free.addLast(data);
+        }
+    }
+
+    /** drop all free data */
+    public synchronized void clear() {
+        m_free.clear();
+    }
+
+    public synchronized int getMaxPerSize() {
+        return m_maxPerSize;
+    }
+
+    public synchronized void setMaxPerSize(int maxPerSize) {
+        m_maxPerSize = maxPerSize;
+        for(ArrayDeque<HeightMapData> free : m_free.values()) {
+            while(free.size() > m_maxPerSize) {
+                free.pollFirst();
+            }
+        }
+    }
+
+    /** @return number of HeightMapData that have been created by obtain */
+    public synchronized long getAllocatedCount() {
+        return m_allocated;
+    }
+
+    /** @return number of times obtain has returned a free HeightMapData */
+    public synchronized long getReusedCount() {
+        return m_reused;
+    }
+}
@@ -54,6 +54,14 @@ public interface INavMapGeometry {
     HeightMapData borrowHeightMapData();
     void returnHeightMapData();
     
+    /**
+     * Replace the height map data with data that has been completely 
+     * filled elsewhere, e.g. by a RapidNavMapTileBuilder on a worker 
+     * thread. data must not be modified after this call. 
+     * @return the previous data, which can be reused for another tile
+     */
+    HeightMapData swapHeightMapData(HeightMapData data);
+    
     boolean isClampToTerrain();
     void setClampToTerrain(boolean state);
     
@@ -18,14 +18,15 @@
 package gov.nasa.arc.verve.robot.rapid.scenegraph.maps;
 
 import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import com.ardor3d.bounding.BoundingBox;
-import com.ardor3d.math.MathUtils;
 import com.ardor3d.renderer.IndexMode;
 import com.ardor3d.renderer.Renderer;
 import com.ardor3d.scenegraph.FloatBufferData;
+import com.ardor3d.scenegraph.IndexBufferData;
 import com.ardor3d.scenegraph.Mesh;
 import com.ardor3d.scenegraph.MeshData;
 import com.ardor3d.scenegraph.event.DirtyType;
@@ -51,6 +52,10 @@ public abstract class NavMapGeometryMesh extends Mesh implements INavMapGeometry
     protected boolean           m_invertWinding = false;
     protected boolean           m_doReinit = false;
     protected BoundingBox       m_bound = new BoundingBox();
+    /** strip layout the index buffer was built for */
+    protected int               m_indexXCells = -1;
+    protected int               m_indexYCells = -1;
+    protected boolean           m_indexInverted = false;
 
     /**
      * 
@@ -95,6 +100,7 @@ public abstract class NavMapGeometryMesh extends Mesh implements INavMapGeometry
      */
     public HeightMapData borrowHeightMapData() {
         m_mapDataLock.writeLock().lock();
+        m_mapData.buffersValid = false;
         return m_mapData;
     }
 
@@ -103,6 +109,22 @@ public abstract class NavMapGeometryMesh extends Mesh implements INavMapGeometry
         m_dirty = true;
     }
 
+    public HeightMapData swapHeightMapData(HeightMapData data) {
+        m_mapDataLock.writeLock().lock();
+        try {
+            final HeightMapData old = m_mapData;
+            if(!data.dataFieldsEqual(old) || !data.offset.equals(old.offset)) {
+                m_doReinit = true;
+            }
+            m_mapData = data;
+            m_dirty = true;
+            return old;
+        }
+        finally {
+            m_mapDataLock.writeLock().unlock();
+        }
+    }
+
     protected void updateStaticMeshData() {
         final HeightMapData hmd = m_mapData;
         final HeightMapData old = m_oldData;
@@ -158,33 +180,7 @@ public abstract class NavMapGeometryMesh extends Mesh implements INavMapGeometry
      * @param offset offset of the map corner from origin
      */
     protected void initStaticHeightMapData(HeightMapData hmd) {
-        hmd.totalCells = hmd.numXCells * hmd.numYCells;
-        hmd.numXCellsNxtPwr2 = MathUtils.nearestPowerOfTwo(hmd.numXCells);
-        hmd.numYCellsNxtPwr2 = MathUtils.nearestPowerOfTwo(hmd.numYCells);
-
-        final int   numXCells = hmd.numXCells;
-        final int   numYCells = hmd.numYCells;
-        final float xCellSize = hmd.xCellSize;
-        final float yCellSize = hmd.yCellSize;
-        final float xCellSize2 = hmd.xCellSize/2f;
-        final float yCellSize2 = hmd.yCellSize/2f;
-
-        float x,y;
-        hmd.xCoords = new float[hmd.totalCells];
-        hmd.yCoords = new float[hmd.totalCells];
-
-        // x = out 
-        // y = right
-        int idx;
-        for(int col = 0; col < numYCells; col++) {
-            y = col * yCellSize;
-            for(int row = 0; row < numXCells; row++) {
-                x = row * xCellSize;
-                idx = col*numXCells + row;
-                hmd.xCoords[idx] = x + hmd.offset.getXf() + xCellSize2; // add config x offset and account for 1/2 cell bound
-                hmd.yCoords[idx] = y + hmd.offset.getYf() + yCellSize2; // add config y offset and account for 1/2 cell bound
-            }
-        }
+        hmd.initStaticData();
     }
 
     /**
@@ -202,44 +198,54 @@ public abstract class NavMapGeometryMesh extends Mesh implements INavMapGeometry
         final int numStrips     = ssYCells-1;
         final int vertsPerStrip = ssXCells * 2;
         final int numIndexes    = numStrips * vertsPerStrip;
-        final int[] stripIndexCounts = new int[numStrips];
-        IndexMode[] indexMode = new IndexMode[numStrips];
-        for(int i = 0; i < numStrips; i++) {
-            stripIndexCounts[i] = vertsPerStrip;
-            indexMode[i] = IndexMode.TriangleStrip;
-        }
 
-        final int[] indexes = new int[numIndexes];
-        int index = 0;
-        int indexA;
-        int indexB;
-        for(int y = 0; y < ssYCells-1; y++) {
-            for(int x = 0; x < ssXCells; x++) {
-                indexA = (y+0) * ssXCells + x;
-                indexB = (y+1) * ssXCells + x;
-                if(!m_invertWinding) { 
-                    indexes[index+0] = indexA;
-                    indexes[index+1] = indexB;
-                }
-                else {
-                    indexes[index+0] = indexB;
-                    indexes[index+1] = indexA;
+        // the strips only depend on the subsampled size, so a recycled 
+        // tile keeps its index buffer
+        final IndexBufferData<?> indices = mdata.getIndices();
+        if(indices == null || ssXCells != m_indexXCells || ssYCells != m_indexYCells || m_invertWinding != m_indexInverted) {
+            final int[] stripIndexCounts = new int[numStrips];
+            IndexMode[] indexMode = new IndexMode[numStrips];
+            for(int i = 0; i < numStrips; i++) {
+                stripIndexCounts[i] = vertsPerStrip;
+                indexMode[i] = IndexMode.TriangleStrip;
+            }
+            final IntBuffer indexes;
+            if(indices != null && indices.getBuffer() instanceof IntBuffer && indices.capacity() >= numIndexes) {
+                indexes = (IntBuffer)indices.getBuffer();
+                indexes.clear();
+            }
+            else {
+                indexes = BufferUtils.createIntBuffer(numIndexes);
+            }
+            int indexA;
+            int indexB;
+            for(int y = 0; y < ssYCells-1; y++) {
+                for(int x = 0; x < ssXCells; x++) {
+                    indexA = (y+0) * ssXCells + x;
+                    indexB = (y+1) * ssXCells + x;
+                    if(!m_invertWinding) { 
+                        indexes.put(indexA).put(indexB);
+                    }
+                    else {
+                        indexes.put(indexB).put(indexA);
+                    }
                 }
-                index += 2;
             }
+            indexes.flip();
+            mdata.setIndexLengths(stripIndexCounts);
+            mdata.setIndexModes(indexMode);
+            mdata.setIndexBuffer(indexes);
+            m_indexXCells   = ssXCells;
+            m_indexYCells   = ssYCells;
+            m_indexInverted = m_invertWinding;
         }
-        mdata.setIndexLengths(stripIndexCounts);
-        mdata.setIndexModes(indexMode);
-        mdata.setIndexBuffer(BufferUtils.createIntBuffer(indexes));
 
-        int vertSize = ssTotalCells*3;
+        // vertex and normal buffers are swapped in by setMeshData
         int txCrdSize = ssTotalCells*2;
-        if(mdata.getVertexBuffer().capacity() < vertSize) {
-            mdata.setVertexBuffer(BufferUtils.createFloatBuffer(vertSize));
+        if(mdata.getTextureBuffer(0) == null || mdata.getTextureBuffer(0).capacity() < txCrdSize) {
             mdata.setTextureCoords(new FloatBufferData(BufferUtils.createFloatBuffer(txCrdSize),2), 0);
             mdata.setTextureCoords(new FloatBufferData(BufferUtils.createFloatBuffer(txCrdSize),2), 1);
         }
-        mdata.getVertexBuffer().limit(vertSize);
         mdata.getTextureBuffer(0).limit(txCrdSize);
         mdata.getTextureBuffer(1).limit(txCrdSize);
 
@@ -277,71 +283,45 @@ public abstract class NavMapGeometryMesh extends Mesh implements INavMapGeometry
         }
 
         mdata.setColorBuffer(null);
-
-        if(hmd.normals != null) {
-            final int nrmSize = ssTotalCells*3;
-            if(mdata.getNormalBuffer() == null || mdata.getNormalBuffer().capacity() < nrmSize) {
-                mdata.setNormalBuffer(BufferUtils.createFloatBuffer(nrmSize));
-            }
-            mdata.getNormalBuffer().limit(nrmSize);
-        }
-        else {
-            if(mdata.getNormalBuffer() != null) {
-                mdata.setNormalBuffer(null);
-            }
-        }
     }
 
     /**
-     * 
+     * Swap the vertex and normal buffers of hmd into the mesh, filling them
+     * first if that has not been done on the thread that produced hmd. The
+     * buffers the mesh was drawing are handed back to hmd for reuse. 
      * @param hmd
      */
     protected void setMeshData(HeightMapData hmd) {
-        MeshData mdata = this.getMeshData();
-        FloatBuffer floatBuffer;
-        final int vss = hmd.vertSubsample;
-
-        float xMin,yMin,zMin,xMax,yMax,zMax;
-        xMin = yMin = zMin =  99999999;
-        xMax = yMax = zMax = -99999999;
+        if(!hmd.buffersValid) {
+            hmd.fillBuffers();
+        }
+        final MeshData mdata = this.getMeshData();
+        final FloatBuffer vertices = hmd.vertexBuffer;
+        hmd.vertexBuffer = mdata.getVertexBuffer();
+        mdata.setVertexBuffer(vertices);
 
-        if(true) {
-            floatBuffer = mdata.getVertexBuffer();
-            floatBuffer.rewind();
-            final float zoffset = hmd.offset.getZf(); // add config z offset
-            for(int y = 0; y < hmd.numYCells; y+=vss) {
-                final int yiS = y*hmd.numXCells;
-                for(int x = 0; x < hmd.numXCells; x+=vss) {
-                    final int idxS = yiS + x;
-                    floatBuffer.put(hmd.xCoords[idxS]).put(hmd.yCoords[idxS]).put(hmd.zCoords[idxS]+ zoffset);
-                    if(hmd.xCoords[idxS] < xMin) xMin = hmd.xCoords[idxS];
-                    else if(hmd.xCoords[idxS] > xMax) xMax = hmd.xCoords[idxS];
-                    if(hmd.yCoords[idxS] < yMin) yMin = hmd.yCoords[idxS];
-                    else if(hmd.yCoords[idxS] > yMax) yMax = hmd.yCoords[idxS];
-                    if(hmd.zCoords[idxS] < zMin) zMin = hmd.zCoords[idxS];
-                    else if(hmd.zCoords[idxS] > zMax) zMax = hmd.zCoords[idxS];
-                }
-            }
+        if(hmd.normals != null) {
+            final FloatBuffer normals = hmd.normalBuffer;
+            hmd.normalBuffer = mdata.getNormalBuffer();
+            mdata.setNormalBuffer(normals);
+        }
+        else if(mdata.getNormalBuffer() != null) {
+            hmd.normalBuffer = mdata.getNormalBuffer();
+            mdata.setNormalBuffer(null);
         }
-        final float xExt = 0.5f*(xMax-xMin);
-        final float yExt = 0.5f*(yMax-yMin);
-        final float zExt = 0.5f*(zMax-zMin);
-        m_bound.setCenter(xMin+xExt, yMin+yExt, zMin+zExt);
+        // hmd no longer holds the buffers that match its coords
+        hmd.buffersValid = false;
+
+        final float[] min = hmd.boundMin;
+        final float[] max = hmd.boundMax;
+        final float xExt = 0.5f*(max[0]-min[0]);
+        final float yExt = 0.5f*(max[1]-min[1]);
+        final float zExt = 0.5f*(max[2]-min[2]);
+        m_bound.setCenter(min[0]+xExt, min[1]+yExt, min[2]+zExt);
         m_bound.setXExtent(xExt);
         m_bound.setYExtent(yExt);
         m_bound.setZExtent(zExt);
         setModelBound(m_bound, false);
         markDirty(DirtyType.Bounding);
-
-        if(hmd.normals != null && (floatBuffer = mdata.getNormalBuffer()) != null) {
-            floatBuffer.rewind();
-            for(int y = 0; y < hmd.numYCells; y+=vss) {
-                final int yiS = y*hmd.numXCells;
-                for(int x = 0; x < hmd.numXCells; x+=vss) {
-                    final int idxS = 3 * (yiS + x);
-                    floatBuffer.put(hmd.normals[idxS+0]).put(hmd.normals[idxS+1]).put(hmd.normals[idxS+2]);
-                }
-            }
-        }
     }
 }
@@ -18,11 +18,12 @@
 package gov.nasa.arc.verve.robot;
 
 import gov.nasa.arc.verve.common.DataBundleHelper;
-import gov.nasa.arc.verve.common.util.ExportUtil;
+import gov.nasa.arc.verve.common.util.ModelCache;
 import gov.nasa.arc.viz.io.ImportExportManager;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.concurrent.Callable;
 
 import org.apache.log4j.Logger;
 
@@ -34,8 +35,10 @@ public class ModelLoader {
 
     /**
      * Given a category and model name, load a model. This method will attempt
-     * to load an Ardor3D binary version of the file if the last modified time of the
-     * binary file is greater than the last modified time of the source file. 
+     * to load an Ardor3D binary version of the file that is shipped next to the
+     * source file. Otherwise the model is taken from the ModelCache, or imported
+     * and added to the cache; binaries are no longer written next to the source 
+     * because that fails in exported products.
      * @param category
      * @param modelName
      * @return
@@ -63,9 +66,14 @@ public class ModelLoader {
             }
             if(model == null) {
                 sourceUrl = DataBundleHelper.getURL(category, "models/"+modelName);
-                model = ImportExportManager.importModel(sourceUrl);
-                ExportUtil.saveAsBinary(model, sourceUrl);
-                logger.info("Saved model as ardor3d binary: "+sourceUrl.toString());
+                final URL importUrl = sourceUrl;
+                model = ModelCache.instance().load(sourceUrl, ModelCache.versionOf(ImportExportManager.class), new Callable<Node>() {
+                    @Override
+                    public Node call() throws Exception {
+                        logger.info("Importing "+importUrl.toString());
+                        return ImportExportManager.importModel(importUrl);
+                    }
+                });
             }
         }
         catch(Exception e) {
@@ -22,8 +22,8 @@ import gov.nasa.arc.verve.ardor3d.scenegraph.util.SpatialPath;
 import gov.nasa.arc.verve.robot.AbstractRobot;
 import gov.nasa.arc.verve.robot.parts.AbstractRobotPart;
 import gov.nasa.arc.verve.robot.scenegraph.shape.concepts.DirectionalPath;
+import gov.nasa.arc.verve.robot.scenegraph.shape.concepts.PathRing;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -75,8 +75,7 @@ public class RobotPartPoseHistory extends AbstractRobotPart {
     boolean       m_addPositionMarker = false;
     boolean       m_doClear = false;
 
-    protected ArrayList<Vector3> m_pathHistory     = new ArrayList<Vector3>();
-    protected int                     m_pathHistoryMax  = 20000;
+    protected PathRing                m_pathHistory     = new PathRing(20000);
     protected boolean                 m_showPathHistory = true;
     protected DirectionalPath         m_pathHistoryPath = null;
     protected boolean                 m_doUpdatePathHistory = false;
@@ -136,10 +135,19 @@ public class RobotPartPoseHistory extends AbstractRobotPart {
     }
 
     public int getPathHistorySize() {
-        return m_pathHistoryMax;
+        return m_pathHistory.getCapacity();
     }
+    /**
+     * Changing the size discards the current path history
+     */
     public void setPathHistorySize(int historySize) {
-        m_pathHistoryMax = historySize;
+        if(historySize != m_pathHistory.getCapacity()) {
+            m_pathHistory = new PathRing(historySize);
+            if(m_pathHistoryPath != null) {
+                m_pathHistoryPath.setRing(m_pathHistory);
+            }
+            m_doUpdatePathHistory = true;
+        }
     }
 
 
@@ -167,6 +175,7 @@ public class RobotPartPoseHistory extends AbstractRobotPart {
         m_pathHistoryPath.setLineWidth(2);
         m_pathHistoryPath.setAntialiased(true);
         m_pathHistoryPath.setTranslation(0, 0, 0);
+        m_pathHistoryPath.setRing(m_pathHistory);
         BlendState bs = new BlendState();
         bs.setBlendEnabled(true);
         bs.setTestEnabled(true);
@@ -208,20 +217,12 @@ public class RobotPartPoseHistory extends AbstractRobotPart {
     }
 
     /**
-     * @param pos will be copied and added to history
+     * @param pos will be copied and added to history. Once the history
+     * is full, the oldest sample is dropped. 
      */
     protected void addPathHistorySample(ReadOnlyVector3 pos) {
         if(pos != null) {
-            if(m_pathHistory.size() >= m_pathHistoryMax) {
-                ArrayList<Vector3> old = new ArrayList<Vector3>();
-                old.ensureCapacity(m_pathHistoryMax);
-                old.addAll(m_pathHistory.subList(m_pathHistoryMax/2, m_pathHistory.size()-1));
-                m_pathHistory = old;
-            }
-            m_pathHistory.add(new Vector3(pos.getX(), pos.getY(), pos.getZ()+0.02));
-        }
-        if(m_showPathHistory) {
-            m_pathHistoryPath.queueUpdateData(m_pathHistory);
+            m_pathHistory.append(pos.getXf(), pos.getYf(), pos.getZf()+0.02f);
         }
         m_doUpdatePathHistory = true;
     }
@@ -325,9 +326,7 @@ public class RobotPartPoseHistory extends AbstractRobotPart {
     public void reset() {
         m_doReset.set(true);
         m_pathHistory.clear();
-        if(m_pathHistoryPath != null) {
-            m_pathHistoryPath.queueUpdateData(m_pathHistory);
-        }
+        m_doUpdatePathHistory = true;
     }
 
     @Override
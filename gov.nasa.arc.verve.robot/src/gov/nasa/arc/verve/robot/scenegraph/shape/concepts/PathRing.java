@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the 
+ * Administrator of the National Aeronautics and Space Administration. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.arc.verve.robot.scenegraph.shape.concepts;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import com.ardor3d.bounding.BoundingBox;
+import com.ardor3d.math.type.ReadOnlyVector3;
+import com.ardor3d.scenegraph.FloatBufferData;
+import com.ardor3d.scenegraph.IntBufferData;
+import com.ardor3d.scenegraph.MeshData;
+import com.ardor3d.util.geom.BufferUtils;
+
+/**
+ * Fixed capacity history of path vertices for a DirectionalPath. Appending
+ * a vertex is O(1) regardless of how many vertices are held; once the ring
+ * is full the oldest vertex is overwritten. 
+ * <p>
+ * Vertices are appended on any thread. On the scenegraph update thread, 
+ * updateMeshData copies only the vertices appended since the previous call 
+ * into vertex and texture buffers that persist for the life of the ring. 
+ * The index buffer holds 0..capacity-1 twice so that the oldest-to-newest 
+ * window is always a contiguous range of indices, even after wrapping; 
+ * the mesh is handed a slice of that range. 
+ * <p>
+ * Texture coordinates are the distance along the path, as in 
+ * DirectionalPath.updateData. The bounds cover every vertex appended since
+ * the last clear, so they may be larger than the vertices still held. 
+ */
+public class PathRing {
+    protected final int     m_capacity;
+
+    // written by appending threads, guarded by this
+    protected final float[] m_xyz;
+    protected final float[] m_dist;
+    protected long          m_count      = 0;
+    protected int           m_generation = 0;
+    protected double        m_distance   = 0;
+    protected final float[] m_min = new float[3];
+    protected final float[] m_max = new float[3];
+
+    // owned by the scenegraph update thread
+    protected FloatBuffer   m_vtxBuffer = null;
+    protected FloatBuffer   m_texBuffer = null;
+    protected IntBuffer     m_idxBuffer = null;
+    protected IntBufferData m_indices   = null;
+    protected MeshData      m_meshData  = null;
+    protected long          m_uploaded  = 0;
+    protected int           m_uploadedGeneration = -1;
+    protected int           m_visible   = 0;
+    protected final float[] m_bounds    = new float[6];
+
+    public PathRing(int capacity) {
+        if(capacity < 2) {
+            throw new IllegalArgumentException("capacity must be at least 2");
+        }
+        m_capacity = capacity;
+        m_xyz  = new float[capacity*3];
+        m_dist = new float[capacity];
+        clearBounds();
+    }
+
+    public int getCapacity() {
+        return m_capacity;
+    }
+
+    /**
+     * @return number of vertices currently held
+     */
+    public synchronized int size() {
+        return (int)Math.min(m_count, m_capacity);
+    }
+
+    public void append(ReadOnlyVector3 v) {
+        append(v.getXf(), v.getYf(), v.getZf());
+    }
+
+    /**
+     * add a vertex to the end of the path, overwriting the oldest vertex
+     * if the ring is full
+     */
+    public synchronized void append(float x, float y, float z) {
+        final int slot = (int)(m_count % m_capacity);
+        if(m_count > 0) {
+            final int last = 3*(int)((m_count-1) % m_capacity);
+            final float a = x - m_xyz[last+0];
+            final float b = y - m_xyz[last+1];
+            final float c = z - m_xyz[last+2];
+            m_distance += Math.sqrt(a*a+b*b+c*c);
+        }
+        m_xyz[3*slot+0] = x;
+        m_xyz[3*slot+1] = y;
+        m_xyz[3*slot+2] = z;
+        m_dist[slot] = (float)m_distance;
+        if(x < m_min[0]) m_min[0] = x;
+        if(y < m_min[1]) m_min[1] = y;
+        if(z < m_min[2]) m_min[2] = z;
+        if(x > m_max[0]) m_max[0] = x;
+        if(y > m_max[1]) m_max[1] = y;
+        if(z > m_max[2]) m_max[2] = z;
+        m_count++;
+    }
+
+    /**
+     * remove all vertices
+     */
+    public synchronized void clear() {
+        m_count = 0;
+        m_distance = 0;
+        m_generation++;
+        clearBounds();
+    }
+
+    private void clearBounds() {
+        for(int i = 0; i < 3; i++) {
+            m_min[i] =  Float.MAX_VALUE;
+            m_max[i] = -Float.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Copy vertices appended since the last call into meshData. The 
+     * buffers are allocated and set on meshData on the first call, or 
+     * if the ring is used with a different MeshData. 
+     * This must be called from the scenegraph update thread.
+     * @return true if the vertices changed
+     */
+    public boolean updateMeshData(MeshData meshData) {
+        boolean changed = false;
+        if(m_meshData != meshData) {
+            allocateBuffers(meshData);
+            changed = true;
+        }
+        final int start;
+        synchronized(this) {
+            if(m_uploadedGeneration != m_generation) {
+                m_uploadedGeneration = m_generation;
+                m_uploaded = 0;
+                changed = true;
+            }
+            final long from = Math.max(m_uploaded, m_count - m_capacity);
+            for(long i = from; i < m_count; i++) {
+                final int slot = (int)(i % m_capacity);
+                m_vtxBuffer.put(3*slot+0, m_xyz[3*slot+0]);
+                m_vtxBuffer.put(3*slot+1, m_xyz[3*slot+1]);
+                m_vtxBuffer.put(3*slot+2, m_xyz[3*slot+2]);
+                m_texBuffer.put(2*slot+1, m_dist[slot]);
+            }
+            if(from < m_count) {
+                changed = true;
+            }
+            if(!changed) {
+                return false;
+            }
+            m_uploaded = m_count;
+            m_visible  = (int)Math.min(m_count, m_capacity);
+            start      = (int)((m_count - m_visible) % m_capacity);
+            System.arraycopy(m_min, 0, m_bounds, 0, 3);
+            System.arraycopy(m_max, 0, m_bounds, 3, 3);
+        }
+        m_idxBuffer.limit(start + m_visible).position(start);
+        m_indices.setBuffer(m_idxBuffer.slice());
+        m_idxBuffer.clear();
+        meshData.setIndices(m_indices);
+        return true;
+    }
+
+    protected void allocateBuffers(MeshData meshData) {
+        if(m_vtxBuffer == null) {
+            m_vtxBuffer = BufferUtils.createVector3Buffer(m_capacity);
+            m_texBuffer = BufferUtils.createVector2Buffer(m_capacity);
+            for(int i = 0; i < m_capacity; i++) {
+                m_texBuffer.put(2*i, 0.5f);
+            }
+            m_idxBuffer = BufferUtils.createIntBuffer(2*m_capacity);
+            for(int i = 0; i < 2*m_capacity; i++) {
+                m_idxBuffer.put(i, i % m_capacity);
+            }
+            m_indices = new IntBufferData();
+        }
+        m_meshData = meshData;
+        meshData.setVertexBuffer(m_vtxBuffer);
+        meshData.setTextureCoords(new FloatBufferData(m_texBuffer, 2), 0);
+        meshData.setColorBuffer(null);
+        // all vertices must be re-uploaded
+        m_uploadedGeneration = -1;
+    }
+
+    /**
+     * @return number of vertices drawn after the last updateMeshData
+     */
+    public int getVisibleCount() {
+        return m_visible;
+    }
+
+    /**
+     * set bb to the bounds as of the last updateMeshData. bb is not 
+     * changed if the ring is empty. 
+     */
+    public void getBounds(BoundingBox bb) {
+        if(m_visible > 0) {
+            final float ex = (m_bounds[3]-m_bounds[0])/2f;
+            final float ey = (m_bounds[4]-m_bounds[1])/2f;
+            final float ez = (m_bounds[5]-m_bounds[2])/2f;
+            bb.setCenter(m_bounds[0]+ex, m_bounds[1]+ey, m_bounds[2]+ez);
+            bb.setXExtent(ex);
+            bb.setYExtent(ey);
+            bb.setZExtent(ez);
+        }
+    }
+}
@@ -23,6 +23,7 @@ import com.ardor3d.bounding.BoundingBox;
 import com.ardor3d.math.ColorRGBA;
 import com.ardor3d.math.type.ReadOnlyColorRGBA;
 import com.ardor3d.renderer.Renderer;
+import com.ardor3d.scenegraph.MeshData;
 import com.ardor3d.scenegraph.Point;
 import com.ardor3d.scenegraph.hint.LightCombineMode;
 import com.ardor3d.util.geom.BufferUtils;
@@ -106,6 +107,31 @@ public class PointCloud extends Point {
         }
     }
 
+    /**
+     * Show points that were filled in off the render thread. The buffers 
+     * that were shown before are handed back in buffers so that they can 
+     * be filled again. Must be called from the render thread. 
+     */
+    public void swapBuffers(PointCloudBuffers buffers) {
+        final MeshData    meshData       = getMeshData();
+        final FloatBuffer oldVerts       = meshData.getVertexBuffer();
+        final FloatBuffer oldColors      = m_useVertColor ? meshData.getColorBuffer() : null;
+        final float[]     oldIntensities = m_intensities;
+
+        m_size         = 0; // disable drawing
+        m_useVertColor = buffers.colors != null;
+        m_intensities  = buffers.intensities;
+        meshData.setVertexBuffer(buffers.vertices);
+        meshData.setColorBuffer(buffers.colors);
+        meshData.updateVertexCount();
+        m_size = buffers.size;
+
+        buffers.vertices    = oldVerts;
+        buffers.colors      = oldColors;
+        buffers.intensities = oldIntensities;
+        buffers.size        = 0;
+    }
+
     public void ensureSize(int nVerts) {
         m_size = 0; // disable drawing
         if(nVerts > 0) {
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.arc.verve.robot.scenegraph.shape.sensors;
+
+import java.nio.FloatBuffer;
+
+import com.ardor3d.util.geom.BufferUtils;
+
+/**
+ * Vertex and color buffers for a PointCloud that can be filled on any
+ * thread and then handed to the PointCloud with PointCloud.swapBuffers.
+ * The buffers are limited to size points once filled.
+ */
+public class PointCloudBuffers {
+    public FloatBuffer vertices    = null;
+    /** rgba per point, or null if the cloud has no vertex colors */
+    public FloatBuffer colors      = null;
+    /** color scale per point used by PointCloud.setPointColor, or null */
+    public float[]     intensities = null;
+    /** number of points */
+    public int         size        = 0;
+
+    /**
+     * make sure the buffers can hold nVerts points. Buffers are grown
+     * with some head room, like PointCloud.ensureSize, and are not shrunk.
+     * The positions of the buffers are set to zero.
+     * @param vertexColors if false, colors and intensities are released
+     */
+    public void ensureCapacity(int nVerts, boolean vertexColors) {
+        if(vertices == null || vertices.capacity() < nVerts*3) {
+            vertices = BufferUtils.createFloatBuffer(nVerts*3*125/100);
+        }
+        vertices.clear();
+        if(vertexColors) {
+            if(colors == null || colors.capacity() < nVerts*4) {
+                colors = BufferUtils.createFloatBuffer(nVerts*4*125/100);
+            }
+            colors.clear();
+            if(intensities == null || intensities.length < nVerts) {
+                intensities = new float[nVerts*125/100];
+            }
+        }
+        else {
+            colors      = null;
+            intensities = null;
+        }
+        size = 0;
+    }
+}
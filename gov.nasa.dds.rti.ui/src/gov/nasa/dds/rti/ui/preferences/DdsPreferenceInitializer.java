@@ -42,6 +42,7 @@ public class DdsPreferenceInitializer extends AbstractPreferenceInitializer {
         store.setDefault(DdsPreferenceKeys.P_IPv4_DENY_LIST,      "");
         store.setDefault(DdsPreferenceKeys.P_IGNORE_USER_PROFILE, "true");
         store.setDefault(DdsPreferenceKeys.P_IGNORE_ENV_PROFILE,  "true");
+        store.setDefault(DdsPreferenceKeys.P_LOOPBACK_TRANSPORT,  false);
         
         final String SHMEM = TransportBuiltinKind.SHMEM_ALIAS;
         if(PlatformInfo.getOS() == PlatformInfo.OS.Mac) {
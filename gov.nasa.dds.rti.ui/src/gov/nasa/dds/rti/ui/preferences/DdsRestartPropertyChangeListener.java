@@ -44,7 +44,8 @@ public class DdsRestartPropertyChangeListener implements IPropertyChangeListener
             if(property.equals(DdsPreferenceKeys.P_QOS_URL_GROUPS) 
                     || property.equals(DdsPreferenceKeys.P_PEERS_LIST)
                     || property.equals(DdsPreferenceKeys.P_IGNORE_ENV_PROFILE)
-                    || property.equals(DdsPreferenceKeys.P_IGNORE_USER_PROFILE)) {
+                    || property.equals(DdsPreferenceKeys.P_IGNORE_USER_PROFILE)
+                    || property.equals(DdsPreferenceKeys.P_LOOPBACK_TRANSPORT)) {
                 restartNeeded = true;
             }
         }
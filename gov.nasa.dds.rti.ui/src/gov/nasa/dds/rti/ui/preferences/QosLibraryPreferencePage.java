@@ -65,6 +65,10 @@ public class QosLibraryPreferencePage extends FieldEditorPreferencePage implemen
         bfe.getDescriptionControl(parent).setToolTipText("Disable the shared memory (shmem) transport");
         addField(bfe);
         
+        bfe = new BooleanFieldEditor(DdsPreferenceKeys.P_LOOPBACK_TRANSPORT, "Use in-process loopback transport", parent);
+        bfe.getDescriptionControl(parent).setToolTipText("Exchange messages only with participants in this application, without RTI DDS");
+        addField(bfe);
+        
 	}
 
 	public void init(IWorkbench workbench) { 
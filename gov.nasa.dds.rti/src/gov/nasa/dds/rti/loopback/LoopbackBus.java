@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.dds.rti.loopback;
+
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.rti.dds.domain.DomainParticipant;
+
+/**
+ * In-memory replacement for the RTI Connext runtime. Participants created on
+ * the bus exchange samples only with other participants in the same JVM that
+ * are on the same domain. Topics are matched by name, and writers are matched
+ * to readers using the partition names of their Publisher and Subscriber.
+ * <p>
+ * Written samples are copied (using the Copyable contract of the generated types)
+ * into the history of every matching reader, and the reader's listener is notified
+ * on the bus receive thread, the same way the RTI receive threads would.
+ */
+public class LoopbackBus {
+    private static final Logger logger = Logger.getLogger(LoopbackBus.class);
+
+    /** history depth used when the XML profile of a reader or writer can't be found */
+    public static final int DEFAULT_HISTORY_DEPTH = 1;
+
+    protected final HashMap<String,LoopbackTopic> m_topics = new HashMap<String,LoopbackTopic>();
+    protected final ExecutorService m_receiveExec;
+    protected final LoopbackQosProfiles m_qosProfiles = new LoopbackQosProfiles();
+    protected int m_profileHistoryDepth = DEFAULT_HISTORY_DEPTH;
+
+    public LoopbackBus() {
+        m_receiveExec = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "LoopbackBus receive");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Readers and writers created from an XML QoS profile take their history 
+     * depth and durability from these profiles, e.g. RAPID_QOS_PROFILES.xml
+     */
+    public LoopbackQosProfiles getQosProfiles() {
+        return m_qosProfiles;
+    }
+
+    /**
+     * history depth of readers and writers whose XML QoS profile is not in 
+     * getQosProfiles(), e.g. because no profile files were loaded
+     */
+    public void setProfileHistoryDepth(int depth) {
+        m_profileHistoryDepth = Math.max(1, depth);
+    }
+
+    public int getProfileHistoryDepth() {
+        return m_profileHistoryDepth;
+    }
+
+    public DomainParticipant createParticipant(String participantName, int domainId) {
+        LoopbackParticipant participant = new LoopbackParticipant(this, participantName, domainId);
+        logger.debug("created loopback participant \""+participantName+"\" on domain "+domainId);
+        return participant.getProxy();
+    }
+
+    /**
+     * delete the contained entities of a loopback participant
+     */
+    public void destroyParticipant(DomainParticipant participant) {
+        LoopbackEntity entity = LoopbackEntity.get(participant);
+        if(entity instanceof LoopbackParticipant) {
+            ((LoopbackParticipant)entity).delete_contained_entities();
+        }
+    }
+
+    /**
+     * stop the receive thread. Samples that have not been delivered are discarded.
+     */
+    public void shutdown() {
+        m_receiveExec.shutdownNow();
+        try {
+            m_receiveExec.awaitTermination(1, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized(m_topics) {
+            m_topics.clear();
+        }
+    }
+
+    LoopbackTopic getTopic(int domainId, String topicName) {
+        final String key = domainId+"/"+topicName;
+        synchronized(m_topics) {
+            LoopbackTopic retVal = m_topics.get(key);
+            if(retVal == null) {
+                retVal = new LoopbackTopic(this, domainId, topicName);
+                m_topics.put(key, retVal);
+            }
+            return retVal;
+        }
+    }
+
+    void notifyReader(final LoopbackDataReader reader) {
+        try {
+            m_receiveExec.execute(new Runnable() {
+                @Override
+                public void run() {
+                    reader.notifyDataAvailable();
+                }
+            });
+        }
+        catch(Throwable t) {
+            // executor has been shut down
+            logger.debug("discarding notification for "+reader+": "+t.getMessage());
+        }
+    }
+
+    /**
+     * Partition matching follows DDS semantics: an empty partition list is
+     * the default partition, and names may contain '*' and '?' wildcards.
+     */
+    static boolean partitionsMatch(String[] pubPartitions, String[] subPartitions) {
+        if(pubPartitions.length == 0 && subPartitions.length == 0) {
+            return true;
+        }
+        for(String pub : pubPartitions) {
+            for(String sub : subPartitions) {
+                if(globMatch(pub, sub) || globMatch(sub, pub)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    static boolean globMatch(String pattern, String name) {
+        if(pattern.indexOf('*') < 0 && pattern.indexOf('?') < 0) {
+            return pattern.equals(name);
+        }
+        StringBuilder regex = new StringBuilder();
+        for(char c : pattern.toCharArray()) {
+            switch(c) {
+            case '*': regex.append(".*"); break;
+            case '?': regex.append('.');  break;
+            default:
+                if(Character.isLetterOrDigit(c)) regex.append(c);
+                else regex.append('\\').append(c);
+            }
+        }
+        return name.matches(regex.toString());
+    }
+}
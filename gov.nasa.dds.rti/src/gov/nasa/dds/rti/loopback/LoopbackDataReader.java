@@ -0,0 +1,275 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.dds.rti.loopback;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+
+import com.rti.dds.infrastructure.Copyable;
+import com.rti.dds.infrastructure.RETCODE_NO_DATA;
+import com.rti.dds.infrastructure.ResourceLimitsQosPolicy;
+import com.rti.dds.subscription.DataReader;
+import com.rti.dds.subscription.DataReaderListener;
+import com.rti.dds.subscription.DataReaderQos;
+import com.rti.dds.subscription.InstanceStateKind;
+import com.rti.dds.subscription.SampleInfo;
+import com.rti.dds.subscription.SampleInfoSeq;
+import com.rti.dds.subscription.SampleStateKind;
+import com.rti.dds.subscription.Subscriber;
+import com.rti.dds.subscription.SubscriptionMatchedStatus;
+import com.rti.dds.subscription.ViewStateKind;
+import com.rti.dds.topic.TopicDescription;
+import com.rti.dds.util.Sequence;
+
+/**
+ * DataReader on the LoopbackBus. Received samples are copied into a 
+ * keep-last history and the listener is notified on the bus receive thread.
+ * Samples pushed out of a full history are counted as lost.
+ */
+public class LoopbackDataReader extends LoopbackEntity {
+    private static final Logger logger = Logger.getLogger(LoopbackDataReader.class);
+
+    protected final LoopbackBus        m_bus;
+    protected final LoopbackSubscriber m_subscriber;
+    protected final LoopbackTopic      m_topic;
+    protected final int                m_historyDepth;
+    protected final DataReader         m_reader;
+
+    protected final ArrayDeque<Received> m_history = new ArrayDeque<Received>();
+    private final AtomicBoolean m_notifyPending = new AtomicBoolean(false);
+
+    protected volatile DataReaderListener m_listener;
+    protected long m_received = 0;
+    protected long m_lost     = 0;
+
+    static class Received {
+        final Object sample;
+        final long   timeMillis;
+        Received(Object sample, long timeMillis) {
+            this.sample = sample;
+            this.timeMillis = timeMillis;
+        }
+    }
+
+    LoopbackDataReader(LoopbackBus bus, LoopbackSubscriber subscriber, LoopbackTopic topic, 
+                       int historyDepth, DataReaderListener listener) {
+        m_bus          = bus;
+        m_subscriber   = subscriber;
+        m_topic        = topic;
+        m_historyDepth = historyDepth;
+        m_listener     = listener;
+        m_reader       = createProxy(DataReader.class);
+    }
+
+    public DataReader getProxy() {
+        return m_reader;
+    }
+
+    boolean isEnabled() {
+        return m_enabled;
+    }
+
+    String[] getPartitions() {
+        return m_subscriber.getPartitions();
+    }
+
+    @Override
+    public void enable() {
+        if(!m_enabled) {
+            super.enable();
+            m_topic.addReader(this);
+        }
+    }
+
+    void receive(Object sample) {
+        final Received received = new Received(LoopbackDataWriter.copySample(sample), System.currentTimeMillis());
+        synchronized(m_history) {
+            if(m_history.size() >= m_historyDepth) {
+                m_history.removeFirst();
+                m_lost++;
+            }
+            m_history.addLast(received);
+            m_received++;
+        }
+        if(m_listener != null && m_notifyPending.compareAndSet(false, true)) {
+            m_bus.notifyReader(this);
+        }
+    }
+
+    void notifyDataAvailable() {
+        m_notifyPending.set(false);
+        final DataReaderListener listener = m_listener;
+        if(listener != null && m_enabled) {
+            synchronized(m_history) {
+                if(m_history.isEmpty()) {
+                    return;
+                }
+            }
+            try {
+                listener.on_data_available(m_reader);
+            }
+            catch(Throwable t) {
+                logger.error("Exception in on_data_available for "+m_topic.get_name(), t);
+            }
+        }
+    }
+
+    public void take_untyped(List<?> dataSeq, SampleInfoSeq infoSeq, int maxSamples, 
+                             int sampleStates, int viewStates, int instanceStates) {
+        fill(dataSeq, infoSeq, maxSamples, true);
+    }
+
+    public void read_untyped(List<?> dataSeq, SampleInfoSeq infoSeq, int maxSamples, 
+                             int sampleStates, int viewStates, int instanceStates) {
+        fill(dataSeq, infoSeq, maxSamples, false);
+    }
+
+    public void return_loan_untyped(List<?> dataSeq, SampleInfoSeq infoSeq) {
+        dataSeq.clear();
+        infoSeq.clear();
+    }
+
+    public void take_next_sample_untyped(Object data, SampleInfo info) {
+        next(data, info, true);
+    }
+
+    public void read_next_sample_untyped(Object data, SampleInfo info) {
+        next(data, info, false);
+    }
+
+    public void set_listener(DataReaderListener listener, int mask) {
+        m_listener = listener;
+    }
+
+    public DataReaderListener get_listener() {
+        return m_listener;
+    }
+
+    public void get_qos(DataReaderQos qos) {
+        qos.history.depth = m_historyDepth;
+    }
+
+    public void get_subscription_matched_status(SubscriptionMatchedStatus status) {
+        final int count = m_topic.getMatchedWriterCount(this);
+        status.current_count = count;
+        status.current_count_peak = Math.max(status.current_count_peak, count);
+        status.total_count = Math.max(status.total_count, count);
+    }
+
+    public TopicDescription get_topicdescription() {
+        return m_topic.getProxy();
+    }
+
+    public Subscriber get_subscriber() {
+        return m_subscriber.getProxy();
+    }
+
+    /** samples received since creation */
+    public long getReceivedCount() {
+        synchronized(m_history) {
+            return m_received;
+        }
+    }
+
+    /** samples that were replaced in the history before they were taken */
+    public long getLostCount() {
+        synchronized(m_history) {
+            return m_lost;
+        }
+    }
+
+    void destroy() {
+        m_topic.removeReader(this);
+        m_enabled = false;
+        synchronized(m_history) {
+            m_history.clear();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    protected void fill(List<?> dataSeq, SampleInfoSeq infoSeq, int maxSamples, boolean remove) {
+        final List<Object> data = (List<Object>)dataSeq;
+        final int max = (maxSamples == ResourceLimitsQosPolicy.LENGTH_UNLIMITED) ? Integer.MAX_VALUE : maxSamples;
+        synchronized(m_history) {
+            final int count = Math.min(max, m_history.size());
+            if(count == 0) {
+                throw new RETCODE_NO_DATA();
+            }
+            ensureMaximum(data, count);
+            ensureMaximum(infoSeq, count);
+            if(remove) {
+                for(int i = 0; i < count; i++) {
+                    final Received received = m_history.removeFirst();
+                    data.add(received.sample);
+                    infoSeq.add(sampleInfo(received, new SampleInfo()));
+                }
+            }
+            else {
+                int i = 0;
+                for(Received received : m_history) {
+                    if(i++ == count) break;
+                    data.add(received.sample);
+                    infoSeq.add(sampleInfo(received, new SampleInfo()));
+                }
+            }
+        }
+    }
+
+    protected void next(Object data, SampleInfo info, boolean remove) {
+        final Received received;
+        synchronized(m_history) {
+            received = remove ? m_history.pollFirst() : m_history.peekFirst();
+        }
+        if(received == null) {
+            throw new RETCODE_NO_DATA();
+        }
+        ((Copyable)data).copy_from(received.sample);
+        sampleInfo(received, info);
+    }
+
+    protected static SampleInfo sampleInfo(Received received, SampleInfo info) {
+        final int sec     = (int)(received.timeMillis / 1000);
+        final int nanosec = (int)(received.timeMillis % 1000) * 1000000;
+        info.valid_data      = true;
+        info.sample_state    = SampleStateKind.NOT_READ_SAMPLE_STATE;
+        info.view_state      = ViewStateKind.NOT_NEW_VIEW_STATE;
+        info.instance_state  = InstanceStateKind.ALIVE_INSTANCE_STATE;
+        info.reception_timestamp.sec     = sec;
+        info.reception_timestamp.nanosec = nanosec;
+        info.source_timestamp.sec        = sec;
+        info.source_timestamp.nanosec    = nanosec;
+        return info;
+    }
+
+    protected static void ensureMaximum(Object seq, int count) {
+        if(seq instanceof Sequence) {
+            final Sequence sequence = (Sequence)seq;
+            if(sequence.getMaximum() < count) {
+                sequence.setMaximum(count);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LoopbackDataReader["+m_topic.get_name()+"]";
+    }
+}
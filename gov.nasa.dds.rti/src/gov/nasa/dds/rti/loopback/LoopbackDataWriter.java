@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.dds.rti.loopback;
+
+import java.util.ArrayDeque;
+
+import org.apache.log4j.Logger;
+
+import com.rti.dds.infrastructure.Copyable;
+import com.rti.dds.infrastructure.HistoryQosPolicy;
+import com.rti.dds.infrastructure.HistoryQosPolicyKind;
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import com.rti.dds.infrastructure.RETCODE_NOT_ENABLED;
+import com.rti.dds.infrastructure.ResourceLimitsQosPolicy;
+import com.rti.dds.infrastructure.Time_t;
+import com.rti.dds.publication.DataWriter;
+import com.rti.dds.publication.DataWriterListener;
+import com.rti.dds.publication.DataWriterQos;
+import com.rti.dds.publication.Publisher;
+import com.rti.dds.publication.PublicationMatchedStatus;
+import com.rti.dds.topic.Topic;
+
+/**
+ * DataWriter on the LoopbackBus. Writes are routed to the matching readers 
+ * of the topic. Durable writers keep the last historyDepth samples so that 
+ * readers which are created later receive them, which is what RAPID relies 
+ * on for Config messages.
+ */
+public class LoopbackDataWriter extends LoopbackEntity {
+    private static final Logger logger = Logger.getLogger(LoopbackDataWriter.class);
+
+    protected final LoopbackPublisher m_publisher;
+    protected final LoopbackTopic     m_topic;
+    protected final int               m_historyDepth;
+    protected final boolean           m_durable;
+    protected final DataWriter        m_writer;
+    protected final ArrayDeque<Object> m_history = new ArrayDeque<Object>();
+
+    protected DataWriterListener m_listener;
+    protected long m_written = 0;
+
+    LoopbackDataWriter(LoopbackPublisher publisher, LoopbackTopic topic, int historyDepth, 
+                       boolean durable, DataWriterListener listener) {
+        m_publisher    = publisher;
+        m_topic        = topic;
+        m_historyDepth = historyDepth;
+        m_durable      = durable;
+        m_listener     = listener;
+        m_writer       = createProxy(DataWriter.class);
+    }
+
+    public DataWriter getProxy() {
+        return m_writer;
+    }
+
+    boolean isEnabled() {
+        return m_enabled;
+    }
+
+    String[] getPartitions() {
+        return m_publisher.getPartitions();
+    }
+
+    @Override
+    public void enable() {
+        if(!m_enabled) {
+            super.enable();
+            m_topic.addWriter(this);
+        }
+    }
+
+    public void write_untyped(Object sample, InstanceHandle_t handle) {
+        if(!m_enabled) {
+            throw new RETCODE_NOT_ENABLED();
+        }
+        if(m_durable) {
+            final Object copy = copySample(sample);
+            synchronized(m_history) {
+                if(m_history.size() >= m_historyDepth) {
+                    m_history.removeFirst();
+                }
+                m_history.addLast(copy);
+            }
+        }
+        m_written++;
+        m_topic.write(this, sample);
+    }
+
+    public void write_w_timestamp_untyped(Object sample, InstanceHandle_t handle, Time_t timestamp) {
+        write_untyped(sample, handle);
+    }
+
+    public InstanceHandle_t register_instance_untyped(Object instance) {
+        return InstanceHandle_t.HANDLE_NIL;
+    }
+
+    public void set_listener(DataWriterListener listener, int mask) {
+        m_listener = listener;
+    }
+
+    public DataWriterListener get_listener() {
+        return m_listener;
+    }
+
+    public void get_qos(DataWriterQos qos) {
+        qos.history.depth = m_historyDepth;
+    }
+
+    public void get_publication_matched_status(PublicationMatchedStatus status) {
+        final int count = m_topic.getMatchedReaderCount(this);
+        status.current_count = count;
+        status.current_count_peak = Math.max(status.current_count_peak, count);
+        status.total_count = Math.max(status.total_count, count);
+    }
+
+    public Topic get_topic() {
+        return m_topic.getProxy();
+    }
+
+    public Publisher get_publisher() {
+        return m_publisher.getProxy();
+    }
+
+    /** samples written since creation */
+    public long getWrittenCount() {
+        return m_written;
+    }
+
+    void replayHistory(LoopbackDataReader reader) {
+        final Object[] history;
+        synchronized(m_history) {
+            history = m_history.toArray();
+        }
+        for(Object sample : history) {
+            reader.receive(sample);
+        }
+    }
+
+    void destroy() {
+        m_topic.removeWriter(this);
+        m_enabled = false;
+        synchronized(m_history) {
+            m_history.clear();
+        }
+    }
+
+    /**
+     * @return max number of samples to keep according to the History and ResourceLimits QoS
+     */
+    static int historyDepth(HistoryQosPolicy history, ResourceLimitsQosPolicy limits) {
+        if(history.kind.equals(HistoryQosPolicyKind.KEEP_ALL_HISTORY_QOS)) {
+            return limits.max_samples > 0 ? limits.max_samples : Integer.MAX_VALUE;
+        }
+        return Math.max(1, history.depth);
+    }
+
+    /**
+     * copy a sample using the Copyable contract of the generated types
+     */
+    static Object copySample(Object sample) {
+        try {
+            final Copyable retVal = (Copyable)sample.getClass().newInstance();
+            retVal.copy_from(sample);
+            return retVal;
+        }
+        catch(Exception e) {
+            logger.error("Cannot copy "+sample.getClass().getName()+"; generated types must have a public no-arg constructor", e);
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LoopbackDataWriter["+m_topic.get_name()+"]";
+    }
+}
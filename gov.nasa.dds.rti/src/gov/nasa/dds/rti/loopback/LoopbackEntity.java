@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.dds.rti.loopback;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Base class for the loopback stand-ins for RTI entity interfaces
+ * (DomainParticipant, Publisher, DataWriter, etc). Calls on the proxy
+ * are forwarded to the public method of the subclass with the same name
+ * and number of arguments. Methods that the subclass does not implement
+ * do nothing and return a default value, which is what the rest of the
+ * code expects from entity calls that have no meaning in-process
+ * (e.g. flow controllers, liveliness assertion, status conditions).
+ */
+public abstract class LoopbackEntity implements InvocationHandler {
+    private static final Object NOT_IMPLEMENTED = new Object();
+    private final ConcurrentHashMap<Method,Object> m_dispatch = new ConcurrentHashMap<Method,Object>();
+
+    protected Object m_proxy = null;
+    protected boolean m_enabled = false;
+
+    /**
+     * create the proxy for this entity. Must be called exactly once.
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> T createProxy(Class<T> iface) {
+        m_proxy = Proxy.newProxyInstance(LoopbackEntity.class.getClassLoader(),
+                                         new Class<?>[] { iface }, this);
+        return (T)m_proxy;
+    }
+
+    /**
+     * @return the LoopbackEntity backing a proxy, or null if obj is not a loopback entity
+     */
+    public static LoopbackEntity get(Object obj) {
+        if(obj != null && Proxy.isProxyClass(obj.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(obj);
+            if(handler instanceof LoopbackEntity) {
+                return (LoopbackEntity)handler;
+            }
+        }
+        return null;
+    }
+
+    public static boolean isLoopback(Object obj) {
+        return get(obj) != null;
+    }
+
+    public void enable() {
+        m_enabled = true;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        Object target = m_dispatch.get(method);
+        if(target == null) {
+            target = findTarget(method);
+            m_dispatch.put(method, target);
+        }
+        if(target == NOT_IMPLEMENTED) {
+            return objectMethod(proxy, method, args);
+        }
+        try {
+            return ((Method)target).invoke(this, args);
+        }
+        catch(InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Object findTarget(Method method) {
+        final int numArgs = method.getParameterTypes().length;
+        for(Method m : getClass().getMethods()) {
+            if(m.getName().equals(method.getName())
+                    && m.getParameterTypes().length == numArgs
+                    && m.getDeclaringClass() != Object.class
+                    && !Modifier.isStatic(m.getModifiers())) {
+                return m;
+            }
+        }
+        return NOT_IMPLEMENTED;
+    }
+
+    private Object objectMethod(Object proxy, Method method, Object[] args) {
+        final String name = method.getName();
+        if(name.equals("hashCode") && args == null) {
+            return System.identityHashCode(proxy);
+        }
+        if(name.equals("equals") && args != null && args.length == 1) {
+            return proxy == args[0];
+        }
+        if(name.equals("toString") && args == null) {
+            return toString();
+        }
+        return defaultValue(method.getReturnType());
+    }
+
+    protected static Object defaultValue(Class<?> type) {
+        if(!type.isPrimitive() || type == void.class) return null;
+        if(type == boolean.class) return Boolean.FALSE;
+        if(type == char.class)    return Character.valueOf((char)0);
+        if(type == byte.class)    return Byte.valueOf((byte)0);
+        if(type == short.class)   return Short.valueOf((short)0);
+        if(type == int.class)     return Integer.valueOf(0);
+        if(type == long.class)    return Long.valueOf(0);
+        if(type == float.class)   return Float.valueOf(0);
+        return Double.valueOf(0);
+    }
+}
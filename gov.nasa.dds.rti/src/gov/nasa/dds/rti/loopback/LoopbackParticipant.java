@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.dds.rti.loopback;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.rti.dds.domain.DomainParticipant;
+import com.rti.dds.domain.DomainParticipantQos;
+import com.rti.dds.infrastructure.Duration_t;
+import com.rti.dds.infrastructure.StringSeq;
+import com.rti.dds.publication.Publisher;
+import com.rti.dds.publication.PublisherListener;
+import com.rti.dds.publication.PublisherQos;
+import com.rti.dds.subscription.Subscriber;
+import com.rti.dds.subscription.SubscriberListener;
+import com.rti.dds.subscription.SubscriberQos;
+import com.rti.dds.topic.Topic;
+import com.rti.dds.topic.TopicListener;
+import com.rti.dds.topic.TopicQos;
+
+/**
+ * DomainParticipant on the LoopbackBus. Creates Publishers and Subscribers
+ * for partitions and hands out the shared LoopbackTopics of its domain.
+ */
+public class LoopbackParticipant extends LoopbackEntity {
+    protected final LoopbackBus       m_bus;
+    protected final String            m_name;
+    protected final int               m_domainId;
+    protected final DomainParticipant m_participant;
+
+    private final CopyOnWriteArrayList<LoopbackPublisher>  m_publishers  = new CopyOnWriteArrayList<LoopbackPublisher>();
+    private final CopyOnWriteArrayList<LoopbackSubscriber> m_subscribers = new CopyOnWriteArrayList<LoopbackSubscriber>();
+
+    LoopbackParticipant(LoopbackBus bus, String name, int domainId) {
+        m_bus         = bus;
+        m_name        = name;
+        m_domainId    = domainId;
+        m_participant = createProxy(DomainParticipant.class);
+        m_enabled     = true;
+    }
+
+    public DomainParticipant getProxy() {
+        return m_participant;
+    }
+
+    public LoopbackBus getBus() {
+        return m_bus;
+    }
+
+    public int get_domain_id() {
+        return m_domainId;
+    }
+
+    public void get_qos(DomainParticipantQos qos) {
+        qos.participant_name.name = m_name;
+    }
+
+    public Publisher create_publisher(PublisherQos qos, PublisherListener listener, int mask) {
+        LoopbackPublisher retVal = new LoopbackPublisher(this, toArray(qos == null ? null : qos.partition.name));
+        m_publishers.add(retVal);
+        return retVal.getProxy();
+    }
+
+    public Publisher create_publisher_with_profile(String library, String profile, PublisherListener listener, int mask) {
+        return create_publisher(null, listener, mask);
+    }
+
+    public Subscriber create_subscriber(SubscriberQos qos, SubscriberListener listener, int mask) {
+        LoopbackSubscriber retVal = new LoopbackSubscriber(this, toArray(qos == null ? null : qos.partition.name));
+        m_subscribers.add(retVal);
+        return retVal.getProxy();
+    }
+
+    public Subscriber create_subscriber_with_profile(String library, String profile, SubscriberListener listener, int mask) {
+        return create_subscriber(null, listener, mask);
+    }
+
+    public void delete_publisher(Publisher publisher) {
+        LoopbackEntity entity = LoopbackEntity.get(publisher);
+        if(entity instanceof LoopbackPublisher) {
+            ((LoopbackPublisher)entity).delete_contained_entities();
+            m_publishers.remove(entity);
+        }
+    }
+
+    public void delete_subscriber(Subscriber subscriber) {
+        LoopbackEntity entity = LoopbackEntity.get(subscriber);
+        if(entity instanceof LoopbackSubscriber) {
+            ((LoopbackSubscriber)entity).delete_contained_entities();
+            m_subscribers.remove(entity);
+        }
+    }
+
+    /**
+     * topics always exist on the bus, so find_topic never waits
+     */
+    public Topic find_topic(String topicName, Duration_t timeout) {
+        return m_bus.getTopic(m_domainId, topicName).getProxy();
+    }
+
+    public Topic create_topic(String topicName, String typeName, TopicQos qos, TopicListener listener, int mask) {
+        return m_bus.getTopic(m_domainId, topicName).getProxy();
+    }
+
+    public Topic create_topic_with_profile(String topicName, String typeName, String library, String profile, TopicListener listener, int mask) {
+        return m_bus.getTopic(m_domainId, topicName).getProxy();
+    }
+
+    public void delete_contained_entities() {
+        for(LoopbackPublisher publisher : m_publishers) {
+            publisher.delete_contained_entities();
+        }
+        for(LoopbackSubscriber subscriber : m_subscribers) {
+            subscriber.delete_contained_entities();
+        }
+        m_publishers.clear();
+        m_subscribers.clear();
+    }
+
+    static String[] toArray(StringSeq names) {
+        if(names == null) {
+            return new String[0];
+        }
+        String[] retVal = new String[names.size()];
+        for(int i = 0; i < retVal.length; i++) {
+            retVal[i] = (String)names.get(i);
+        }
+        return retVal;
+    }
+
+    @Override
+    public String toString() {
+        return "LoopbackParticipant["+m_name+"@"+m_domainId+"]";
+    }
+}
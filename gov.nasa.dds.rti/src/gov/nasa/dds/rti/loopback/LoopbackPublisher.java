@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.dds.rti.loopback;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.log4j.Logger;
+
+import com.rti.dds.infrastructure.DurabilityQosPolicyKind;
+import com.rti.dds.publication.DataWriter;
+import com.rti.dds.publication.DataWriterListener;
+import com.rti.dds.publication.DataWriterQos;
+import com.rti.dds.publication.Publisher;
+import com.rti.dds.topic.Topic;
+
+/**
+ * Publisher on the LoopbackBus; holds the partitions of its DataWriters
+ */
+public class LoopbackPublisher extends LoopbackEntity {
+    private static final Logger logger = Logger.getLogger(LoopbackPublisher.class);
+
+    protected final LoopbackParticipant m_participant;
+    protected final String[]            m_partitions;
+    protected final Publisher           m_publisher;
+
+    private final CopyOnWriteArrayList<LoopbackDataWriter> m_writers = new CopyOnWriteArrayList<LoopbackDataWriter>();
+
+    LoopbackPublisher(LoopbackParticipant participant, String[] partitions) {
+        m_participant = participant;
+        m_partitions  = partitions;
+        m_publisher   = createProxy(Publisher.class);
+        m_enabled     = true;
+    }
+
+    public Publisher getProxy() {
+        return m_publisher;
+    }
+
+    String[] getPartitions() {
+        return m_partitions;
+    }
+
+    public DataWriter create_datawriter(Topic topic, DataWriterQos qos, DataWriterListener listener, int mask) {
+        final int depth = LoopbackDataWriter.historyDepth(qos.history, qos.resource_limits);
+        final boolean durable = !qos.durability.kind.equals(DurabilityQosPolicyKind.VOLATILE_DURABILITY_QOS);
+        return createWriter(topic, depth, durable, listener);
+    }
+
+    /**
+     * Writers created from a profile take their history depth and durability 
+     * from the LoopbackBus QoS profiles. If the profile is not there, they use 
+     * the bus profile history depth and keep their history for late joining 
+     * readers, since RAPID Config topics depend on that.
+     */
+    public DataWriter create_datawriter_with_profile(Topic topic, String library, String profile, DataWriterListener listener, int mask) {
+        final LoopbackQosProfiles.EndpointQos qos = m_participant.getBus().getQosProfiles().getWriterQos(library, profile);
+        if(qos == null) {
+            logger.warn("QoS profile "+library+"::"+profile+" not found; "+topic.get_name()+" writer uses the bus default history");
+            return createWriter(topic, m_participant.getBus().getProfileHistoryDepth(), true, listener);
+        }
+        return createWriter(topic, qos.historyDepth, qos.durable, listener);
+    }
+
+    protected DataWriter createWriter(Topic topic, int depth, boolean durable, DataWriterListener listener) {
+        final LoopbackTopic lbTopic = (LoopbackTopic)LoopbackEntity.get(topic);
+        LoopbackDataWriter writer = new LoopbackDataWriter(this, lbTopic, depth, durable, listener);
+        m_writers.add(writer);
+        return writer.getProxy();
+    }
+
+    public void delete_datawriter(DataWriter writer) {
+        LoopbackEntity entity = LoopbackEntity.get(writer);
+        if(entity instanceof LoopbackDataWriter) {
+            ((LoopbackDataWriter)entity).destroy();
+            m_writers.remove(entity);
+        }
+    }
+
+    public void delete_contained_entities() {
+        for(LoopbackDataWriter writer : m_writers) {
+            writer.destroy();
+        }
+        m_writers.clear();
+    }
+}
@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.dds.rti.loopback;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.log4j.Logger;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Reads the history and durability settings of the DataWriter and
+ * DataReader QoS in RTI XML QoS profile files (e.g. RAPID_QOS_PROFILES.xml),
+ * so that readers and writers created from a profile on the LoopbackBus
+ * keep the same number of samples they would with RTI.
+ * <p>
+ * Only what the bus uses is read: history kind and depth,
+ * resource_limits/max_samples and durability kind. Profiles inherit from
+ * their base_name profile. Topic filtered and named datawriter_qos and
+ * datareader_qos elements are ignored.
+ */
+public class LoopbackQosProfiles {
+    private static final Logger logger = Logger.getLogger(LoopbackQosProfiles.class);
+
+    /** settings of one DataWriter or DataReader QoS */
+    public static class EndpointQos {
+        /** max samples to keep per writer or reader */
+        public final int     historyDepth;
+        public final boolean durable;
+
+        public EndpointQos(int historyDepth, boolean durable) {
+            this.historyDepth = historyDepth;
+            this.durable      = durable;
+        }
+    }
+
+    /** profile elements by "library::profile" */
+    protected final HashMap<String,Element> m_profiles = new HashMap<String,Element>();
+    protected final HashMap<String,EndpointQos> m_writerQos = new HashMap<String,EndpointQos>();
+    protected final HashMap<String,EndpointQos> m_readerQos = new HashMap<String,EndpointQos>();
+
+    /**
+     * load the profiles in each of the files. Entries that are not
+     * readable files are skipped, like DdsEntityFactory does for RTI.
+     */
+    public synchronized void load(String[] qosUrlGroups) {
+        if(qosUrlGroups == null) {
+            return;
+        }
+        for(String urlGroup : qosUrlGroups) {
+            File file = new File(urlGroup);
+            if(!file.canRead()) {
+                logger.warn("urlGroup entry is not a readable file. Ignoring: "+urlGroup);
+                continue;
+            }
+            try {
+                DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+                Document doc = builder.parse(file);
+                NodeList libraries = doc.getElementsByTagName("qos_library");
+                for(int i = 0; i < libraries.getLength(); i++) {
+                    Element library = (Element)libraries.item(i);
+                    for(Element profile : children(library, "qos_profile")) {
+                        m_profiles.put(library.getAttribute("name")+"::"+profile.getAttribute("name"), profile);
+                    }
+                }
+            }
+            catch(Exception e) {
+                logger.error("Failed to read QoS profiles from "+urlGroup, e);
+            }
+        }
+        m_writerQos.clear();
+        m_readerQos.clear();
+    }
+
+    /**
+     * @return the DataWriter settings of the profile, or null if the profile is not known
+     */
+    public synchronized EndpointQos getWriterQos(String library, String profile) {
+        return getQos(m_writerQos, "datawriter_qos", library, profile);
+    }
+
+    /**
+     * @return the DataReader settings of the profile, or null if the profile is not known
+     */
+    public synchronized EndpointQos getReaderQos(String library, String profile) {
+        return getQos(m_readerQos, "datareader_qos", library, profile);
+    }
+
+    protected EndpointQos getQos(HashMap<String,EndpointQos> cache, String tag, String library, String profile) {
+        final String key = library+"::"+profile;
+        EndpointQos retVal = cache.get(key);
+        if(retVal == null && m_profiles.containsKey(key)) {
+            // DDS defaults: KEEP_LAST 1, VOLATILE
+            String[] settings = new String[] { "KEEP_LAST_HISTORY_QOS", "1", "-1", "VOLATILE_DURABILITY_QOS" };
+            resolve(tag, library, profile, settings, new HashSet<String>());
+            final int depth;
+            if(settings[0].equals("KEEP_ALL_HISTORY_QOS")) {
+                final int maxSamples = parseInt(settings[2], -1);
+                depth = maxSamples > 0 ? maxSamples : Integer.MAX_VALUE;
+            }
+            else {
+                depth = Math.max(1, parseInt(settings[1], 1));
+            }
+            retVal = new EndpointQos(depth, !settings[3].equals("VOLATILE_DURABILITY_QOS"));
+            cache.put(key, retVal);
+        }
+        return retVal;
+    }
+
+    /**
+     * apply the settings of the base profiles first, then those of this one
+     */
+    protected void resolve(String tag, String library, String profile, String[] settings, HashSet<String> visited) {
+        final String key = library+"::"+profile;
+        final Element element = m_profiles.get(key);
+        if(element == null || !visited.add(key)) {
+            return;
+        }
+        final String baseName = element.getAttribute("base_name");
+        if(baseName.length() > 0) {
+            final int sep = baseName.indexOf("::");
+            if(sep < 0) {
+                resolve(tag, library, baseName, settings, visited);
+            }
+            else {
+                resolve(tag, baseName.substring(0, sep), baseName.substring(sep+2), settings, visited);
+            }
+        }
+        for(Element qos : children(element, tag)) {
+            if(qos.hasAttribute("topic_filter") || qos.hasAttribute("name")) {
+                continue;
+            }
+            for(Element history : children(qos, "history")) {
+                settings[0] = text(history, "kind", settings[0]);
+                settings[1] = text(history, "depth", settings[1]);
+            }
+            for(Element limits : children(qos, "resource_limits")) {
+                settings[2] = text(limits, "max_samples", settings[2]);
+            }
+            for(Element durability : children(qos, "durability")) {
+                settings[3] = text(durability, "kind", settings[3]);
+            }
+        }
+    }
+
+    protected static List<Element> children(Element parent, String tag) {
+        ArrayList<Element> retVal = new ArrayList<Element>();
+        for(Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if(node instanceof Element && node.getNodeName().equals(tag)) {
+                retVal.add((Element)node);
+            }
+        }
+        return retVal;
+    }
+
+    protected static String text(Element parent, String tag, String defaultValue) {
+        for(Element child : children(parent, tag)) {
+            return child.getTextContent().trim();
+        }
+        return defaultValue;
+    }
+
+    protected static int parseInt(String value, int defaultValue) {
+        if(value.equals("LENGTH_UNLIMITED")) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(value);
+        }
+        catch(NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
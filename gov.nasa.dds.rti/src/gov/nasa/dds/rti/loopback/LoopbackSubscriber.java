@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.dds.rti.loopback;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.log4j.Logger;
+
+import com.rti.dds.subscription.DataReader;
+import com.rti.dds.subscription.DataReaderListener;
+import com.rti.dds.subscription.DataReaderQos;
+import com.rti.dds.subscription.Subscriber;
+import com.rti.dds.topic.TopicDescription;
+
+/**
+ * Subscriber on the LoopbackBus; holds the partitions of its DataReaders
+ */
+public class LoopbackSubscriber extends LoopbackEntity {
+    private static final Logger logger = Logger.getLogger(LoopbackSubscriber.class);
+
+    protected final LoopbackParticipant m_participant;
+    protected final String[]            m_partitions;
+    protected final Subscriber          m_subscriber;
+
+    private final CopyOnWriteArrayList<LoopbackDataReader> m_readers = new CopyOnWriteArrayList<LoopbackDataReader>();
+
+    LoopbackSubscriber(LoopbackParticipant participant, String[] partitions) {
+        m_participant = participant;
+        m_partitions  = partitions;
+        m_subscriber  = createProxy(Subscriber.class);
+        m_enabled     = true;
+    }
+
+    public Subscriber getProxy() {
+        return m_subscriber;
+    }
+
+    String[] getPartitions() {
+        return m_partitions;
+    }
+
+    public DataReader create_datareader(TopicDescription topic, DataReaderQos qos, DataReaderListener listener, int mask) {
+        return createReader(topic, LoopbackDataWriter.historyDepth(qos.history, qos.resource_limits), listener);
+    }
+
+    /**
+     * Readers created from a profile take their history depth from the 
+     * LoopbackBus QoS profiles, or use the bus profile history depth if 
+     * the profile is not there.
+     */
+    public DataReader create_datareader_with_profile(TopicDescription topic, String library, String profile, DataReaderListener listener, int mask) {
+        final LoopbackQosProfiles.EndpointQos qos = m_participant.getBus().getQosProfiles().getReaderQos(library, profile);
+        if(qos == null) {
+            logger.warn("QoS profile "+library+"::"+profile+" not found; "+topic.get_name()+" reader uses the bus default history");
+            return createReader(topic, m_participant.getBus().getProfileHistoryDepth(), listener);
+        }
+        return createReader(topic, qos.historyDepth, listener);
+    }
+
+    protected DataReader createReader(TopicDescription topic, int depth, DataReaderListener listener) {
+        final LoopbackTopic lbTopic = (LoopbackTopic)LoopbackEntity.get(topic);
+        LoopbackDataReader reader = new LoopbackDataReader(m_participant.getBus(), this, lbTopic, depth, listener);
+        m_readers.add(reader);
+        return reader.getProxy();
+    }
+
+    public void delete_datareader(DataReader reader) {
+        LoopbackEntity entity = LoopbackEntity.get(reader);
+        if(entity instanceof LoopbackDataReader) {
+            ((LoopbackDataReader)entity).destroy();
+            m_readers.remove(entity);
+        }
+    }
+
+    public void delete_contained_entities() {
+        for(LoopbackDataReader reader : m_readers) {
+            reader.destroy();
+        }
+        m_readers.clear();
+    }
+}
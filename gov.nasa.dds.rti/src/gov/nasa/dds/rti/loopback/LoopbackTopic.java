@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.dds.rti.loopback;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.rti.dds.topic.Topic;
+
+/**
+ * A named topic on one domain of the LoopbackBus. Keeps track of the
+ * writers and readers so samples can be routed without discovery.
+ */
+public class LoopbackTopic extends LoopbackEntity {
+    protected final LoopbackBus m_bus;
+    protected final int         m_domainId;
+    protected final String      m_topicName;
+    protected final Topic       m_topic;
+
+    private final CopyOnWriteArrayList<LoopbackDataWriter> m_writers = new CopyOnWriteArrayList<LoopbackDataWriter>();
+    private final CopyOnWriteArrayList<LoopbackDataReader> m_readers = new CopyOnWriteArrayList<LoopbackDataReader>();
+
+    LoopbackTopic(LoopbackBus bus, int domainId, String topicName) {
+        m_bus       = bus;
+        m_domainId  = domainId;
+        m_topicName = topicName;
+        m_topic     = createProxy(Topic.class);
+    }
+
+    public Topic getProxy() {
+        return m_topic;
+    }
+
+    public String get_name() {
+        return m_topicName;
+    }
+
+    public String get_type_name() {
+        return m_topicName;
+    }
+
+    void addWriter(LoopbackDataWriter writer) {
+        m_writers.add(writer);
+        // late joining readers already exist; give them the writer's history
+        for(LoopbackDataReader reader : m_readers) {
+            if(matches(writer, reader)) {
+                writer.replayHistory(reader);
+            }
+        }
+    }
+
+    void addReader(LoopbackDataReader reader) {
+        m_readers.add(reader);
+        for(LoopbackDataWriter writer : m_writers) {
+            if(matches(writer, reader)) {
+                writer.replayHistory(reader);
+            }
+        }
+    }
+
+    void removeWriter(LoopbackDataWriter writer) {
+        m_writers.remove(writer);
+    }
+
+    void removeReader(LoopbackDataReader reader) {
+        m_readers.remove(reader);
+    }
+
+    /**
+     * deliver sample to every matching reader
+     * @return number of readers the sample was delivered to
+     */
+    int write(LoopbackDataWriter writer, Object sample) {
+        int retVal = 0;
+        for(LoopbackDataReader reader : m_readers) {
+            if(matches(writer, reader)) {
+                reader.receive(sample);
+                retVal++;
+            }
+        }
+        return retVal;
+    }
+
+    int getMatchedReaderCount(LoopbackDataWriter writer) {
+        int retVal = 0;
+        for(LoopbackDataReader reader : m_readers) {
+            if(matches(writer, reader)) {
+                retVal++;
+            }
+        }
+        return retVal;
+    }
+
+    int getMatchedWriterCount(LoopbackDataReader reader) {
+        int retVal = 0;
+        for(LoopbackDataWriter writer : m_writers) {
+            if(matches(writer, reader)) {
+                retVal++;
+            }
+        }
+        return retVal;
+    }
+
+    protected boolean matches(LoopbackDataWriter writer, LoopbackDataReader reader) {
+        return writer.isEnabled() && reader.isEnabled() &&
+                LoopbackBus.partitionsMatch(writer.getPartitions(), reader.getPartitions());
+    }
+
+    @Override
+    public String toString() {
+        return "LoopbackTopic["+m_domainId+"/"+m_topicName+"]";
+    }
+}
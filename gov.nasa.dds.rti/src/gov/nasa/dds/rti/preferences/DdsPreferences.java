@@ -70,6 +70,10 @@ public final class DdsPreferences {
         return assertImpl().isTransportDisabled(transportName);
     }
 
+    public static boolean isLoopbackTransport() {
+        return assertImpl().isLoopbackTransport();
+    }
+
     protected static IDdsPreferences assertImpl() {
         if(s_impl != null) {
             return s_impl;
@@ -93,6 +97,7 @@ public final class DdsPreferences {
         builder.append("              qosProfile="+prefs.getQosProfile(participantId)+"\n");
         builder.append("       ignoreUserProfile="+prefs.isIgnoreUserProfile()+"\n");
         builder.append("ignoreEnvironmentProfile="+prefs.isIgnoreEnvironmentProfile()+"\n");
+        builder.append("       loopbackTransport="+prefs.isLoopbackTransport()+"\n");
         builder.append("               urlGroups=");
         for(int i = 0; i < prefs.getProfileUrlGroups().length; i++) {
             if(i > 0) {
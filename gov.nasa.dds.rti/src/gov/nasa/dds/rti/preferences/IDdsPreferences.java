@@ -29,6 +29,9 @@ public interface IDdsPreferences {
     /**  return false unless user explicitly disables a transport */
     boolean   isTransportDisabled(String transportName);
     
+    /** return true to run participants on the in-process loopback bus instead of RTI */
+    boolean   isLoopbackTransport();
+    
     int       getDomainId(String participantId);
     String    getQosLibrary(String participantId);
     String    getQosProfile(String participantId);
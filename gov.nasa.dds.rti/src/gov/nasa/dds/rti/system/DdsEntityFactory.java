@@ -19,6 +19,8 @@ package gov.nasa.dds.rti.system;
 
 import gov.nasa.dds.exception.DdsEntityCreationException;
 import gov.nasa.dds.exception.UncheckedDdsEntityException;
+import gov.nasa.dds.rti.loopback.LoopbackBus;
+import gov.nasa.dds.rti.loopback.LoopbackEntity;
 import gov.nasa.dds.rti.preferences.DdsPreferences;
 import gov.nasa.dds.rti.util.TypeSupportUtil;
 import gov.nasa.util.IProgressUpdater;
@@ -66,6 +68,42 @@ public class DdsEntityFactory {
 
     protected static DomainParticipantFactoryConfig s_dpfConfig = null;
 
+    /** if non-null, participants are created on the in-process loopback bus instead of RTI */
+    protected static LoopbackBus s_loopbackBus = null;
+
+    /**
+     * Participants created after this call will use the in-process loopback bus
+     * (or RTI, if bus is null). Existing participants are not affected, so this
+     * should only be called while DDS is stopped. 
+     * @param bus
+     */
+    public static synchronized void setLoopbackBus(LoopbackBus bus) {
+        s_loopbackBus = bus;
+    }
+
+    /**
+     * Use the loopback bus for participants created after this call, creating 
+     * the bus if it doesn't exist yet. Applications that share a JVM (e.g. the 
+     * simulator and a workbench) will join the same bus. 
+     * @param qosUrlGroups QoS profile files (e.g. RAPID_QOS_PROFILES.xml) that 
+     *        readers and writers created from a profile take their history from
+     */
+    public static synchronized LoopbackBus enableLoopbackBus(String[] qosUrlGroups) {
+        if(s_loopbackBus == null) {
+            s_loopbackBus = new LoopbackBus();
+        }
+        s_loopbackBus.getQosProfiles().load(qosUrlGroups);
+        return s_loopbackBus;
+    }
+
+    public static synchronized LoopbackBus getLoopbackBus() {
+        return s_loopbackBus;
+    }
+
+    public static synchronized boolean isLoopback() {
+        return s_loopbackBus != null;
+    }
+
     public static synchronized void updateDomainParticipantFactory() {
         if(s_dpfConfig == null) {
             s_dpfConfig = new DomainParticipantFactoryConfig();
@@ -278,6 +316,9 @@ public class DdsEntityFactory {
                                                                 IParticipantCustomization customize,
                                                                 DomainParticipantListener dpListener) 
                                                                         throws DdsEntityCreationException {
+        if(s_loopbackBus != null) {
+            return createLoopbackParticipantImpl(participantId, participantName, domainId);
+        }
         try {
             boolean profileComplete = true;
             if(qosLibrary == null || qosLibrary.length() == 0 ||
@@ -386,6 +427,28 @@ public class DdsEntityFactory {
         return participant;
     }
 
+    /**
+     * Package visibility only. Create a participant on the loopback bus. QoS profiles 
+     * and IParticipantCustomizations do not apply to loopback participants. 
+     */
+    static synchronized DomainParticipant createLoopbackParticipantImpl(String participantId,
+                                                                        String participantName, 
+                                                                        int domainId) 
+                                                                                throws DdsEntityCreationException {
+        if(participantId == null) {
+            throw new DdsEntityCreationException("Participant name cannot be null");
+        }
+        if(s_participantMap.get(participantId) != null) {
+            throw new DdsEntityCreationException("A Participant with ID \""+participantId+"\" already exists.");
+        }
+        DomainParticipant participant = s_loopbackBus.createParticipant(participantName, domainId);
+        addParticipant(participantId, participant);
+        if(s_defaultParticipant == null) {
+            s_defaultParticipant = participantId;
+        }
+        return participant;
+    }
+
     protected static synchronized void addParticipant(String participantId, DomainParticipant participant) {
         s_participantMap.put(participantId, participant);
         s_containedMap.put(participantId, new ContainedEntities(participant));
@@ -455,6 +518,9 @@ public class DdsEntityFactory {
             catch(Throwable t) {
                 logger.error("delete_contained_entities() failed", t);
             }
+            if(LoopbackEntity.isLoopback(participant)) {
+                return; // not known to the DomainParticipantFactory
+            }
             try {
                 DomainParticipantFactory.get_instance().delete_participant(participant);
             }
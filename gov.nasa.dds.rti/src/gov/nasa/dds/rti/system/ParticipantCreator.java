@@ -90,6 +90,9 @@ public class ParticipantCreator {
                 logger.debug("Invalid profile ("+qosLibrary+"::"+qosProfile+"); "+participantId+" participant will not be created.");
                 return null;
             }
+            if(DdsEntityFactory.isLoopback()) {
+                return DdsEntityFactory.createLoopbackParticipantImpl(participantId, participantName, domainId);
+            }
             DomainParticipantQos participantQos = new DomainParticipantQos();
             DomainParticipantFactory.get_instance().get_participant_qos_from_profile(participantQos, qosLibrary, qosProfile);
 
@@ -19,6 +19,7 @@ package gov.nasa.dds.rti.system;
 
 
 import gov.nasa.dds.exception.DdsEntityCreationException;
+import gov.nasa.dds.rti.loopback.LoopbackBus;
 import gov.nasa.dds.rti.preferences.DdsPreferences;
 import gov.nasa.dds.system.IDds;
 import gov.nasa.dds.system.IDdsRestartListener;
@@ -125,10 +126,17 @@ public class RtiDds implements IDds {
 
         if(progress != null) progress.updateProgress("destroying DDS participants...");
         DdsEntityFactory.destroyAllParticipants(progress);
-        // pause before wiping out the factory
-        try { Thread.sleep(250); } catch(Throwable t) { t.printStackTrace(); }
-        // wipe out the participant factory
-        DomainParticipantFactory.finalize_instance();
+        LoopbackBus loopbackBus = DdsEntityFactory.getLoopbackBus();
+        if(loopbackBus != null) {
+            loopbackBus.shutdown();
+            DdsEntityFactory.setLoopbackBus(null);
+        }
+        else {
+            // pause before wiping out the factory
+            try { Thread.sleep(250); } catch(Throwable t) { t.printStackTrace(); }
+            // wipe out the participant factory
+            DomainParticipantFactory.finalize_instance();
+        }
 
         if(progress != null) progress.updateProgress("notifying restart listeners that DDS has stopped...");
         for(WeakReference<IDdsRestartListener> lref : s_restartListeners) {
@@ -151,13 +159,29 @@ public class RtiDds implements IDds {
         return retVal;
     }
 
+    /**
+     * @return true if participants should be created on the in-process 
+     * loopback bus instead of the RTI runtime. Checked on every start, so 
+     * the transport can be switched with a restart. 
+     */
+    protected boolean isLoopback() {
+        return DdsPreferences.isLoopbackTransport();
+    }
+
     public synchronized boolean start(IProgressUpdater progress) throws Exception {
         LinkedList<WeakReference<IDdsRestartListener>> removeList = new LinkedList<WeakReference<IDdsRestartListener>>();
         boolean retVal = true;
         StringBuilder sb = new StringBuilder("");
 
-        if(progress != null) progress.updateProgress("updating DomainParticipantFactory from preferences...");
-        DdsEntityFactory.updateDomainParticipantFactory();
+        if(isLoopback()) {
+            if(progress != null) progress.updateProgress("creating in-process loopback bus...");
+            DdsEntityFactory.enableLoopbackBus(DdsPreferences.getProfileUrlGroups());
+        }
+        else {
+            if(progress != null) progress.updateProgress("updating DomainParticipantFactory from preferences...");
+            DdsEntityFactory.setLoopbackBus(null);
+            DdsEntityFactory.updateDomainParticipantFactory();
+        }
 
         if(progress != null) progress.updateProgress("updating ParticipantCreator fields from preferences...");
 
@@ -19,13 +19,10 @@ package gov.nasa.dds.system;
 
 import gov.nasa.util.NamedThreadFactory;
 
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 
@@ -34,12 +31,49 @@ import java.util.concurrent.TimeUnit;
  */
 public class DdsTask {
     private static ExecutorService s_admin = Executors.newSingleThreadExecutor(new NamedThreadFactory("DdsAdmin"));
-    private static ExecutorService s_dispatch = new ThreadPoolExecutor(5,     // core pool size
-                                                                       50,    // max pool size
-                                                                       60,    // idle thread timeout
-                                                                       TimeUnit.SECONDS,
-                                                                       new ArrayBlockingQueue<Runnable>(2500),
-                                                                       new NamedThreadFactory("DdsDispatch"));
+
+    /** system property that selects the dispatch executor: "threads" (default) or "virtual" */
+    public static final String DISPATCH_EXECUTOR_PROPERTY = "dds.dispatch.executor";
+    /** max number of pending dispatch tasks */
+    public static final int    DISPATCH_CAPACITY          = 2500;
+    /** how long a producer waits for room in a full dispatch executor before the task is rejected */
+    public static final long   DISPATCH_MAX_BLOCK_MILLIS  = 250;
+
+    private static volatile IDispatchExecutor s_dispatch = createDispatchExecutor(System.getProperty(DISPATCH_EXECUTOR_PROPERTY, "threads"));
+
+    /**
+     * @param type "virtual" for a virtual thread per task (falls back to 
+     * platform threads on older JDKs), anything else for the platform thread pool
+     */
+    public static IDispatchExecutor createDispatchExecutor(String type) {
+        if("virtual".equalsIgnoreCase(type)) {
+            return DispatchExecutor.newVirtualThreadPerTask(DISPATCH_CAPACITY, DISPATCH_MAX_BLOCK_MILLIS);
+        }
+        return DispatchExecutor.newThreadPool(5, 50, DISPATCH_CAPACITY, DISPATCH_MAX_BLOCK_MILLIS);
+    }
+
+    /**
+     * replace the executor used by dispatchExec. The previous executor 
+     * is shut down after it has run the tasks it already accepted.
+     */
+    public static void setDispatchExecutor(IDispatchExecutor executor) {
+        IDispatchExecutor previous = s_dispatch;
+        s_dispatch = executor;
+        if(previous != null && previous != executor) {
+            previous.shutdown();
+        }
+    }
+
+    public static IDispatchExecutor getDispatchExecutor() {
+        return s_dispatch;
+    }
+
+    /**
+     * @return queue depth and rejection counters of the dispatch executor
+     */
+    public static DispatchStats getDispatchStats() {
+        return s_dispatch.getStats();
+    }
 
     /**
      * execute a task in the admin thread. 
@@ -56,17 +90,33 @@ public class DdsTask {
     }
     
     /**
-     * fixed size thread pool for dispatching dds message events
+     * bounded executor for dispatching dds message events
      */
     public static <V> Future<V> dispatchExec(Callable<V> callable) {
         return s_dispatch.submit(callable);
     }
     
     /**
-     * fixed size thread pool for dispatching dds message events
+     * bounded executor for dispatching dds message events
      */
     public static void dispatchExec(Runnable runnable) {
-        s_dispatch.submit(runnable);
+        s_dispatch.execute(runnable);
+    }
+    
+    /**
+     * dispatch a dds message event after all events previously dispatched 
+     * with the same ordering key, e.g. to keep the messages of one topic 
+     * on one partition in order
+     */
+    public static void dispatchExec(Object orderingKey, Runnable runnable) {
+        s_dispatch.execute(orderingKey, runnable);
+    }
+    
+    /**
+     * forget an ordering key that will not be used again
+     */
+    public static void removeDispatchOrderingKey(Object orderingKey) {
+        s_dispatch.removeOrderingKey(orderingKey);
     }
     
 }
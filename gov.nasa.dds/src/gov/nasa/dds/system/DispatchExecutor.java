@@ -0,0 +1,334 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.dds.system;
+
+import gov.nasa.util.NamedThreadFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Bounded dispatch executor on top of either a platform thread pool or
+ * (on JDKs that have them) one virtual thread per task.
+ * <p>
+ * At most <code>capacity</code> tasks may be pending at a time. A producer
+ * that submits while the executor is full blocks for up to
+ * <code>maxBlockMillis</code>, which pushes back on the DDS receive path
+ * instead of failing right away; after that the task is rejected and
+ * counted. Tasks submitted with an ordering key are run one at a time in
+ * submission order, so e.g. messages of one MessageType on one partition
+ * are never delivered out of order even though the executor has many threads.
+ */
+public class DispatchExecutor implements IDispatchExecutor {
+    private static final Logger logger = Logger.getLogger(DispatchExecutor.class);
+
+    /** max number of keyed tasks run by one drain before yielding the thread to other keys */
+    static final int DRAIN_BATCH = 32;
+
+    protected final String          m_name;
+    protected final ExecutorService m_exec;
+    protected final int             m_capacity;
+    protected final long            m_maxBlockMillis;
+
+    private final Semaphore     m_permits;
+    private final AtomicLong    m_submitted = new AtomicLong(0);
+    private final AtomicLong    m_completed = new AtomicLong(0);
+    private final AtomicLong    m_rejected  = new AtomicLong(0);
+    private final AtomicLong    m_blocked   = new AtomicLong(0);
+    private final AtomicInteger m_peak      = new AtomicInteger(0);
+    private volatile boolean    m_shutdown  = false;
+
+    private final ConcurrentHashMap<Object,SerialQueue> m_serialQueues = new ConcurrentHashMap<Object,SerialQueue>();
+
+    /**
+     * Platform thread pool. The pool grows from coreThreads to maxThreads
+     * when the backlog exceeds capacity, like the original DdsTask pool.
+     */
+    public static DispatchExecutor newThreadPool(int coreThreads, int maxThreads, int capacity, long maxBlockMillis) {
+        ThreadPoolExecutor exec = new ThreadPoolExecutor(coreThreads, maxThreads, 60, TimeUnit.SECONDS,
+                                                         new ArrayBlockingQueue<Runnable>(capacity),
+                                                         new NamedThreadFactory("DdsDispatch"));
+        // capacity + maxThreads permits: the pool queue can never overflow
+        return new DispatchExecutor("threads "+coreThreads+"-"+maxThreads, exec, capacity+maxThreads, maxBlockMillis);
+    }
+
+    /**
+     * One virtual thread per task, so a listener that blocks (e.g. in
+     * Display.syncExec) does not hold on to a platform thread. Falls back to
+     * newThreadPool(5, 50, capacity, maxBlockMillis) if the JDK does not
+     * support virtual threads.
+     */
+    public static DispatchExecutor newVirtualThreadPerTask(int capacity, long maxBlockMillis) {
+        ExecutorService exec = createVirtualThreadExecutor();
+        if(exec == null) {
+            logger.info("Virtual threads are not supported by this JDK; using a platform thread pool for DDS dispatch");
+            return newThreadPool(5, 50, capacity, maxBlockMillis);
+        }
+        return new DispatchExecutor("virtual threads", exec, capacity, maxBlockMillis);
+    }
+
+    public static boolean isVirtualThreadSupported() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        }
+        catch(NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * the bundle targets Java 8, so look up the Java 21 factory reflectively
+     */
+    protected static ExecutorService createVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService)factory.invoke(null);
+        }
+        catch(NoSuchMethodException e) {
+            return null;
+        }
+        catch(Exception e) {
+            logger.warn("Could not create virtual thread executor", e);
+            return null;
+        }
+    }
+
+    protected DispatchExecutor(String name, ExecutorService exec, int capacity, long maxBlockMillis) {
+        m_name           = name;
+        m_exec           = exec;
+        m_capacity       = capacity;
+        m_maxBlockMillis = maxBlockMillis;
+        m_permits        = new Semaphore(capacity);
+    }
+
+    @Override
+    public void execute(Runnable task) throws RejectedExecutionException {
+        acquire();
+        try {
+            m_exec.execute(new Tracked(task));
+        }
+        catch(RejectedExecutionException e) {
+            release();
+            m_rejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    @Override
+    public void execute(Object orderingKey, Runnable task) throws RejectedExecutionException {
+        acquire();
+        while(true) {
+            SerialQueue queue = m_serialQueues.get(orderingKey);
+            if(queue == null) {
+                queue = new SerialQueue(orderingKey);
+                SerialQueue existing = m_serialQueues.putIfAbsent(orderingKey, queue);
+                if(existing != null) {
+                    queue = existing;
+                }
+            }
+            if(queue.add(task)) {
+                return;
+            }
+            // the queue was removed after it drained; its successor cannot overlap it
+        }
+    }
+
+    @Override
+    public <V> Future<V> submit(Callable<V> callable) throws RejectedExecutionException {
+        FutureTask<V> retVal = new FutureTask<V>(callable);
+        execute(retVal);
+        return retVal;
+    }
+
+    @Override
+    public void removeOrderingKey(Object orderingKey) {
+        SerialQueue queue = m_serialQueues.get(orderingKey);
+        if(queue != null) {
+            queue.retire();
+        }
+    }
+
+    @Override
+    public DispatchStats getStats() {
+        return new DispatchStats(m_name, m_submitted.get(), m_completed.get(), m_rejected.get(), m_blocked.get(),
+                                 m_capacity - m_permits.availablePermits(), m_peak.get(), m_capacity);
+    }
+
+    @Override
+    public void shutdown() {
+        m_shutdown = true;
+        m_exec.shutdown();
+    }
+
+    protected void acquire() throws RejectedExecutionException {
+        if(m_shutdown) {
+            m_rejected.incrementAndGet();
+            throw new RejectedExecutionException("DispatchExecutor ("+m_name+") has been shut down");
+        }
+        if(!m_permits.tryAcquire()) {
+            m_blocked.incrementAndGet();
+            boolean acquired = false;
+            try {
+                acquired = m_permits.tryAcquire(m_maxBlockMillis, TimeUnit.MILLISECONDS);
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if(!acquired) {
+                m_rejected.incrementAndGet();
+                throw new RejectedExecutionException("DispatchExecutor ("+m_name+") has had "+m_capacity+
+                                                     " pending tasks for more than "+m_maxBlockMillis+" ms");
+            }
+        }
+        m_submitted.incrementAndGet();
+        final int pending = m_capacity - m_permits.availablePermits();
+        int peak = m_peak.get();
+        while(pending > peak && !m_peak.compareAndSet(peak, pending)) {
+            peak = m_peak.get();
+        }
+    }
+
+    protected void release() {
+        m_permits.release();
+    }
+
+    protected void runTask(Runnable task) {
+        try {
+            task.run();
+        }
+        catch(Throwable t) {
+            logger.error("Uncaught exception in DDS dispatch task", t);
+        }
+        finally {
+            m_completed.incrementAndGet();
+            release();
+        }
+    }
+
+    protected class Tracked implements Runnable {
+        final Runnable task;
+
+        Tracked(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            runTask(task);
+        }
+    }
+
+    /**
+     * Tasks for one ordering key. At most one drain per key is scheduled
+     * on the underlying executor at a time. A retired queue stays mapped to
+     * its key until it is idle, so a queue created for the same key later
+     * never drains at the same time as this one.
+     */
+    protected class SerialQueue implements Runnable {
+        private final Object m_key;
+        private final ConcurrentLinkedQueue<Runnable> m_tasks = new ConcurrentLinkedQueue<Runnable>();
+        private final AtomicInteger m_count = new AtomicInteger(0);
+        /** guarded by this */
+        private boolean m_retired = false;
+        private boolean m_closed  = false;
+
+        SerialQueue(Object key) {
+            m_key = key;
+        }
+
+        /**
+         * @return false if the queue has been closed and the task was not added
+         */
+        boolean add(Runnable task) {
+            final boolean start;
+            synchronized(this) {
+                if(m_closed) {
+                    return false;
+                }
+                m_tasks.add(task);
+                start = m_count.getAndIncrement() == 0;
+            }
+            if(start) {
+                schedule();
+            }
+            return true;
+        }
+
+        /** remove the queue from the key map as soon as it is idle */
+        synchronized void retire() {
+            m_retired = true;
+            closeIfIdle();
+        }
+
+        private synchronized void closeIfIdle() {
+            if(m_retired && !m_closed && m_count.get() == 0) {
+                m_closed = true;
+                m_serialQueues.remove(m_key, this);
+            }
+        }
+
+        private void schedule() {
+            try {
+                m_exec.execute(this);
+            }
+            catch(RejectedExecutionException e) {
+                // only happens after shutdown; drop what is left so the permits are returned
+                while(m_tasks.poll() != null) {
+                    m_rejected.incrementAndGet();
+                    release();
+                }
+                m_count.set(0);
+                closeIfIdle();
+            }
+        }
+
+        @Override
+        public void run() {
+            for(int i = 0; i < DRAIN_BATCH; i++) {
+                runTask(m_tasks.poll());
+                if(m_count.decrementAndGet() == 0) {
+                    closeIfIdle();
+                    return;
+                }
+            }
+            // give other keys a turn
+            schedule();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DispatchExecutor["+m_name+"]";
+    }
+}
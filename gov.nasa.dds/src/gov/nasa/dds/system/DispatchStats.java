@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.dds.system;
+
+/**
+ * Snapshot of the counters of an IDispatchExecutor
+ */
+public class DispatchStats {
+    /** description of the executor, e.g. "threads 5-50" or "virtual threads" */
+    public final String name;
+    /** number of tasks accepted */
+    public final long   submitted;
+    /** number of tasks that have finished */
+    public final long   completed;
+    /** number of tasks rejected because the executor stayed full */
+    public final long   rejected;
+    /** number of submissions that had to wait for room */
+    public final long   blocked;
+    /** number of tasks accepted but not yet finished */
+    public final int    pending;
+    /** largest value of pending seen so far */
+    public final int    peakPending;
+    /** max number of pending tasks */
+    public final int    capacity;
+
+    public DispatchStats(String name, long submitted, long completed, long rejected, long blocked,
+                         int pending, int peakPending, int capacity) {
+        this.name        = name;
+        this.submitted   = submitted;
+        this.completed   = completed;
+        this.rejected    = rejected;
+        this.blocked     = blocked;
+        this.pending     = pending;
+        this.peakPending = peakPending;
+        this.capacity    = capacity;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: submitted=%d completed=%d rejected=%d blocked=%d pending=%d/%d peak=%d",
+                             name, submitted, completed, rejected, blocked, pending, capacity, peakPending);
+    }
+}
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.dds.system;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Executor used by DdsTask.dispatchExec to deliver DDS message events.
+ * Implementations bound the number of pending tasks; a producer that
+ * submits while the executor is full waits for room, and the task is
+ * rejected if no room frees up in time.
+ */
+public interface IDispatchExecutor {
+    /**
+     * run a task with no ordering guarantee relative to other tasks
+     * @throws RejectedExecutionException if the executor stayed full or has been shut down
+     */
+    public void execute(Runnable task) throws RejectedExecutionException;
+
+    /**
+     * run a task after every task previously submitted with an equal key
+     * has completed. Tasks with different keys run concurrently.
+     * @throws RejectedExecutionException if the executor stayed full or has been shut down
+     */
+    public void execute(Object orderingKey, Runnable task) throws RejectedExecutionException;
+
+    public <V> Future<V> submit(Callable<V> callable) throws RejectedExecutionException;
+
+    /**
+     * forget an ordering key that will not be used again. Tasks already
+     * queued for the key still run, and the key is only forgotten once they
+     * have, so tasks submitted for it later still run after them.
+     */
+    public void removeOrderingKey(Object orderingKey);
+
+    /**
+     * @return snapshot of the queue depth and rejection counters
+     */
+    public DispatchStats getStats();
+
+    /**
+     * stop accepting tasks. Tasks that have been accepted still run.
+     */
+    public void shutdown();
+}
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.rapid.v2.e4.message.collector;
+
+import gov.nasa.rapid.v2.e4.agent.Agent;
+import gov.nasa.rapid.v2.e4.message.IRapidMessageListener;
+import gov.nasa.rapid.v2.e4.message.MessageType;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.rti.dds.subscription.DataReader;
+
+/**
+ * Measures the in-process side of the ingest path. distributeMessage is the 
+ * cost of fanning a sample out to the IRapidMessageListeners; newMessageRoundTrip 
+ * is the latency from PartitionedMessageCollector.newMessage until the last 
+ * listener has been called on the dispatch thread. Use the SampleTime results 
+ * for p99 latency.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CollectorBenchmark {
+    public static final String PARTICIPANT_ID = "benchmark";
+    
+    @Param({SyntheticSamples.POSITION, SyntheticSamples.JOINT, SyntheticSamples.IMAGE, SyntheticSamples.COMPRESSED})
+    public String messageType;
+
+    @Param({"1", "8"})
+    public int numListeners;
+
+    protected MessageType         m_msgType;
+    protected Object              m_sample;
+    protected BenchmarkCollector  m_collector;
+    protected CountingListener[]  m_listeners;
+    protected long                m_sent = 0;
+
+    /**
+     * collector that never creates DataReaders, so no DomainParticipant is required
+     */
+    public static class BenchmarkCollector extends PartitionedMessageCollector {
+        public BenchmarkCollector(Agent agent) {
+            super(PARTICIPANT_ID, agent, true);
+        }
+
+        @Override
+        protected DataReader createDataReader(MessageListener msgListener) {
+            return null;
+        }
+    }
+
+    public static class CountingListener implements IRapidMessageListener {
+        protected volatile long m_count = 0;
+        protected Object m_last = null;
+
+        @Override
+        public void onRapidMessageReceived(Agent agent, MessageType msgType, Object msgObj, Object cfgObj) {
+            m_last = msgObj;
+            m_count++;
+        }
+
+        public long getCount() {
+            return m_count;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        m_msgType   = SyntheticSamples.messageType(messageType);
+        m_sample    = SyntheticSamples.create(messageType, 0);
+        m_collector = new BenchmarkCollector(Agent.GenericSim);
+        m_listeners = new CountingListener[numListeners];
+        for(int i = 0; i < numListeners; i++) {
+            m_listeners[i] = new CountingListener();
+            m_collector.addRapidMessageListener(m_msgType, m_listeners[i]);
+        }
+        m_sent = 0;
+    }
+
+    /**
+     * stop the collector's dispatch thread, which would otherwise keep 
+     * the fork alive after the trial
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        m_collector.dispose();
+    }
+
+    @Benchmark
+    public Object distributeMessage() {
+        m_collector.distributeMessage(m_msgType, m_sample);
+        return m_listeners[numListeners-1].m_last;
+    }
+
+    @Benchmark
+    public long newMessageRoundTrip() {
+        final CountingListener last = m_listeners[numListeners-1];
+        final long expected = last.getCount() + 1;
+        m_collector.newMessage(m_msgType, m_sample);
+        long count;
+        while((count = last.getCount()) < expected) {
+            // busy wait, parking would dominate the measurement
+        }
+        return count;
+    }
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.rapid.v2.e4.message.collector;
+
+import gov.nasa.rapid.v2.e4.message.MessageType;
+import gov.nasa.rapid.v2.e4.message.ReaderStatus;
+
+/**
+ * IMessageReceiver that counts messages and immediately gives them 
+ * back to the SamplePool, standing in for the collector's dispatch queue
+ */
+public class CountingReceiver implements IMessageReceiver {
+    protected SamplePool m_pool = null;
+    protected long   m_count  = 0;
+    protected Object m_last   = null;
+
+    public void setSamplePool(SamplePool pool) {
+        m_pool = pool;
+    }
+
+    public long getCount() {
+        return m_count;
+    }
+
+    public Object getLast() {
+        return m_last;
+    }
+
+    @Override
+    public void newMessage(MessageType msgType, Object message) {
+        m_count++;
+        m_last = message;
+        if(m_pool != null) {
+            m_pool.release(message);
+        }
+    }
+
+    @Override
+    public void newStatus(MessageType msgType, ReaderStatus statusType, Object status) {
+        // ignore
+    }
+
+    @Override
+    public void instanceAlive(MessageType msgType, Object status) {
+        // ignore
+    }
+
+    @Override
+    public void instanceDead(MessageType msgType, Object status) {
+        // ignore
+    }
+
+    @Override
+    public void incompatibleQosRequested(MessageType msgType, QosPolicyCounts incompatible) {
+        // ignore
+    }
+}
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.rapid.v2.e4.message.collector;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the per-message cost of walking a ListenerList the way 
+ * PartitionedMessageCollector.distributeMessage does, and of the 
+ * add/remove churn that happens when views subscribe and unsubscribe.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ListenerListBenchmark {
+    @Param({"1", "8", "32"})
+    public int numListeners;
+
+    protected ListenerList<Object> m_list;
+    protected Object               m_extra;
+
+    @Setup
+    public void setup() {
+        m_list = new ListenerList<Object>();
+        for(int i = 0; i < numListeners; i++) {
+            m_list.add(new Object());
+        }
+        m_extra = new Object();
+    }
+
+    @Benchmark
+    public void iterate(Blackhole bh) {
+        for(Object listener : m_list.values()) {
+            bh.consume(listener);
+        }
+    }
+
+    @Benchmark
+    public boolean addRemove() {
+        m_list.add(m_extra);
+        return m_list.remove(m_extra);
+    }
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.rapid.v2.e4.message.collector;
+
+import gov.nasa.rapid.v2.e4.message.MessageType;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.rti.dds.subscription.DataReader;
+
+/**
+ * Measures the DDS side of the ingest path: MessageListener.on_bulk_data_available 
+ * taking a batch of samples from a (stub) DataReader, copying them and handing 
+ * them to the IMessageReceiver. Scores are per message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MessageListenerBenchmark {
+    public static final int BATCH = 16;
+
+    @Param({SyntheticSamples.POSITION, SyntheticSamples.JOINT, SyntheticSamples.IMAGE, SyntheticSamples.COMPRESSED})
+    public String messageType;
+
+    @Param({"false", "true"})
+    public boolean pooling;
+
+    protected MessageListener  m_listener;
+    protected CountingReceiver m_receiver;
+    protected DataReader       m_reader;
+
+    @Setup
+    public void setup() {
+        final MessageType msgType = SyntheticSamples.messageType(messageType);
+        final Object[] samples = new Object[BATCH];
+        for(int i = 0; i < BATCH; i++) {
+            samples[i] = SyntheticSamples.create(messageType, i);
+        }
+        m_receiver = new CountingReceiver();
+        m_listener = new MessageListener(m_receiver, msgType);
+        m_listener.getSamplePool().setEnabled(pooling);
+        m_receiver.setSamplePool(m_listener.getSamplePool());
+        m_reader = StubDataReader.create(samples);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Object onBulkDataAvailable() {
+        m_listener.on_bulk_data_available(m_reader);
+        return m_receiver.getLast();
+    }
+}
@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.rapid.v2.e4.message.collector;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures SizeAccumulator.add, which runs on the dispatch thread for 
+ * every message while RapidMessageCollector is measuring sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SizeAccumulatorBenchmark {
+    @Param({SyntheticSamples.POSITION, SyntheticSamples.JOINT, SyntheticSamples.IMAGE, SyntheticSamples.COMPRESSED})
+    public String messageType;
+
+    protected SizeAccumulator m_accumulator;
+    protected Object          m_sample;
+
+    @Setup
+    public void setup() {
+        m_sample = SyntheticSamples.create(messageType, 0);
+        m_accumulator = new SizeAccumulator(m_sample);
+    }
+
+    @Benchmark
+    public long add() {
+        m_accumulator.add(m_sample);
+        return m_accumulator.getCount();
+    }
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.rapid.v2.e4.message.collector;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import com.rti.dds.subscription.DataReader;
+import com.rti.dds.subscription.InstanceStateKind;
+import com.rti.dds.subscription.SampleInfo;
+import com.rti.dds.util.Sequence;
+
+/**
+ * DataReader that hands the same batch of samples to every take_untyped call,
+ * so MessageListener.on_bulk_data_available can be driven without a DDS domain.
+ * Only take_untyped and return_loan_untyped do anything; every other method
+ * returns a default value.
+ */
+public class StubDataReader implements InvocationHandler {
+    protected final Object[]     m_samples;
+    protected final SampleInfo[] m_infos;
+
+    public static DataReader create(Object... samples) {
+        return (DataReader)Proxy.newProxyInstance(StubDataReader.class.getClassLoader(),
+                                                  new Class<?>[] { DataReader.class },
+                                                  new StubDataReader(samples));
+    }
+
+    protected StubDataReader(Object[] samples) {
+        final InstanceHandle_t handle = new InstanceHandle_t();
+        m_samples = samples;
+        m_infos   = new SampleInfo[samples.length];
+        for(int i = 0; i < samples.length; i++) {
+            SampleInfo info = new SampleInfo();
+            info.valid_data = true;
+            info.instance_state = InstanceStateKind.ALIVE_INSTANCE_STATE;
+            info.instance_handle.copy_from(handle);
+            m_infos[i] = info;
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        final String name = method.getName();
+        if("take_untyped".equals(name)) {
+            fill(args[0], m_samples);
+            fill(args[1], m_infos);
+            return null;
+        }
+        if("return_loan_untyped".equals(name)) {
+            ((List<?>)args[0]).clear();
+            ((List<?>)args[1]).clear();
+            return null;
+        }
+        if("hashCode".equals(name)) {
+            return System.identityHashCode(proxy);
+        }
+        if("equals".equals(name)) {
+            return proxy == args[0];
+        }
+        if("toString".equals(name)) {
+            return "StubDataReader["+m_samples.length+"]";
+        }
+        return defaultValue(method.getReturnType());
+    }
+
+    @SuppressWarnings("unchecked")
+    protected static void fill(Object seqObj, Object[] contents) {
+        final List<Object> seq = (List<Object>)seqObj;
+        seq.clear();
+        if(seqObj instanceof Sequence) {
+            Sequence sequence = (Sequence)seqObj;
+            if(sequence.getMaximum() < contents.length) {
+                sequence.setMaximum(contents.length);
+            }
+        }
+        for(Object obj : contents) {
+            seq.add(obj);
+        }
+    }
+
+    protected static Object defaultValue(Class<?> type) {
+        if(!type.isPrimitive() || type == void.class) return null;
+        if(type == boolean.class) return Boolean.FALSE;
+        if(type == char.class)    return Character.valueOf((char)0);
+        if(type == byte.class)    return Byte.valueOf((byte)0);
+        if(type == short.class)   return Short.valueOf((short)0);
+        if(type == int.class)     return Integer.valueOf(0);
+        if(type == long.class)    return Long.valueOf(0);
+        if(type == float.class)   return Float.valueOf(0);
+        return Double.valueOf(0);
+    }
+}
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.rapid.v2.e4.message.collector;
+
+import gov.nasa.rapid.idl.ext.astrobee.message.MessageTypeExtAstro;
+import gov.nasa.rapid.v2.e4.message.MessageType;
+
+import java.util.Random;
+
+import rapid.ImageSensorSample;
+import rapid.JointSample;
+import rapid.PositionSample;
+import rapid.ext.astrobee.CompressedFile;
+import rapid.ext.astrobee.FileCompressionType;
+
+/**
+ * Builds representative samples for the benchmarked MessageTypes
+ * without a live DDS domain. Payload contents are random so that
+ * copy_from and serialized size calculations do real work.
+ */
+public class SyntheticSamples {
+    public static final String POSITION   = "POSITION";
+    public static final String JOINT      = "JOINT";
+    public static final String IMAGE      = "IMAGE";
+    public static final String COMPRESSED = "COMPRESSED";
+
+    /** number of joints in a synthetic JointSample, roughly an arm plus pan/tilt */
+    public static final int NUM_JOINTS      = 8;
+    /** size of a synthetic ImageSensorSample payload, a typical compressed nav cam frame */
+    public static final int IMAGE_BYTES     = 64*1024;
+    /** size of a synthetic CompressedFile payload */
+    public static final int COMPRESSED_BYTES = 16*1024;
+
+    private static final Random s_random = new Random(42);
+
+    public static MessageType messageType(String name) {
+        if(POSITION.equals(name))   return MessageType.POSITION_SAMPLE_TYPE;
+        if(JOINT.equals(name))      return MessageType.JOINT_SAMPLE_TYPE;
+        if(IMAGE.equals(name))      return MessageType.IMAGESENSOR_SAMPLE_TYPE;
+        if(COMPRESSED.equals(name)) return MessageTypeExtAstro.COMPRESSED_FILE_TYPE;
+        throw new IllegalArgumentException("No synthetic sample for "+name);
+    }
+
+    public static Object create(String name, int serial) {
+        if(POSITION.equals(name))   return positionSample(serial);
+        if(JOINT.equals(name))      return jointSample(serial);
+        if(IMAGE.equals(name))      return imageSample(serial, IMAGE_BYTES);
+        if(COMPRESSED.equals(name)) return compressedFile(serial, COMPRESSED_BYTES);
+        throw new IllegalArgumentException("No synthetic sample for "+name);
+    }
+
+    public static PositionSample positionSample(int serial) {
+        PositionSample retVal = new PositionSample();
+        header(retVal, serial);
+        for(int i = 0; i < 3; i++) {
+            retVal.pose.xyz.userData[i] = s_random.nextDouble();
+            retVal.velocity.xyz.userData[i] = s_random.nextDouble();
+        }
+        for(int i = 0; i < retVal.pose.rot.userData.length; i++) {
+            retVal.pose.rot.userData[i] = s_random.nextFloat();
+        }
+        return retVal;
+    }
+
+    public static JointSample jointSample(int serial) {
+        JointSample retVal = new JointSample();
+        header(retVal, serial);
+        for(int i = 0; i < NUM_JOINTS; i++) {
+            retVal.anglePos.userData.addFloat(s_random.nextFloat());
+            retVal.angleVel.userData.addFloat(s_random.nextFloat());
+            retVal.current.userData.addFloat(s_random.nextFloat());
+            retVal.temperature.userData.addFloat(s_random.nextFloat());
+        }
+        return retVal;
+    }
+
+    public static ImageSensorSample imageSample(int serial, int numBytes) {
+        ImageSensorSample retVal = new ImageSensorSample();
+        header(retVal, serial);
+        retVal.mimeType = "image/jpeg";
+        retVal.data.userData.addAllByte(randomBytes(numBytes));
+        return retVal;
+    }
+
+    public static CompressedFile compressedFile(int serial, int numBytes) {
+        CompressedFile retVal = new CompressedFile();
+        header(retVal, serial);
+        retVal.id = serial;
+        retVal.compressionType = FileCompressionType.COMPRESSION_TYPE_DEFLATE;
+        retVal.compressedFile.userData.addAllByte(randomBytes(numBytes));
+        return retVal;
+    }
+
+    protected static void header(rapid.Message msg, int serial) {
+        msg.hdr.srcName   = "benchmark";
+        msg.hdr.assetName = "benchmark";
+        msg.hdr.serial    = serial;
+        msg.hdr.timeStamp = System.currentTimeMillis();
+    }
+
+    protected static byte[] randomBytes(int numBytes) {
+        byte[] retVal = new byte[numBytes];
+        s_random.nextBytes(retVal);
+        return retVal;
+    }
+}
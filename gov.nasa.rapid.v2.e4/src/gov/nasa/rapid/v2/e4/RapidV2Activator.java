@@ -21,6 +21,7 @@ import gov.nasa.dds.rti.system.RtiDds;
 import gov.nasa.dds.system.Dds;
 import gov.nasa.rapid.v2.e4.agent.DiscoveredAgentRepository;
 import gov.nasa.rapid.v2.e4.message.collector.RapidMessageCollector;
+import gov.nasa.rapid.v2.e4.message.collector.TopicMetricsMonitor;
 
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
@@ -46,6 +47,9 @@ public class RapidV2Activator implements BundleActivator {
         
         //== Then, kick off agent discovery
         DiscoveredAgentRepository.INSTANCE.getClass();
+
+        //== Make the per-topic receive rates visible over JMX
+        TopicMetricsMonitor.register();
     }
 
     /*
@@ -55,6 +59,7 @@ public class RapidV2Activator implements BundleActivator {
     public void stop(BundleContext bundleContext) throws Exception {
         //logger.debug("stop.");
         RapidMessageCollector.instance().writeMeasuredSizes();
+        TopicMetricsMonitor.unregister();
         RapidV2Activator.context = null;
     }
 
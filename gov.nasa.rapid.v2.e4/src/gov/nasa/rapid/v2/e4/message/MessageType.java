@@ -90,10 +90,37 @@ public class MessageType implements Comparable<MessageType> {
      *
      */
     public enum Category {
-        Config,
-        Sample, 
-        State, 
-        Simple
+        Config(OverflowPolicy.Block),
+        Sample(OverflowPolicy.DropOldest), 
+        State(OverflowPolicy.Block), 
+        Simple(OverflowPolicy.Block);
+
+        private final OverflowPolicy overflowPolicy;
+
+        Category(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+        }
+
+        /**
+         * @return default policy for MessageTypes of this Category 
+         * when the collector's dispatch queue is full
+         */
+        public OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+    }
+
+    /**
+     * What a message collector does when the dispatch queue for 
+     * a MessageType is full
+     */
+    public enum OverflowPolicy {
+        /** discard the oldest queued message to make room for the new one */
+        DropOldest,
+        /** hold only the most recent overflow message until the queue drains */
+        CoalesceLatest,
+        /** block the DDS listener thread until there is room in the queue */
+        Block
     }
 
     //-- the core RAPID types
@@ -195,9 +222,12 @@ public class MessageType implements Comparable<MessageType> {
     protected String         topic;
     protected String         qosProfile;
     protected String         qosProfileFallback = null;
+    protected OverflowPolicy overflowPolicy = null;
 
     private final  int       ordinal;
     private static int       s_ordinalCount = 0;
+    /** resolved from configName when either this type or its Config type is registered */
+    private volatile MessageType configType = null;
 
     public static final String PREFIX  = "Rapid"; 
     public static final String POSTFIX = "Profile"; 
@@ -237,6 +267,7 @@ public class MessageType implements Comparable<MessageType> {
             this.qosProfile = qosProfile;
             this.ordinal    = s_ordinalCount++;
             s_messageMap.put(name, this);
+            resolveConfigTypes();
         }
         if(this.configName == null) {
             if(category == Category.Sample || category == Category.State) {
@@ -308,8 +339,43 @@ public class MessageType implements Comparable<MessageType> {
     }
 
     public static boolean remove(String name) {
-        MessageType exists = s_messageMap.remove(name);
-        return (exists != null);
+        synchronized (MessageType.class) {
+            MessageType exists = s_messageMap.remove(name);
+            if(exists != null) {
+                for(MessageType type : s_messageMap.values()) {
+                    if(type.configType == exists) {
+                        type.configType = null;
+                    }
+                }
+            }
+            return (exists != null);
+        }
+    }
+
+    /**
+     * Config types may be registered before or after the types that refer to 
+     * them, so link this type to its Config type, and any types that name this 
+     * type as their Config to this type. Must be called with the class lock held.
+     */
+    private void resolveConfigTypes() {
+        if(configName != null) {
+            configType = s_messageMap.get(configName);
+        }
+        for(MessageType type : s_messageMap.values()) {
+            if(name.equals(type.configName)) {
+                type.configType = this;
+            }
+        }
+    }
+
+    /**
+     * @return one more than the largest ordinal assigned so far. Ordinals are 
+     * dense, so this can be used to size arrays indexed by ordinal()
+     */
+    public static int getOrdinalCount() {
+        synchronized (MessageType.class) {
+            return s_ordinalCount;
+        }
     }
 
     public static boolean contains(String name) {
@@ -329,6 +395,15 @@ public class MessageType implements Comparable<MessageType> {
         return configName;
     }
 
+    /**
+     * Equivalent to MessageType.valueOf(getConfigName()) without the map lookup, 
+     * except that null is returned if the Config type has not been registered
+     * @return the Config type, or null if there is none
+     */
+    public MessageType getConfigType() {
+        return configType;
+    }
+
     public String getTopicName() {
         return topic;
     }
@@ -370,6 +445,21 @@ public class MessageType implements Comparable<MessageType> {
         return category;
     }
 
+    /**
+     * Get the policy used by message collectors when the dispatch queue for 
+     * this type is full. Unless explicitly set, the policy of the Category is used.
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        if(overflowPolicy == null) {
+            return category.getOverflowPolicy();
+        }
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
     @Override
     public String toString() {
         return String.format("%s[%s profile=%s topic=%s]", name, dataType.getSimpleName(), qosProfile, topic);
@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the 
+ * Administrator of the National Aeronautics and Space Administration. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.rapid.v2.e4.message.collector;
+
+/**
+ * Snapshot of the dispatch queue counters for a single MessageType
+ */
+public class DispatchCounts {
+    /** number of messages offered to the dispatch queue */
+    public final long enqueued;
+    /** number of messages discarded because the queue was full */
+    public final long dropped;
+    /** number of messages replaced by a newer message because the queue was full */
+    public final long coalesced;
+    /** number of messages waiting to be dispatched */
+    public final int  pending;
+
+    public DispatchCounts(long enqueued, long dropped, long coalesced, int pending) {
+        this.enqueued  = enqueued;
+        this.dropped   = dropped;
+        this.coalesced = coalesced;
+        this.pending   = pending;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("enqueued=%d dropped=%d coalesced=%d pending=%d", enqueued, dropped, coalesced, pending);
+    }
+}
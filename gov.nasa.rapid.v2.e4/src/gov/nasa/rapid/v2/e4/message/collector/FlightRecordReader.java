@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.rapid.v2.e4.message.collector;
+
+import gov.nasa.dds.rti.util.TypeSupportUtil;
+import gov.nasa.rapid.v2.e4.message.MessageType;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.rti.dds.infrastructure.Copyable;
+import com.rti.dds.topic.TypeSupportImpl;
+
+/**
+ * Reads a segment written by the FlightRecorder. Segments that were not
+ * closed cleanly are read up to the last complete record.
+ */
+public class FlightRecordReader {
+
+    public interface IRecordVisitor {
+        /**
+         * @param cdr serialized sample, positioned at its first byte. Only valid during the call.
+         * @return false to stop reading
+         */
+        boolean record(String partition, String typeName, long micros, ByteBuffer cdr);
+    }
+
+    protected final File             m_file;
+    protected final MappedByteBuffer m_buf;
+    protected final long             m_startMicros;
+    protected final long             m_endMicros;
+    protected final int              m_recordCount;
+    protected final int              m_dataStart;
+    protected final int              m_dataEnd;
+    protected final int              m_indexCount;
+
+    protected final List<String> m_partitions = new ArrayList<String>();
+    protected final List<String> m_typeNames  = new ArrayList<String>();
+
+    public FlightRecordReader(File segment) throws IOException {
+        m_file = segment;
+        RandomAccessFile raf = new RandomAccessFile(segment, "r");
+        try {
+            m_buf = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        }
+        finally {
+            raf.close();
+        }
+        if(m_buf.capacity() < FlightRecorder.HEADER_SIZE || m_buf.getInt(FlightRecorder.H_MAGIC) != FlightRecorder.MAGIC) {
+            throw new IOException(segment.getName()+" is not a flight recorder segment");
+        }
+        if(m_buf.getInt(FlightRecorder.H_VERSION) != FlightRecorder.VERSION) {
+            throw new IOException(segment.getName()+" has unsupported version "+m_buf.getInt(FlightRecorder.H_VERSION));
+        }
+        m_startMicros = m_buf.getLong(FlightRecorder.H_START_MICROS);
+        m_endMicros   = m_buf.getLong(FlightRecorder.H_END_MICROS);
+        m_recordCount = m_buf.getInt(FlightRecorder.H_RECORD_COUNT);
+        m_indexCount  = m_buf.getInt(FlightRecorder.H_INDEX_COUNT);
+        m_dataStart   = FlightRecorder.dataStart(m_buf.getInt(FlightRecorder.H_INDEX_CAPACITY),
+                                                 m_buf.getInt(FlightRecorder.H_DICT_CAPACITY));
+        m_dataEnd     = Math.min(m_buf.getInt(FlightRecorder.H_DATA_END), m_buf.capacity());
+        readDictionary(m_buf.getInt(FlightRecorder.H_DICT_END));
+    }
+
+    private void readDictionary(int dictEnd) {
+        int pos = FlightRecorder.HEADER_SIZE + m_buf.getInt(FlightRecorder.H_INDEX_CAPACITY)*FlightRecorder.INDEX_ENTRY_SIZE;
+        while(pos + FlightRecorder.DICT_HEADER_SIZE <= dictEnd) {
+            final byte kind   = m_buf.get(pos);
+            final int  id     = m_buf.getShort(pos+1);
+            final int  length = m_buf.getShort(pos+3);
+            final byte[] utf8 = new byte[length];
+            m_buf.position(pos + FlightRecorder.DICT_HEADER_SIZE);
+            m_buf.get(utf8);
+            final List<String> names = (kind == FlightRecorder.DICT_PARTITION) ? m_partitions : m_typeNames;
+            while(names.size() <= id) {
+                names.add(null);
+            }
+            names.set(id, new String(utf8, FlightRecorder.UTF8));
+            pos += FlightRecorder.DICT_HEADER_SIZE + length;
+        }
+    }
+
+    /**
+     * Visit the records received between fromMicros and toMicros, inclusive,
+     * in the order they were written. The time index is used to skip
+     * records before fromMicros.
+     * @return number of records visited
+     */
+    public int read(long fromMicros, long toMicros, IRecordVisitor visitor) {
+        int count = 0;
+        int pos = seek(fromMicros);
+        final ByteBuffer view = m_buf.duplicate();
+        while(pos + FlightRecorder.RECORD_HEADER_SIZE <= m_dataEnd) {
+            final int  length = m_buf.getInt(pos);
+            final long micros = m_buf.getLong(pos+8);
+            if(length < FlightRecorder.RECORD_HEADER_SIZE || pos + length > m_dataEnd || micros > toMicros) {
+                break;
+            }
+            if(micros >= fromMicros) {
+                view.limit(pos + length);
+                view.position(pos + FlightRecorder.RECORD_HEADER_SIZE);
+                count++;
+                if(!visitor.record(m_partitions.get(m_buf.getShort(pos+4)),
+                                   m_typeNames.get(m_buf.getShort(pos+6)),
+                                   micros, view)) {
+                    break;
+                }
+                view.limit(view.capacity());
+            }
+            pos += length;
+        }
+        return count;
+    }
+
+    public int readAll(IRecordVisitor visitor) {
+        return read(Long.MIN_VALUE, Long.MAX_VALUE, visitor);
+    }
+
+    /**
+     * @return offset of the last indexed record at or before micros, or
+     * the first record if there is none
+     */
+    protected int seek(long micros) {
+        int lo = 0;
+        int hi = m_indexCount - 1;
+        int found = -1;
+        while(lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            if(indexMicros(mid) <= micros) {
+                found = mid;
+                lo = mid + 1;
+            }
+            else {
+                hi = mid - 1;
+            }
+        }
+        if(found < 0) {
+            return m_dataStart;
+        }
+        return m_buf.getInt(FlightRecorder.HEADER_SIZE + found*FlightRecorder.INDEX_ENTRY_SIZE + 8);
+    }
+
+    private long indexMicros(int entry) {
+        return m_buf.getLong(FlightRecorder.HEADER_SIZE + entry*FlightRecorder.INDEX_ENTRY_SIZE);
+    }
+
+    /**
+     * Deserialize a recorded sample
+     * @param msgType type the sample was recorded as, e.g. MessageType.valueOf(typeName)
+     * @param cdr as passed to IRecordVisitor.record
+     */
+    public static Object decode(MessageType msgType, ByteBuffer cdr) throws Exception {
+        @SuppressWarnings("unchecked")
+        final TypeSupportImpl typeSupport = TypeSupportUtil.getTypeSupportImpl((Class<? extends Copyable>)msgType.getDataTypeClass());
+        final byte[] bytes = new byte[cdr.remaining()];
+        cdr.duplicate().get(bytes);
+        final Object retVal = typeSupport.create_data();
+        typeSupport.deserialize_from_cdr_buffer(retVal, bytes, bytes.length);
+        return retVal;
+    }
+
+    public File getFile() {
+        return m_file;
+    }
+
+    /** reception time of the first record, in microseconds since the epoch */
+    public long getStartMicros() {
+        return m_startMicros;
+    }
+
+    /** reception time of the last record, in microseconds since the epoch */
+    public long getEndMicros() {
+        return m_endMicros;
+    }
+
+    public int getRecordCount() {
+        return m_recordCount;
+    }
+
+    @Override
+    public String toString() {
+        return "FlightRecordReader["+m_file.getName()+": "+m_recordCount+" records]";
+    }
+}
@@ -0,0 +1,630 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.rapid.v2.e4.message.collector;
+
+import gov.nasa.dds.rti.util.TypeSupportUtil;
+import gov.nasa.rapid.v2.e4.message.MessageType;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import com.rti.dds.infrastructure.Copyable;
+import com.rti.dds.topic.TypeSupportImpl;
+
+/**
+ * Appends every sample received by the RapidMessageCollector to rolling,
+ * memory mapped segment files so that a whole session can be replayed
+ * later. Attach with RapidMessageCollector.setFlightRecorder.
+ * <p>
+ * Each sample is stored as its partition, MessageType, reception time and
+ * the CDR bytes produced by the generated TypeSupport. Samples are serialized
+ * into a per-thread scratch buffer and copied into the mapped segment, so the
+ * write path does not allocate once the scratch buffers have grown to the
+ * largest sample seen. Segments are created ahead of time and flushed, trimmed
+ * and deleted on a background thread; when the segments in the directory
+ * exceed the disk budget the oldest ones are deleted.
+ * <p>
+ * Cost on the receive path: serializing a sample does not take any lock,
+ * but copying the record into the mapped segment holds the recorder's
+ * monitor, so the receive threads of all partitions take turns for one copy
+ * of each sample, including any page faults on fresh pages of the mapping.
+ * When a segment fills up, the thread that filled it swaps in the segment
+ * prepared by the housekeeper. It only waits, still holding the monitor, if
+ * that segment is not ready yet, i.e. if a whole segment was filled faster
+ * than one file can be created and mapped; if preparing it failed, the new
+ * segment is created on that thread.
+ * <p>
+ * Segment layout (big endian):
+ * <pre>
+ *   header      HEADER_SIZE bytes, see the H_ offsets
+ *   time index  indexCapacity entries of (long micros, int record offset)
+ *   dictionary  dictCapacity bytes of (byte kind, short id, short length, utf8 name)
+ *   records     (int length, short partition id, short type id, long micros, cdr bytes)
+ * </pre>
+ * The header counts are updated after each record is complete, so a segment
+ * left behind by a crash can still be read up to its last complete record.
+ * @see FlightRecordReader
+ */
+public class FlightRecorder {
+    private static final Logger logger = Logger.getLogger(FlightRecorder.class);
+
+    public static final String SEGMENT_SUFFIX  = ".rfr";
+    public static final int    MAGIC           = 0x52465231; // "RFR1"
+    public static final int    VERSION         = 1;
+
+    public static final int    DEFAULT_SEGMENT_BYTES   = 64*1024*1024;
+    public static final long   DEFAULT_MAX_TOTAL_BYTES = 2048L*1024*1024;
+    /** add a time index entry at most this often */
+    public static final long   INDEX_INTERVAL_MICROS   = 100*1000;
+
+    static final int HEADER_SIZE       = 64;
+    static final int H_MAGIC           = 0;
+    static final int H_VERSION         = 4;
+    static final int H_START_MICROS    = 8;
+    static final int H_END_MICROS      = 16;
+    static final int H_RECORD_COUNT    = 24;
+    static final int H_DATA_END        = 28;
+    static final int H_INDEX_COUNT     = 32;
+    static final int H_DICT_END        = 36;
+    static final int H_INDEX_CAPACITY  = 40;
+    static final int H_DICT_CAPACITY   = 44;
+
+    static final int INDEX_ENTRY_SIZE  = 12;
+    static final int INDEX_CAPACITY    = 16*1024;
+    static final int DICT_CAPACITY     = 32*1024;
+    static final int DICT_HEADER_SIZE  = 5;
+    static final int RECORD_HEADER_SIZE = 16;
+
+    static final byte DICT_PARTITION   = 1;
+    static final byte DICT_TYPE        = 2;
+
+    /** serialize_to_cdr_buffer adds an encapsulation header to the serialized sample */
+    static final int  CDR_SLACK        = 16;
+    /** types whose max serialized size is below this are not sized sample by sample */
+    static final long MAX_PRESIZED     = 64*1024;
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    protected final File m_directory;
+    protected final int  m_segmentBytes;
+    protected final long m_maxTotalBytes;
+
+    private final long m_baseMicros;
+    private final long m_baseNanos;
+
+    private Segment          m_segment = null;
+    private Future<Segment>  m_nextSegment = null;
+    private int              m_segmentSeq = 0;
+    private final String     m_sessionName;
+    private volatile boolean m_closed = false;
+
+    /** closed segment files of this and earlier sessions, oldest first */
+    private final ArrayDeque<File> m_closedSegments = new ArrayDeque<File>();
+    private long m_closedBytes = 0;
+
+    private final ConcurrentHashMap<MessageType,TypeInfo> m_types = new ConcurrentHashMap<MessageType,TypeInfo>();
+    private final Set<MessageType> m_unsupported = Collections.newSetFromMap(new ConcurrentHashMap<MessageType,Boolean>());
+
+    private final ThreadLocal<byte[][]> m_scratch = new ThreadLocal<byte[][]>() {
+        @Override
+        protected byte[][] initialValue() {
+            return new byte[][] { new byte[4096] };
+        }
+    };
+
+    private final AtomicLong m_failed  = new AtomicLong(0);
+    private long m_recorded = 0;
+    private long m_dropped  = 0;
+    private long m_bytes    = 0;
+
+    private final ExecutorService m_housekeeper;
+
+    public FlightRecorder(File directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_MAX_TOTAL_BYTES);
+    }
+
+    /**
+     * @param directory where segment files are written. Created if it does not exist.
+     * @param segmentBytes size of each segment file
+     * @param maxTotalBytes the oldest segments in directory are deleted to keep
+     * the total size of the segments below this
+     * @throws IOException if the directory cannot be created or the first segment cannot be mapped
+     */
+    public FlightRecorder(File directory, int segmentBytes, long maxTotalBytes) throws IOException {
+        final int minSegmentBytes = dataStart(INDEX_CAPACITY, DICT_CAPACITY) + RECORD_HEADER_SIZE;
+        if(segmentBytes <= minSegmentBytes) {
+            throw new IllegalArgumentException("segmentBytes must be greater than "+minSegmentBytes);
+        }
+        if(!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create flight recorder directory "+directory.getAbsolutePath());
+        }
+        m_directory     = directory;
+        m_segmentBytes  = segmentBytes;
+        m_maxTotalBytes = maxTotalBytes;
+        m_baseMicros    = System.currentTimeMillis()*1000;
+        m_baseNanos     = System.nanoTime();
+        m_sessionName   = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+
+        for(File file : listSegments(directory)) {
+            m_closedSegments.add(file);
+            m_closedBytes += file.length();
+        }
+        m_housekeeper = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "FlightRecorder");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        m_segment = createSegment();
+        prepareNextSegment();
+    }
+
+    /**
+     * @return segment files in directory, oldest first
+     */
+    public static File[] listSegments(File directory) {
+        File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        if(files == null) {
+            return new File[0];
+        }
+        // names start with the session time and sequence number
+        Arrays.sort(files);
+        return files;
+    }
+
+    static int dataStart(int indexCapacity, int dictCapacity) {
+        return HEADER_SIZE + indexCapacity*INDEX_ENTRY_SIZE + dictCapacity;
+    }
+
+    /**
+     * Record a received sample. Called from the DDS receive path before the
+     * sample is queued, so the sample must not be modified during the call.
+     * Samples that cannot be serialized are counted and skipped.
+     */
+    public void record(String partition, MessageType msgType, Object sample) {
+        if(m_closed) {
+            return;
+        }
+        final long micros = m_baseMicros + (System.nanoTime() - m_baseNanos)/1000;
+        final TypeInfo info = getTypeInfo(msgType, sample);
+        if(info == null) {
+            m_failed.incrementAndGet();
+            return;
+        }
+        final byte[][] scratch = m_scratch.get();
+        final int length;
+        try {
+            if(!info.presized) {
+                ensureCapacity(scratch, info.typeSupport.get_serialized_sample_size(null, false, (short)0, 0, sample) + CDR_SLACK);
+            }
+            else if(scratch[0].length < info.maxSize) {
+                ensureCapacity(scratch, info.maxSize);
+            }
+            length = (int)info.typeSupport.serialize_to_cdr_buffer(scratch[0], scratch[0].length, sample);
+        }
+        catch(Throwable t) {
+            if(m_failed.getAndIncrement() == 0) {
+                logger.warn("Could not serialize "+msgType+" sample for flight recorder", t);
+            }
+            return;
+        }
+        append(partition, msgType, micros, scratch[0], length);
+    }
+
+    private static void ensureCapacity(byte[][] scratch, long size) {
+        if(scratch[0].length < size) {
+            scratch[0] = new byte[(int)Math.max(size, 2L*scratch[0].length)];
+        }
+    }
+
+    private TypeInfo getTypeInfo(MessageType msgType, Object sample) {
+        TypeInfo retVal = m_types.get(msgType);
+        if(retVal == null && !m_unsupported.contains(msgType)) {
+            try {
+                Copyable copyable = (Copyable)sample;
+                retVal = new TypeInfo(TypeSupportUtil.getTypeSupportImpl(copyable.getClass()));
+                m_types.put(msgType, retVal);
+            }
+            catch(Throwable t) {
+                logger.warn("No TypeSupport for "+msgType+"; it will not be recorded", t);
+                m_unsupported.add(msgType);
+            }
+        }
+        return retVal;
+    }
+
+    private synchronized void append(String partition, MessageType msgType, long micros, byte[] cdr, int length) {
+        if(m_closed) {
+            return;
+        }
+        if(!m_segment.append(partition, msgType, micros, cdr, length)) {
+            if(m_segment.recordCount == 0) {
+                // an empty segment did not have room, so no segment ever will
+                dropped(msgType, length);
+                return;
+            }
+            rollSegment();
+            if(!m_segment.append(partition, msgType, micros, cdr, length)) {
+                dropped(msgType, length);
+                return;
+            }
+        }
+        m_recorded++;
+        m_bytes += RECORD_HEADER_SIZE + length;
+    }
+
+    private void dropped(MessageType msgType, int length) {
+        if(m_dropped++ == 0) {
+            logger.warn(msgType+" sample of "+length+" bytes does not fit in a "+m_segmentBytes+" byte flight recorder segment");
+        }
+    }
+
+    /**
+     * switch to the segment prepared in the background and hand the
+     * full one to the housekeeper. Caller must hold the monitor, so
+     * every receive thread waits if the segment is not prepared yet.
+     */
+    private void rollSegment() {
+        final Segment full = m_segment;
+        Segment next = null;
+        try {
+            next = m_nextSegment.get();
+        }
+        catch(Exception e) {
+            logger.warn("Flight recorder segment was not prepared in the background", e);
+        }
+        if(next == null) {
+            try {
+                next = createSegment();
+            }
+            catch(IOException e) {
+                logger.error("Could not create flight recorder segment; recording stopped", e);
+                m_closed  = true;
+                m_segment = null;
+                retire(full);
+                m_housekeeper.shutdown();
+                return;
+            }
+        }
+        m_segment = next;
+        retire(full);
+        prepareNextSegment();
+    }
+
+    private void prepareNextSegment() {
+        m_nextSegment = m_housekeeper.submit(new Callable<Segment>() {
+            @Override
+            public Segment call() throws Exception {
+                return createSegment();
+            }
+        });
+    }
+
+    private void retire(final Segment segment) {
+        m_housekeeper.execute(new Runnable() {
+            @Override
+            public void run() {
+                final long length = segment.close();
+                synchronized(m_closedSegments) {
+                    m_closedSegments.add(segment.file);
+                    m_closedBytes += length;
+                    enforceBudget();
+                }
+            }
+        });
+    }
+
+    /**
+     * delete the oldest segments until the closed segments plus the open
+     * and prepared ones fit in the budget. Caller must hold m_closedSegments.
+     */
+    private void enforceBudget() {
+        final long open = 2L*m_segmentBytes;
+        while(!m_closedSegments.isEmpty() && m_closedBytes + open > m_maxTotalBytes) {
+            File oldest = m_closedSegments.poll();
+            m_closedBytes -= oldest.length();
+            if(!oldest.delete() && oldest.exists()) {
+                logger.warn("Could not delete flight recorder segment "+oldest.getAbsolutePath());
+            }
+        }
+    }
+
+    private Segment createSegment() throws IOException {
+        final int seq;
+        synchronized(m_closedSegments) {
+            seq = m_segmentSeq++;
+            enforceBudget();
+        }
+        File file = new File(m_directory, String.format("%s-%05d%s", m_sessionName, seq, SEGMENT_SUFFIX));
+        return new Segment(file, m_segmentBytes);
+    }
+
+    /**
+     * Stop recording and close the current segment. The segment is flushed
+     * and trimmed to the bytes actually written.
+     */
+    public void close() {
+        final Segment last;
+        final Future<Segment> next;
+        synchronized(this) {
+            if(m_housekeeper.isShutdown()) {
+                return;
+            }
+            m_closed  = true;
+            last      = m_segment;
+            next      = m_nextSegment;
+            m_segment = null;
+        }
+        if(last != null) {
+            retire(last);
+        }
+        m_housekeeper.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Segment unused = next.get();
+                    if(unused != null) {
+                        unused.discard();
+                    }
+                }
+                catch(Exception e) {
+                    // nothing was created
+                }
+            }
+        });
+        m_housekeeper.shutdown();
+    }
+
+    /**
+     * Wait for close to flush and trim the last segment
+     * @return false if that did not finish within millis
+     */
+    public boolean awaitClose(long millis) throws InterruptedException {
+        return m_housekeeper.awaitTermination(millis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isClosed() {
+        return m_closed;
+    }
+
+    public File getDirectory() {
+        return m_directory;
+    }
+
+    /** number of samples written */
+    public synchronized long getRecordedCount() {
+        return m_recorded;
+    }
+
+    /** number of record bytes written, not counting segment headers */
+    public synchronized long getRecordedBytes() {
+        return m_bytes;
+    }
+
+    /** number of samples too large for a segment */
+    public synchronized long getDroppedCount() {
+        return m_dropped;
+    }
+
+    /** number of samples that could not be serialized */
+    public long getFailedCount() {
+        return m_failed.get();
+    }
+
+    @Override
+    public String toString() {
+        return "FlightRecorder["+m_directory.getAbsolutePath()+"]";
+    }
+
+    static class TypeInfo {
+        final TypeSupportImpl typeSupport;
+        final long            maxSize;
+        final boolean         presized;
+
+        TypeInfo(TypeSupportImpl typeSupport) {
+            this.typeSupport = typeSupport;
+            this.maxSize     = typeSupport.get_serialized_sample_max_size(null, false, (short)0, 0) + CDR_SLACK;
+            this.presized    = maxSize <= MAX_PRESIZED;
+        }
+    }
+
+    /**
+     * One mapped segment file. Only accessed with the FlightRecorder monitor
+     * held, except for close, which runs after the segment has been retired.
+     */
+    static class Segment {
+        final File             file;
+        final RandomAccessFile raf;
+        final FileChannel      channel;
+        final MappedByteBuffer buf;
+        final int              dataStart;
+
+        int  position;
+        int  recordCount  = 0;
+        int  indexCount   = 0;
+        int  dictEnd;
+        long lastIndexMicros = 0;
+
+        final HashMap<String,Integer>      partitionIds = new HashMap<String,Integer>();
+        final HashMap<MessageType,Integer> typeIds      = new HashMap<MessageType,Integer>();
+
+        Segment(File file, int size) throws IOException {
+            this.file = file;
+            raf       = new RandomAccessFile(file, "rw");
+            try {
+                raf.setLength(size);
+                channel = raf.getChannel();
+                buf     = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+            catch(IOException e) {
+                raf.close();
+                file.delete();
+                throw e;
+            }
+            dataStart = dataStart(INDEX_CAPACITY, DICT_CAPACITY);
+            position  = dataStart;
+            dictEnd   = HEADER_SIZE + INDEX_CAPACITY*INDEX_ENTRY_SIZE;
+            buf.putInt(H_MAGIC, MAGIC);
+            buf.putInt(H_VERSION, VERSION);
+            buf.putLong(H_START_MICROS, 0);
+            buf.putLong(H_END_MICROS, 0);
+            buf.putInt(H_RECORD_COUNT, 0);
+            buf.putInt(H_DATA_END, position);
+            buf.putInt(H_INDEX_COUNT, 0);
+            buf.putInt(H_DICT_END, dictEnd);
+            buf.putInt(H_INDEX_CAPACITY, INDEX_CAPACITY);
+            buf.putInt(H_DICT_CAPACITY, DICT_CAPACITY);
+        }
+
+        /**
+         * @return false if the segment does not have room for the record
+         */
+        boolean append(String partition, MessageType msgType, long micros, byte[] cdr, int length) {
+            final int recordLength = RECORD_HEADER_SIZE + length;
+            if(recordLength > buf.capacity() - position) {
+                return false;
+            }
+            final boolean indexed = indexCount == 0 || micros - lastIndexMicros >= INDEX_INTERVAL_MICROS;
+            if(indexed && indexCount == INDEX_CAPACITY) {
+                return false;
+            }
+            final int partitionId = dictionaryId(partitionIds, partition, DICT_PARTITION, partition);
+            if(partitionId < 0) {
+                return false;
+            }
+            final int typeId = dictionaryId(typeIds, msgType, DICT_TYPE, msgType.name());
+            if(typeId < 0) {
+                return false;
+            }
+            if(indexed) {
+                final int entry = HEADER_SIZE + indexCount*INDEX_ENTRY_SIZE;
+                buf.putLong(entry, micros);
+                buf.putInt(entry+8, position);
+                indexCount++;
+                lastIndexMicros = micros;
+            }
+            buf.putInt(position, recordLength);
+            buf.putShort(position+4, (short)partitionId);
+            buf.putShort(position+6, (short)typeId);
+            buf.putLong(position+8, micros);
+            buf.position(position + RECORD_HEADER_SIZE);
+            buf.put(cdr, 0, length);
+            position += recordLength;
+
+            // publish the record
+            if(recordCount == 0) {
+                buf.putLong(H_START_MICROS, micros);
+            }
+            recordCount++;
+            buf.putLong(H_END_MICROS, micros);
+            buf.putInt(H_INDEX_COUNT, indexCount);
+            buf.putInt(H_DATA_END, position);
+            buf.putInt(H_RECORD_COUNT, recordCount);
+            return true;
+        }
+
+        /**
+         * @return id of key, adding it to the dictionary if necessary, or -1 if the dictionary is full
+         */
+        private <K> int dictionaryId(HashMap<K,Integer> ids, K key, byte kind, String name) {
+            Integer id = ids.get(key);
+            if(id != null) {
+                return id.intValue();
+            }
+            final byte[] utf8 = name.getBytes(UTF8);
+            if(dictEnd + DICT_HEADER_SIZE + utf8.length > dataStart || ids.size() > Short.MAX_VALUE) {
+                return -1;
+            }
+            final int newId = ids.size();
+            buf.put(dictEnd, kind);
+            buf.putShort(dictEnd+1, (short)newId);
+            buf.putShort(dictEnd+3, (short)utf8.length);
+            buf.position(dictEnd + DICT_HEADER_SIZE);
+            buf.put(utf8);
+            dictEnd += DICT_HEADER_SIZE + utf8.length;
+            buf.putInt(H_DICT_END, dictEnd);
+            ids.put(key, newId);
+            return newId;
+        }
+
+        /**
+         * flush the mapped pages and trim the file to the bytes written
+         * @return length of the file
+         */
+        long close() {
+            final int end = position;
+            try {
+                buf.force();
+                try {
+                    channel.truncate(end);
+                }
+                catch(IOException e) {
+                    // some platforms do not allow a mapped file to be truncated
+                    logger.debug("Could not trim "+file.getName()+": "+e.getMessage());
+                }
+                raf.close();
+            }
+            catch(IOException e) {
+                logger.warn("Error closing flight recorder segment "+file.getAbsolutePath(), e);
+            }
+            return file.length();
+        }
+
+        /**
+         * close and delete a segment that was never written to
+         */
+        void discard() {
+            try {
+                raf.close();
+            }
+            catch(IOException e) {
+                logger.debug(e.getMessage());
+            }
+            file.delete();
+        }
+    }
+}
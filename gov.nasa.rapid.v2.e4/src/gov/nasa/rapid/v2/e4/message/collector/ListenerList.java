@@ -19,12 +19,17 @@ package gov.nasa.rapid.v2.e4.message.collector;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.Collections;
+import java.util.List;
 
+/**
+ * Copy-on-write list of listeners. Listeners are added and removed rarely 
+ * compared to the message rate, so every change publishes a new immutable 
+ * snapshot and readers only touch a single volatile reference. Iterating 
+ * over values() needs no lock, and is not affected by concurrent changes.
+ */
 class ListenerList<E> {
-    public final ReadWriteLock lock = new ReentrantReadWriteLock();
-    private final ArrayList<E> listeners = new ArrayList<E>();
+    private volatile List<E> listeners = Collections.emptyList();
     
     public int size() {
         return listeners.size();
@@ -35,20 +40,36 @@ class ListenerList<E> {
      * @param in
      * @return
      */
-    public boolean add(E in) {
-        if(!listeners.contains(in))
-            return listeners.add(in);
-        return false;
+    public synchronized boolean add(E in) {
+        final List<E> current = listeners;
+        if(current.contains(in)) {
+            return false;
+        }
+        ArrayList<E> next = new ArrayList<E>(current.size()+1);
+        next.addAll(current);
+        next.add(in);
+        listeners = Collections.unmodifiableList(next);
+        return true;
     }
     
-    public boolean remove(E in) {
-        return listeners.remove(in);
+    public synchronized boolean remove(E in) {
+        final List<E> current = listeners;
+        if(!current.contains(in)) {
+            return false;
+        }
+        ArrayList<E> next = new ArrayList<E>(current);
+        next.remove(in);
+        listeners = next.isEmpty() ? Collections.<E>emptyList() : Collections.unmodifiableList(next);
+        return true;
     }
     
     public boolean contains(E in) {
         return listeners.contains(in);
     }
     
+    /**
+     * @return snapshot of the listeners at the time of the call
+     */
     public Collection<E> values() {
         return listeners;
     }
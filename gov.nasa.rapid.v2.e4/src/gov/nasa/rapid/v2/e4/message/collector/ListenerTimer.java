@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.rapid.v2.e4.message.collector;
+
+import gov.nasa.util.NamedThreadFactory;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Callback time histogram for one listener of one MessageType. Bucket i
+ * counts callbacks that took less than 2^i microseconds, which is enough
+ * resolution for a p99 estimate without keeping individual samples.
+ * <p>
+ * A listener that keeps exceeding the latency budget is quarantined:
+ * it gets a single thread executor of its own, so it still sees every
+ * message in order but no longer holds up the other listeners.
+ */
+class ListenerTimer {
+    static final int NUM_BUCKETS = 32;
+    /** number of callbacks over budget before a listener is quarantined */
+    static final int QUARANTINE_OVERRUNS = 3;
+    /** max number of messages waiting for a quarantined listener */
+    static final int QUARANTINE_BACKLOG  = 64;
+
+    final Object listener;
+
+    private final AtomicLongArray m_buckets    = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong      m_count      = new AtomicLong(0);
+    private final AtomicLong      m_totalNanos = new AtomicLong(0);
+    private final AtomicLong      m_maxNanos   = new AtomicLong(0);
+    private final AtomicLong      m_overruns   = new AtomicLong(0);
+    private final AtomicLong      m_dropped    = new AtomicLong(0);
+
+    private volatile ThreadPoolExecutor m_quarantine = null;
+
+    ListenerTimer(Object listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * record the duration of one callback
+     * @param budgetNanos latency budget, or 0 if there is none
+     * @return true if the listener should be quarantined
+     */
+    boolean record(long nanos, long budgetNanos) {
+        m_buckets.incrementAndGet(bucket(nanos));
+        m_count.incrementAndGet();
+        m_totalNanos.addAndGet(nanos);
+        long max = m_maxNanos.get();
+        while(nanos > max && !m_maxNanos.compareAndSet(max, nanos)) {
+            max = m_maxNanos.get();
+        }
+        if(budgetNanos > 0 && nanos > budgetNanos) {
+            return m_overruns.incrementAndGet() >= QUARANTINE_OVERRUNS && m_quarantine == null;
+        }
+        return false;
+    }
+
+    static int bucket(long nanos) {
+        final long micros = nanos / 1000;
+        return Math.min(NUM_BUCKETS-1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    boolean isQuarantined() {
+        return m_quarantine != null;
+    }
+
+    synchronized void quarantine() {
+        if(m_quarantine == null) {
+            ThreadPoolExecutor exec = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                                                             new LinkedBlockingQueue<Runnable>(QUARANTINE_BACKLOG),
+                                                             new NamedThreadFactory("Quarantine-"+listener.getClass().getSimpleName()));
+            exec.allowCoreThreadTimeOut(true);
+            m_quarantine = exec;
+        }
+    }
+
+    /**
+     * run a callback on the quarantine executor
+     * @return false if the callback was discarded because the listener is too far behind
+     */
+    boolean execute(Runnable callback) {
+        final ThreadPoolExecutor exec = m_quarantine;
+        try {
+            exec.execute(callback);
+            return true;
+        }
+        catch(RejectedExecutionException e) {
+            m_dropped.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * called when the listener is removed
+     */
+    synchronized void shutdown() {
+        if(m_quarantine != null) {
+            m_quarantine.shutdown();
+        }
+    }
+
+    ListenerTimings getTimings() {
+        final long count = m_count.get();
+        final long max   = m_maxNanos.get() / 1000;
+        final double mean = (count == 0) ? 0 : m_totalNanos.get() / 1000.0 / count;
+        long p99 = 0;
+        if(count > 0) {
+            final long threshold = (long)Math.ceil(count * 0.99);
+            long cumulative = 0;
+            for(int i = 0; i < NUM_BUCKETS; i++) {
+                cumulative += m_buckets.get(i);
+                if(cumulative >= threshold) {
+                    p99 = Math.min(1L << i, max);
+                    break;
+                }
+            }
+        }
+        return new ListenerTimings(listener.toString(), count, mean, p99, max,
+                                   m_overruns.get(), isQuarantined(), m_dropped.get());
+    }
+}
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.rapid.v2.e4.message.collector;
+
+/**
+ * Snapshot of the time a single listener has spent in its callback
+ * for one MessageType. Times are in microseconds.
+ */
+public class ListenerTimings {
+    /** toString of the listener */
+    public final String  listener;
+    /** number of callbacks that have completed */
+    public final long    count;
+    public final double  meanMicros;
+    /** upper bound of the histogram bucket that holds the 99th percentile */
+    public final long    p99Micros;
+    public final long    maxMicros;
+    /** number of callbacks that exceeded the latency budget */
+    public final long    overruns;
+    /** true if the listener has been moved to its own executor */
+    public final boolean quarantined;
+    /** number of messages discarded because the quarantined listener fell too far behind */
+    public final long    dropped;
+
+    public ListenerTimings(String listener, long count, double meanMicros, long p99Micros, long maxMicros,
+                           long overruns, boolean quarantined, long dropped) {
+        this.listener    = listener;
+        this.count       = count;
+        this.meanMicros  = meanMicros;
+        this.p99Micros   = p99Micros;
+        this.maxMicros   = maxMicros;
+        this.overruns    = overruns;
+        this.quarantined = quarantined;
+        this.dropped     = dropped;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: count=%d mean=%.1fus p99=%dus max=%dus overruns=%d%s",
+                             listener, count, meanMicros, p99Micros, maxMicros, overruns,
+                             quarantined ? " quarantined (dropped="+dropped+")" : "");
+    }
+}
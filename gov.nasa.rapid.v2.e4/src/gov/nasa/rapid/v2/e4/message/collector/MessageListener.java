@@ -65,6 +65,10 @@ public class MessageListener extends DataReaderAdapter {
     protected int                          m_numLastSamples = 0;
     protected Map<InstanceHandle_t,Object> m_lastSamples    = new HashMap<InstanceHandle_t,Object>();
 
+    /** interned copies of instance handles, so we don't allocate a new handle for every sample */
+    protected final Map<InstanceHandle_t,InstanceHandle_t> m_instanceHandles = new HashMap<InstanceHandle_t,InstanceHandle_t>();
+    protected final SamplePool             m_samplePool;
+
     protected long m_dataAvailable          = 0;
     protected long m_validData              = 0;
     protected long m_deadlineMissed         = 0;
@@ -84,12 +88,21 @@ public class MessageListener extends DataReaderAdapter {
         m_msgType   = messageType;
         m_infoSeq   = new SampleInfoSeq();
         m_dataSeq   = new LoanableSequence(messageType.getDataTypeClass());
+        m_samplePool = new SamplePool(messageType);
     }
 
     public MessageType getMessageType() {
         return m_msgType;
     }
 
+    /**
+     * @return pool that received samples are copied into. Pooling is disabled 
+     * unless enabled by the collector
+     */
+    public SamplePool getSamplePool() {
+        return m_samplePool;
+    }
+
     /**
      * @return time the last message was received
      */
@@ -108,8 +121,21 @@ public class MessageListener extends DataReaderAdapter {
      * @return last sample received
      */
     public void setLastSample(Object sample) {
+        setLastSample(new InstanceHandle_t(), sample);
+    }
+
+    /**
+     * The last sample and each entry in the last samples map hold 
+     * a reference to a pooled sample
+     */
+    protected Object setLastSample(InstanceHandle_t key, Object sample) {
+        m_samplePool.retain(sample);
+        m_samplePool.release(m_lastSample);
         m_lastSample = sample;
-        m_lastSamples.put(new InstanceHandle_t(), sample);
+        m_samplePool.retain(sample);
+        final Object previous = m_lastSamples.put(key, sample);
+        m_samplePool.release(previous);
+        return previous;
     }
 
     /**
@@ -119,9 +145,49 @@ public class MessageListener extends DataReaderAdapter {
         return  m_lastSample;
     }
 
-    void clearLastSample() {
+    /**
+     * @return the last sample of each known instance. Each sample carries a 
+     * pool reference that the caller must release when it is done with it
+     */
+    synchronized Object[] retainLastSamples() {
+        final Object[] retVal = m_lastSamples.values().toArray(new Object[m_lastSamples.size()]);
+        for(Object sample : retVal) {
+            m_samplePool.retain(sample);
+        }
+        return retVal;
+    }
+
+    /**
+     * @return the last sample received with a pool reference that the caller 
+     * must release, or null
+     */
+    synchronized Object retainLastSample() {
+        final Object retVal = m_lastSample;
+        m_samplePool.retain(retVal);
+        return retVal;
+    }
+
+    synchronized void clearLastSample() {
+        m_samplePool.release(m_lastSample);
         m_lastSample = null;
+        for(Object sample : m_lastSamples.values()) {
+            m_samplePool.release(sample);
+        }
         m_lastSamples.clear();
+        m_instanceHandles.clear();
+    }
+
+    /**
+     * @return an interned copy of handle. The handle in SampleInfo becomes 
+     * invalid after the loan is returned, so it must be copied before it is stored
+     */
+    protected InstanceHandle_t internInstanceHandle(InstanceHandle_t handle) {
+        InstanceHandle_t retVal = m_instanceHandles.get(handle);
+        if(retVal == null) {
+            retVal = new InstanceHandle_t(handle);
+            m_instanceHandles.put(retVal, retVal);
+        }
+        return retVal;
     }
 
     /**
@@ -168,7 +234,8 @@ public class MessageListener extends DataReaderAdapter {
      * for high speed publishers, we want grab as many samples 
      * as possible for conversion and copy them into a local 
      * array, which will then be distributed to our in-process 
-     * listeners. 
+     * listeners. If the SamplePool is enabled, the copies are 
+     * recycled once they have been distributed. 
      */
     public synchronized void on_bulk_data_available(DataReader reader) {
         m_dataAvailable++;
@@ -184,29 +251,34 @@ public class MessageListener extends DataReaderAdapter {
                 // use reception timestamp because a remote clock may be messed up
                 m_thisTimestamp = milliseconds(info.reception_timestamp);
                 final Copyable loanedSample = (Copyable)m_dataSeq.get(i);
-                final Copyable copiedSample = (Copyable)m_msgType.newDataTypeInstance();
+                final Copyable copiedSample = (Copyable)m_samplePool.acquire();
                 copiedSample.copy_from(loanedSample);
                 
                 // we *must* copy the InstanceHandle_t because the data becomes invalid after the loan is returned
-                InstanceHandle_t key = new InstanceHandle_t(info.instance_handle);
+                InstanceHandle_t key = internInstanceHandle(info.instance_handle);
                 if(info.valid_data) {
                     m_validData++;
-                    m_lastSample = copiedSample;
-                    hadInstance = m_lastSamples.put(key, copiedSample);
+                    hadInstance = setLastSample(key, copiedSample);
                     if(hadInstance == null) {
                         m_collector.instanceAlive(m_msgType, copiedSample);
                     }
-                    m_collector.newMessage(m_msgType, copiedSample); // put sample on new message queue
+                    m_collector.newMessage(m_msgType, copiedSample); // put sample on new message queue, queue owns our reference
                 }
                 if(info.instance_state != InstanceStateKind.ALIVE_INSTANCE_STATE) {
                     //logger.debug(m_msgType.name()+" instance no longer alive:"+info.instance_handle.toString());
                     Object removed = m_lastSamples.remove(key);
+                    m_instanceHandles.remove(key);
                     if(removed == null) {
+                        m_samplePool.retain(copiedSample);
                         removed = copiedSample;
                         logger.debug("no record of InstanceHandle: "+m_msgType.name()+" - "+key.toString());
                     }
                     //removed = copiedSample;
                     m_collector.instanceDead(m_msgType, removed);
+                    m_samplePool.release(removed);
+                }
+                if(!info.valid_data) {
+                    m_samplePool.release(copiedSample);
                 }
                 final int numLastSamples = m_lastSamples.size();
                 if(numLastSamples != m_numLastSamples) {
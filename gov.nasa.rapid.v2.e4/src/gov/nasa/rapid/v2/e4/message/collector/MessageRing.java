@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the 
+ * Administrator of the National Aeronautics and Space Administration. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.rapid.v2.e4.message.collector;
+
+import gov.nasa.rapid.v2.e4.message.MessageType;
+import gov.nasa.rapid.v2.e4.message.MessageType.OverflowPolicy;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Bounded, lock-free dispatch queue for a single MessageType. There is
+ * exactly one producer (the DDS listener thread for the type, see
+ * MessageListener.on_bulk_data_available) and any number of consumers.
+ * When the ring is full, the OverflowPolicy of the MessageType determines
+ * what happens to the incoming message.
+ */
+class MessageRing {
+    private static final Logger logger = Logger.getLogger(MessageRing.class);
+
+    /** how long a blocked producer sleeps before checking for room again */
+    static final long BLOCK_WAIT_NANOS = 100000;
+
+    final MessageType msgType;
+    /** pool the queued samples came from, may be null */
+    final SamplePool  pool;
+
+    private final OverflowPolicy               m_policy;
+    private final AtomicReferenceArray<Object> m_slots;
+    private final int                          m_mask;
+
+    /** index of next message to be consumed */
+    private final AtomicLong m_head = new AtomicLong(0);
+    /** index of next slot to be produced; only written by the producer */
+    private final AtomicLong m_tail = new AtomicLong(0);
+    /** most recent message that did not fit in the ring (CoalesceLatest only) */
+    private final AtomicReference<Object> m_latest = new AtomicReference<Object>();
+
+    private final AtomicLong m_enqueued  = new AtomicLong(0);
+    private final AtomicLong m_dropped   = new AtomicLong(0);
+    private final AtomicLong m_coalesced = new AtomicLong(0);
+
+    /**
+     * @param msgType
+     * @param capacity will be rounded up to a power of two
+     * @param pool SamplePool to release discarded samples to, may be null
+     */
+    MessageRing(MessageType msgType, int capacity, SamplePool pool) {
+        int size = Integer.highestOneBit(Math.max(2, capacity));
+        if(size < capacity) {
+            size <<= 1;
+        }
+        this.msgType = msgType;
+        this.pool    = pool;
+        m_policy = msgType.getOverflowPolicy();
+        m_slots  = new AtomicReferenceArray<Object>(size);
+        m_mask   = size - 1;
+    }
+
+    /**
+     * Add a message to the ring, applying the OverflowPolicy if the ring is full.
+     * Must only be called from a single producer thread at a time.
+     * @return false if the message (or an older one) was discarded
+     */
+    boolean offer(Object msg) {
+        m_enqueued.incrementAndGet();
+        switch(m_policy) {
+        case CoalesceLatest:
+            // once we are coalescing, keep coalescing until the consumer
+            // has taken the latest message so delivery order is preserved
+            if(m_latest.get() != null || !tryPush(msg)) {
+                final Object replaced = m_latest.getAndSet(msg);
+                if(replaced != null) {
+                    m_coalesced.incrementAndGet();
+                    release(replaced);
+                    return false;
+                }
+            }
+            return true;
+        case DropOldest:
+            boolean retVal = true;
+            while(!tryPush(msg)) {
+                final Object dropped = pollRing();
+                if(dropped != null) {
+                    m_dropped.incrementAndGet();
+                    release(dropped);
+                    retVal = false;
+                }
+            }
+            return retVal;
+        case Block:
+        default:
+            while(!tryPush(msg)) {
+                LockSupport.parkNanos(this, BLOCK_WAIT_NANOS);
+                if(Thread.currentThread().isInterrupted()) {
+                    logger.error("Interrupted while waiting to queue "+msgType.name());
+                    m_dropped.incrementAndGet();
+                    release(msg);
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @return the next message, or null if the ring is empty.
+     * Safe to call from any number of threads.
+     */
+    Object poll() {
+        Object retVal = pollRing();
+        if(retVal == null && m_latest.get() != null) {
+            retVal = m_latest.getAndSet(null);
+        }
+        return retVal;
+    }
+
+    /**
+     * drop the queue's reference to a sample once it has been dispatched or discarded
+     */
+    void release(Object msg) {
+        if(pool != null) {
+            pool.release(msg);
+        }
+    }
+
+    boolean isEmpty() {
+        return m_head.get() >= m_tail.get() && m_latest.get() == null;
+    }
+
+    int size() {
+        return (int)(m_tail.get() - m_head.get()) + (m_latest.get() == null ? 0 : 1);
+    }
+
+    int capacity() {
+        return m_slots.length();
+    }
+
+    DispatchCounts getCounts() {
+        return new DispatchCounts(m_enqueued.get(), m_dropped.get(), m_coalesced.get(), size());
+    }
+
+    private boolean tryPush(Object msg) {
+        final long tail = m_tail.get();
+        if(tail - m_head.get() >= m_slots.length()) {
+            return false;
+        }
+        m_slots.set((int)tail & m_mask, msg);
+        m_tail.set(tail + 1);
+        return true;
+    }
+
+    private Object pollRing() {
+        for(;;) {
+            final long head = m_head.get();
+            if(head >= m_tail.get()) {
+                return null;
+            }
+            final int    idx = (int)head & m_mask;
+            final Object msg = m_slots.get(idx);
+            if(m_head.compareAndSet(head, head + 1)) {
+                // release the reference unless the producer has already reused the slot
+                m_slots.compareAndSet(idx, msg, null);
+                return msg;
+            }
+        }
+    }
+}
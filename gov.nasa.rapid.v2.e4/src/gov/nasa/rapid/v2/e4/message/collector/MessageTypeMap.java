@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the 
+ * Administrator of the National Aeronautics and Space Administration. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.rapid.v2.e4.message.collector;
+
+import gov.nasa.rapid.v2.e4.message.MessageType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Map keyed by MessageType that is backed by an array indexed by 
+ * MessageType.ordinal(), similar to an EnumMap. MessageTypes can be 
+ * created at runtime, so the array grows as needed. Changes copy the 
+ * array, so get() is a volatile read and an array index and never 
+ * blocks; use it for maps that are read for every message and 
+ * written only when listeners are added.
+ */
+class MessageTypeMap<V> {
+    private volatile Object[]      m_values;
+    private volatile MessageType[] m_keys;
+
+    /**
+     * size the map for the MessageTypes that have been registered so far
+     */
+    public MessageTypeMap() {
+        final int size = MessageType.getOrdinalCount();
+        m_values = new Object[size];
+        m_keys   = new MessageType[size];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(MessageType msgType) {
+        final Object[] values = m_values;
+        final int ordinal = msgType.ordinal();
+        return ordinal < values.length ? (V)values[ordinal] : null;
+    }
+
+    public boolean containsKey(MessageType msgType) {
+        return get(msgType) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized V put(MessageType msgType, V value) {
+        final int ordinal = msgType.ordinal();
+        final int length  = Math.max(m_values.length, ordinal+1);
+        Object[]      values = new Object[length];
+        MessageType[] keys   = new MessageType[length];
+        System.arraycopy(m_values, 0, values, 0, m_values.length);
+        System.arraycopy(m_keys,   0, keys,   0, m_keys.length);
+        final V retVal = (V)values[ordinal];
+        values[ordinal] = value;
+        keys[ordinal]   = (value == null) ? null : msgType;
+        m_keys   = keys;
+        m_values = values;
+        return retVal;
+    }
+
+    public V remove(MessageType msgType) {
+        return put(msgType, null);
+    }
+
+    /**
+     * @return MessageTypes that have a value, in ordinal order
+     */
+    public List<MessageType> keySet() {
+        final MessageType[] keys = m_keys;
+        List<MessageType> retVal = new ArrayList<MessageType>();
+        for(MessageType key : keys) {
+            if(key != null) {
+                retVal.add(key);
+            }
+        }
+        return retVal;
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        final Object[] values = m_values;
+        List<V> retVal = new ArrayList<V>();
+        for(Object value : values) {
+            if(value != null) {
+                retVal.add((V)value);
+            }
+        }
+        return retVal;
+    }
+}
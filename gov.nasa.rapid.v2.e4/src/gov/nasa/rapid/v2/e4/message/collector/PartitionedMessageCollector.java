@@ -38,14 +38,24 @@ import gov.nasa.rapid.v2.e4.message.ReaderStatus;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 import org.apache.log4j.Logger;
 
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 import com.rti.dds.subscription.DataReader;
 import com.rti.dds.subscription.DataReaderQos;
@@ -68,7 +78,7 @@ public class PartitionedMessageCollector implements IMessageReceiver, IDdsRestar
     protected final String m_participantId;
 
     protected MessageListenerFactory m_messageListenerFactory = new MessageListenerFactory();
-    protected final HashMap<MessageType,MessageListener> m_messageListeners = new HashMap<MessageType,MessageListener>();
+    protected final MessageTypeMap<MessageListener>      m_messageListeners = new MessageTypeMap<MessageListener>();
     protected final HashMap<MessageType,DataReader>      m_dataReaders = new HashMap<MessageType,DataReader>();
 
     class RapidMessageListeners    extends ListenerList<IRapidMessageListener>    { /**/ }
@@ -76,16 +86,37 @@ public class PartitionedMessageCollector implements IMessageReceiver, IDdsRestar
     class DdsReaderStatusListeners extends ListenerList<IDdsReaderStatusListener> { /**/ }
     class DdsInstanceListeners     extends ListenerList<IDdsInstanceListener>     { /**/ }
 
-    protected final HashMap<MessageType,RapidMessageListeners>     m_rapidListeners = new HashMap<MessageType,RapidMessageListeners>();
-    protected final HashMap<MessageType,DdsMessageListeners>         m_ddsListeners = new HashMap<MessageType,DdsMessageListeners>();
-    protected final HashMap<MessageType,DdsReaderStatusListeners> m_statusListeners = new HashMap<MessageType,DdsReaderStatusListeners>();
-    protected final HashMap<MessageType,DdsInstanceListeners>   m_instanceListeners = new HashMap<MessageType,DdsInstanceListeners>();
+    protected final MessageTypeMap<RapidMessageListeners>     m_rapidListeners = new MessageTypeMap<RapidMessageListeners>();
+    protected final MessageTypeMap<DdsMessageListeners>         m_ddsListeners = new MessageTypeMap<DdsMessageListeners>();
+    protected final MessageTypeMap<DdsReaderStatusListeners> m_statusListeners = new MessageTypeMap<DdsReaderStatusListeners>();
+    protected final MessageTypeMap<DdsInstanceListeners>   m_instanceListeners = new MessageTypeMap<DdsInstanceListeners>();
+
+    protected final HashMap<MessageType,Map<IRapidMessageListener,CoalescingRapidMessageListener>> m_coalescingListeners = new HashMap<MessageType,Map<IRapidMessageListener,CoalescingRapidMessageListener>>();
+    private final ConcurrentLinkedQueue<CoalescingRapidMessageListener> m_pendingCoalesced = new ConcurrentLinkedQueue<CoalescingRapidMessageListener>();
 
     protected final Map<MessageType,QosPolicyCounts> m_incompatibleQos = Maps.newHashMap();
 
-    protected final HashMap<MessageType,SizeAccumulator> m_sizes = new HashMap<MessageType,SizeAccumulator>();
+    /** MessageTypes for which received samples are recycled through a SamplePool */
+    protected final Set<MessageType> m_pooledTypes = Sets.newHashSet();
+
+    protected final MessageTypeMap<SizeAccumulator>      m_sizes = new MessageTypeMap<SizeAccumulator>();
+
+    /** rolling window receive rates, by MessageType */
+    private final MessageTypeMap<TopicMetrics>           m_metrics = new MessageTypeMap<TopicMetrics>();
 
-    private final ArrayBlockingQueue<MessagePair> m_msgQueue = new ArrayBlockingQueue<MessagePair>(1024);
+    /** callback times of each IRapidMessageListener and IDdsMessageListener, by MessageType */
+    private final MessageTypeMap<ConcurrentHashMap<Object,ListenerTimer>> m_timers = new MessageTypeMap<ConcurrentHashMap<Object,ListenerTimer>>();
+    /** listeners whose callbacks take longer than this are quarantined. 0 disables quarantine */
+    private volatile long m_latencyBudgetNanos = 0;
+
+    /** capacity of the dispatch queue for each MessageType */
+    public static final int RING_CAPACITY = 256;
+
+    private final MessageTypeMap<MessageRing>         m_rings    = new MessageTypeMap<MessageRing>();
+    private final CopyOnWriteArrayList<MessageRing>   m_ringList = new CopyOnWriteArrayList<MessageRing>();
+    private final QueueThread m_queueThread;
+    /** messages taken off the dispatch queues */
+    private final AtomicLong  m_dispatched = new AtomicLong(0);
 
     private boolean m_synchronousDispatch;
             
@@ -107,8 +138,8 @@ public class PartitionedMessageCollector implements IMessageReceiver, IDdsRestar
         }
         Dds.addRestartListener(this);
 
-        QueueThread thread = new QueueThread(m_msgQueue, partition);
-        thread.start();
+        m_queueThread = new QueueThread(partition);
+        m_queueThread.start();
     }
 
     public PartitionedMessageCollector(String participantId, Agent agent, boolean synchronousDispatch) {
@@ -117,12 +148,126 @@ public class PartitionedMessageCollector implements IMessageReceiver, IDdsRestar
         m_agent = agent;
         m_partition = agent.name();
         Dds.addRestartListener(this);
+
+        m_queueThread = new QueueThread(m_partition);
+        m_queueThread.start();
     }
     
+    /**
+     * Stop the dispatch thread and stop listening for DDS restarts. 
+     * Messages still queued are dropped. The collector must not be 
+     * used afterwards. 
+     */
+    public void dispose() {
+        Dds.removeRestartListener(this);
+        m_queueThread.interrupt();
+        if(Thread.currentThread() != m_queueThread) {
+            try {
+                m_queueThread.join(1000);
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     public void setSynchronousDispatch(boolean state) {
         m_synchronousDispatch = state;
     }
 
+    /**
+     * Recycle received samples of msgType through a SamplePool instead of allocating 
+     * a new copy for every sample. Samples are returned to the pool after they have 
+     * been distributed, so this must only be enabled if no listener (or caller of 
+     * getLastMessage) holds on to sample references after the callback returns. 
+     * Pooling is disabled by default.
+     */
+    public synchronized void setSamplePooling(MessageType msgType, boolean state) {
+        if(state) {
+            m_pooledTypes.add(msgType);
+        }
+        else {
+            m_pooledTypes.remove(msgType);
+        }
+        MessageListener msgListener = m_messageListeners.get(msgType);
+        if(msgListener != null) {
+            msgListener.getSamplePool().setEnabled(state);
+        }
+    }
+
+    public synchronized boolean isSamplePooling(MessageType msgType) {
+        return m_pooledTypes.contains(msgType);
+    }
+
+    /**
+     * Set the latency budget for listener callbacks. A listener that exceeds the
+     * budget repeatedly is moved to an executor of its own, so it cannot delay
+     * delivery to the other listeners on this partition. Quarantined listeners
+     * stay quarantined until they are removed.
+     * @param millis latency budget, or 0 to disable quarantine (default)
+     */
+    public void setListenerLatencyBudget(long millis) {
+        m_latencyBudgetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+    }
+
+    public long getListenerLatencyBudget() {
+        return TimeUnit.NANOSECONDS.toMillis(m_latencyBudgetNanos);
+    }
+
+    /**
+     * @return snapshot of callback times for each listener, by MessageType
+     */
+    public Map<MessageType,List<ListenerTimings>> getListenerTimings() {
+        Map<MessageType,List<ListenerTimings>> retVal = Maps.newHashMap();
+        for(MessageType msgType : m_timers.keySet()) {
+            List<ListenerTimings> timings = new ArrayList<ListenerTimings>();
+            for(ListenerTimer timer : m_timers.get(msgType).values()) {
+                timings.add(timer.getTimings());
+            }
+            retVal.put(msgType, timings);
+        }
+        return retVal;
+    }
+
+    protected ConcurrentHashMap<Object,ListenerTimer> getListenerTimers(MessageType msgType) {
+        ConcurrentHashMap<Object,ListenerTimer> retVal = m_timers.get(msgType);
+        if(retVal == null) {
+            synchronized(m_timers) {
+                retVal = m_timers.get(msgType);
+                if(retVal == null) {
+                    retVal = new ConcurrentHashMap<Object,ListenerTimer>();
+                    m_timers.put(msgType, retVal);
+                }
+            }
+        }
+        return retVal;
+    }
+
+    protected static ListenerTimer getListenerTimer(ConcurrentHashMap<Object,ListenerTimer> timers, Object listener) {
+        ListenerTimer retVal = timers.get(listener);
+        if(retVal == null) {
+            retVal = new ListenerTimer(listener);
+            ListenerTimer existing = timers.putIfAbsent(listener, retVal);
+            if(existing != null) {
+                retVal = existing;
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * drop the timings of a listener that has been removed, and stop its quarantine executor
+     */
+    protected void removeListenerTimer(MessageType msgType, Object listener) {
+        ConcurrentHashMap<Object,ListenerTimer> timers = m_timers.get(msgType);
+        if(timers != null) {
+            ListenerTimer timer = timers.remove(listener);
+            if(timer != null) {
+                timer.shutdown();
+            }
+        }
+    }
+
     /** 
      * use a custom MessageListenerFactory
      */
@@ -188,77 +333,187 @@ public class PartitionedMessageCollector implements IMessageReceiver, IDdsRestar
 
     //==== ADD LISTENERS ================================================
 
-    public synchronized void addRapidMessageListener(final MessageType msgType, final IRapidMessageListener listener) {
-        //-- if there is a corresponding Config type, subscribe to that, too
-        if(msgType.getConfigName() != null) {
-            MessageType cfgType = MessageType.valueOf(msgType.getConfigName());
-            RapidMessageListeners cfgListeners = m_rapidListeners.get(cfgType);
-            if(cfgListeners == null) {
-                cfgListeners = new RapidMessageListeners();
-                m_rapidListeners.put(cfgType, cfgListeners);
+    /**
+     * The initial samples are dispatched after the collector monitor has been 
+     * released, because dispatchExec may block while the executor is full
+     */
+    public void addRapidMessageListener(final MessageType msgType, final IRapidMessageListener listener) {
+        final MessageListener msgListener;
+        final MessageListener cfgListener;
+        final Object[] msgObjs;
+        synchronized(this) {
+            //-- if there is a corresponding Config type, subscribe to that, too
+            final MessageType cfgType = msgType.getConfigType();
+            if(cfgType != null) {
+                RapidMessageListeners cfgListeners = m_rapidListeners.get(cfgType);
+                if(cfgListeners == null) {
+                    cfgListeners = new RapidMessageListeners();
+                    m_rapidListeners.put(cfgType, cfgListeners);
+                }
+                cfgListener = getMessageListener(cfgType);
+            }
+            else {
+                cfgListener = null;
+            }
+
+            RapidMessageListeners listeners = m_rapidListeners.get(msgType);
+            if(listeners == null) {
+                listeners = new RapidMessageListeners();
+                m_rapidListeners.put(msgType, listeners);
             }
-            getMessageListener(cfgType);
+            msgListener = getMessageListener(msgType);
+
+            listeners.add(listener);
+
+            // give listener last received sample from every instance, if they exist. 
+            // Take the references now; the samples may be recycled before the task runs
+            msgObjs = msgListener.retainLastSamples();
         }
-        
-        RapidMessageListeners listeners = m_rapidListeners.get(msgType);
-        if(listeners == null) {
-            listeners = new RapidMessageListeners();
-            m_rapidListeners.put(msgType, listeners);
+        if(msgObjs.length > 0) {
+            new RetainedSamplesTask(msgListener, msgObjs, cfgListener) {
+                @Override
+                void deliver(Object msgObj, Object cfgObj) {
+                    listener.onRapidMessageReceived(m_agent, msgType, msgObj, cfgObj);
+                }
+            }.dispatch();
         }
-        final MessageListener msgListener = getMessageListener(msgType);
+    }
 
-        try {
-            listeners.lock.writeLock().lock();
-            listeners.add(listener);
+    /**
+     * Add a listener that is only interested in the most recent sample. At most one 
+     * sample is delivered to the listener per dispatch cycle, and no more often than 
+     * once every minIntervalMillis. Samples that arrive in between replace the pending 
+     * sample and are counted as coalesced. RAPID topics are not keyed, so there is a 
+     * single instance per partition and MessageType.
+     * @param msgType
+     * @param listener
+     * @param minIntervalMillis minimum time between deliveries, or 0 to deliver once per dispatch cycle
+     */
+    public void addRapidMessageListener(final MessageType msgType, final IRapidMessageListener listener, long minIntervalMillis) {
+        CoalescingRapidMessageListener coalescer = null;
+        synchronized(this) {
+            Map<IRapidMessageListener,CoalescingRapidMessageListener> coalescers = m_coalescingListeners.get(msgType);
+            if(coalescers == null) {
+                coalescers = new HashMap<IRapidMessageListener,CoalescingRapidMessageListener>();
+                m_coalescingListeners.put(msgType, coalescers);
+            }
+            if(!coalescers.containsKey(listener)) {
+                coalescer = new CoalescingRapidMessageListener(listener, minIntervalMillis);
+                coalescers.put(listener, coalescer);
+            }
         }
-        finally {
-            listeners.lock.writeLock().unlock();
+        if(coalescer != null) {
+            addRapidMessageListener(msgType, coalescer);
         }
+    }
 
-        DdsTask.dispatchExec(new Runnable() {
-            @Override
-            public void run() {
-                // give listener last received sample from every instance, if they exist
-                final Object[] msgObjs = msgListener.getLastSamples().values().toArray(new Object[0]);
-                Object cfgObj = null;
-                if(msgType.getConfigName() != null) {
-                    MessageType cfgType = MessageType.valueOf(msgType.getConfigName());
-                    cfgObj = getMessageListener(cfgType).getLastSample();
-                }
-                for(Object msgObj : msgObjs) {
-                    listener.onRapidMessageReceived(m_agent, msgType, msgObj, cfgObj);
-                }
+    /**
+     * @return number of samples that were replaced by a newer sample before they 
+     * could be delivered, for each coalescing listener of msgType
+     */
+    public synchronized Map<IRapidMessageListener,Long> getCoalescedCounts(MessageType msgType) {
+        Map<IRapidMessageListener,Long> retVal = Maps.newHashMap();
+        Map<IRapidMessageListener,CoalescingRapidMessageListener> coalescers = m_coalescingListeners.get(msgType);
+        if(coalescers != null) {
+            for(CoalescingRapidMessageListener coalescer : coalescers.values()) {
+                retVal.put(coalescer.listener, coalescer.getCoalescedCount());
             }
-        });
+        }
+        return retVal;
     }
 
-    public synchronized void addDdsMessageListener(final MessageType msgType, final IDdsMessageListener listener) {
-        DdsMessageListeners listeners = m_ddsListeners.get(msgType);
-        if(listeners == null) {
-            listeners = new DdsMessageListeners();
-            m_ddsListeners.put(msgType, listeners);
+    /**
+     * if listener was added as a coalescing listener, forget about it
+     * @return the wrapper that was registered for listener, or listener if there is none
+     */
+    protected IRapidMessageListener removeCoalescingListener(MessageType msgType, IRapidMessageListener listener) {
+        Map<IRapidMessageListener,CoalescingRapidMessageListener> coalescers = m_coalescingListeners.get(msgType);
+        if(coalescers != null) {
+            CoalescingRapidMessageListener coalescer = coalescers.remove(listener);
+            if(coalescer != null) {
+                coalescer.cancel();
+                return coalescer;
+            }
         }
-        final MessageListener msgListener = getMessageListener(msgType);
-        try {
-            listeners.lock.writeLock().lock();
+        return listener;
+    }
+
+    public void addDdsMessageListener(final MessageType msgType, final IDdsMessageListener listener) {
+        final MessageListener msgListener;
+        final Object[] msgObjs;
+        synchronized(this) {
+            DdsMessageListeners listeners = m_ddsListeners.get(msgType);
+            if(listeners == null) {
+                listeners = new DdsMessageListeners();
+                m_ddsListeners.put(msgType, listeners);
+            }
+            msgListener = getMessageListener(msgType);
             listeners.add(listener);
+
+            // give listener last received sample from each instance, if they exist
+            msgObjs = msgListener.retainLastSamples();
         }
-        finally {
-            listeners.lock.writeLock().unlock();
+        // dispatched outside the monitor, like addRapidMessageListener
+        if(msgObjs.length > 0) {
+            new RetainedSamplesTask(msgListener, msgObjs, null) {
+                @Override
+                void deliver(Object msgObj, Object cfgObj) {
+                    listener.onDdsMessageReceived(m_agent.name(), msgType, msgObj);
+                }
+            }.dispatch();
         }
+    }
 
-        // give listener last received sample from each instance, if they exist
-        int num = msgListener.getLastSamples().size();
-        if(num > 0) {
-            final Object[] msgObjs = msgListener.getLastSamples().values().toArray(new Object[num]);
-            DdsTask.dispatchExec(new Runnable() {
-                @Override
-                public void run() {
-                    for(Object msgObj : msgObjs) {
-                        listener.onDdsMessageReceived(m_agent.name(), msgType, msgObj);
-                    }
+    /**
+     * Hands samples that were retained on the calling thread to a new 
+     * listener on the dispatch executor. The references are released 
+     * after delivery, or right away if the task is rejected.
+     */
+    protected abstract static class RetainedSamplesTask implements Runnable {
+        final MessageListener msgListener;
+        final Object[]        msgObjs;
+        final MessageListener cfgListener;
+        final Object          cfgObj;
+
+        RetainedSamplesTask(MessageListener msgListener, Object[] msgObjs, MessageListener cfgListener) {
+            this.msgListener = msgListener;
+            this.msgObjs     = msgObjs;
+            this.cfgListener = cfgListener;
+            this.cfgObj      = (cfgListener == null) ? null : cfgListener.retainLastSample();
+        }
+
+        abstract void deliver(Object msgObj, Object cfgObj);
+
+        @Override
+        public void run() {
+            try {
+                for(Object msgObj : msgObjs) {
+                    deliver(msgObj, cfgObj);
                 }
-            });
+            }
+            finally {
+                release();
+            }
+        }
+
+        void dispatch() {
+            try {
+                DdsTask.dispatchExec(this);
+            }
+            catch(RejectedExecutionException e) {
+                release();
+                throw e;
+            }
+        }
+
+        void release() {
+            final SamplePool pool = msgListener.getSamplePool();
+            for(Object msgObj : msgObjs) {
+                pool.release(msgObj);
+            }
+            if(cfgListener != null) {
+                cfgListener.getSamplePool().release(cfgObj);
+            }
         }
     }
 
@@ -298,13 +553,7 @@ public class PartitionedMessageCollector implements IMessageReceiver, IDdsRestar
             m_statusListeners.put(msgType, listeners);
         }
         getMessageListener(msgType);
-        try {
-            listeners.lock.writeLock().lock();
-            listeners.add(listener);
-        }
-        finally {
-            listeners.lock.writeLock().unlock();
-        }
+        listeners.add(listener);
     }
 
     public synchronized void addDdsInstanceListener(MessageType msgType, IDdsInstanceListener listener) {
@@ -314,13 +563,7 @@ public class PartitionedMessageCollector implements IMessageReceiver, IDdsRestar
             m_instanceListeners.put(msgType, listeners);
         }
         getMessageListener(msgType);
-        try{ 
-            listeners.lock.writeLock().lock();
-            listeners.add(listener);
-        }
-        finally {
-            listeners.lock.writeLock().unlock();
-        }
+        listeners.add(listener);
     }
 
     /**
@@ -370,15 +613,11 @@ public class PartitionedMessageCollector implements IMessageReceiver, IDdsRestar
         RapidMessageListeners listeners = m_rapidListeners.get(msgType);
         if(listeners == null) 
             return false;
-        try {
-            listeners.lock.writeLock().lock();
-            boolean retVal = listeners.remove(listener);
-            destroyDataReaderIfNoLongerNeeded(msgType);
-            return retVal;
-        }
-        finally {
-            listeners.lock.writeLock().unlock();
-        }
+        IRapidMessageListener registered = removeCoalescingListener(msgType, listener);
+        boolean retVal = listeners.remove(registered);
+        removeListenerTimer(msgType, registered);
+        destroyDataReaderIfNoLongerNeeded(msgType);
+        return retVal;
     }
 
     /**
@@ -388,16 +627,12 @@ public class PartitionedMessageCollector implements IMessageReceiver, IDdsRestar
         int count = 0;
         for(MessageType msgType : m_rapidListeners.keySet()) {
             RapidMessageListeners listeners = m_rapidListeners.get(msgType);
-            if(listeners.contains(listener)) {
-                try {
-                    listeners.lock.writeLock().lock();
-                    if(listeners.remove(listener)) {
-                        destroyDataReaderIfNoLongerNeeded(msgType);
-                        count++;
-                    }
-                }
-                finally {
-                    listeners.lock.writeLock().unlock();
+            IRapidMessageListener registered = removeCoalescingListener(msgType, listener);
+            if(listeners.contains(registered)) {
+                if(listeners.remove(registered)) {
+                    removeListenerTimer(msgType, registered);
+                    destroyDataReaderIfNoLongerNeeded(msgType);
+                    count++;
                 }
             }
         }
@@ -412,17 +647,12 @@ public class PartitionedMessageCollector implements IMessageReceiver, IDdsRestar
         DdsMessageListeners listeners = m_ddsListeners.get(msgType);
         if(listeners == null) 
             return false;
-        try {
-            listeners.lock.writeLock().lock();
-            if( listeners.remove(listener) ) {
-                destroyDataReaderIfNoLongerNeeded(msgType);
-                return true;
-            }
-            return false;
-        }
-        finally {
-            listeners.lock.writeLock().unlock();
+        if( listeners.remove(listener) ) {
+            removeListenerTimer(msgType, listener);
+            destroyDataReaderIfNoLongerNeeded(msgType);
+            return true;
         }
+        return false;
     }
 
     /**
@@ -433,15 +663,10 @@ public class PartitionedMessageCollector implements IMessageReceiver, IDdsRestar
         for(MessageType msgType : m_ddsListeners.keySet()) {
             DdsMessageListeners listeners = m_ddsListeners.get(msgType);
             if(listeners.contains(listener)) {
-                try {
-                    listeners.lock.writeLock().lock();
-                    if(listeners.remove(listener)) {
-                        destroyDataReaderIfNoLongerNeeded(msgType);
-                        count++;
-                    }
-                }
-                finally {
-                    listeners.lock.writeLock().unlock();
+                if(listeners.remove(listener)) {
+                    removeListenerTimer(msgType, listener);
+                    destroyDataReaderIfNoLongerNeeded(msgType);
+                    count++;
                 }
             }
         }
@@ -455,17 +680,11 @@ public class PartitionedMessageCollector implements IMessageReceiver, IDdsRestar
         DdsReaderStatusListeners listeners = m_statusListeners.get(msgType);
         if(listeners == null) 
             return false;
-        try {
-            listeners.lock.writeLock().lock();
-            if(listeners.remove(listener)) {
-                destroyDataReaderIfNoLongerNeeded(msgType);
-                return true;
-            }
-            return false;
-        }
-        finally {
-            listeners.lock.writeLock().unlock();
+        if(listeners.remove(listener)) {
+            destroyDataReaderIfNoLongerNeeded(msgType);
+            return true;
         }
+        return false;
     }
 
     /**
@@ -476,15 +695,9 @@ public class PartitionedMessageCollector implements IMessageReceiver, IDdsRestar
         for(MessageType msgType : m_statusListeners.keySet()) {
             DdsReaderStatusListeners listeners = m_statusListeners.get(msgType);
             if(listeners.contains(listener)) {
-                try {
-                    listeners.lock.writeLock().lock();
-                    if(listeners.remove(listener)) {
-                        destroyDataReaderIfNoLongerNeeded(msgType);
-                        count++;
-                    }
-                }
-                finally {
-                    listeners.lock.writeLock().unlock();
+                if(listeners.remove(listener)) {
+                    destroyDataReaderIfNoLongerNeeded(msgType);
+                    count++;
                 }
             }
         }
@@ -498,17 +711,11 @@ public class PartitionedMessageCollector implements IMessageReceiver, IDdsRestar
         DdsInstanceListeners listeners = m_instanceListeners.get(msgType);
         if(listeners == null) 
             return false;
-        try {
-            listeners.lock.writeLock().lock();
-            if(listeners.remove(listener)) {
-                destroyDataReaderIfNoLongerNeeded(msgType);
-                return true;
-            }
-            return false;
-        }
-        finally {
-            listeners.lock.writeLock().unlock();
+        if(listeners.remove(listener)) {
+            destroyDataReaderIfNoLongerNeeded(msgType);
+            return true;
         }
+        return false;
     }
 
     /**
@@ -519,15 +726,9 @@ public class PartitionedMessageCollector implements IMessageReceiver, IDdsRestar
         for(MessageType msgType : m_instanceListeners.keySet()) {
             DdsInstanceListeners listeners = m_instanceListeners.get(msgType);
             if(listeners.contains(listener)) {
-                try {
-                    listeners.lock.writeLock().lock();
-                    if(listeners.remove(listener)) {
-                        destroyDataReaderIfNoLongerNeeded(msgType);
-                        count++;
-                    }
-                }
-                finally {
-                    listeners.lock.writeLock().unlock();
+                if(listeners.remove(listener)) {
+                    destroyDataReaderIfNoLongerNeeded(msgType);
+                    count++;
                 }
             }
         }
@@ -577,7 +778,7 @@ public class PartitionedMessageCollector implements IMessageReceiver, IDdsRestar
 
         //-- If Sample or State, check if Config should be cleaned up
         if(msgType.getCategory() == Category.Sample || msgType.getCategory() == Category.State) {
-            MessageType config = MessageType.valueOf(msgType.getConfigName());
+            MessageType config = msgType.getConfigType();
             if(config != null) {
                 destroyDataReaderIfNoLongerNeeded(config);
             }
@@ -585,49 +786,120 @@ public class PartitionedMessageCollector implements IMessageReceiver, IDdsRestar
         return true;
     }
 
+    /**
+     * Queue a message for dispatch. Each MessageType has its own bounded queue, 
+     * so a burst on one topic cannot crowd out the others. When a queue is full, 
+     * the OverflowPolicy of the MessageType is applied. 
+     * Callers must not call newMessage for the same MessageType from 
+     * more than one thread at a time (the MessageListener monitor serializes this)
+     */
     @Override
     public void newMessage(final MessageType msgType, final Object msgObj) {
-        //distributeMessage(msgType, message);
-        final MessagePair pair = new MessagePair(msgType, msgObj);
-        if(!m_msgQueue.offer(pair)) {
-            // XXX FIXME This code should go away when wait sets are implemented
-            logger.error("!!! Message Queue is full !!!");
-            if(!msgType.getCategory().equals(Category.Sample)) { // drop samples, wait to queue others
-                try {
-                    m_msgQueue.put(pair);
-                } 
-                catch (InterruptedException e) {
-                    logger.error(e);
+        if(RapidMessageCollector.INSTANCE.isTopicMetrics) {
+            // record before the sample is queued; after that it may be recycled
+            getTopicMetrics(msgType).recordMessage(msgObj, System.nanoTime());
+        }
+        final FlightRecorder recorder = RapidMessageCollector.INSTANCE.m_flightRecorder;
+        if(recorder != null) {
+            recorder.record(m_partition, msgType, msgObj);
+        }
+        getMessageRing(msgType).offer(msgObj);
+        m_queueThread.wake();
+    }
+
+    MessageRing getMessageRing(MessageType msgType) {
+        MessageRing ring = m_rings.get(msgType);
+        if(ring == null) {
+            synchronized(m_rings) {
+                ring = m_rings.get(msgType);
+                if(ring == null) {
+                    MessageListener msgListener = m_messageListeners.get(msgType);
+                    SamplePool pool = (msgListener == null) ? null : msgListener.getSamplePool();
+                    ring = new MessageRing(msgType, RING_CAPACITY, pool);
+                    m_rings.put(msgType, ring);
+                    m_ringList.add(ring);
                 }
             }
         }
+        return ring;
+    }
+
+    TopicMetrics getTopicMetrics(MessageType msgType) {
+        TopicMetrics retVal = m_metrics.get(msgType);
+        if(retVal == null) {
+            synchronized(m_metrics) {
+                retVal = m_metrics.get(msgType);
+                if(retVal == null) {
+                    retVal = new TopicMetrics(msgType);
+                    m_metrics.put(msgType, retVal);
+                }
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * @return receive rates over the last TopicMetrics window for each 
+     * MessageType that has received messages
+     */
+    public List<TopicMetricsSnapshot> getTopicMetrics() {
+        final long now = System.nanoTime();
+        List<TopicMetricsSnapshot> retVal = new ArrayList<TopicMetricsSnapshot>();
+        for(TopicMetrics metrics : m_metrics.values()) {
+            retVal.add(metrics.getSnapshot(m_participantId, m_partition, now));
+        }
+        return retVal;
+    }
+
+    /**
+     * @return snapshot of dispatch queue counters for each MessageType 
+     * that has received messages
+     */
+    public Map<MessageType,DispatchCounts> getDispatchCounts() {
+        Map<MessageType,DispatchCounts> retVal = Maps.newHashMap();
+        for(MessageRing ring : m_ringList) {
+            retVal.put(ring.msgType, ring.getCounts());
+        }
+        return retVal;
+    }
+
+    /**
+     * @return number of messages taken off the dispatch queues since 
+     * this collector was created
+     */
+    public long getDispatchedMessageCount() {
+        return m_dispatched.get();
     }
 
     public void distributeMessage(final MessageType msgType, final Object message) {
-        Object lastListener = null;
         final DdsMessageListeners   dListeners = m_ddsListeners.get(msgType);
         final RapidMessageListeners rListeners = m_rapidListeners.get(msgType);
         if(dListeners != null && dListeners.size() > 0) {
-            try {
-                dListeners.lock.readLock().lock();
-                for(IDdsMessageListener listener : dListeners.values()) {
-                    lastListener = listener;
+            final ConcurrentHashMap<Object,ListenerTimer> timers = getListenerTimers(msgType);
+            for(final IDdsMessageListener listener : dListeners.values()) {
+                final ListenerTimer timer = getListenerTimer(timers, listener);
+                if(timer.isQuarantined()) {
+                    executeQuarantined(timer, msgType, message, new Runnable() {
+                        @Override
+                        public void run() {
+                            listener.onDdsMessageReceived(m_partition, msgType, message);
+                        }
+                    });
+                    continue;
+                }
+                final long startTime = System.nanoTime();
+                try {
                     listener.onDdsMessageReceived(m_partition, msgType, message);
                 }
-            }
-            catch(Throwable t) {
-                String msg = "Error distributing "+msgType.name()+" to "+lastListener;
-                logger.error(msg, t);
-                //throw new RuntimeException(t);
-            }
-            finally{
-                dListeners.lock.readLock().unlock();
+                catch(Throwable t) {
+                    logger.error("Error distributing "+msgType.name()+" to "+listener, t);
+                }
+                recordListenerTime(timer, msgType, System.nanoTime()-startTime);
             }
         }
         if(rListeners != null && rListeners.size() > 0 && m_agent != null) {
-            // FIXME need better lookup of Configs
             Object configMsg = null;
-            MessageType configType = MessageType.valueOf(msgType.getConfigName());
+            MessageType configType = msgType.getConfigType();
             if(configType == null) {
                 //logger.debug("no config type for "+msgType);
             }
@@ -649,44 +921,94 @@ public class PartitionedMessageCollector implements IMessageReceiver, IDdsRestar
                 }
             }
 
-            //long startTime, diffTime;
-            try {
-                rListeners.lock.readLock().lock();
-                if(RapidMessageCollector.INSTANCE.isMeasureSizes) {
-                    measureSize(msgType, message);
+            final ConcurrentHashMap<Object,ListenerTimer> timers = getListenerTimers(msgType);
+            final Object cfgMsg = configMsg;
+            if(RapidMessageCollector.INSTANCE.isMeasureSizes) {
+                measureSize(msgType, message);
+            }
+            for(final IRapidMessageListener listener : rListeners.values()) {
+                final ListenerTimer timer = getListenerTimer(timers, listener);
+                if(timer.isQuarantined()) {
+                    executeQuarantined(timer, msgType, message, new Runnable() {
+                        @Override
+                        public void run() {
+                            listener.onRapidMessageReceived(m_agent, msgType, message, cfgMsg);
+                        }
+                    });
+                    continue;
                 }
-                for(IRapidMessageListener listener : rListeners.values()) {
-                    lastListener = listener;
-                    //startTime = System.currentTimeMillis();
-                    listener.onRapidMessageReceived(m_agent, msgType, message, configMsg);
-                    //if((diffTime = System.currentTimeMillis()-startTime) > 50) {
-                    //    logger.debug("listener "+listener.getClass().getSimpleName()+" took "+diffTime+" msecs to process "+msgType.name());
-                    //}
+                // one slow or failing listener must not keep the others from getting the message
+                final long startTime = System.nanoTime();
+                try {
+                    listener.onRapidMessageReceived(m_agent, msgType, message, cfgMsg);
                 }
+                catch(Throwable t) {
+                    logger.error("Error distributing "+msgType.name()+" to "+listener, t);
+                }
+                recordListenerTime(timer, msgType, System.nanoTime()-startTime);
             }
-            catch(Throwable t) {
-                String msg = "Error distributing "+msgType.name()+" to "+lastListener;
-                logger.error(msg, t);
-                //throw new RuntimeException(t);
-            }
-            finally {
-                rListeners.lock.readLock().unlock();
+        }
+    }
+
+    protected void recordListenerTime(ListenerTimer timer, MessageType msgType, long nanos) {
+        if(timer.record(nanos, m_latencyBudgetNanos)) {
+            logger.warn("Listener "+timer.listener+" exceeded the latency budget of "+getListenerLatencyBudget()+
+                        " ms for "+msgType.name()+" on "+m_partition+" "+ListenerTimer.QUARANTINE_OVERRUNS+
+                        " times; moving it to its own executor");
+            timer.quarantine();
+        }
+    }
+
+    /**
+     * hand a callback to a quarantined listener's executor. The message holds a 
+     * pool reference until the callback has run, because the sample is released 
+     * as soon as distributeMessage returns
+     */
+    protected void executeQuarantined(final ListenerTimer timer, final MessageType msgType, final Object message, final Runnable callback) {
+        MessageRing ring = m_rings.get(msgType);
+        final SamplePool pool = (ring == null) ? null : ring.pool;
+        if(pool != null) {
+            pool.retain(message);
+        }
+        boolean queued = timer.execute(new Runnable() {
+            @Override
+            public void run() {
+                final long startTime = System.nanoTime();
+                try {
+                    callback.run();
+                }
+                catch(Throwable t) {
+                    logger.error("Error distributing "+msgType.name()+" to "+timer.listener, t);
+                }
+                finally {
+                    timer.record(System.nanoTime()-startTime, 0);
+                    if(pool != null) {
+                        pool.release(message);
+                    }
+                }
             }
+        });
+        if(!queued && pool != null) {
+            pool.release(message);
         }
     }
 
     @Override
     public void newStatus(MessageType msgType, ReaderStatus statusType, Object status) {
+        if(RapidMessageCollector.INSTANCE.isTopicMetrics) {
+            if(statusType == ReaderStatus.SampleLost) {
+                final int change = ((SampleLostStatus)status).total_count_change;
+                getTopicMetrics(msgType).recordLost(Math.max(1, change), System.nanoTime());
+            }
+            else if(statusType == ReaderStatus.SampleRejected) {
+                final int change = ((SampleRejectedStatus)status).total_count_change;
+                getTopicMetrics(msgType).recordRejected(Math.max(1, change), System.nanoTime());
+            }
+        }
         final DdsReaderStatusListeners sListeners = m_statusListeners.get(msgType);
         if(sListeners != null && sListeners.size() > 0 && m_agent != null) {
-            try {
-                sListeners.lock.readLock().lock();
-                for(IDdsReaderStatusListener listener : sListeners.values()) {
-                    listener.onReaderStatusReceived(m_partition, msgType, statusType, status);
-                }
-            }
-            finally {
-                sListeners.lock.readLock().unlock();
+            for(IDdsReaderStatusListener listener : sListeners.values()) {
+                listener.onReaderStatusReceived(m_partition, msgType, statusType, status);
             }
         }
     }
@@ -695,14 +1017,8 @@ public class PartitionedMessageCollector implements IMessageReceiver, IDdsRestar
     public void instanceAlive(MessageType msgType, Object sample) {
         final DdsInstanceListeners iListeners = m_instanceListeners.get(msgType);
         if(iListeners != null && iListeners.size() > 0 && m_agent != null) {
-            try {
-                iListeners.lock.readLock().lock();
-                for(IDdsInstanceListener listener : iListeners.values()) {
-                    listener.onDdsInstanceAlive(m_partition, msgType, sample);
-                }
-            }
-            finally {
-                iListeners.lock.readLock().unlock();
+            for(IDdsInstanceListener listener : iListeners.values()) {
+                listener.onDdsInstanceAlive(m_partition, msgType, sample);
             }
         }
     }
@@ -711,14 +1027,8 @@ public class PartitionedMessageCollector implements IMessageReceiver, IDdsRestar
     public void instanceDead(MessageType msgType, Object sample) {
         final DdsInstanceListeners iListeners = m_instanceListeners.get(msgType);
         if(iListeners != null && iListeners.size() > 0 && m_agent != null) {
-            try {
-                iListeners.lock.readLock().lock();
-                for(IDdsInstanceListener listener : iListeners.values()) {
-                    listener.onDdsInstanceDead(m_partition, msgType, sample);
-                }
-            }
-            finally {
-                iListeners.lock.readLock().unlock();
+            for(IDdsInstanceListener listener : iListeners.values()) {
+                listener.onDdsInstanceDead(m_partition, msgType, sample);
             }
         }
     }
@@ -733,7 +1043,9 @@ public class PartitionedMessageCollector implements IMessageReceiver, IDdsRestar
         MessageListener msgListener = m_messageListeners.get(msgType);
         if(msgListener == null) {
             msgListener = m_messageListenerFactory.create(this, msgType);
+            msgListener.getSamplePool().setEnabled(m_pooledTypes.contains(msgType));
             m_messageListeners.put(msgType, msgListener);
+            getMessageRing(msgType);
             createDataReader(msgListener);
         }
         DataReader dataReader = m_dataReaders.get(msgType);
@@ -864,38 +1176,240 @@ public class PartitionedMessageCollector implements IMessageReceiver, IDdsRestar
         }
     }
 
+    /**
+     * Drains the per-MessageType queues round robin, so a single busy 
+     * MessageType cannot starve the others
+     */
     protected class QueueThread extends Thread {
-        private final ArrayBlockingQueue<MessagePair> m_queue;
-        public QueueThread(ArrayBlockingQueue<MessagePair> queue, String partition) {
+        /** max number of messages taken from one queue before moving to the next */
+        static final int  DRAIN_BATCH      = 16;
+        static final long IDLE_PARK_NANOS  = 100000000;
+        
+        private volatile boolean m_idle = false;
+        
+        public QueueThread(String partition) {
             super("PartitionedMessageCollector-"+partition);
-            m_queue = queue;
         }
+        
+        /** called by producers after a message has been queued */
+        void wake() {
+            if(m_idle) {
+                m_idle = false;
+                LockSupport.unpark(this);
+            }
+        }
+        
+        /** coalesced messages that are waiting for their minimum interval to expire */
+        private final ArrayList<CoalescingRapidMessageListener> m_deferred = new ArrayList<CoalescingRapidMessageListener>();
+        
         @Override
         public void run() {
-            try {
-                while(!isInterrupted()) {
-                    final MessagePair pair = m_queue.take();
-                    if(m_synchronousDispatch) {
-                        distributeMessage(pair.msgType, pair.msgObj);
+            while(!isInterrupted()) {
+                final int  count = drainQueues();
+                final long wait  = flushCoalesced();
+                if(count == 0) {
+                    // check again after announcing that we are idle, otherwise 
+                    // a message queued in between would not wake us up
+                    m_idle = true;
+                    if(drainQueues() == 0 && m_pendingCoalesced.isEmpty()) {
+                        LockSupport.parkNanos(this, wait);
                     }
-                    else {
-                        try {
-                            DdsTask.dispatchExec(new Runnable() {
-                                @Override
-                                public void run() {
-                                    distributeMessage(pair.msgType, pair.msgObj);
-                                }
-                            });
+                    m_idle = false;
+                }
+            }
+            logger.debug("Interrupted.");
+        }
+        
+        /**
+         * end of a dispatch cycle; deliver the messages held by coalescing 
+         * listeners, unless they have been delivered too recently
+         * @return nanoseconds until the next deferred message is due
+         */
+        protected long flushCoalesced() {
+            if(m_deferred.isEmpty() && m_pendingCoalesced.isEmpty()) {
+                return IDLE_PARK_NANOS;
+            }
+            final long now = System.currentTimeMillis();
+            long wait = IDLE_PARK_NANOS;
+            for(int i = m_deferred.size()-1; i >= 0; i--) {
+                final long remaining = m_deferred.get(i).flush(now);
+                if(remaining > 0) {
+                    wait = Math.min(wait, TimeUnit.MILLISECONDS.toNanos(remaining));
+                }
+                else {
+                    m_deferred.remove(i);
+                }
+            }
+            CoalescingRapidMessageListener coalescer;
+            while((coalescer = m_pendingCoalesced.poll()) != null) {
+                final long remaining = coalescer.flush(now);
+                if(remaining > 0) {
+                    wait = Math.min(wait, TimeUnit.MILLISECONDS.toNanos(remaining));
+                    m_deferred.add(coalescer);
+                }
+            }
+            return wait;
+        }
+        
+        protected int drainQueues() {
+            int count = 0;
+            for(MessageRing ring : m_ringList) {
+                Object msgObj;
+                for(int i = 0; i < DRAIN_BATCH && (msgObj = ring.poll()) != null; i++) {
+                    dispatch(ring, msgObj);
+                    count++;
+                }
+            }
+            if(count > 0) {
+                m_dispatched.addAndGet(count);
+            }
+            return count;
+        }
+        
+        /**
+         * distribute the message, then drop the queue's reference to it
+         */
+        protected void dispatch(final MessageRing ring, final Object msgObj) {
+            final MessageType msgType = ring.msgType;
+            if(m_synchronousDispatch) {
+                distributeMessage(msgType, msgObj);
+                ring.release(msgObj);
+            }
+            else {
+                try {
+                    // keyed by ring so the messages of a MessageType stay in order
+                    DdsTask.dispatchExec(ring, new Runnable() {
+                        @Override
+                        public void run() {
+                            distributeMessage(msgType, msgObj);
+                            ring.release(msgObj);
                         }
-                        catch(Throwable t) {
-                            logger.debug("Error distributing "+pair.msgType.toString(), t);
+                    });
+                }
+                catch(Throwable t) {
+                    logger.debug("Error distributing "+msgType.toString(), t);
+                    ring.release(msgObj);
+                }
+            }
+        }
+    }
+
+    /**
+     * Holds on to the most recent message for a listener until the 
+     * QueueThread flushes it at the end of a dispatch cycle
+     */
+    protected class CoalescingRapidMessageListener implements IRapidMessageListener {
+        final IRapidMessageListener listener;
+        final long                  minIntervalMillis;
+
+        private final AtomicReference<Object> m_pending   = new AtomicReference<Object>();
+        private final AtomicLong              m_coalesced = new AtomicLong(0);
+        private volatile MessageType m_msgType   = null;
+        private volatile Object      m_cfgObj    = null;
+        private volatile boolean     m_cancelled = false;
+        private volatile SamplePool  m_pool      = null;
+        /** only accessed from the QueueThread */
+        private long m_lastDelivery = 0;
+
+        public CoalescingRapidMessageListener(IRapidMessageListener listener, long minIntervalMillis) {
+            this.listener          = listener;
+            this.minIntervalMillis = minIntervalMillis;
+        }
+
+        @Override
+        public void onRapidMessageReceived(Agent agent, MessageType msgType, Object msgObj, Object cfgObj) {
+            m_msgType = msgType;
+            m_cfgObj  = cfgObj;
+            // hold a reference to the sample in case it is pooled
+            final SamplePool pool = getSamplePool(msgType);
+            pool.retain(msgObj);
+            final Object replaced = m_pending.getAndSet(msgObj);
+            if(replaced == null) {
+                m_pendingCoalesced.add(this);
+                m_queueThread.wake();
+            }
+            else {
+                m_coalesced.incrementAndGet();
+                pool.release(replaced);
+            }
+        }
+
+        private SamplePool getSamplePool(MessageType msgType) {
+            if(m_pool == null) {
+                MessageRing ring = getMessageRing(msgType);
+                m_pool = (ring.pool == null) ? new SamplePool(msgType) : ring.pool;
+            }
+            return m_pool;
+        }
+
+        public long getCoalescedCount() {
+            return m_coalesced.get();
+        }
+
+        void cancel() {
+            m_cancelled = true;
+            DdsTask.removeDispatchOrderingKey(this);
+            final Object pending = m_pending.getAndSet(null);
+            if(pending != null) {
+                m_pool.release(pending);
+            }
+        }
+
+        /**
+         * deliver the pending message if the minimum interval has expired
+         * @return milliseconds until the pending message can be delivered, or 0 if there is nothing left to do
+         */
+        long flush(long now) {
+            if(m_cancelled) {
+                return 0;
+            }
+            final long remaining = m_lastDelivery + minIntervalMillis - now;
+            if(remaining > 0) {
+                return remaining;
+            }
+            final Object msgObj = m_pending.getAndSet(null);
+            if(msgObj != null) {
+                m_lastDelivery = now;
+                deliver(m_msgType, msgObj, m_cfgObj);
+            }
+            return 0;
+        }
+
+        protected void deliver(final MessageType msgType, final Object msgObj, final Object cfgObj) {
+            if(m_synchronousDispatch) {
+                deliverNow(msgType, msgObj, cfgObj);
+            }
+            else {
+                try {
+                    DdsTask.dispatchExec(this, new Runnable() {
+                        @Override
+                        public void run() {
+                            deliverNow(msgType, msgObj, cfgObj);
                         }
-                    }
+                    });
+                }
+                catch(Throwable t) {
+                    logger.debug("Error distributing "+msgType.toString(), t);
+                    m_pool.release(msgObj);
                 }
             }
-            catch(InterruptedException e) {
-                logger.debug("Interrupted.");
+        }
+
+        protected void deliverNow(MessageType msgType, Object msgObj, Object cfgObj) {
+            try {
+                listener.onRapidMessageReceived(m_agent, msgType, msgObj, cfgObj);
+            }
+            catch(Throwable t) {
+                logger.error("Error distributing "+msgType.name()+" to "+listener, t);
             }
+            finally {
+                m_pool.release(msgObj);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return listener.toString();
         }
     }
 
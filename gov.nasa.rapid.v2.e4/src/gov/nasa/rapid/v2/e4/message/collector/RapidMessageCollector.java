@@ -27,7 +27,9 @@ import gov.nasa.rapid.v2.e4.message.IRapidMessageListener;
 import gov.nasa.rapid.v2.e4.message.MessageType;
 import gov.nasa.rapid.v2.e4.message.ReaderStatus;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -38,6 +40,7 @@ public class RapidMessageCollector {
     public static final RapidMessageCollector INSTANCE = new RapidMessageCollector();
 
     protected boolean m_synchronousDispatch = true;
+    protected long    m_listenerLatencyBudget = 0;
 
     public class CollectorHash extends HashMap<String, PartitionedMessageCollector> {
         public CollectorHash() {
@@ -47,6 +50,10 @@ public class RapidMessageCollector {
 
     protected final HashMap<String, CollectorHash> m_collectors = new HashMap<String, CollectorHash>();
     protected boolean isMeasureSizes = false;
+    /** record rolling window receive rates for every topic */
+    protected volatile boolean isTopicMetrics = true;
+    /** if set, every received sample is appended to disk */
+    protected volatile FlightRecorder m_flightRecorder = null;
 
     /**
      * 
@@ -76,6 +83,27 @@ public class RapidMessageCollector {
         }
     }
     
+    /**
+     * Set the latency budget for listener callbacks on every partition. Listeners that 
+     * repeatedly take longer than the budget are moved to an executor of their own so 
+     * they no longer delay the other listeners of the partition. 
+     * @param millis latency budget, or 0 to disable quarantine (default)
+     */
+    public void setListenerLatencyBudget(long millis) {
+        synchronized(m_collectors) {
+            m_listenerLatencyBudget = millis;
+            for(CollectorHash ch : m_collectors.values()) {
+                for(PartitionedMessageCollector collector : ch.values()) {
+                    collector.setListenerLatencyBudget(millis);
+                }
+            }
+        }
+    }
+
+    public long getListenerLatencyBudget() {
+        return m_listenerLatencyBudget;
+    }
+
     /**
      * Get status information from a message reader, if it exists. Caller must pass in a 
      * struct that matches the status requested (e.g. LivelinessChangedStatus stuct for 
@@ -183,6 +211,36 @@ public class RapidMessageCollector {
         }
     }
 
+    /**
+     * Subscribe a listener that only wants the most recent sample. At most one sample 
+     * is delivered per dispatch cycle, and no more often than once every minIntervalMillis, 
+     * so a burst of samples costs a single callback. 
+     * @param participantId
+     * @param agent
+     * @param msgType
+     * @param listener
+     * @param minIntervalMillis minimum time between deliveries, or 0 to deliver once per dispatch cycle
+     */
+    public void addRapidMessageListener(String participantId, 
+                                        Agent agent, 
+                                        MessageType msgType, 
+                                        IRapidMessageListener listener,
+                                        long minIntervalMillis) {
+        PartitionedMessageCollector pec = getPartitionedEventCollector(participantId, agent.name());
+        pec.addRapidMessageListener(msgType, listener, minIntervalMillis);
+    }
+
+    /**
+     * @return number of samples that were replaced by newer samples before they could be 
+     * delivered, for each coalescing listener of msgType
+     */
+    public Map<IRapidMessageListener,Long> getCoalescedCounts(String participantId, 
+                                                               Agent agent,
+                                                               MessageType msgType) {
+        PartitionedMessageCollector pec = getPartitionedEventCollector(participantId, agent.name());
+        return pec.getCoalescedCounts(msgType);
+    }
+
     public boolean removeRapidMessageListener(String participantId, 
                                               Agent agent,
                                               MessageType msgType, 
@@ -387,12 +445,14 @@ public class RapidMessageCollector {
         MessageListener msgListener = pec.getMessageListener(msgType);
         { // copy message so data cannot get corrupted while waiting to be delivered
             Copyable copyFrom = (Copyable)msgObj;
-            Copyable copyTo   = (Copyable)msgType.newDataTypeInstance();
+            Copyable copyTo   = (Copyable)msgListener.getSamplePool().acquire();
             copyTo.copy_from(copyFrom);
             msgObj = copyTo;
         }
-        msgListener.setLastSample(msgObj);
-        pec.newMessage(msgType, msgObj);
+        synchronized(msgListener) { // MessageRing expects one producer at a time
+            msgListener.setLastSample(msgObj);
+            pec.newMessage(msgType, msgObj);
+        }
     }
 
     /**
@@ -408,12 +468,28 @@ public class RapidMessageCollector {
         MessageListener msgListener = pec.getMessageListener(msgType);
         { // copy message so data cannot get corrupted while waiting to be delivered
             Copyable copyFrom = (Copyable)msgObj;
-            Copyable copyTo   = (Copyable)msgType.newDataTypeInstance();
+            Copyable copyTo   = (Copyable)msgListener.getSamplePool().acquire();
             copyTo.copy_from(copyFrom);
             msgObj = copyTo;
         }
-        msgListener.setLastSample(msgObj);
-        pec.newMessage(msgType, msgObj);
+        synchronized(msgListener) { // MessageRing expects one producer at a time
+            msgListener.setLastSample(msgObj);
+            pec.newMessage(msgType, msgObj);
+        }
+    }
+
+    /**
+     * Recycle received samples of msgType through a SamplePool instead of copying each 
+     * sample into a newly allocated object. Only enable this if none of the listeners 
+     * for msgType hold on to sample references after their callback returns.
+     * @param participantId
+     * @param partition
+     * @param msgType
+     * @param state true to enable pooling, false for copy-per-sample (default)
+     */
+    public void setSamplePooling(String participantId, String partition, MessageType msgType, boolean state) {
+        PartitionedMessageCollector pec = getPartitionedEventCollector(participantId, partition);
+        pec.setSamplePooling(msgType, state);
     }
 
     //----------------------------------------------------------------------------------------------
@@ -423,6 +499,103 @@ public class RapidMessageCollector {
         return pmc.getIncompatibleQosRequests();
     }
 
+    /**
+     * Get the dispatch queue counters (enqueued, dropped and coalesced messages) 
+     * for each MessageType received on a partition
+     * @param participantId
+     * @param partition
+     * @return
+     */
+    public Map<MessageType,DispatchCounts> getDispatchCounts(String participantId, String partition) {
+        PartitionedMessageCollector pmc = getPartitionedEventCollector(participantId, partition);
+        return pmc.getDispatchCounts();
+    }
+
+    /**
+     * Get the number of messages dispatched on every partition. Comparing 
+     * the count with an earlier value is a cheap way to find out whether 
+     * any telemetry has arrived.
+     */
+    public long getDispatchedMessageCount() {
+        long retVal = 0;
+        synchronized(m_collectors) {
+            for(CollectorHash ch : m_collectors.values()) {
+                for(PartitionedMessageCollector collector : ch.values()) {
+                    retVal += collector.getDispatchedMessageCount();
+                }
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * Get the callback time histograms (count, mean, p99, max) of every 
+     * listener on a partition, and whether the listener has been quarantined
+     * @param participantId
+     * @param partition
+     * @return
+     */
+    public Map<MessageType,List<ListenerTimings>> getListenerTimings(String participantId, String partition) {
+        PartitionedMessageCollector pmc = getPartitionedEventCollector(participantId, partition);
+        return pmc.getListenerTimings();
+    }
+
+    /**
+     * Enable or disable the rolling window receive rates returned by getTopicMetrics. 
+     * Enabled by default; the cost is one synchronized update per message, and 
+     * variable size types are only measured every few samples.
+     */
+    public void setTopicMetricsEnabled(boolean state) {
+        isTopicMetrics = state;
+    }
+
+    public boolean isTopicMetricsEnabled() {
+        return isTopicMetrics;
+    }
+
+    /**
+     * Record every sample received on every partition, or stop recording 
+     * if recorder is null. The previous recorder, if any, is not closed.
+     */
+    public void setFlightRecorder(FlightRecorder recorder) {
+        m_flightRecorder = recorder;
+    }
+
+    public FlightRecorder getFlightRecorder() {
+        return m_flightRecorder;
+    }
+
+    /**
+     * Get the messages/sec, bytes/sec, jitter and lost/rejected counts 
+     * of each MessageType received on a partition
+     * @param participantId
+     * @param partition
+     * @return
+     */
+    public List<TopicMetricsSnapshot> getTopicMetrics(String participantId, String partition) {
+        PartitionedMessageCollector pmc = getPartitionedEventCollector(participantId, partition);
+        return pmc.getTopicMetrics();
+    }
+
+    /**
+     * Get the receive rates of every MessageType on every partition, e.g. to 
+     * find the agent that is using most of the link
+     * @return
+     */
+    public List<TopicMetricsSnapshot> getTopicMetrics() {
+        List<PartitionedMessageCollector> collectors = new ArrayList<PartitionedMessageCollector>();
+        synchronized(m_collectors) {
+            for(CollectorHash ch : m_collectors.values()) {
+                collectors.addAll(ch.values());
+            }
+        }
+        List<TopicMetricsSnapshot> retVal = new ArrayList<TopicMetricsSnapshot>();
+        for(PartitionedMessageCollector collector : collectors) {
+            retVal.addAll(collector.getTopicMetrics());
+        }
+        return retVal;
+    }
+
     /**
      * get a collector, create if necessary
      * @param participantId
@@ -440,6 +613,7 @@ public class RapidMessageCollector {
             retVal = participantCollectors.get(partition);
             if(retVal == null) {
                 retVal = new PartitionedMessageCollector(participantId, partition, m_synchronousDispatch);
+                retVal.setListenerLatencyBudget(m_listenerLatencyBudget);
                 participantCollectors.put(partition, retVal);
             }
         }
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the 
+ * Administrator of the National Aeronautics and Space Administration. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.rapid.v2.e4.message.collector;
+
+import gov.nasa.rapid.v2.e4.message.MessageType;
+
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+
+/**
+ * Reference counted pool of sample objects for a single MessageType. While 
+ * the pool is enabled, samples handed out by acquire() are returned to the 
+ * pool when the last reference is released, so steady state ingest does not 
+ * allocate. While disabled, acquire() simply creates a new instance and 
+ * retain/release are no-ops for those instances (i.e. copy-per-sample).
+ * <p>
+ * Only enable pooling for types whose listeners do not hold on to sample 
+ * references after the callback returns; a recycled sample will be 
+ * overwritten by a later message.
+ */
+public class SamplePool {
+    /** default number of free samples kept for reuse */
+    public static final int DEFAULT_MAX_FREE = 16;
+
+    private final MessageType        m_msgType;
+    private final int                m_maxFree;
+    private final ArrayDeque<Object> m_free = new ArrayDeque<Object>();
+    /** reference counts of samples owned by the pool, including free ones */
+    private final IdentityHashMap<Object,int[]> m_refCounts = new IdentityHashMap<Object,int[]>();
+    private volatile boolean m_enabled = false;
+
+    private long m_allocated = 0;
+    private long m_reused    = 0;
+
+    public SamplePool(MessageType msgType) {
+        this(msgType, DEFAULT_MAX_FREE);
+    }
+
+    public SamplePool(MessageType msgType, int maxFree) {
+        m_msgType = msgType;
+        m_maxFree = maxFree;
+    }
+
+    public boolean isEnabled() {
+        return m_enabled;
+    }
+
+    /**
+     * enable or disable pooling. Samples that are in use when pooling is 
+     * disabled are left to the garbage collector once they are released.
+     */
+    public synchronized void setEnabled(boolean enabled) {
+        m_enabled = enabled;
+        if(!enabled) {
+            for(Object sample : m_free) {
+                m_refCounts.remove(sample);
+            }
+            m_free.clear();
+        }
+    }
+
+    /**
+     * @return a sample with a reference count of one
+     */
+    public Object acquire() {
+        if(m_enabled) {
+            synchronized(this) {
+                Object retVal = m_free.pollFirst();
+                if(retVal != null) {
+                    m_refCounts.get(retVal)[0] = 1;
+                    m_reused++;
+                }
+                else {
+                    retVal = m_msgType.newDataTypeInstance();
+                    m_refCounts.put(retVal, new int[] { 1 });
+                    m_allocated++;
+                }
+                return retVal;
+            }
+        }
+        return m_msgType.newDataTypeInstance();
+    }
+
+    /**
+     * add a reference to sample
+     */
+    public void retain(Object sample) {
+        if(sample != null) {
+            synchronized(this) {
+                int[] refs = m_refCounts.get(sample);
+                if(refs != null && refs[0] > 0) {
+                    refs[0]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * drop a reference to sample. When there are no references 
+     * left, the sample is returned to the pool
+     */
+    public void release(Object sample) {
+        if(sample != null) {
+            synchronized(this) {
+                int[] refs = m_refCounts.get(sample);
+                if(refs != null && refs[0] > 0 && --refs[0] == 0) {
+                    if(m_enabled && m_free.size() < m_maxFree) {
+                        m_free.addFirst(sample);
+                    }
+                    else {
+                        m_refCounts.remove(sample);
+                    }
+                }
+            }
+        }
+    }
+
+    /** @return number of samples created by the pool */
+    public synchronized long getAllocatedCount() {
+        return m_allocated;
+    }
+
+    /** @return number of times a sample was reused */
+    public synchronized long getReusedCount() {
+        return m_reused;
+    }
+}
@@ -24,10 +24,18 @@ import org.apache.log4j.Logger;
 import com.rti.dds.infrastructure.Copyable;
 import com.rti.dds.topic.TypeSupportImpl;
 
+/**
+ * Serialized size statistics for one MessageType. If the type has no 
+ * sequences or strings, its min and max serialized sizes are equal and 
+ * the size is cached instead of being computed for every sample.
+ */
 public class SizeAccumulator {
     private static final Logger logger = Logger.getLogger(SizeAccumulator.class);
     long min, max, count;
     long sampleMax;
+    long sampleMin;
+    /** serialized size of every sample, or -1 if the type is variable size */
+    long fixedSize = -1;
     double total;
     //double ave;
     TypeSupportImpl typeSupport = null;
@@ -40,7 +48,11 @@ public class SizeAccumulator {
             Copyable copyable = (Copyable)object;
             typeSupport = TypeSupportUtil.getTypeSupportImpl(copyable.getClass());
             sampleMax = typeSupport.get_serialized_sample_max_size(null, false, (short)0, 0);
-            long size = typeSupport.get_serialized_sample_size(null, false, (short)0, 0, copyable);
+            sampleMin = typeSupport.get_serialized_sample_min_size(null, false, (short)0, 0);
+            if(sampleMin == sampleMax) {
+                fixedSize = sampleMax;
+            }
+            long size = sizeOf(copyable);
             min = max = size;
             //ave = size;
             total = size;
@@ -52,7 +64,10 @@ public class SizeAccumulator {
     }
 
     public void add(Object object) {
-        long size = typeSupport.get_serialized_sample_size(null, false, (short)0, 0, object);
+        long size = sizeOf(object);
+        if(size < 0) {
+            return;
+        }
         if(size < min) min = size;
         if(size > max) max = size;
         total += size;
@@ -60,6 +75,27 @@ public class SizeAccumulator {
         count++;
     }
 
+    /**
+     * @return serialized size of the sample, or -1 if the TypeSupport 
+     * could not be found
+     */
+    public long sizeOf(Object object) {
+        if(fixedSize >= 0) {
+            return fixedSize;
+        }
+        if(typeSupport == null) {
+            return -1;
+        }
+        return typeSupport.get_serialized_sample_size(null, false, (short)0, 0, object);
+    }
+
+    /** 
+     * @return true if every sample of the type has the same serialized size
+     */
+    public boolean isFixedSize() {
+        return fixedSize >= 0;
+    }
+
     /** maximum possible size of sample */
     public long getSampleMax() {
         return sampleMax;
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.rapid.v2.e4.message.collector;
+
+import gov.nasa.rapid.v2.e4.message.MessageType;
+
+/**
+ * Rolling window of receive statistics for one MessageType on one partition.
+ * Counts are kept in one second buckets; the bucket for the current second
+ * is excluded from the rates because it is still filling up.
+ * <p>
+ * Computing the serialized size of a sample is not free, so variable size
+ * types are only measured every SIZE_SAMPLE_INTERVAL samples and the other
+ * samples are charged the last measured size. Fixed size types use the
+ * size cached by the SizeAccumulator.
+ */
+class TopicMetrics {
+    /** length of the rolling window, in seconds */
+    static final int WINDOW_SECONDS = 10;
+    /** measure the serialized size of every n'th sample of a variable size type */
+    static final int SIZE_SAMPLE_INTERVAL = 8;
+
+    final MessageType msgType;
+
+    private final long[] m_msgs     = new long[WINDOW_SECONDS];
+    private final long[] m_bytes    = new long[WINDOW_SECONDS];
+    private final long[] m_lost     = new long[WINDOW_SECONDS];
+    private final long[] m_rejected = new long[WINDOW_SECONDS];
+
+    private long m_firstSecond   = -1;
+    private long m_currentSecond = -1;
+
+    private long m_totalMsgs  = 0;
+    private long m_totalBytes = 0;
+
+    private SizeAccumulator m_sizes     = null;
+    private long            m_lastSize  = 0;
+    private int             m_unsized   = 0;
+
+    private long   m_lastArrival  = 0;
+    private long   m_lastInterval = -1;
+    /** RFC 3550 style jitter estimate, in nanoseconds */
+    private double m_jitter       = 0;
+
+    TopicMetrics(MessageType msgType) {
+        this.msgType = msgType;
+    }
+
+    /**
+     * @param sample received sample. Must not be modified by another thread during the call.
+     * @param nanos arrival time from System.nanoTime()
+     */
+    synchronized void recordMessage(Object sample, long nanos) {
+        final int idx = advance(nanos);
+        m_msgs[idx]++;
+        m_totalMsgs++;
+
+        final long size = sizeOf(sample);
+        m_bytes[idx] += size;
+        m_totalBytes += size;
+
+        if(m_lastArrival != 0) {
+            final long interval = nanos - m_lastArrival;
+            if(m_lastInterval >= 0) {
+                // J += (|D| - J)/16 where D is the change in inter-arrival time
+                final long d = Math.abs(interval - m_lastInterval);
+                m_jitter += (d - m_jitter) / 16.0;
+            }
+            m_lastInterval = interval;
+        }
+        m_lastArrival = nanos;
+    }
+
+    synchronized void recordLost(int count, long nanos) {
+        m_lost[advance(nanos)] += count;
+    }
+
+    synchronized void recordRejected(int count, long nanos) {
+        m_rejected[advance(nanos)] += count;
+    }
+
+    private long sizeOf(Object sample) {
+        if(m_sizes == null) {
+            m_sizes = new SizeAccumulator(sample);
+            m_lastSize = Math.max(0, m_sizes.sizeOf(sample));
+            return m_lastSize;
+        }
+        if(m_sizes.isFixedSize() || ++m_unsized >= SIZE_SAMPLE_INTERVAL) {
+            m_unsized = 0;
+            m_lastSize = Math.max(0, m_sizes.sizeOf(sample));
+        }
+        return m_lastSize;
+    }
+
+    /**
+     * move the window forward to the second containing nanos,
+     * clearing buckets that have expired
+     * @return index of the bucket for nanos
+     */
+    private int advance(long nanos) {
+        final long second = nanos / 1000000000L;
+        if(m_firstSecond < 0) {
+            m_firstSecond = m_currentSecond = second;
+        }
+        else if(second > m_currentSecond) {
+            final long clear = Math.min(WINDOW_SECONDS, second - m_currentSecond);
+            for(long s = second - clear + 1; s <= second; s++) {
+                final int i = (int)(s % WINDOW_SECONDS);
+                m_msgs[i] = m_bytes[i] = m_lost[i] = m_rejected[i] = 0;
+            }
+            m_currentSecond = second;
+        }
+        return (int)(m_currentSecond % WINDOW_SECONDS);
+    }
+
+    synchronized TopicMetricsSnapshot getSnapshot(String participantId, String partition, long nanos) {
+        if(m_firstSecond >= 0) {
+            advance(nanos);
+        }
+        long msgs = 0, bytes = 0, lost = 0, rejected = 0;
+        final int current = (int)(m_currentSecond % WINDOW_SECONDS);
+        for(int i = 0; i < WINDOW_SECONDS; i++) {
+            lost     += m_lost[i];
+            rejected += m_rejected[i];
+            if(i != current) {
+                msgs  += m_msgs[i];
+                bytes += m_bytes[i];
+            }
+        }
+        final long span = Math.min(WINDOW_SECONDS-1, m_currentSecond - m_firstSecond);
+        final double msgsPerSec  = (span > 0) ? (double)msgs  / span : 0;
+        final double bytesPerSec = (span > 0) ? (double)bytes / span : 0;
+        // stop reporting jitter once the topic has gone quiet
+        final double jitterMillis = (msgs > 0) ? m_jitter / 1000000.0 : 0;
+        final boolean fixedSize = m_sizes != null && m_sizes.isFixedSize();
+        return new TopicMetricsSnapshot(participantId, partition, msgType.name(),
+                                        msgsPerSec, bytesPerSec, jitterMillis, lost, rejected,
+                                        m_totalMsgs, m_totalBytes, fixedSize);
+    }
+}
@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.rapid.v2.e4.message.collector;
+
+import java.util.Map;
+
+/**
+ * JMX view of the RapidMessageCollector topic metrics, registered as
+ * {@value TopicMetricsMonitor#OBJECT_NAME}. Rates are averaged over the
+ * last getWindowSeconds() seconds. Topic keys are "partition/MessageType".
+ */
+public interface TopicMetricsMXBean {
+    public int getWindowSeconds();
+
+    public boolean isEnabled();
+    public void setEnabled(boolean state);
+
+    public double getTotalMessagesPerSecond();
+    public double getTotalBytesPerSecond();
+
+    /** bytes/sec of each partition (agent), summed over its topics */
+    public Map<String,Double> getBytesPerSecondByPartition();
+
+    public Map<String,Double> getMessagesPerSecondByTopic();
+    public Map<String,Double> getBytesPerSecondByTopic();
+    public Map<String,Double> getJitterMillisByTopic();
+    public Map<String,Long>   getLostByTopic();
+    public Map<String,Long>   getRejectedByTopic();
+
+    /** one line per topic, busiest first */
+    public String[] getTopicSummaries();
+}
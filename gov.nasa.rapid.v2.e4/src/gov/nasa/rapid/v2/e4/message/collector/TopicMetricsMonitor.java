@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.rapid.v2.e4.message.collector;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Publishes the topic metrics of RapidMessageCollector.INSTANCE on the 
+ * platform MBean server so link usage can be watched from jconsole/VisualVM.
+ */
+public class TopicMetricsMonitor implements TopicMetricsMXBean {
+    private static final Logger logger = Logger.getLogger(TopicMetricsMonitor.class);
+
+    public static final String OBJECT_NAME = "gov.nasa.rapid:type=TopicMetrics";
+
+    protected final RapidMessageCollector m_collector;
+
+    public TopicMetricsMonitor(RapidMessageCollector collector) {
+        m_collector = collector;
+    }
+
+    /**
+     * register a monitor for RapidMessageCollector.INSTANCE if one is not registered yet
+     */
+    public static synchronized void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if(!server.isRegistered(name)) {
+                server.registerMBean(new TopicMetricsMonitor(RapidMessageCollector.INSTANCE), name);
+            }
+        }
+        catch(Exception e) {
+            logger.warn("Could not register "+OBJECT_NAME, e);
+        }
+    }
+
+    public static synchronized void unregister() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if(server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        }
+        catch(Exception e) {
+            logger.warn("Could not unregister "+OBJECT_NAME, e);
+        }
+    }
+
+    static String topicKey(TopicMetricsSnapshot snapshot) {
+        return snapshot.partition+"/"+snapshot.messageType;
+    }
+
+    @Override
+    public int getWindowSeconds() {
+        return TopicMetrics.WINDOW_SECONDS;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return m_collector.isTopicMetricsEnabled();
+    }
+
+    @Override
+    public void setEnabled(boolean state) {
+        m_collector.setTopicMetricsEnabled(state);
+    }
+
+    @Override
+    public double getTotalMessagesPerSecond() {
+        double retVal = 0;
+        for(TopicMetricsSnapshot snapshot : m_collector.getTopicMetrics()) {
+            retVal += snapshot.messagesPerSecond;
+        }
+        return retVal;
+    }
+
+    @Override
+    public double getTotalBytesPerSecond() {
+        double retVal = 0;
+        for(TopicMetricsSnapshot snapshot : m_collector.getTopicMetrics()) {
+            retVal += snapshot.bytesPerSecond;
+        }
+        return retVal;
+    }
+
+    @Override
+    public Map<String,Double> getBytesPerSecondByPartition() {
+        Map<String,Double> retVal = new TreeMap<String,Double>();
+        for(TopicMetricsSnapshot snapshot : m_collector.getTopicMetrics()) {
+            Double sum = retVal.get(snapshot.partition);
+            retVal.put(snapshot.partition, (sum == null ? 0 : sum) + snapshot.bytesPerSecond);
+        }
+        return retVal;
+    }
+
+    @Override
+    public Map<String,Double> getMessagesPerSecondByTopic() {
+        Map<String,Double> retVal = new TreeMap<String,Double>();
+        for(TopicMetricsSnapshot snapshot : m_collector.getTopicMetrics()) {
+            retVal.put(topicKey(snapshot), snapshot.messagesPerSecond);
+        }
+        return retVal;
+    }
+
+    @Override
+    public Map<String,Double> getBytesPerSecondByTopic() {
+        Map<String,Double> retVal = new TreeMap<String,Double>();
+        for(TopicMetricsSnapshot snapshot : m_collector.getTopicMetrics()) {
+            retVal.put(topicKey(snapshot), snapshot.bytesPerSecond);
+        }
+        return retVal;
+    }
+
+    @Override
+    public Map<String,Double> getJitterMillisByTopic() {
+        Map<String,Double> retVal = new TreeMap<String,Double>();
+        for(TopicMetricsSnapshot snapshot : m_collector.getTopicMetrics()) {
+            retVal.put(topicKey(snapshot), snapshot.jitterMillis);
+        }
+        return retVal;
+    }
+
+    @Override
+    public Map<String,Long> getLostByTopic() {
+        Map<String,Long> retVal = new TreeMap<String,Long>();
+        for(TopicMetricsSnapshot snapshot : m_collector.getTopicMetrics()) {
+            retVal.put(topicKey(snapshot), snapshot.lost);
+        }
+        return retVal;
+    }
+
+    @Override
+    public Map<String,Long> getRejectedByTopic() {
+        Map<String,Long> retVal = new TreeMap<String,Long>();
+        for(TopicMetricsSnapshot snapshot : m_collector.getTopicMetrics()) {
+            retVal.put(topicKey(snapshot), snapshot.rejected);
+        }
+        return retVal;
+    }
+
+    @Override
+    public String[] getTopicSummaries() {
+        List<TopicMetricsSnapshot> snapshots = new ArrayList<TopicMetricsSnapshot>(m_collector.getTopicMetrics());
+        Collections.sort(snapshots, BUSIEST_FIRST);
+        String[] retVal = new String[snapshots.size()];
+        for(int i = 0; i < retVal.length; i++) {
+            retVal[i] = snapshots.get(i).toString();
+        }
+        return retVal;
+    }
+
+    /** orders snapshots by decreasing bytes/sec */
+    public static final Comparator<TopicMetricsSnapshot> BUSIEST_FIRST = new Comparator<TopicMetricsSnapshot>() {
+        @Override
+        public int compare(TopicMetricsSnapshot o1, TopicMetricsSnapshot o2) {
+            return Double.compare(o2.bytesPerSecond, o1.bytesPerSecond);
+        }
+    };
+}
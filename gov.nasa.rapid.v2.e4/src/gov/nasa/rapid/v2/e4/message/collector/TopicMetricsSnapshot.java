@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.rapid.v2.e4.message.collector;
+
+/**
+ * Snapshot of the receive rates of one MessageType on one partition,
+ * averaged over the TopicMetrics window
+ */
+public class TopicMetricsSnapshot {
+    public final String  participantId;
+    /** partition the messages were received on, i.e. the agent name */
+    public final String  partition;
+    /** name of the MessageType */
+    public final String  messageType;
+    public final double  messagesPerSecond;
+    /** serialized bytes per second; variable size types are sampled */
+    public final double  bytesPerSecond;
+    /** variation in the time between messages, in milliseconds */
+    public final double  jitterMillis;
+    /** samples lost within the window */
+    public final long    lost;
+    /** samples rejected within the window */
+    public final long    rejected;
+    /** messages received since the first message */
+    public final long    totalMessages;
+    /** serialized bytes received since the first message */
+    public final long    totalBytes;
+    /** true if the byte counts are exact because every sample has the same size */
+    public final boolean fixedSize;
+
+    public TopicMetricsSnapshot(String participantId, String partition, String messageType,
+                                double messagesPerSecond, double bytesPerSecond, double jitterMillis,
+                                long lost, long rejected, long totalMessages, long totalBytes, boolean fixedSize) {
+        this.participantId     = participantId;
+        this.partition         = partition;
+        this.messageType       = messageType;
+        this.messagesPerSecond = messagesPerSecond;
+        this.bytesPerSecond    = bytesPerSecond;
+        this.jitterMillis      = jitterMillis;
+        this.lost              = lost;
+        this.rejected          = rejected;
+        this.totalMessages     = totalMessages;
+        this.totalBytes        = totalBytes;
+        this.fixedSize         = fixedSize;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s/%s: %.1f msg/s %.0f B/s jitter=%.2fms lost=%d rejected=%d",
+                             partition, messageType, messagesPerSecond, bytesPerSecond,
+                             jitterMillis, lost, rejected);
+    }
+}
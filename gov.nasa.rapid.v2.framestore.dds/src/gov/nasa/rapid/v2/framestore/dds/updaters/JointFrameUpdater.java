@@ -20,7 +20,7 @@ package gov.nasa.rapid.v2.framestore.dds.updaters;
 import gov.nasa.rapid.v2.framestore.dds.RapidFrameStore;
 import gov.nasa.rapid.v2.framestore.tree.Frame;
 import gov.nasa.rapid.v2.framestore.tree.FrameTreeNode;
-import gov.nasa.rapid.v2.framestore.tree.updaters.SingleAxisFrameUpdater;
+import gov.nasa.rapid.v2.framestore.tree.FrameUpdateTransaction;
 import gov.nasa.rapid.v2.framestore.tree.visitors.PrintFrameNamesVisitor;
 import gov.nasa.rapid.v2.e4.agent.Agent;
 import gov.nasa.rapid.v2.e4.message.IRapidMessageListener;
@@ -61,6 +61,9 @@ public class JointFrameUpdater implements IRapidMessageListener {
         }
     }
     protected final List<FrameDefinition> m_frameDefs = new ArrayList<FrameDefinition>();
+    /** all joint angles of a sample are committed together, so a reader never sees half of a pose */
+    protected final FrameUpdateTransaction m_transaction = RapidFrameStore.instance().beginUpdate();
+    protected float[] m_pos = new float[0];
 
     /**
      * 
@@ -82,8 +85,7 @@ public class JointFrameUpdater implements IRapidMessageListener {
     }
 
     @Override
-    public void onRapidMessageReceived(Agent agent, MessageType msgType, Object event, Object configObj) {
-        ArrayList<SingleAxisFrameUpdater> updates = new ArrayList<SingleAxisFrameUpdater>();
+    public synchronized void onRapidMessageReceived(Agent agent, MessageType msgType, Object event, Object configObj) {
         if(msgType.equals(m_sampleType)) {
             JointSample sample = (JointSample)event;
             JointConfig config = (JointConfig)configObj;
@@ -92,12 +94,16 @@ public class JointFrameUpdater implements IRapidMessageListener {
                     setupFromConfig(config);
                 }
                 else {
-                    float[] pos = sample.anglePos.userData.toArrayFloat(new float[sample.anglePos.userData.size()]);
-                    if(pos.length == m_frameDefs.size()) {
-                        for(int i = 0; i < pos.length; i++) {
+                    final int numJoints = sample.anglePos.userData.size();
+                    if(m_pos.length != numJoints) {
+                        m_pos = new float[numJoints];
+                    }
+                    float[] pos = sample.anglePos.userData.toArrayFloat(m_pos);
+                    if(numJoints == m_frameDefs.size()) {
+                        for(int i = 0; i < numJoints; i++) {
                             FrameDefinition fd = m_frameDefs.get(i);
                             if(fd.frame != null) {
-                                updates.add(new SingleAxisFrameUpdater(fd.frame, fd.axis, pos[i]));
+                                m_transaction.setRotation(fd.frame, fd.axis, pos[i]);
                             }
                         }
                     }
@@ -106,9 +112,8 @@ public class JointFrameUpdater implements IRapidMessageListener {
                     }
                 }
             }
-            // update all the frames at once, this should go in a runnable
-            // so we return from the Collector callback quickly
-            RapidFrameStore.instance().updateFrames(updates);
+            // update all the frames at once
+            m_transaction.commit();
         }
 
     }
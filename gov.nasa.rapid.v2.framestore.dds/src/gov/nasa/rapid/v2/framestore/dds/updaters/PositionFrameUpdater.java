@@ -21,6 +21,7 @@ import gov.nasa.rapid.v2.e4.agent.Agent;
 import gov.nasa.rapid.v2.framestore.dds.RapidFrameHelper;
 import gov.nasa.rapid.v2.framestore.dds.RapidFrameStore;
 import gov.nasa.rapid.v2.framestore.tree.FrameTreeNode;
+import gov.nasa.rapid.v2.framestore.tree.FrameUpdateTransaction;
 import gov.nasa.rapid.v2.e4.message.IRapidMessageListener;
 import gov.nasa.rapid.v2.e4.message.MessageType;
 import gov.nasa.rapid.v2.e4.message.collector.RapidMessageCollector;
@@ -49,6 +50,7 @@ public class PositionFrameUpdater implements IRapidMessageListener {
     protected int               m_lastConfigSerialId = -13;
     protected FrameTreeNode     m_frame = null;
     protected final Transform   m_m44 = new Transform();
+    protected final FrameUpdateTransaction m_transaction = RapidFrameStore.instance().beginUpdate();
 
     FrameTreeNode               m_agentFrame;
     FrameTreeNode               m_siteFrame;
@@ -74,7 +76,7 @@ public class PositionFrameUpdater implements IRapidMessageListener {
 
 
     @Override
-    public void onRapidMessageReceived(Agent agent, MessageType msgType, Object eventObj, Object configObj) {
+    public synchronized void onRapidMessageReceived(Agent agent, MessageType msgType, Object eventObj, Object configObj) {
         if(msgType.equals(m_sampleType)) {
             PositionConfig config = (PositionConfig)configObj;
             PositionSample sample = (PositionSample)eventObj;
@@ -84,7 +86,7 @@ public class PositionFrameUpdater implements IRapidMessageListener {
                 }
                 if(m_frame != null) {
                     RapidFrameHelper.setTransform(sample.pose, m_m44);
-                    m_frame.getFrame().setTransform(m_m44);
+                    m_transaction.setTransform(m_frame, m_m44).commit();
                 }
             }
         }
@@ -17,11 +17,17 @@
  ******************************************************************************/
 package gov.nasa.rapid.v2.framestore.test;
 
+import gov.nasa.rapid.v2.framestore.FrameStoreException;
 import gov.nasa.rapid.v2.framestore.tree.Frame;
+import gov.nasa.rapid.v2.framestore.tree.FrameStore;
 import gov.nasa.rapid.v2.framestore.tree.FrameTree;
 import gov.nasa.rapid.v2.framestore.tree.FrameTreeNode;
 import gov.nasa.rapid.v2.framestore.tree.visitors.PrintFrameNamesVisitor;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 
 public class TestFrameNameLookup {
 
@@ -139,7 +145,152 @@ public class TestFrameNameLookup {
         System.out.println("   "+FrameTree.getFullNameOf(nodeD));
         System.out.println("-->"+FrameTree.getFullNameOf(node));
 
-        
+        try {
+            testIndexedLookup();
+        }
+        catch(FrameStoreException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Build a FrameStore with several agents that share frame names, each 
+     * with a deep arm and a wide sensor head. The name appears at 
+     * several depths and under several agents, which exercises the 
+     * breadth first tie breaking of ".../name" lookups.
+     */
+    static FrameStore makeLargeStore(int numAgents, List<FrameTreeNode> scopes) throws FrameStoreException {
+        FrameStore store = new FrameStore();
+        FrameTreeNode world = store.add("world", null, null);
+        for(int a = 0; a < numAgents; a++) {
+            FrameTreeNode agent = store.add("agent"+a, world, null);
+            scopes.add(agent);
+            FrameTreeNode body = store.add("body", agent, null);
+            for(int arm = 0; arm < 4; arm++) {
+                FrameTreeNode link = store.add("arm"+arm, body, null);
+                for(int j = 0; j < 20; j++) {
+                    link = store.add("link"+j, link, null);
+                    store.add("sensor", link, null);
+                }
+                scopes.add(link);
+            }
+            for(int h = 0; h < 10; h++) {
+                FrameTreeNode head = store.add("head"+h, body, null);
+                for(int c = 0; c < 10; c++) {
+                    FrameTreeNode cam = store.add("camera"+c, head, null);
+                    store.add("lens", cam, null);
+                    store.add("sensor", cam, null);
+                }
+            }
+        }
+        // a second tree whose root name is also used as a frame name
+        FrameTreeNode site = store.add("site", null, null);
+        store.add("body", site, null);
+        store.add("world", site, null);
+        return store;
+    }
+
+    static List<String> makeQueries(FrameStore store, int numAgents) {
+        List<String> queries = new ArrayList<String>();
+        for(String name : store.getFrameNames()) {
+            queries.add(name);                                   // full path
+            queries.add(name.substring(name.lastIndexOf('/')+1)); // leaf name
+            String[] elements = name.split("/");
+            if(elements.length > 2) {
+                String suffix = elements[elements.length-2]+"/"+elements[elements.length-1];
+                queries.add(suffix);
+                queries.add(".../"+suffix);
+            }
+        }
+        queries.add("/world/agent0/body/../body");
+        queries.add("agent1/.../lens");
+        queries.add("camera3/lens");
+        queries.add("nosuchframe");
+        queries.add("/world/nosuchframe");
+        queries.add("/world/agent"+(numAgents-1));
+        queries.add("link1/link1");
+        return queries;
+    }
+
+    static int compareLookups(FrameStore store, List<String> queries, List<FrameTreeNode> scopes) {
+        int mismatches = 0;
+        for(String query : queries) {
+            for(int s = -1; s < scopes.size(); s++) {
+                FrameTreeNode scope = (s < 0) ? null : scopes.get(s);
+                store.setIndexedLookup(false);
+                FrameTreeNode expected = store.lookup(query, scope);
+                store.setIndexedLookup(true);
+                FrameTreeNode actual = store.lookup(query, scope);
+                if(expected != actual) {
+                    if(mismatches++ < 10) {
+                        System.out.println("[FAIL] lookup(\""+query+"\", "+(scope == null ? "null" : FrameTree.getFullNameOf(scope))+")"+
+                                           " traversal="+(expected == null ? "null" : FrameTree.getFullNameOf(expected))+
+                                           " index="+(actual == null ? "null" : FrameTree.getFullNameOf(actual)));
+                    }
+                }
+                // only a few scopes per query, or this takes too long
+                if(s > 3) break;
+            }
+        }
+        return mismatches;
+    }
+
+    static double timeLookups(FrameStore store, List<String> queries, boolean indexed, int reps) {
+        store.setIndexedLookup(indexed);
+        long start = System.nanoTime();
+        int found = 0;
+        for(int r = 0; r < reps; r++) {
+            for(String query : queries) {
+                if(store.lookup(query) != null) found++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        store.setIndexedLookup(true);
+        if(found < 0) System.out.println(found); // keep the loop from being optimized away
+        return (double)elapsed / (reps * queries.size());
+    }
+
+    /**
+     * check that the FrameStore name index returns exactly what the tree 
+     * traversal returns, including after the trees have been changed, 
+     * and measure the speedup
+     */
+    public static void testIndexedLookup() throws FrameStoreException {
+        final int numAgents = 6;
+        List<FrameTreeNode> scopes = new ArrayList<FrameTreeNode>();
+        FrameStore store = makeLargeStore(numAgents, scopes);
+        List<String> queries = makeQueries(store, numAgents);
+        System.out.println("-- indexed lookup: "+store.getFrameNames().size()+" frames, "+queries.size()+" names");
+
+        int mismatches = compareLookups(store, queries, scopes);
+        System.out.println((mismatches == 0 ? "[pass]" : "[FAIL]")+" index matches traversal ("+mismatches+" mismatches)");
+
+        // change the trees through the store and check again
+        Random random = new Random(42);
+        FrameTreeNode agent0 = store.lookup("/world/agent0");
+        FrameTreeNode agent1 = store.lookup("/world/agent1");
+        store.setParent(store.lookup("/world/agent0/body/head3"), agent1);
+        store.del(store.lookup("/world/agent1/body/arm2"), true);
+        store.del(store.lookup("/world/agent2/body/head0"), false);
+        FrameTreeNode merge = new FrameTreeNode(new Frame("world"));
+        merge.attachChild(new FrameTreeNode(new Frame("agent0"))).attachChild(new FrameTreeNode(new Frame("mast")))
+             .attachChild(new FrameTreeNode(new Frame("lens")));
+        store.mergeTree(merge, null);
+        store.add("extra"+random.nextInt(100), agent0, null);
+        queries = makeQueries(store, numAgents);
+        mismatches = compareLookups(store, queries, scopes);
+        System.out.println((mismatches == 0 ? "[pass]" : "[FAIL]")+" index matches traversal after setParent/del/mergeTree ("+mismatches+" mismatches)");
+
+        // change a tree directly, bypassing the store; the index must notice
+        agent1.attachChild(new FrameTreeNode(new Frame("direct"))).attachChild(new FrameTreeNode(new Frame("lens")));
+        queries = makeQueries(store, numAgents);
+        mismatches = compareLookups(store, queries, scopes);
+        System.out.println((mismatches == 0 ? "[pass]" : "[FAIL]")+" index matches traversal after direct change ("+mismatches+" mismatches)");
+
+        double traversal = timeLookups(store, queries, false, 1);
+        double indexed   = timeLookups(store, queries, true, 10);
+        System.out.println(String.format("lookup: traversal %.1f us, indexed %.1f us, speedup %.0fx", 
+                                         traversal/1000, indexed/1000, traversal/indexed));
     }
 
 }
@@ -17,16 +17,29 @@
  ******************************************************************************/
 package gov.nasa.rapid.v2.framestore.test;
 
+import com.ardor3d.math.Matrix3;
 import com.ardor3d.math.Transform;
 import com.ardor3d.math.Vector3;
+import com.ardor3d.math.type.ReadOnlyTransform;
 
 import gov.nasa.rapid.v2.framestore.FrameStoreException;
 import gov.nasa.rapid.v2.framestore.tree.Frame;
 import gov.nasa.rapid.v2.framestore.tree.FrameStore;
 import gov.nasa.rapid.v2.framestore.tree.FrameTree;
 import gov.nasa.rapid.v2.framestore.tree.FrameTreeNode;
+import gov.nasa.rapid.v2.framestore.tree.FrameUpdateTransaction;
+import gov.nasa.rapid.v2.framestore.tree.IFrameStoreListener;
+import gov.nasa.rapid.v2.framestore.tree.updaters.IFrameUpdater;
+import gov.nasa.rapid.v2.framestore.tree.updaters.SingleAxisFrameUpdater;
 import gov.nasa.rapid.v2.framestore.tree.visitors.PrintFrameNamesVisitor;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class TestFrameTransforms {
 
     public static final Vector3 AXIS_X = new Vector3(1,0,0);
@@ -66,7 +79,277 @@ public class TestFrameTransforms {
             // TODO Auto-generated catch block
             e.printStackTrace();
         }
+
+        testCachedTransforms();
+        testAxesAreNormalized();
+        try {
+            testUpdateTransactions();
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * transform of source wrt wrtFrame, computed by walking from the root 
+     * without using the cached world transforms
+     */
+    static Transform referenceTransform(FrameTreeNode wrtFrame, FrameTreeNode source) {
+        return worldOf(wrtFrame).invert(null).multiply(worldOf(source), null);
+    }
+
+    static Transform worldOf(FrameTreeNode node) {
+        Transform retVal = new Transform();
+        List<FrameTreeNode> ancestry = node.getAncestry();
+        for(FrameTreeNode ancestor : ancestry) {
+            retVal = retVal.multiply(ancestor.getFrame().getTransform(), null);
+        }
+        return retVal;
+    }
+
+    static void check(String what, ReadOnlyTransform actual, ReadOnlyTransform expected) {
+        double err = actual.getTranslation().distance(expected.getTranslation());
+        for(int i = 0; i < 3; i++) {
+            for(int j = 0; j < 3; j++) {
+                err = Math.max(err, Math.abs(actual.getMatrix().getValue(i, j) - expected.getMatrix().getValue(i, j)));
+            }
+        }
+        System.out.println((err < 1e-9 ? "[pass] " : "[FAIL] ")+what+" (error "+err+")");
+    }
+
+    /**
+     * check that cached world transforms follow changes to ancestors and re-parenting
+     */
+    public static void testCachedTransforms() {
+        FrameTreeNode root = new FrameTreeNode(new Frame("root"));
+        FrameTreeNode arm  = root.attachChild(new FrameTreeNode(new Frame("arm")));
+        FrameTreeNode cur  = arm;
+        Matrix3 rot = new Matrix3();
+        for(int i = 0; i < 6; i++) {
+            rot.fromAngleNormalAxis(Math.PI/7, i % 2 == 0 ? AXIS_Z : AXIS_Y);
+            cur = cur.attachChild(new FrameTreeNode(new Frame("link"+i)));
+            cur.getFrame().setRotation(rot);
+            cur.getFrame().setTranslation(new Vector3(0.5, 0, 0.1*i));
+        }
+        final FrameTreeNode tip  = cur;
+        final FrameTreeNode base = root.attachChild(new FrameTreeNode(new Frame("base")));
+        base.getFrame().setTranslation(new Vector3(1, 2, 3));
+
+        check("tip wrt base", FrameTree.getTransform(base, tip), referenceTransform(base, tip));
+        check("base wrt tip", FrameTree.getTransform(tip, base), referenceTransform(tip, base));
+
+        // change an ancestor; the cached transform of tip must follow
+        rot.fromAngleNormalAxis(Math.PI/3, AXIS_X);
+        arm.getFrame().setRotation(rot);
+        check("tip wrt base after ancestor change", FrameTree.getTransform(base, tip), referenceTransform(base, tip));
+
+        // re-parent the arm under base
+        arm.setParent(base);
+        check("tip wrt root after re-parent", FrameTree.getTransform(root, tip), referenceTransform(root, tip));
+
+        Transform store = new Transform();
+        final int reps = 1000000;
+        long start = System.nanoTime();
+        for(int i = 0; i < reps; i++) {
+            FrameTree.getTransform(root, tip, store);
+        }
+        long cached = System.nanoTime() - start;
+        start = System.nanoTime();
+        for(int i = 0; i < reps; i++) {
+            referenceTransform(root, tip);
+        }
+        long uncached = System.nanoTime() - start;
+        System.out.println(String.format("getTransform: cached %.0f ns, walking the tree %.0f ns", 
+                                         (double)cached/reps, (double)uncached/reps));
+    }
+    /**
+     * An arm of joints that all rotate about Z, where each sample sets the 
+     * joint angles so that they sum to zero: a consistent pose always has 
+     * the tip rotation equal to the base rotation. A reader thread checks 
+     * that it never sees a torn pose while samples are committed as 
+     * transactions, and counts the torn poses it sees when the same 
+     * samples are applied one frame at a time.
+     */
+    public static void testUpdateTransactions() throws Exception {
+        final FrameStore store = new FrameStore();
+        final FrameTreeNode base = store.add("base", null, null);
+        final int numJoints = 8;
+        final FrameTreeNode[] joints = new FrameTreeNode[numJoints];
+        FrameTreeNode parent = base;
+        for(int i = 0; i < numJoints; i++) {
+            joints[i] = store.add("joint"+i, parent, new Transform().setTranslation(0.3, 0, 0));
+            parent = joints[i];
+        }
+        final FrameTreeNode tip = parent;
+
+        final AtomicInteger notifications = new AtomicInteger(0);
+        final AtomicInteger notifiedFrames = new AtomicInteger(0);
+        store.addListener(new IFrameStoreListener() {
+            @Override
+            public void framesUpdated(FrameStore s, long version, List<FrameTreeNode> frames) {
+                notifications.incrementAndGet();
+                notifiedFrames.addAndGet(frames.size());
+            }
+        });
+
+        final int samples = 20000;
+        final FrameUpdateTransaction transaction = store.beginUpdate();
+        final Matrix3 rot = new Matrix3();
+        // like a message listener, each sample is one call. Warm up all 
+        // writers first, so no timing includes compilation
+        for(int n = 0; n < samples; n++) {
+            commitSample(transaction, joints, n);
+            writeSample(rot, joints, n);
+            baselineSample(store, joints, n);
+        }
+
+        // CPU time of the writing thread, i.e. the cost to the thread that 
+        // delivers the samples, not counting the time the reader runs
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        // without a reader, against the path JointFrameUpdater took before 
+        // transactions. Best of several alternating runs, to reduce noise
+        long bestTransacted = Long.MAX_VALUE;
+        long bestBaseline   = Long.MAX_VALUE;
+        for(int run = 0; run < 5; run++) {
+            long start = threads.getCurrentThreadCpuTime();
+            for(int n = 0; n < samples; n++) {
+                commitSample(transaction, joints, n);
+            }
+            bestTransacted = Math.min(bestTransacted, threads.getCurrentThreadCpuTime() - start);
+            start = threads.getCurrentThreadCpuTime();
+            for(int n = 0; n < samples; n++) {
+                baselineSample(store, joints, n);
+            }
+            bestBaseline = Math.min(bestBaseline, threads.getCurrentThreadCpuTime() - start);
+        }
+        System.out.println(String.format("%s transactions not slower than synchronized updateFrames "+
+                                         "(%.1f ms vs %.1f ms for %d samples)", 
+                                         bestTransacted <= bestBaseline ? "[pass]" : "[FAIL]",
+                                         bestTransacted/1e6, bestBaseline/1e6, samples));
+
+        notifications.set(0);
+        notifiedFrames.set(0);
+        final long version = store.getUpdateVersion();
+
+        long start = threads.getCurrentThreadCpuTime();
+        int torn = runPoseReader(store, base, tip, new Runnable() {
+            public void run() {
+                for(int n = 0; n < samples; n++) {
+                    commitSample(transaction, joints, n);
+                }
+            }
+        });
+        long transacted = threads.getCurrentThreadCpuTime() - start;
+        System.out.println((torn == 0 ? "[pass] " : "[FAIL] ")+"no torn poses with transactions ("+torn+" seen)");
+        System.out.println((notifications.get() == samples ? "[pass] " : "[FAIL] ")+"one notification per transaction ("+
+                           notifications.get()+" for "+samples+" samples)");
+        System.out.println((notifiedFrames.get() == samples*numJoints ? "[pass] " : "[FAIL] ")+"every updated frame reported");
+        System.out.println((store.getUpdateVersion() - version == samples ? "[pass] " : "[FAIL] ")+"update version counts commits");
+
+        start = threads.getCurrentThreadCpuTime();
+        torn = runPoseReader(store, base, tip, new Runnable() {
+            public void run() {
+                for(int n = 0; n < samples; n++) {
+                    writeSample(rot, joints, n);
+                }
+            }
+        });
+        long individual = threads.getCurrentThreadCpuTime() - start;
+        System.out.println(String.format("%d samples of %d joints, writer CPU time: transactions %.1f ms, "+
+                                         "frame by frame %.1f ms (%d torn poses seen)", 
+                                         samples, numJoints, transacted/1e6, individual/1e6, torn));
+    }
+
+    static void commitSample(FrameUpdateTransaction transaction, FrameTreeNode[] joints, int n) {
+        for(int i = 0; i < joints.length; i++) {
+            transaction.setRotation(joints[i], Frame.Axis.Z, jointAngle(n, i, joints.length));
+        }
+        transaction.commit();
+    }
+
+    /**
+     * a sample the way JointFrameUpdater applied it before transactions: 
+     * new SingleAxisFrameUpdaters, applied by what was then the body of 
+     * the synchronized FrameStore.updateFrames(Collection)
+     */
+    static void baselineSample(FrameStore store, FrameTreeNode[] joints, int n) {
+        ArrayList<SingleAxisFrameUpdater> updates = new ArrayList<SingleAxisFrameUpdater>();
+        for(int i = 0; i < joints.length; i++) {
+            updates.add(new SingleAxisFrameUpdater(joints[i], Frame.Axis.Z, jointAngle(n, i, joints.length)));
+        }
+        synchronized(store) {
+            for(IFrameUpdater update : updates) {
+                update.apply();
+            }
+        }
+    }
+
+    static void writeSample(Matrix3 rot, FrameTreeNode[] joints, int n) {
+        for(int i = 0; i < joints.length; i++) {
+            rot.fromAngleNormalAxis(jointAngle(n, i, joints.length), AXIS_Z);
+            joints[i].getFrame().setRotation(rot);
+        }
+    }
+
+    /**
+     * fromAngleNormalAxis is only correct for unit axes, and 
+     * FrameUpdateTransaction passes it the Frame.Axis vectors
+     */
+    public static void testAxesAreNormalized() {
+        boolean ok = true;
+        for(Frame.Axis axis : Frame.Axis.values()) {
+            if(Math.abs(axis.vector.length() - 1) > 1e-12) {
+                System.out.println("[FAIL] "+axis+" is not a unit vector");
+                ok = false;
+            }
+        }
+        if(ok) {
+            System.out.println("[pass] Frame.Axis vectors are unit length");
+        }
+    }
+
+    static double jointAngle(int sample, int joint, int numJoints) {
+        double a = 0.5*Math.sin(sample*0.01 + joint);
+        return joint == numJoints-1 ? 0 : (joint == numJoints-2 ? a - jointAngleSum(sample, numJoints) : a);
     }
+
+    /** sum of the angles of all but the last two joints, so the angles of a sample sum to zero */
+    static double jointAngleSum(int sample, int numJoints) {
+        double sum = 0;
+        for(int i = 0; i < numJoints-2; i++) {
+            sum += 0.5*Math.sin(sample*0.01 + i);
+        }
+        return sum + 0.5*Math.sin(sample*0.01 + numJoints-2);
+    }
+
+    /**
+     * run writer on this thread while another thread reads the tip 
+     * wrt base through the store
+     * @return number of reads where the tip rotation was not the identity
+     */
+    static int runPoseReader(final FrameStore store, final FrameTreeNode base, final FrameTreeNode tip, 
+                             Runnable writer) throws InterruptedException {
+        final AtomicBoolean done = new AtomicBoolean(false);
+        final AtomicInteger torn = new AtomicInteger(0);
+        Thread reader = new Thread(new Runnable() {
+            public void run() {
+                Transform xfm = new Transform();
+                while(!done.get()) {
+                    store.getTransform(base, tip, xfm);
+                    if(Math.abs(xfm.getMatrix().getValue(0, 0) - 1) > 1e-9) {
+                        torn.incrementAndGet();
+                    }
+                }
+            }
+        });
+        reader.start();
+        writer.run();
+        done.set(true);
+        reader.join();
+        return torn.get();
+    }
+
 /*
     public static void createATransforms(FrameTreeNode root) {
         FrameTreeNode cur;
@@ -19,21 +19,39 @@ package gov.nasa.rapid.v2.framestore.tree;
 
 import gov.nasa.rapid.v2.framestore.KeyValueMap;
 
+import java.util.concurrent.locks.StampedLock;
+
 import com.ardor3d.math.Matrix3;
 import com.ardor3d.math.Transform;
 import com.ardor3d.math.Vector3;
 import com.ardor3d.math.type.ReadOnlyMatrix3;
+import com.ardor3d.math.type.ReadOnlyQuaternion;
 import com.ardor3d.math.type.ReadOnlyTransform;
 import com.ardor3d.math.type.ReadOnlyVector3;
 
 /** 
  * Class representing a named coordinate transform.
+ * <p>
+ * Writers of the transform are serialized by a StampedLock. Readers copy 
+ * the transform optimistically and only take the read lock if a write 
+ * happened during the copy, so a reader never waits on another reader. 
+ * Every write increases the version by two, which FrameTreeNode uses to 
+ * decide whether its cached world transform is still valid. FrameStore 
+ * transactions write without the frame lock; the version is odd while 
+ * such a write is in progress.
  */
 public class Frame {
     protected final Transform   m_xfm  = new Transform();
     protected String            m_name = null;
     protected KeyValueMap       m_data = null;
+
+    private final StampedLock   m_lock    = new StampedLock();
+    private volatile long       m_version = 0;
+
+    /** optimistic copies tried by copyTransform before it takes the read lock */
+    private static final int    OPTIMISTIC_READ_ATTEMPTS = 4;
     
+    /** unit vectors, so they can be passed to fromAngleNormalAxis */
     public enum Axis { 
         X    (new Vector3( 1,  0,  0)), 
         Y    (new Vector3( 0,  1,  0)), 
@@ -87,8 +105,20 @@ public class Frame {
      * @return this New Frame, copy of the source Frame
      */
     public Frame set(Frame toCopy) {
-        m_name = toCopy.getName();
-        toCopy.getTransform(m_xfm);
+        final String name = toCopy.getName();
+        if(name == null ? m_name != null : !name.equals(m_name)) {
+            m_name = name;
+            FrameTreeNode.structureChanged();
+        }
+        final Transform xfm = toCopy.getTransform(new Transform());
+        final long stamp = m_lock.writeLock();
+        try {
+            m_xfm.set(xfm);
+            m_version += 2;
+        }
+        finally {
+            m_lock.unlockWrite(stamp);
+        }
         return this;
     }
 
@@ -98,6 +128,7 @@ public class Frame {
      */
     public void setName(String name) {
         m_name = name;
+        FrameTreeNode.structureChanged();
     }
     
     /**
@@ -116,42 +147,111 @@ public class Frame {
      *          behavior of the constructor. 
      */
     public void setTransform(ReadOnlyTransform transform) {
-        synchronized(m_xfm) {
+        final long stamp = m_lock.writeLock();
+        try {
             if (transform == null) {
                 m_xfm.setIdentity();
             }
             else {
                 m_xfm.set(transform);
             }
+            m_version += 2;
+        }
+        finally {
+            m_lock.unlockWrite(stamp);
         }
     }
 
     public ReadOnlyTransform setRotation(ReadOnlyMatrix3 rotation) {
-        synchronized(m_xfm) {
+        final long stamp = m_lock.writeLock();
+        try {
             if (rotation == null) {
                 m_xfm.setRotation(Matrix3.IDENTITY);
             }
             else {
                 m_xfm.setRotation(rotation);
             }
+            m_version += 2;
+        }
+        finally {
+            m_lock.unlockWrite(stamp);
         }
         return m_xfm;
     }
     
+    /**
+     * Set the rotation from a quaternion. Unlike setRotation(ReadOnlyMatrix3), 
+     * the Transform knows the result is a pure rotation and does not have to 
+     * check that the matrix is orthonormal.
+     */
+    public ReadOnlyTransform setRotation(ReadOnlyQuaternion rotation) {
+        writeRotation(rotation);
+        return m_xfm;
+    }
+
+    /**
+     * @return version of the transform written by this call
+     */
+    private long writeRotation(ReadOnlyQuaternion rotation) {
+        final long stamp = m_lock.writeLock();
+        try {
+            m_xfm.setRotation(rotation);
+            return m_version += 2;
+        }
+        finally {
+            m_lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Write the rotation without taking the frame lock. Only for 
+     * FrameUpdateTransaction, which calls it with the FrameStore writer 
+     * lock held: store readers are excluded by that lock, and readers 
+     * that bypass the store see the odd version and retry. 
+     * @return version of the transform written by this call
+     */
+    long writeRotationInStore(ReadOnlyQuaternion rotation) {
+        m_version++;
+        m_xfm.setRotation(rotation);
+        return ++m_version;
+    }
+
+    /**
+     * Write the transform without taking the frame lock, like 
+     * writeRotationInStore(ReadOnlyQuaternion)
+     */
+    void writeTransformInStore(ReadOnlyTransform transform) {
+        m_version++;
+        if (transform == null) {
+            m_xfm.setIdentity();
+        }
+        else {
+            m_xfm.set(transform);
+        }
+        m_version++;
+    }
+    
     public ReadOnlyTransform setTranslation(ReadOnlyVector3 translation) {
-        synchronized(m_xfm) {
+        final long stamp = m_lock.writeLock();
+        try {
             if ( translation == null ) {
                 m_xfm.setTranslation(Vector3.ZERO);
             }
             else {
                 m_xfm.setTranslation(translation);
             }
+            m_version += 2;
+        }
+        finally {
+            m_lock.unlockWrite(stamp);
         }
         return m_xfm;
     }
     
     /** 
-     * returns a reference to the Transform owned by this frame
+     * returns a reference to the Transform owned by this frame. The 
+     * reference is not protected against concurrent writes; use 
+     * getTransform(Transform) to get a consistent copy.
      */
     public ReadOnlyTransform getTransform() {
         return m_xfm;
@@ -165,12 +265,53 @@ public class Frame {
         if(retVal == null) {
             retVal = new Transform();
         }
-        synchronized(m_xfm) {
-            retVal.set(m_xfm);
-        }
+        copyTransform(retVal);
         return retVal;
     }
 
+    /**
+     * @return version of the transform, which increases with every write. 
+     */
+    public long getVersion() {
+        return m_version;
+    }
+
+    /**
+     * Copy the transform into store without blocking unless a write is 
+     * in progress. 
+     * @return version of the copied transform
+     */
+    long copyTransform(Transform store) {
+        for(int i = 0; i < OPTIMISTIC_READ_ATTEMPTS; i++) {
+            final long stamp = m_lock.tryOptimisticRead();
+            final long version = m_version;
+            if(stamp != 0 && (version & 1) == 0) {
+                store.set(m_xfm);
+                // validate() fences the copy from the second version read
+                if(m_lock.validate(stamp) && m_version == version) {
+                    return version;
+                }
+            }
+        }
+        final long stamp = m_lock.readLock();
+        try {
+            // the lock excludes the other writers; wait out a store write
+            while(true) {
+                final long version = m_version;
+                if((version & 1) == 0) {
+                    store.set(m_xfm);
+                    if(m_lock.validate(stamp) && m_version == version) {
+                        return version;
+                    }
+                }
+                Thread.yield();
+            }
+        }
+        finally {
+            m_lock.unlockRead(stamp);
+        }
+    }
+
     /** 
      * Frames comparison
      * @return true if name and transform are equivalent
@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the 
+ * Administrator of the National Aeronautics and Space Administration. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.rapid.v2.framestore.tree;
+
+import gov.nasa.rapid.v2.framestore.tree.visitors.AbstractFrameVisitor;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Name index of the frames in a FrameStore: the fully qualified name of 
+ * every frame, and the frames that have a given name. Used by 
+ * FrameStore.lookup to resolve the common name forms without walking the 
+ * trees; any name the index cannot resolve with the same semantics as 
+ * FrameTree.lookup returns NOT_INDEXED and the caller falls back to the 
+ * tree traversal.
+ * <p>
+ * The FrameStore keeps the index up to date as it adds, deletes, merges 
+ * and re-parents frames. Changes made directly on FrameTreeNodes are 
+ * detected through FrameTreeNode.getStructureVersion(), and cause the 
+ * index to be rebuilt on the next lookup.
+ */
+class FrameNameIndex {
+    /** returned when a name cannot be resolved from the index */
+    static final FrameTreeNode NOT_INDEXED = new FrameTreeNode("<not indexed>");
+
+    private static final FrameTreeNode[] NONE = new FrameTreeNode[0];
+
+    /** maps are replaced as a whole on rebuild so readers never see a half built index */
+    private static final class Maps {
+        final ConcurrentHashMap<String,FrameTreeNode>   byPath = new ConcurrentHashMap<String,FrameTreeNode>();
+        final ConcurrentHashMap<String,FrameTreeNode[]> byName = new ConcurrentHashMap<String,FrameTreeNode[]>();
+    }
+
+    private volatile Maps m_maps    = new Maps();
+    /** structure version the index is consistent with */
+    private volatile long m_version = -1;
+
+    boolean isCurrent() {
+        return m_version == FrameTreeNode.getStructureVersion();
+    }
+
+    /**
+     * call before the FrameStore changes the trees
+     * @return version to pass to endUpdate
+     */
+    synchronized long beginUpdate() {
+        return isCurrent() ? FrameTreeNode.getStructureVersion() : -1;
+    }
+
+    /**
+     * mark the index as current after a change made through the FrameStore, 
+     * unless it was already stale before the change
+     */
+    synchronized void endUpdate(long versionBefore) {
+        if(versionBefore >= 0 && m_version == versionBefore) {
+            m_version = FrameTreeNode.getStructureVersion();
+        }
+    }
+
+    synchronized void rebuild(List<FrameTreeNode> roots) {
+        if(isCurrent()) {
+            return;
+        }
+        final long version = FrameTreeNode.getStructureVersion();
+        final Maps maps = new Maps();
+        for(FrameTreeNode root : roots) {
+            addSubtree(maps, root);
+        }
+        m_maps    = maps;
+        m_version = version;
+    }
+
+    synchronized void addSubtree(FrameTreeNode node) {
+        addSubtree(m_maps, node);
+    }
+
+    synchronized void removeSubtree(FrameTreeNode node) {
+        final Maps maps = m_maps;
+        node.traversePreOrder(new AbstractFrameVisitor() {
+            @Override
+            public boolean visit(FrameTreeNode n) {
+                remove(maps, n);
+                return false;
+            }
+        });
+    }
+
+    private static void addSubtree(final Maps maps, FrameTreeNode node) {
+        node.traversePreOrder(new AbstractFrameVisitor() {
+            @Override
+            public boolean visit(FrameTreeNode n) {
+                add(maps, n);
+                return false;
+            }
+        });
+    }
+
+    private static void add(Maps maps, FrameTreeNode node) {
+        final String name = node.getFrame().getName();
+        maps.byPath.put(FrameTree.getFullNameOf(node), node);
+        FrameTreeNode[] nodes = maps.byName.get(name);
+        if(nodes == null) {
+            maps.byName.put(name, new FrameTreeNode[] { node });
+            return;
+        }
+        for(FrameTreeNode n : nodes) {
+            if(n == node) {
+                return;
+            }
+        }
+        FrameTreeNode[] grown = new FrameTreeNode[nodes.length+1];
+        System.arraycopy(nodes, 0, grown, 0, nodes.length);
+        grown[nodes.length] = node;
+        maps.byName.put(name, grown);
+    }
+
+    private static void remove(Maps maps, FrameTreeNode node) {
+        final String name = node.getFrame().getName();
+        maps.byPath.remove(FrameTree.getFullNameOf(node), node);
+        FrameTreeNode[] nodes = maps.byName.get(name);
+        if(nodes != null) {
+            for(int i = 0; i < nodes.length; i++) {
+                if(nodes[i] == node) {
+                    if(nodes.length == 1) {
+                        maps.byName.remove(name);
+                    }
+                    else {
+                        FrameTreeNode[] shrunk = new FrameTreeNode[nodes.length-1];
+                        System.arraycopy(nodes, 0, shrunk, 0, i);
+                        System.arraycopy(nodes, i+1, shrunk, i, nodes.length-i-1);
+                        maps.byName.put(name, shrunk);
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Resolve a path with the semantics of FrameTree.lookup(startFrame, path), 
+     * for startFrame each of roots in turn until there is a match, or for 
+     * startFrame = scope if scope is not null. Absolute paths are always 
+     * resolved from the roots.
+     * @return the node, null if there is no match, or NOT_INDEXED if the path 
+     * uses a form the index does not handle
+     */
+    FrameTreeNode lookup(String path, List<FrameTreeNode> roots, FrameTreeNode scope) {
+        if(path.startsWith("/")) {
+            return lookupAbsolute(path);
+        }
+        if(path.startsWith(".../")) {
+            return lookupBreadthFirst(path.substring(4), roots, scope);
+        }
+        return NOT_INDEXED;
+    }
+
+    /**
+     * "/a/b/c" where each element is a plain frame name
+     */
+    private FrameTreeNode lookupAbsolute(String path) {
+        final String[] elements = split(path.substring(1));
+        if(elements == null) {
+            return NOT_INDEXED;
+        }
+        // FrameTree.matchNode returns the parent if the last two names are equal
+        if(elements.length > 1 && elements[elements.length-1].equals(elements[elements.length-2])) {
+            return NOT_INDEXED;
+        }
+        return m_maps.byPath.get(path);
+    }
+
+    /**
+     * ".../a/b" where each element is a plain frame name. FrameTree.lookup 
+     * visits the nodes under the start frame breadth first and returns the 
+     * first one that has a child path a/b (or, for a single element, the 
+     * first node that is named a or has a child named a). The candidates are 
+     * the nodes named b that have a/b as their path suffix; the winner is the 
+     * one whose node above "a" comes first in breadth first order.
+     */
+    private FrameTreeNode lookupBreadthFirst(String suffix, List<FrameTreeNode> roots, FrameTreeNode scope) {
+        final String[] elements = split(suffix);
+        if(elements == null) {
+            return NOT_INDEXED;
+        }
+        for(int i = 1; i < elements.length; i++) {
+            if(elements[i].equals(elements[i-1])) {
+                return NOT_INDEXED;
+            }
+        }
+        final FrameTreeNode[] candidates = m_maps.byName.get(elements[elements.length-1]);
+        if(candidates == null) {
+            return null;
+        }
+        if(scope != null) {
+            return bestMatch(candidates, elements, scope);
+        }
+        for(FrameTreeNode root : roots) {
+            FrameTreeNode found = bestMatch(candidates, elements, root);
+            if(found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    private static FrameTreeNode bestMatch(FrameTreeNode[] candidates, String[] elements, FrameTreeNode start) {
+        FrameTreeNode best       = null;
+        FrameTreeNode bestFinder = null;
+        for(FrameTreeNode candidate : candidates) {
+            // node that matches elements[0]
+            FrameTreeNode first = candidate;
+            for(int i = elements.length-2; i >= 0 && first != null; i--) {
+                first = first.getParent();
+                if(first != null && !first.getFrame().getName().equals(elements[i])) {
+                    first = null;
+                }
+            }
+            if(first == null) {
+                continue;
+            }
+            if(elements.length == 1 && first == start) {
+                return candidate;
+            }
+            if(!start.isAncestorOf(first)) {
+                continue;
+            }
+            final FrameTreeNode finder = first.getParent();
+            if(bestFinder == null || compareBreadthFirst(finder, bestFinder, start) < 0) {
+                best       = candidate;
+                bestFinder = finder;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Compare the positions of two nodes at or below start in a breadth 
+     * first traversal from start: by depth, then by the order of the 
+     * branches they are on.
+     */
+    static int compareBreadthFirst(FrameTreeNode a, FrameTreeNode b, FrameTreeNode start) {
+        if(a == b) {
+            return 0;
+        }
+        final int depthA = depthBelow(a, start);
+        final int depthB = depthBelow(b, start);
+        if(depthA != depthB) {
+            return depthA < depthB ? -1 : 1;
+        }
+        // climb to the children of the last common ancestor
+        while(a.getParent() != b.getParent()) {
+            a = a.getParent();
+            b = b.getParent();
+        }
+        final List<FrameTreeNode> siblings = a.getParent().m_children;
+        return siblings.indexOf(a) < siblings.indexOf(b) ? -1 : 1;
+    }
+
+    private static int depthBelow(FrameTreeNode node, FrameTreeNode start) {
+        int depth = 0;
+        while(node != start) {
+            node = node.getParent();
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * @return path elements, or null if any element is empty or one of the 
+     * reserved names ".", "..", "..."
+     */
+    private static String[] split(String path) {
+        if(path.length() == 0 || path.endsWith("/")) {
+            return null;
+        }
+        final String[] elements = path.split("/");
+        for(String element : elements) {
+            if(element.length() == 0 || element.equals(".") || element.equals("..") || element.equals("...")) {
+                return null;
+            }
+        }
+        return elements;
+    }
+}
@@ -24,12 +24,35 @@ import gov.nasa.rapid.v2.framestore.tree.visitors.IFrameVisitor;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.StampedLock;
 
+import org.apache.log4j.Logger;
+
+import com.ardor3d.math.Quaternion;
 import com.ardor3d.math.Transform;
 import com.ardor3d.math.type.ReadOnlyTransform;
 
+/**
+ * Forest of frame trees. Methods that change the structure of the forest 
+ * or the transforms of its frames are synchronized on the store, so writers 
+ * are applied one at a time. Queries are not synchronized: the children 
+ * of each node are copy-on-write lists, frame transforms are read 
+ * optimistically, and each node caches its transform with respect to its 
+ * root, so readers such as the 3D views never wait on a writer or on 
+ * each other.
+ * <p>
+ * Changes that belong together, e.g. all joint angles of one JointSample, 
+ * should be made through a FrameUpdateTransaction (see beginUpdate()). 
+ * A transaction is applied as one write; getTransform() on the store 
+ * never returns a result that combines frames from before and after it, 
+ * and listeners are notified once per transaction. 
+ */
 public class FrameStore {
+    private static final Logger logger = Logger.getLogger(FrameStore.class);
+
     /**
      * @brief Get a copy of the frame tree.
      * The vector holds a set of FrameTreeNode objects, which describe
@@ -52,7 +75,7 @@ public class FrameStore {
      * The rootFrame is required to be non-NULL, otherwise
      * FrameStoreException is thrown.
      */
-    public synchronized FrameTreeNode cloneTree(FrameTreeNode rootFrame) {
+    public FrameTreeNode cloneTree(FrameTreeNode rootFrame) {
         return rootFrame.clone(null);
     }
 
@@ -61,7 +84,7 @@ public class FrameStore {
      * Get name of frame.
      * @param frame
      */
-    public synchronized String getNameOf(FrameTreeNode frame) {
+    public String getNameOf(FrameTreeNode frame) {
         return frame.getData().getName();
     }
 
@@ -70,7 +93,7 @@ public class FrameStore {
      * Get fully qualified name of frame, including path of all parent frames.
      * @param frame
      */
-    public static synchronized String getFullNameOf(FrameTreeNode frame) {
+    public static String getFullNameOf(FrameTreeNode frame) {
         return FrameTree.getFullNameOf(frame);
     }
 
@@ -78,7 +101,7 @@ public class FrameStore {
     /**
      * @return list of fully qualified names of all frames.
      */
-    public synchronized List<String> getFrameNames() {
+    public List<String> getFrameNames() {
         final ArrayList<String> names = new ArrayList<String>();
         IFrameVisitor visitor = new AbstractFrameVisitor() {
             @Override
@@ -97,7 +120,7 @@ public class FrameStore {
      * Apply visitor to all root nodes in the forest
      * @param visitor
      */
-    public synchronized void applyVisitorPreOrder(IFrameVisitor visitor) {
+    public void applyVisitorPreOrder(IFrameVisitor visitor) {
         for( FrameTreeNode root : m_rootNodes ) {
             root.traversePreOrder(visitor);
         }
@@ -106,7 +129,7 @@ public class FrameStore {
     /**
      * Return the parent Frame
      */
-    public synchronized FrameTreeNode getParent(FrameTreeNode frame) {
+    public FrameTreeNode getParent(FrameTreeNode frame) {
         return frame.getParent();
     }
 
@@ -114,7 +137,7 @@ public class FrameStore {
     /**
      * Get the list of direct children of a frame.
      */
-    public synchronized List<FrameTreeNode> getChildren(FrameTreeNode frame) {
+    public List<FrameTreeNode> getChildren(FrameTreeNode frame) {
         if( frame == null ) {
             return new ArrayList<FrameTreeNode>(m_rootNodes);
         }
@@ -144,17 +167,18 @@ public class FrameStore {
      * @param scope
      * If a non-NULL scope frame is passed as second parameter, the
      * search is restricted to the sub-tree spawned by this frame.
+     *
+     * Absolute paths and .../name paths made of plain frame names are 
+     * resolved from the name index; other paths walk the trees.
      */
-    public synchronized FrameTreeNode lookup(String name, FrameTreeNode scope)  {
+    public FrameTreeNode lookup(String name, FrameTreeNode scope)  {
         String searchName = name;
         if (scope == null && name.length() > 0 && name.charAt(0) != '/') {
             // try to explicitly resolve the root frames 
             searchName = "/" + name; // << XXX hans, I don't get this
-            for(FrameTreeNode root : m_rootNodes) {
-                FrameTreeNode node = FrameTree.lookup(root, searchName);
-                if (node != null)
-                    return node;
-            }
+            FrameTreeNode node = lookupFromRoots(searchName);
+            if (node != null)
+                return node;
         }
 
         searchName = name;
@@ -165,17 +189,50 @@ public class FrameStore {
             }
         }
         if (scope == null || (searchName.length() > 0  && searchName.charAt(0) == '/')) {
-            for(FrameTreeNode root : m_rootNodes) {
-                FrameTreeNode node = FrameTree.lookup(root, searchName);
-                if (node != null)
-                    return node;
-            }
-            return null;
+            return lookupFromRoots(searchName);
         }
 
+        FrameTreeNode node = indexedLookup(searchName, scope);
+        if (node != FrameNameIndex.NOT_INDEXED)
+            return node;
         return FrameTree.lookup(scope, searchName);
     }
 
+    /**
+     * FrameTree.lookup from each root in turn
+     */
+    protected FrameTreeNode lookupFromRoots(String path) {
+        FrameTreeNode node = indexedLookup(path, null);
+        if (node != FrameNameIndex.NOT_INDEXED)
+            return node;
+        for(FrameTreeNode root : m_rootNodes) {
+            node = FrameTree.lookup(root, path);
+            if (node != null)
+                return node;
+        }
+        return null;
+    }
+
+    private FrameTreeNode indexedLookup(String path, FrameTreeNode scope) {
+        if (!m_indexedLookup || (scope != null && !isMember(scope)))
+            return FrameNameIndex.NOT_INDEXED;
+        if (!m_nameIndex.isCurrent())
+            m_nameIndex.rebuild(m_rootNodes);
+        return m_nameIndex.lookup(path, m_rootNodes, scope);
+    }
+
+    /**
+     * Enable or disable resolving names from the name index. Enabled by 
+     * default; when disabled, every lookup walks the trees. 
+     */
+    public void setIndexedLookup(boolean state) {
+        m_indexedLookup = state;
+    }
+
+    public boolean isIndexedLookup() {
+        return m_indexedLookup;
+    }
+
     /**
      * @see FrameStore.lookup(String name, FrameTreeNode scope)
      */
@@ -216,11 +273,14 @@ public class FrameStore {
 
 		assertUnique(node.getData().getName(), parent);
 
+		final long version = m_nameIndex.beginUpdate();
 		if (parent == null) {
 			m_rootNodes.add(node);
 		} else {
 			node.setParent(parent);
 		}
+		m_nameIndex.addSubtree(node);
+		m_nameIndex.endUpdate(version);
 		return node;
 	}
 
@@ -238,20 +298,31 @@ public class FrameStore {
 	 * @throws FrameStoreException
 	 */
 	public synchronized boolean mergeTree(FrameTreeNode tree, FrameTreeNode mergeRoot) throws FrameStoreException {
-		if (mergeRoot != null) {
-			mergeFrameTrees(tree, mergeRoot);
-			return true;
-		} else {
-			for (FrameTreeNode root : m_rootNodes) {
-				if (root.getFrame().getName().equals(tree.getFrame().getName())) {
-					FrameTree.mergeFrameTrees(tree, root);
-					return true;
+		final long version = m_nameIndex.beginUpdate();
+		try {
+			if (mergeRoot != null) {
+				mergeFrameTrees(tree, mergeRoot);
+				if (isMember(mergeRoot)) {
+					m_nameIndex.addSubtree(mergeRoot);
+				}
+				return true;
+			} else {
+				for (FrameTreeNode root : m_rootNodes) {
+					if (root.getFrame().getName().equals(tree.getFrame().getName())) {
+						FrameTree.mergeFrameTrees(tree, root);
+						m_nameIndex.addSubtree(root);
+						return true;
+					}
 				}
 			}
+			// just add the tree to the forest
+			m_rootNodes.add(tree);
+			m_nameIndex.addSubtree(tree);
+			return false;
+		}
+		finally {
+			m_nameIndex.endUpdate(version);
 		}
-		// just add the tree to the forest
-		m_rootNodes.add(tree);
-		return false;
 	}
 
 	/**
@@ -279,8 +350,37 @@ public class FrameStore {
 	 *            If recursive is set to false, all children of the frame will be added as root-frames to the FrameStore.
 	 */
 	public synchronized void del(FrameTreeNode frame, boolean recursive) {
-		// TODO Need to implement Frame Deletion!
-	    System.err.println("FrameStore.del method currently not implemented!");
+		if (frame == null || !isMember(frame)) {
+			return;
+		}
+		final long version = m_nameIndex.beginUpdate();
+		m_nameIndex.removeSubtree(frame);
+		final List<FrameTreeNode> children = frame.getChildren();
+		if (frame.isRoot()) {
+			removeRoot(frame);
+		} else {
+			frame.detachFromParent();
+		}
+		if (!recursive) {
+			for (FrameTreeNode child : children) {
+				child.detachFromParent();
+				m_rootNodes.add(child);
+				m_nameIndex.addSubtree(child);
+			}
+		}
+		m_nameIndex.endUpdate(version);
+	}
+
+	/**
+	 * remove by identity; FrameTreeNode.equals only compares names
+	 */
+	private void removeRoot(FrameTreeNode frame) {
+		for (int i = 0; i < m_rootNodes.size(); i++) {
+			if (m_rootNodes.get(i) == frame) {
+				m_rootNodes.remove(i);
+				return;
+			}
+		}
 	}
 
 	/**
@@ -290,7 +390,18 @@ public class FrameStore {
 	 * @param parent
 	 */
 	public synchronized void setParent(FrameTreeNode frame, FrameTreeNode parent) {
+		final long version = m_nameIndex.beginUpdate();
+		if (isMember(frame)) {
+			m_nameIndex.removeSubtree(frame);
+		}
+		if (parent != null && frame.isRoot()) {
+			removeRoot(frame);
+		}
 		frame.setParent(parent);
+		if (parent != null && isMember(parent)) {
+			m_nameIndex.addSubtree(frame);
+		}
+		m_nameIndex.endUpdate(version);
 	}
 
 	/**
@@ -298,7 +409,7 @@ public class FrameStore {
 	 * 
 	 * @param frame
 	 */
-	public synchronized FrameTreeNode getRoot(FrameTreeNode frame) {
+	public FrameTreeNode getRoot(FrameTreeNode frame) {
 		return frame.getRoot();
 	}
 
@@ -309,7 +420,7 @@ public class FrameStore {
 	 * 
 	 * @param frame
 	 */
-	public synchronized boolean isRoot(FrameTreeNode frame) {
+	public boolean isRoot(FrameTreeNode frame) {
 		return frame.isRoot();
 	}
 
@@ -320,7 +431,7 @@ public class FrameStore {
 	 * 
 	 * @param frame
 	 */
-	public synchronized boolean isLeaf(FrameTreeNode frame) {
+	public boolean isLeaf(FrameTreeNode frame) {
 		return frame.isLeaf();
 	}
 
@@ -330,14 +441,14 @@ public class FrameStore {
 	 * @param frame
 	 * @param pop
 	 */
-	public synchronized boolean isAncestorOf(FrameTreeNode frame, FrameTreeNode pop) {
+	public boolean isAncestorOf(FrameTreeNode frame, FrameTreeNode pop) {
 		return frame.isAncestorOf(pop);
 	}
 
 	/**
 	 * Test if the frame belongs to this FrameStore instance.
 	 */
-	public synchronized boolean isMember(FrameTreeNode node) {
+	public boolean isMember(FrameTreeNode node) {
 		if (node != null) {
 			for (FrameTreeNode root : m_rootNodes) {
 				if (root == node || root.isAncestorOf(node))
@@ -355,8 +466,38 @@ public class FrameStore {
 	 * @param wrtFrame
 	 * @param source
 	 */
-	public synchronized Transform getTransform(FrameTreeNode wrtFrame, FrameTreeNode source) {
-		return FrameTree.getTransform(wrtFrame, source);
+	public Transform getTransform(FrameTreeNode wrtFrame, FrameTreeNode source) {
+		return getTransform(wrtFrame, source, new Transform());
+	}
+
+	/**
+	 * Return the location of source expressed relative to wrtFrame. The 
+	 * result never mixes frames from before and after an update transaction.
+	 * 
+	 * @param wrtFrame
+	 * @param source
+	 * @param retVal
+	 *            storage for the result
+	 */
+	public Transform getTransform(FrameTreeNode wrtFrame, FrameTreeNode source, Transform retVal) {
+		// a commit only holds the lock briefly, so retry before taking the
+		// read lock; a reader holding it would stall the next commit
+		for (int i = 0; i < OPTIMISTIC_READ_ATTEMPTS; i++) {
+			final long stamp = m_poseLock.tryOptimisticRead();
+			if (stamp != 0) {
+				FrameTree.getTransform(wrtFrame, source, retVal);
+				if (m_poseLock.validate(stamp)) {
+					return retVal;
+				}
+			}
+		}
+		final long stamp = m_poseLock.readLock();
+		try {
+			FrameTree.getTransform(wrtFrame, source, retVal);
+		} finally {
+			m_poseLock.unlockRead(stamp);
+		}
+		return retVal;
 	}
 
 	/**
@@ -366,8 +507,8 @@ public class FrameStore {
 	 * @param loc
 	 *            transform in the frame of source
 	 */
-	public synchronized Transform getTransformOf(FrameTreeNode wrtFrame, FrameTreeNode source, ReadOnlyTransform loc) {
-		return FrameTree.getTransformOf(wrtFrame, source, loc);
+	public Transform getTransformOf(FrameTreeNode wrtFrame, FrameTreeNode source, ReadOnlyTransform loc) {
+		return getTransform(wrtFrame, source).multiply(loc, null);
 	}
 
 	/**
@@ -377,8 +518,18 @@ public class FrameStore {
 	 * @param wrtFrame
 	 * @param update
 	 */
-	public synchronized void setTransform(FrameTreeNode frame, FrameTreeNode wrtFrame, ReadOnlyTransform update) {
-		FrameTree.setTransform(frame, wrtFrame, update);
+	public void setTransform(FrameTreeNode frame, FrameTreeNode wrtFrame, ReadOnlyTransform update) {
+		final long version;
+		synchronized (this) {
+			final long stamp = m_poseLock.writeLock();
+			try {
+				FrameTree.setTransform(frame, wrtFrame, update);
+				version = ++m_updateVersion;
+			} finally {
+				m_poseLock.unlockWrite(stamp);
+			}
+		}
+		fireFramesUpdated(version, Collections.singletonList(frame));
 	}
 
 	/**
@@ -387,16 +538,77 @@ public class FrameStore {
 	 * @param frame
 	 * @param update
 	 */
-	public synchronized void setLocationRel(FrameTreeNode frame, ReadOnlyTransform update) {
-		FrameTree.setTransform(frame, null, update);
+	public void setLocationRel(FrameTreeNode frame, ReadOnlyTransform update) {
+		setTransform(frame, null, update);
 	}
 
     /**
-     * Update a set of frames at once.
+     * Update a set of frames at once, as a single transaction.
      */
-    public synchronized void updateFrames(Collection<? extends IFrameUpdater> updates) {
+    public void updateFrames(Collection<? extends IFrameUpdater> updates) {
+        FrameUpdateTransaction transaction = beginUpdate();
         for(IFrameUpdater update : updates) {
-            update.apply();
+            transaction.add(update);
+        }
+        transaction.commit();
+    }
+
+    /**
+     * @return a new, empty transaction on this store. Nothing is locked 
+     * until the transaction is committed.
+     */
+    public FrameUpdateTransaction beginUpdate() {
+        return new FrameUpdateTransaction(this);
+    }
+
+    /**
+     * @return number of updates committed to this store. Readers that 
+     * poll can compare it to the value seen last time to skip work 
+     * when no frame transform has changed.
+     */
+    public long getUpdateVersion() {
+        return m_updateVersion;
+    }
+
+    public void addListener(IFrameStoreListener listener) {
+        m_listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(IFrameStoreListener listener) {
+        m_listeners.remove(listener);
+    }
+
+    /**
+     * apply a transaction under the writer lock, then notify listeners
+     * @return update version after the commit
+     */
+    long commit(FrameUpdateTransaction transaction) {
+        if (transaction.isEmpty()) {
+            return m_updateVersion;
+        }
+        final long version;
+        synchronized (this) {
+            final long stamp = m_poseLock.writeLock();
+            try {
+                transaction.apply(m_scratchRot);
+                version = ++m_updateVersion;
+            } finally {
+                m_poseLock.unlockWrite(stamp);
+            }
+        }
+        if (!m_listeners.isEmpty()) {
+            fireFramesUpdated(version, transaction.getFrames());
+        }
+        return version;
+    }
+
+    protected void fireFramesUpdated(long version, List<FrameTreeNode> frames) {
+        for (IFrameStoreListener listener : m_listeners) {
+            try {
+                listener.framesUpdated(this, version, frames);
+            } catch (Throwable t) {
+                logger.error("FrameStore listener threw an exception", t);
+            }
         }
     }
 
@@ -425,5 +637,17 @@ public class FrameStore {
 	}
 
     /** The vector of root nodes. */
-    protected final ArrayList<FrameTreeNode> m_rootNodes = new ArrayList<FrameTreeNode>();
+    protected final CopyOnWriteArrayList<FrameTreeNode> m_rootNodes = new CopyOnWriteArrayList<FrameTreeNode>();
+
+    /** full names and names of all frames, kept up to date by the methods that change the trees */
+    private final FrameNameIndex m_nameIndex = new FrameNameIndex();
+    private volatile boolean m_indexedLookup = true;
+
+    /** optimistic reads tried by getTransform before it takes the read lock */
+    private static final int OPTIMISTIC_READ_ATTEMPTS = 4;
+    /** held for writing while frame transforms are updated, so multi-frame reads are consistent */
+    private final StampedLock m_poseLock = new StampedLock();
+    private final Quaternion m_scratchRot = new Quaternion();
+    private volatile long m_updateVersion = 0;
+    private final CopyOnWriteArrayList<IFrameStoreListener> m_listeners = new CopyOnWriteArrayList<IFrameStoreListener>();
 }
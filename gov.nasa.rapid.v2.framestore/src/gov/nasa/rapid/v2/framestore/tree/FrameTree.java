@@ -57,6 +57,11 @@ public class FrameTree {
 	 * @param retVal
 	 *            store, if NULL, a new matrix is first created
 	 * @return transform of source with respect to wrtFrame
+	 * 
+	 * Both frames' transforms with respect to their root are cached by the 
+	 * FrameTreeNode, so on an unchanged tree this is a single multiply of the 
+	 * cached inverse of wrtFrame and the cached transform of source. If the 
+	 * frames are not in the same tree, the identity is returned.
 	 */
     public static Transform getTransform(FrameTreeNode wrtFrame, FrameTreeNode source, Transform retVal) {
         if ( retVal == null ) {
@@ -68,34 +73,10 @@ public class FrameTree {
                 return source.getData().getTransform(retVal);
             }
             if (wrtFrame != source) {
-                List<FrameTreeNode> wrtFrameAncestors = new LinkedList<FrameTreeNode>();
-                List<FrameTreeNode> sourceAncestors = new LinkedList<FrameTreeNode>();
-                FrameTreeNode ancestor = wrtFrame.getLastCommonAncestor(source, wrtFrameAncestors, sourceAncestors);
-                Transform tmp = new Transform();
-                if (ancestor != null) {
-                    // from the origin frame to the ancestor *** ask Hans about these comments...
-                    {
-                        int ancestorIndex = wrtFrameAncestors.indexOf(ancestor);
-                        ListIterator<FrameTreeNode> nodeIt = wrtFrameAncestors.listIterator(ancestorIndex);
-                        nodeIt.next();
-                        while(nodeIt.hasNext()) {
-                            FrameTreeNode node = nodeIt.next();
-                            retVal.multiply(node.getData().getTransform(), tmp);
-                            retVal.set(tmp);
-                        }                            
-                        retVal.invert(retVal);
-                    }
-                    // from the last common ancestor to the wrt frame
-                    {
-                        int ancestorIndex = sourceAncestors.indexOf(ancestor);
-                        ListIterator<FrameTreeNode> nodeIt = sourceAncestors.listIterator(ancestorIndex);
-                        nodeIt.next();
-                        while(nodeIt.hasNext()) {
-                            FrameTreeNode node = nodeIt.next();
-                            retVal.multiply(node.getData().getTransform(), tmp);
-                            retVal.set(tmp);
-                        }
-                    }
+                final FrameTreeNode.WorldTransform sourceWorld = source.getWorldCache();
+                final FrameTreeNode.WorldTransform wrtWorld    = wrtFrame.getWorldCache();
+                if (sourceWorld.root == wrtWorld.root) {
+                    wrtWorld.getInverse().multiply(sourceWorld.transform, retVal);
                 }
             }
         }
@@ -26,7 +26,9 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
+import com.ardor3d.math.Transform;
 import com.ardor3d.math.type.ReadOnlyTransform;
 
 /**
@@ -40,11 +42,69 @@ import com.ardor3d.math.type.ReadOnlyTransform;
  * Only the FrameStore interface explicitly checks these requirements and
  * flags errors if frames are added to the frame-store, that do not meet
  * these assumptions.
+ *
+ * Each node caches its transform with respect to the root of its tree. 
+ * The cache is checked against the frame version and the cached transform 
+ * of the parent, so it is recomputed only if this frame or an ancestor 
+ * changed, or the node was re-parented. Children are held in a copy-on-write 
+ * list, so traversals and lookups do not block while the tree is modified.
  */
 public class FrameTreeNode {
-    protected Frame         m_data;
-    protected FrameTreeNode m_parent;
-    protected final ArrayList<FrameTreeNode> m_children = new ArrayList<FrameTreeNode>();
+    protected Frame                  m_data;
+    protected volatile FrameTreeNode m_parent;
+    protected final CopyOnWriteArrayList<FrameTreeNode> m_children = new CopyOnWriteArrayList<FrameTreeNode>();
+
+    /** transform with respect to the root, or null if not computed yet */
+    private volatile WorldTransform  m_world = null;
+
+    /** incremented whenever a node is attached, detached or renamed in any tree */
+    private static final AtomicLong s_structureVersion = new AtomicLong(0);
+
+    /**
+     * @return counter that changes whenever the structure or names of any 
+     * frame tree change. Used by FrameStore to detect changes made 
+     * directly on the nodes rather than through the store.
+     */
+    static long getStructureVersion() {
+        return s_structureVersion.get();
+    }
+
+    static void structureChanged() {
+        s_structureVersion.incrementAndGet();
+    }
+
+    /**
+     * Immutable cached transform of a node with respect to its root. 
+     * Valid as long as the frame version is unchanged and the parent's 
+     * current WorldTransform is the one this was computed from.
+     */
+    static final class WorldTransform {
+        final Transform      transform;
+        final WorldTransform parent;
+        final long           version;
+        final FrameTreeNode  root;
+        private volatile Transform inverse = null;
+
+        WorldTransform(Transform transform, WorldTransform parent, long version, FrameTreeNode root) {
+            this.transform = transform;
+            this.parent    = parent;
+            this.version   = version;
+            this.root      = root;
+        }
+
+        /** 
+         * computed on first use. Concurrent callers may both compute it, 
+         * which is harmless because the result is the same
+         */
+        Transform getInverse() {
+            Transform retVal = inverse;
+            if(retVal == null) {
+                retVal = transform.invert(null);
+                inverse = retVal;
+            }
+            return retVal;
+        }
+    }
 
     /**
      * Create a new FrameTreeNode and assigned it a parent and a copy of a frame.
@@ -156,6 +216,7 @@ public class FrameTreeNode {
                 node.detachFromParent();
                 m_children.add(node);
                 node.m_parent = this;
+                structureChanged();
                 return node;
             }
         }
@@ -187,11 +248,9 @@ public class FrameTreeNode {
      * @return
      */
     public FrameTreeNode findChild(String name) {
-        synchronized(m_children) {
-            for(FrameTreeNode child : m_children) {
-                if(child.getFrame().getName().equals(name))
-                    return child;
-            }
+        for(FrameTreeNode child : m_children) {
+            if(child.getFrame().getName().equals(name))
+                return child;
         }
         return null;
     }
@@ -204,6 +263,7 @@ public class FrameTreeNode {
             if( m_children.contains(node) ) {
                 m_children.remove(node);
                 node.m_parent = null;
+                structureChanged();
             }
         }
         return false;
@@ -294,6 +354,39 @@ public class FrameTreeNode {
     }
 
 
+    /**
+     * @return transform of this frame with respect to the root of its tree. 
+     * The returned transform is shared and must not be modified. 
+     */
+    public ReadOnlyTransform getWorldTransform() {
+        return getWorldCache().transform;
+    }
+
+    /**
+     * Get the cached transform with respect to the root, recomputing it and 
+     * those of any changed ancestors if necessary. On an unchanged tree 
+     * this only compares references and versions up to the root.
+     */
+    WorldTransform getWorldCache() {
+        final FrameTreeNode  parent      = m_parent;
+        final WorldTransform parentWorld = (parent == null) ? null : parent.getWorldCache();
+        WorldTransform world = m_world;
+        if(world != null && world.parent == parentWorld && world.version == m_data.getVersion()) {
+            return world;
+        }
+        final Transform local = new Transform();
+        final long version = m_data.copyTransform(local);
+        if(parentWorld == null) {
+            world = new WorldTransform(local, null, version, this);
+        }
+        else {
+            final Transform xfm = parentWorld.transform.multiply(local, new Transform());
+            world = new WorldTransform(xfm, parentWorld, version, parentWorld.root);
+        }
+        m_world = world;
+        return world;
+    }
+
     /**
      * Calculate the last common ancestor.
      * @return null if the nodes are not connected.  If either node is
@@ -332,10 +425,7 @@ public class FrameTreeNode {
         return getChildren(false);
     }
     public List<FrameTreeNode> getChildren(boolean sortByName) {
-        ArrayList<FrameTreeNode> retVal;
-        synchronized(m_children) {
-            retVal = new ArrayList<FrameTreeNode>(m_children);
-        }
+        ArrayList<FrameTreeNode> retVal = new ArrayList<FrameTreeNode>(m_children);
         if(sortByName) {
             Collections.sort(retVal, FrameTreeNodeNameComparator.instance);
         }
@@ -376,9 +466,7 @@ public class FrameTreeNode {
             if(visitor.visit(node)) {
                 return true;
             }
-            synchronized(m_children) {
-                queue.addAll(node.m_children);
-            }
+            queue.addAll(node.m_children);
         }
         return false;
     }
@@ -0,0 +1,268 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the 
+ * Administrator of the National Aeronautics and Space Administration. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.rapid.v2.framestore.tree;
+
+import gov.nasa.rapid.v2.framestore.tree.updaters.IFrameUpdater;
+import gov.nasa.rapid.v2.framestore.tree.updaters.SingleAxisFrameUpdater;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.ardor3d.math.Quaternion;
+import com.ardor3d.math.Transform;
+import com.ardor3d.math.type.ReadOnlyTransform;
+
+/**
+ * Set of frame changes that are applied to a FrameStore together. Changes 
+ * are only recorded until commit() is called; commit() then applies all of 
+ * them while holding the store's writer lock, so readers that query the 
+ * store never see part of the update, and the store's listeners are 
+ * notified once for the whole set.
+ * <p>
+ * A transaction can be reused after commit() or clear(); the changes are 
+ * kept in arrays that are only grown, so a message listener that keeps one 
+ * transaction does not allocate per sample. Transactions are not thread safe.
+ * @see FrameStore#beginUpdate()
+ */
+public class FrameUpdateTransaction {
+    protected static final int INITIAL_CAPACITY = 16;
+
+    protected final FrameStore m_store;
+    protected int              m_size = 0;
+
+    /* one slot per recorded change */
+    protected Kind[]           m_kinds    = new Kind[INITIAL_CAPACITY];
+    protected FrameTreeNode[]  m_nodes    = new FrameTreeNode[INITIAL_CAPACITY];
+    protected Frame.Axis[]     m_axes     = new Frame.Axis[INITIAL_CAPACITY];
+    protected double[]         m_radians  = new double[INITIAL_CAPACITY];
+    protected Transform[]      m_xfms     = new Transform[INITIAL_CAPACITY];
+    protected IFrameUpdater[]  m_updaters = new IFrameUpdater[INITIAL_CAPACITY];
+    /** 
+     * version of the frame right after this slot last set an axis rotation 
+     * on it. A listener that keeps one transaction records the same joints 
+     * in the same slots, so a joint angle that has not changed can be 
+     * skipped as long as nobody else has written the frame since.
+     */
+    protected long[]           m_appliedVersions = new long[INITIAL_CAPACITY];
+    protected FrameTreeNode[]  m_appliedNodes    = new FrameTreeNode[INITIAL_CAPACITY];
+    protected Frame.Axis[]     m_appliedAxes     = new Frame.Axis[INITIAL_CAPACITY];
+    protected double[]         m_appliedRadians  = new double[INITIAL_CAPACITY];
+
+    /** the changed frames as handed to listeners, without copying m_nodes */
+    protected final List<FrameTreeNode> m_frames = new ChangedFrames();
+    protected boolean m_hasUnknownFrames = false;
+
+    enum Kind { TRANSFORM, AXIS_ROTATION, UPDATER }
+
+    FrameUpdateTransaction(FrameStore store) {
+        m_store = store;
+    }
+
+    public FrameStore getStore() {
+        return m_store;
+    }
+
+    /**
+     * set the transform of frame relative to its parent
+     */
+    public FrameUpdateTransaction setTransform(FrameTreeNode frame, ReadOnlyTransform xfm) {
+        final int i = next(Kind.TRANSFORM, frame);
+        Transform entry = m_xfms[i];
+        if(entry == null) {
+            entry = m_xfms[i] = new Transform();
+        }
+        if(xfm == null) {
+            entry.setIdentity();
+        }
+        else {
+            entry.set(xfm);
+        }
+        return this;
+    }
+
+    /**
+     * set the rotation of frame to a rotation about a single axis, 
+     * keeping its translation. Equivalent to a SingleAxisFrameUpdater.
+     */
+    public FrameUpdateTransaction setRotation(FrameTreeNode frame, Frame.Axis axis, double radians) {
+        final int i = next(Kind.AXIS_ROTATION, frame);
+        m_axes[i]    = axis;
+        m_radians[i] = radians;
+        return this;
+    }
+
+    /**
+     * apply an arbitrary updater as part of this transaction
+     */
+    public FrameUpdateTransaction add(IFrameUpdater updater) {
+        FrameTreeNode node = null;
+        if(updater instanceof SingleAxisFrameUpdater) {
+            node = ((SingleAxisFrameUpdater)updater).getNode();
+        }
+        else {
+            m_hasUnknownFrames = true;
+        }
+        final int i = next(Kind.UPDATER, node);
+        m_updaters[i] = updater;
+        return this;
+    }
+
+    public int size() {
+        return m_size;
+    }
+
+    public boolean isEmpty() {
+        return m_size == 0;
+    }
+
+    /**
+     * discard the recorded changes without applying them
+     */
+    public void clear() {
+        if(m_hasUnknownFrames) {
+            // only updaters can leave a slot without a node
+            for(int i = 0; i < m_size; i++) {
+                m_updaters[i] = null;
+            }
+            m_hasUnknownFrames = false;
+        }
+        m_size = 0;
+    }
+
+    /**
+     * Apply all recorded changes atomically and notify the store's 
+     * listeners once. The transaction is empty afterwards. Committing 
+     * an empty transaction does nothing.
+     * @return update version of the store after the commit
+     */
+    public long commit() {
+        try {
+            return m_store.commit(this);
+        }
+        finally {
+            clear();
+        }
+    }
+
+    /**
+     * called by the store with its writer lock held
+     * @param rot scratch quaternion owned by the store
+     */
+    void apply(Quaternion rot) {
+        final Kind[] kinds = m_kinds;
+        for(int i = 0; i < m_size; i++) {
+            final Kind kind = kinds[i];
+            if(kind == Kind.AXIS_ROTATION) {
+                final Frame frame = m_nodes[i].getFrame();
+                if(m_appliedNodes[i] == m_nodes[i] && m_appliedAxes[i] == m_axes[i] 
+                        && m_appliedRadians[i] == m_radians[i] && m_appliedVersions[i] == frame.getVersion()) {
+                    continue;
+                }
+                // Frame.Axis vectors are unit length
+                rot.fromAngleNormalAxis(m_radians[i], m_axes[i].vector);
+                m_appliedVersions[i] = frame.writeRotationInStore(rot);
+                m_appliedNodes[i]    = m_nodes[i];
+                m_appliedAxes[i]     = m_axes[i];
+                m_appliedRadians[i]  = m_radians[i];
+            }
+            else if(kind == Kind.TRANSFORM) {
+                m_nodes[i].getFrame().writeTransformInStore(m_xfms[i]);
+            }
+            else {
+                m_updaters[i].apply();
+            }
+        }
+    }
+
+    /**
+     * @return unmodifiable view of the frames changed by this transaction, 
+     * in the order the changes were recorded. The view changes with the 
+     * transaction, i.e. it is emptied by clear().
+     */
+    List<FrameTreeNode> getFrames() {
+        return m_frames;
+    }
+
+    /**
+     * @return index of the slot for the next change
+     */
+    private int next(Kind kind, FrameTreeNode node) {
+        if(kind != Kind.UPDATER && node == null) {
+            throw new IllegalArgumentException("frame cannot be null");
+        }
+        final int i = m_size;
+        if(i == m_kinds.length) {
+            grow();
+        }
+        m_kinds[i] = kind;
+        m_nodes[i] = node;
+        m_size = i + 1;
+        return i;
+    }
+
+    private void grow() {
+        final int capacity = 2 * m_kinds.length;
+        m_kinds    = Arrays.copyOf(m_kinds, capacity);
+        m_nodes    = Arrays.copyOf(m_nodes, capacity);
+        m_axes     = Arrays.copyOf(m_axes, capacity);
+        m_radians  = Arrays.copyOf(m_radians, capacity);
+        m_xfms     = Arrays.copyOf(m_xfms, capacity);
+        m_updaters = Arrays.copyOf(m_updaters, capacity);
+        m_appliedVersions = Arrays.copyOf(m_appliedVersions, capacity);
+        m_appliedNodes    = Arrays.copyOf(m_appliedNodes, capacity);
+        m_appliedAxes     = Arrays.copyOf(m_appliedAxes, capacity);
+        m_appliedRadians  = Arrays.copyOf(m_appliedRadians, capacity);
+    }
+
+    /**
+     * read-only list of the non-null nodes in m_nodes. Only updaters 
+     * leave a slot without a node, so usually this is a plain index.
+     */
+    private class ChangedFrames extends AbstractList<FrameTreeNode> {
+        @Override
+        public FrameTreeNode get(int index) {
+            if(!m_hasUnknownFrames) {
+                if(index < 0 || index >= m_size) {
+                    throw new IndexOutOfBoundsException("Index: "+index+", Size: "+m_size);
+                }
+                return m_nodes[index];
+            }
+            for(int i = 0; i < m_size; i++) {
+                if(m_nodes[i] != null && index-- == 0) {
+                    return m_nodes[i];
+                }
+            }
+            throw new IndexOutOfBoundsException("Index: "+index);
+        }
+
+        @Override
+        public int size() {
+            if(!m_hasUnknownFrames) {
+                return m_size;
+            }
+            int retVal = 0;
+            for(int i = 0; i < m_size; i++) {
+                if(m_nodes[i] != null) {
+                    retVal++;
+                }
+            }
+            return retVal;
+        }
+    }
+}
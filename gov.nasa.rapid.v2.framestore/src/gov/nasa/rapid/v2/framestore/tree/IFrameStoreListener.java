@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the 
+ * Administrator of the National Aeronautics and Space Administration. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.rapid.v2.framestore.tree;
+
+import java.util.List;
+
+/**
+ * Notified by a FrameStore after frame transforms have been updated
+ * @see FrameStore#addListener(IFrameStoreListener)
+ */
+public interface IFrameStoreListener {
+    
+    /**
+     * Called once per committed update, after all of its frames have 
+     * been set, on the thread that committed the update. 
+     * @param store   the store that was updated
+     * @param version update version of the store after the commit
+     * @param frames  frames whose transforms were changed by the update 
+     *                (unmodifiable). Frames changed by an IFrameUpdater 
+     *                other than SingleAxisFrameUpdater are not listed. 
+     *                The list is reused by the next commit, so copy it 
+     *                if it is needed after this call returns.
+     */
+    void framesUpdated(FrameStore store, long version, List<FrameTreeNode> frames);
+}
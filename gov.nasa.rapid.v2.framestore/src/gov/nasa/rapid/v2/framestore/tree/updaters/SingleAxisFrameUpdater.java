@@ -44,6 +44,10 @@ public class SingleAxisFrameUpdater implements IFrameUpdater {
     public void setRadians(double radians) {
         m_radians = radians;
     }
+
+    public FrameTreeNode getNode() {
+        return m_node;
+    }
     
     public void apply() {
         m_rot.fromAngleAxis(m_radians, m_axis.vector);
@@ -0,0 +1,194 @@
+package gov.nasa.rapid.v2.e4.message.collector;
+
+import gov.nasa.rapid.v2.e4.message.MessageType;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import rapid.PositionSample;
+
+/**
+ * Writes samples with a FlightRecorder and reads them back with a
+ * FlightRecordReader.
+ */
+public class FlightRecorderTest extends Assert {
+
+	/** room for the index and dictionary plus a few hundred PositionSamples */
+	private static final int SEGMENT_BYTES = 256*1024;
+	private static final long CLOSE_MILLIS = 10000;
+
+	private static final String[] PARTITIONS = {"Bumble", "Honey"};
+	private static final MessageType TYPE = MessageType.POSITION_SAMPLE_TYPE;
+
+	private File directory;
+
+	/** one record as read back */
+	private static class Read {
+		String partition;
+		String typeName;
+		long micros;
+		PositionSample sample;
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("FlightRecorderTest").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = directory.listFiles();
+		if(files != null) {
+			for(File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	private static PositionSample makeSample(int serial) {
+		PositionSample sample = new PositionSample();
+		sample.hdr.assetName = PARTITIONS[serial % PARTITIONS.length];
+		sample.hdr.serial = serial;
+		sample.hdr.timeStamp = 1000L * serial;
+		sample.pose.xyz.userData[0] = serial;
+		sample.pose.xyz.userData[1] = -0.5 * serial;
+		sample.pose.xyz.userData[2] = 3.25;
+		sample.pose.rot.userData[0] = 1;
+		sample.pose.rot.userData[4] = 1;
+		sample.pose.rot.userData[8] = 1;
+		return sample;
+	}
+
+	private FlightRecorder record(long maxTotalBytes, int from, int to) throws Exception {
+		FlightRecorder recorder = new FlightRecorder(directory, SEGMENT_BYTES, maxTotalBytes);
+		record(recorder, from, to);
+		return recorder;
+	}
+
+	private static void record(FlightRecorder recorder, int from, int to) {
+		for(int i = from; i < to; i++) {
+			recorder.record(PARTITIONS[i % PARTITIONS.length], TYPE, makeSample(i));
+		}
+	}
+
+	private static void close(FlightRecorder recorder) throws Exception {
+		recorder.close();
+		assertTrue("recorder did not close in time", recorder.awaitClose(CLOSE_MILLIS));
+	}
+
+	private static List<Read> read(FlightRecordReader reader, long fromMicros, long toMicros) {
+		final List<Read> retVal = new ArrayList<Read>();
+		reader.read(fromMicros, toMicros, new FlightRecordReader.IRecordVisitor() {
+			@Override
+			public boolean record(String partition, String typeName, long micros, ByteBuffer cdr) {
+				Read read = new Read();
+				read.partition = partition;
+				read.typeName = typeName;
+				read.micros = micros;
+				try {
+					read.sample = (PositionSample)FlightRecordReader.decode(MessageType.valueOf(typeName), cdr);
+				} catch (Exception e) {
+					fail("could not decode record: " + e);
+				}
+				retVal.add(read);
+				return true;
+			}
+		});
+		return retVal;
+	}
+
+	private List<Read> readAll() throws Exception {
+		List<Read> retVal = new ArrayList<Read>();
+		for(File segment : FlightRecorder.listSegments(directory)) {
+			FlightRecordReader reader = new FlightRecordReader(segment);
+			List<Read> reads = read(reader, Long.MIN_VALUE, Long.MAX_VALUE);
+			assertEquals(segment.getName(), reader.getRecordCount(), reads.size());
+			retVal.addAll(reads);
+		}
+		return retVal;
+	}
+
+	@Test
+	public void roundTripAcrossSegments() throws Exception {
+		final int count = 2000;
+		FlightRecorder recorder = record(Long.MAX_VALUE, 0, count);
+		close(recorder);
+
+		assertEquals(count, recorder.getRecordedCount());
+		assertEquals(0, recorder.getDroppedCount());
+		assertEquals(0, recorder.getFailedCount());
+		assertTrue("expected the samples to fill several segments", FlightRecorder.listSegments(directory).length > 1);
+
+		List<Read> reads = readAll();
+		assertEquals(count, reads.size());
+		long lastMicros = Long.MIN_VALUE;
+		for(int i = 0; i < count; i++) {
+			Read read = reads.get(i);
+			assertEquals(PARTITIONS[i % PARTITIONS.length], read.partition);
+			assertEquals(TYPE.name(), read.typeName);
+			assertEquals(makeSample(i), read.sample);
+			assertTrue("records out of order at " + i, read.micros >= lastMicros);
+			lastMicros = read.micros;
+		}
+	}
+
+	@Test
+	public void readFromTimeSkipsEarlierRecords() throws Exception {
+		FlightRecorder recorder = record(Long.MAX_VALUE, 0, 20);
+		// longer than INDEX_INTERVAL_MICROS, so the second batch gets its own index entry
+		Thread.sleep(3 * FlightRecorder.INDEX_INTERVAL_MICROS / 1000);
+		record(recorder, 20, 40);
+		close(recorder);
+
+		File[] segments = FlightRecorder.listSegments(directory);
+		assertEquals(1, segments.length);
+		FlightRecordReader reader = new FlightRecordReader(segments[0]);
+		List<Read> all = read(reader, Long.MIN_VALUE, Long.MAX_VALUE);
+		assertEquals(40, all.size());
+		assertEquals(all.get(0).micros, reader.getStartMicros());
+		assertEquals(all.get(39).micros, reader.getEndMicros());
+
+		List<Read> second = read(reader, all.get(20).micros, Long.MAX_VALUE);
+		assertEquals(20, second.size());
+		for(int i = 0; i < second.size(); i++) {
+			assertEquals(makeSample(20 + i), second.get(i).sample);
+		}
+
+		List<Read> first = read(reader, Long.MIN_VALUE, all.get(19).micros);
+		assertEquals(20, first.size());
+		assertEquals(makeSample(19), first.get(19).sample);
+	}
+
+	@Test
+	public void oldestSegmentsAreDeletedOverBudget() throws Exception {
+		final long budget = 4L * SEGMENT_BYTES;
+		final int count = 5000;
+		FlightRecorder recorder = record(budget, 0, count);
+		close(recorder);
+
+		assertEquals(count, recorder.getRecordedCount());
+		long total = 0;
+		for(File segment : FlightRecorder.listSegments(directory)) {
+			total += segment.length();
+		}
+		assertTrue("segments use " + total + " bytes", total <= budget);
+
+		// what is left is the newest samples, still in order
+		List<Read> reads = readAll();
+		assertFalse(reads.isEmpty());
+		assertTrue(reads.size() < count);
+		int serial = count - reads.size();
+		for(Read read : reads) {
+			assertEquals(makeSample(serial++), read.sample);
+		}
+	}
+}
@@ -183,17 +183,23 @@ public class DdsInitializerBase {
 				initializePreferenceDefaults(appBundleId);
 
 				// == Mandatory DDS and RAPID setup =====================
-				setupDdsImplementation();
 				setupDdsPreferences();
+				setupDdsImplementation();
 				setupDdsTypeSupport();
 				setupRuntimeMessageTypes();
 
-				// -- Create the default factory configuration
-				DomainParticipantFactoryConfig dpfConfig = new DomainParticipantFactoryConfig();
-				dpfConfig.qosUrlGroups = DdsPreferences.getProfileUrlGroups();
-				dpfConfig.isIgnoreEnvironmentProfile = DdsPreferences.isIgnoreEnvironmentProfile();
-				dpfConfig.isIgnoreUserProfile = DdsPreferences.isIgnoreUserProfile();
-				DdsEntityFactory.initDomainParticipantFactory(dpfConfig);
+				if(DdsPreferences.isLoopbackTransport()) {
+					// -- run on the in-process bus instead of RTI
+					DdsEntityFactory.enableLoopbackBus(DdsPreferences.getProfileUrlGroups());
+				}
+				else {
+					// -- Create the default factory configuration
+					DomainParticipantFactoryConfig dpfConfig = new DomainParticipantFactoryConfig();
+					dpfConfig.qosUrlGroups = DdsPreferences.getProfileUrlGroups();
+					dpfConfig.isIgnoreEnvironmentProfile = DdsPreferences.isIgnoreEnvironmentProfile();
+					dpfConfig.isIgnoreUserProfile = DdsPreferences.isIgnoreUserProfile();
+					DdsEntityFactory.initDomainParticipantFactory(dpfConfig);
+				}
 
 				createParticipants();
 				s_initialized.set(true);
@@ -213,6 +219,18 @@ public class DdsInitializerBase {
 		return "37";
 	}
 
+	private boolean isLoopbackFromCommandLine() {
+		String[] args = Platform.getCommandLineArgs();
+		String flag = "-loopback";
+
+		for(int i=0; i<args.length; i++) {
+			if(args[i].equalsIgnoreCase(flag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	private List<String> getPeersFromCommandLine() {
 		final List<String> peers = new ArrayList<String>();
 		final String[] args = Platform.getCommandLineArgs();
@@ -244,6 +262,7 @@ public class DdsInitializerBase {
 			peers.addAll(Arrays.asList("builtin.shmem://", "shmem://", "127.0.0.1"));
 		}
 		RapidV2UiPreferences.add(DdsPreferenceKeys.P_PEERS_LIST, listToPrefString(peers));
+		RapidV2UiPreferences.add(DdsPreferenceKeys.P_LOOPBACK_TRANSPORT, String.valueOf(isLoopbackFromCommandLine()));
 	}
 
 	/**
@@ -306,9 +325,13 @@ public class DdsInitializerBase {
 	}
 
 	/**
-	 * load native DDS libraries
+	 * load native DDS libraries, unless we are using the loopback transport
 	 */
 	public void setupDdsImplementation() {
+		if(DdsPreferences.isLoopbackTransport()) {
+			System.out.println("Using in-process loopback DDS transport");
+			return;
+		}
 		System.out.println("Loading DDS Libraries...");
 		RtiDdsTarget.loadNativeLibraries();
 	}
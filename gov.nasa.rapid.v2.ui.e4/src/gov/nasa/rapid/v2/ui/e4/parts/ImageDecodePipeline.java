@@ -0,0 +1,511 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the 
+ * Administrator of the National Aeronautics and Space Administration. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.rapid.v2.ui.e4.parts;
+
+import gov.nasa.rapid.v2.e4.agent.Agent;
+import gov.nasa.rapid.v2.e4.message.MessageType;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.log4j.Logger;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.widgets.Display;
+
+import rapid.ImageSensorSample;
+
+/**
+ * Decodes and scales camera images off the display thread.
+ * <p>
+ * Each camera view gets a Channel. The channel counts frames per agent and
+ * topic: when the view subscribes to another camera it calls setStream,
+ * which starts new counters and drops the frames of the previous camera
+ * that have not been shown yet. A channel holds at most one frame
+ * waiting to be decoded; a frame that arrives while another is still
+ * waiting replaces it and the replaced frame is counted as dropped.
+ * Decoding and scaling to the current ImageSensorViewSize run on a worker
+ * pool shared by all channels, one frame per channel at a time. Only the
+ * creation of the SWT Image and the swap into the view run in
+ * Display.asyncExec, and a view that falls behind is only handed the
+ * newest frame. Encoded and scaled pixel buffers are reused from frame to
+ * frame.
+ */
+public class ImageDecodePipeline {
+    private static final Logger logger = Logger.getLogger(ImageDecodePipeline.class);
+
+    private static ImageDecodePipeline s_default = null;
+
+    protected final ExecutorService m_exec;
+
+    /**
+     * Callback for decoded images
+     */
+    public interface IImageDecodeListener {
+        /**
+         * Called on the display thread with a new image scaled to fit the view.
+         * The listener owns the image and must dispose the image it replaces.
+         * @param source the decoded image before scaling
+         */
+        public void imageDecoded(Image image, ImageData source);
+    }
+
+    /**
+     * @return pipeline shared by all camera views
+     */
+    public static synchronized ImageDecodePipeline getDefault() {
+        if(s_default == null) {
+            final int numThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+            s_default = new ImageDecodePipeline(numThreads);
+        }
+        return s_default;
+    }
+
+    public ImageDecodePipeline(int numThreads) {
+        m_exec = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+            private final AtomicInteger m_count = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "ImageDecode-"+m_count.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @param name     name used in the stats until the first setStream
+     * @param viewSize size of the area the image is scaled to fit
+     * @param listener receives the images on the display thread
+     */
+    public Channel createChannel(String name, ImageSensorViewSize viewSize, IImageDecodeListener listener) {
+        return new Channel(name, viewSize, listener);
+    }
+
+    /**
+     * @return name of the frames of msgType from agent in the stats
+     */
+    public static String streamName(Agent agent, MessageType msgType) {
+        return agent.name()+"/"+msgType.getTopicName();
+    }
+
+    /**
+     * Nearest neighbor scaling, like ImageData.scaledTo, but into a
+     * reused pixel buffer when one of the right size is given.
+     * @param spare pixel buffer to reuse, or null
+     */
+    protected static ImageData scaledTo(ImageData source, int width, int height, byte[] spare) {
+        if(source.depth % 8 != 0 || source.alphaData != null || source.maskData != null) {
+            return source.scaledTo(width, height);
+        }
+        final int bytesPerPixel = source.depth / 8;
+        final int pad = source.scanlinePad;
+        final int bytesPerLine = ((width * source.depth + 7) / 8 + (pad - 1)) / pad * pad;
+        final byte[] data = (spare != null && spare.length == bytesPerLine * height) ? spare : new byte[bytesPerLine * height];
+
+        final byte[] src = source.data;
+        for(int y = 0; y < height; y++) {
+            final int srcLine = (int)((long)y * source.height / height) * source.bytesPerLine;
+            int dst = y * bytesPerLine;
+            for(int x = 0; x < width; x++) {
+                int s = srcLine + (int)((long)x * source.width / width) * bytesPerPixel;
+                for(int b = 0; b < bytesPerPixel; b++) {
+                    data[dst++] = src[s++];
+                }
+            }
+        }
+        final ImageData retVal = new ImageData(width, height, source.depth, source.palette, pad, data);
+        retVal.transparentPixel = source.transparentPixel;
+        return retVal;
+    }
+
+    /**
+     * Counters of the frames of one agent and topic
+     */
+    protected static class Stream {
+        final String     name;
+        final AtomicLong received       = new AtomicLong(0);
+        final AtomicLong decoded        = new AtomicLong(0);
+        final AtomicLong dropped        = new AtomicLong(0);
+        final AtomicLong failed         = new AtomicLong(0);
+        final AtomicLong decodeNanos    = new AtomicLong(0);
+        final AtomicLong maxDecodeNanos = new AtomicLong(0);
+
+        Stream(String name) {
+            this.name = name;
+        }
+
+        ImageDecodeStats getStats() {
+            final long numDecoded = decoded.get();
+            final double meanMicros = numDecoded == 0 ? 0 : decodeNanos.get() / 1000.0 / numDecoded;
+            return new ImageDecodeStats(name, received.get(), numDecoded, dropped.get(), failed.get(),
+                                        meanMicros, maxDecodeNanos.get() / 1000);
+        }
+    }
+
+    /**
+     * Frame waiting to be decoded: either encoded bytes, or an image that
+     * is already decoded and only needs scaling. Images that did not come
+     * from a camera, like the placeholder, have no stream.
+     */
+    protected static class Frame {
+        final Stream    stream;
+        final byte[]    encoded;
+        final int       length;
+        final ImageData decoded;
+
+        Frame(Stream stream, byte[] encoded, int length, ImageData decoded) {
+            this.stream  = stream;
+            this.encoded = encoded;
+            this.length  = length;
+            this.decoded = decoded;
+        }
+    }
+
+    /**
+     * Scaled image waiting for the display thread
+     */
+    protected static class Scaled {
+        final Stream    stream;
+        final ImageData scaled;
+        final ImageData source;
+
+        Scaled(Stream stream, ImageData scaled, ImageData source) {
+            this.stream = stream;
+            this.scaled = scaled;
+            this.source = source;
+        }
+    }
+
+    /**
+     * Decode queue of one camera view
+     */
+    public class Channel implements Runnable {
+        protected final ImageSensorViewSize  m_viewSize;
+        protected final IImageDecodeListener m_listener;
+        protected volatile int               m_widthMargin = 0;
+        protected volatile boolean           m_disposed    = false;
+        /** frames of other streams are dropped without being shown, see isCurrent */
+        protected volatile Stream            m_stream;
+
+        // guarded by this
+        private Frame   m_pending     = null;
+        private boolean m_rescale     = false;
+        private boolean m_scheduled   = false;
+        private byte[]  m_spareEncoded = null;
+
+        /** last decoded frame, kept so it can be scaled again when the view is resized */
+        private volatile ImageData m_lastDecoded = null;
+
+        private final AtomicReference<Scaled> m_ready       = new AtomicReference<Scaled>();
+        private final AtomicReference<byte[]> m_spareScaled = new AtomicReference<byte[]>();
+
+        private final Runnable m_swap = new Runnable() {
+            @Override
+            public void run() {
+                swap();
+            }
+        };
+
+        protected Channel(String name, ImageSensorViewSize viewSize, IImageDecodeListener listener) {
+            m_stream   = new Stream(name);
+            m_viewSize = viewSize;
+            m_listener = listener;
+        }
+
+        /**
+         * count the frames submitted from now on as msgType from agent. 
+         * Call before subscribing to the new topic.
+         */
+        public void setStream(Agent agent, MessageType msgType) {
+            setStream(streamName(agent, msgType));
+        }
+
+        /**
+         * Start new counters under name. Frames of the previous stream that 
+         * are waiting, being decoded or waiting for the display thread are 
+         * dropped without being counted, so the view never shows them after 
+         * it has switched. The image shown last stays until a new one arrives.
+         */
+        public void setStream(String name) {
+            synchronized(this) {
+                m_stream = new Stream(name);
+                if(m_pending != null && !isCurrent(m_pending.stream)) {
+                    recycleEncoded(m_pending);
+                    m_pending = null;
+                }
+            }
+            // swap drops a ready image of the previous stream
+        }
+
+        /**
+         * @return true if frames of stream may be shown
+         */
+        protected boolean isCurrent(Stream stream) {
+            return stream == null || stream == m_stream;
+        }
+
+        /**
+         * copy the encoded image out of the sample and queue it for decoding.
+         * Safe to call from the DDS thread; does not decode.
+         */
+        public void submit(ImageSensorSample sample) {
+            if(m_disposed) {
+                return;
+            }
+            final int size = sample.data.userData.size();
+            byte[] buffer;
+            synchronized(this) {
+                buffer = m_spareEncoded;
+                m_spareEncoded = null;
+            }
+            if(buffer == null || buffer.length < size) {
+                buffer = new byte[size];
+            }
+            buffer = sample.data.userData.toArrayByte(buffer);
+            final Stream stream = m_stream;
+            stream.received.incrementAndGet();
+            enqueue(new Frame(stream, buffer, size, null));
+        }
+
+        /**
+         * show an image that is already decoded, e.g. a placeholder
+         */
+        public void submit(ImageData decoded) {
+            if(!m_disposed) {
+                enqueue(new Frame(null, null, 0, decoded));
+            }
+        }
+
+        /**
+         * scale the last image again, e.g. because the view was resized
+         */
+        public void rescale() {
+            boolean schedule;
+            synchronized(this) {
+                m_rescale = true;
+                schedule = !m_scheduled;
+                m_scheduled = true;
+            }
+            if(schedule) {
+                execute();
+            }
+        }
+
+        /**
+         * pixels of this width are subtracted from the view width before scaling
+         */
+        public void setWidthMargin(int widthMargin) {
+            m_widthMargin = widthMargin;
+        }
+
+        public void dispose() {
+            m_disposed = true;
+            synchronized(this) {
+                m_pending = null;
+            }
+            m_ready.set(null);
+        }
+
+        /**
+         * @return counters of the current stream
+         */
+        public ImageDecodeStats getStats() {
+            return m_stream.getStats();
+        }
+
+        protected void enqueue(Frame frame) {
+            boolean schedule;
+            synchronized(this) {
+                if(m_pending != null) {
+                    if(m_pending.stream != null) {
+                        m_pending.stream.dropped.incrementAndGet();
+                    }
+                    recycleEncoded(m_pending);
+                }
+                m_pending = frame;
+                schedule = !m_scheduled;
+                m_scheduled = true;
+            }
+            if(schedule) {
+                execute();
+            }
+        }
+
+        private void execute() {
+            try {
+                m_exec.execute(this);
+            }
+            catch(RuntimeException e) {
+                synchronized(this) {
+                    m_scheduled = false;
+                }
+                logger.warn("Could not schedule image decode for "+m_stream.name, e);
+            }
+        }
+
+        /**
+         * decode and scale one frame, then reschedule if more work arrived
+         */
+        @Override
+        public void run() {
+            final Frame frame;
+            synchronized(this) {
+                frame = m_pending;
+                m_pending = null;
+                m_rescale = false;
+            }
+            try {
+                if(!m_disposed) {
+                    process(frame);
+                }
+            }
+            catch(Throwable t) {
+                logger.error("Image decode failed for "+m_stream.name, t);
+            }
+            finally {
+                boolean more;
+                synchronized(this) {
+                    more = !m_disposed && (m_pending != null || m_rescale);
+                    m_scheduled = more;
+                }
+                if(more) {
+                    execute();
+                }
+            }
+        }
+
+        protected void process(Frame frame) {
+            ImageData source = m_lastDecoded;
+            Stream stream = null;
+            if(frame != null) {
+                if(!isCurrent(frame.stream)) {
+                    recycleEncoded(frame);
+                    return;
+                }
+                stream = frame.stream;
+                source = frame.decoded != null ? frame.decoded : decode(frame);
+                if(source == null) {
+                    return;
+                }
+                m_lastDecoded = source;
+            }
+            if(source == null) {
+                return;
+            }
+            deliver(new Scaled(stream, scaleIfNecessary(source), source));
+        }
+
+        protected ImageData decode(Frame frame) {
+            final long start = System.nanoTime();
+            try {
+                final ImageData retVal = new ImageData(new ByteArrayInputStream(frame.encoded, 0, frame.length));
+                final long nanos = System.nanoTime() - start;
+                final Stream stream = frame.stream;
+                stream.decoded.incrementAndGet();
+                stream.decodeNanos.addAndGet(nanos);
+                long max = stream.maxDecodeNanos.get();
+                while(nanos > max && !stream.maxDecodeNanos.compareAndSet(max, nanos)) {
+                    max = stream.maxDecodeNanos.get();
+                }
+                return retVal;
+            }
+            catch(RuntimeException e) {
+                frame.stream.failed.incrementAndGet();
+                logger.debug("Could not decode image from "+frame.stream.name+": "+e.getMessage());
+                return null;
+            }
+            finally {
+                recycleEncoded(frame);
+            }
+        }
+
+        protected ImageData scaleIfNecessary(ImageData source) {
+            int viewW, viewH;
+            synchronized(m_viewSize) {
+                viewW = m_viewSize.width - m_widthMargin;
+                viewH = m_viewSize.height;
+            }
+            final double scaleW = (double)(viewW-1) / (double)source.width;
+            final double scaleH = (double)(viewH-1) / (double)source.height;
+            final double scale = (scaleW < scaleH) ? scaleW : scaleH;
+            if(scale < 1) {
+                final int sW = (int)(source.width * scale);
+                final int sH = (int)(source.height * scale);
+                if(sW > 0 && sH > 0) {
+                    return scaledTo(source, sW, sH, m_spareScaled.getAndSet(null));
+                }
+            }
+            return source;
+        }
+
+        protected void deliver(Scaled scaled) {
+            final Scaled previous = m_ready.getAndSet(scaled);
+            if(previous != null) {
+                // the display thread has not picked up the previous frame yet
+                if(previous.stream != null) {
+                    previous.stream.dropped.incrementAndGet();
+                }
+                recycleScaled(previous);
+            }
+            else {
+                final Display display = Display.getDefault();
+                if(display != null && !display.isDisposed()) {
+                    display.asyncExec(m_swap);
+                }
+            }
+        }
+
+        /** must be called from the display thread */
+        protected void swap() {
+            final Scaled scaled = m_ready.getAndSet(null);
+            if(scaled == null || m_disposed) {
+                return;
+            }
+            if(!isCurrent(scaled.stream)) {
+                recycleScaled(scaled);
+                return;
+            }
+            final Image image = new Image(null, scaled.scaled);
+            recycleScaled(scaled);
+            m_listener.imageDecoded(image, scaled.source);
+        }
+
+        private void recycleEncoded(Frame frame) {
+            if(frame.encoded != null) {
+                synchronized(this) {
+                    if(m_spareEncoded == null || m_spareEncoded.length < frame.encoded.length) {
+                        m_spareEncoded = frame.encoded;
+                    }
+                }
+            }
+        }
+
+        private void recycleScaled(Scaled scaled) {
+            if(scaled.scaled != scaled.source) {
+                m_spareScaled.set(scaled.scaled.data);
+            }
+        }
+    }
+}
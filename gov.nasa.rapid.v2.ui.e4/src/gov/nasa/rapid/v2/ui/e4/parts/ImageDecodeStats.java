@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2013 United States Government as represented by the 
+ * Administrator of the National Aeronautics and Space Administration. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package gov.nasa.rapid.v2.ui.e4.parts;
+
+/**
+ * Snapshot of the counters of the stream an ImageDecodePipeline channel 
+ * is showing
+ */
+public class ImageDecodeStats {
+    /** agent and topic of the frames, see ImageDecodePipeline.streamName */
+    public final String name;
+    /** number of frames received */
+    public final long   received;
+    /** number of frames decoded */
+    public final long   decoded;
+    /** number of frames replaced by a newer one before they were decoded or shown */
+    public final long   dropped;
+    /** number of frames that could not be decoded */
+    public final long   failed;
+    public final double meanDecodeMicros;
+    public final long   maxDecodeMicros;
+
+    public ImageDecodeStats(String name, long received, long decoded, long dropped, long failed,
+                            double meanDecodeMicros, long maxDecodeMicros) {
+        this.name             = name;
+        this.received         = received;
+        this.decoded          = decoded;
+        this.dropped          = dropped;
+        this.failed           = failed;
+        this.meanDecodeMicros = meanDecodeMicros;
+        this.maxDecodeMicros  = maxDecodeMicros;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: received=%d decoded=%d dropped=%d failed=%d decode mean=%.1fms max=%.1fms",
+                             name, received, decoded, dropped, failed, meanDecodeMicros / 1000.0, maxDecodeMicros / 1000.0);
+    }
+}
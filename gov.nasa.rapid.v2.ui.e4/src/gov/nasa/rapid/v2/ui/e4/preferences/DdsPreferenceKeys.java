@@ -30,6 +30,7 @@ public class DdsPreferenceKeys {
     public static final String P_IPv4_DENY_LIST      = "DdsIpv4DenyList";
 	public static final String P_IGNORE_USER_PROFILE = "IgnoreUserProfile";
 	public static final String P_IGNORE_ENV_PROFILE  = "IgnoreEnvironmentProfile";
+	public static final String P_LOOPBACK_TRANSPORT  = "LoopbackTransport";
 	
 	public static String domainId(String participantId) {
 	    return participantId+"DomainId";
@@ -82,4 +82,8 @@ public class DdsPreferencesEclipseUi implements IDdsPreferences {
     public boolean isTransportDisabled(String transportName) {
         return prefBool(DdsPreferenceKeys.transportDisabled(transportName));
     }
+    @Override
+    public boolean isLoopbackTransport() {
+        return prefBool(DdsPreferenceKeys.P_LOOPBACK_TRANSPORT);
+    }
 }